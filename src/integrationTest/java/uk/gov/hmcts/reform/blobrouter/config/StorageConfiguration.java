@@ -1,8 +1,10 @@
 package uk.gov.hmcts.reform.blobrouter.config;
 
 import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceAsyncClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.batch.BlobBatchClient;
 import com.azure.storage.blob.specialized.BlobLeaseClientBuilder;
 import com.azure.storage.common.StorageSharedKeyCredential;
 import org.springframework.beans.factory.annotation.Value;
@@ -32,6 +34,20 @@ public class StorageConfiguration {
             .buildClient();
     }
 
+    @Bean
+    public BlobServiceAsyncClient getStorageAsyncClient(BlobServiceClient storageClient) {
+        // shares the pipeline, i.e. credentials, retry policy and HTTP client, of the synchronous client
+        return new BlobServiceClientBuilder()
+            .endpoint(storageClient.getAccountUrl())
+            .pipeline(storageClient.getHttpPipeline())
+            .buildAsyncClient();
+    }
+
+    @Bean
+    public BlobBatchClient getBlobBatchClient() {
+        return mock(BlobBatchClient.class);
+    }
+
     @Bean("crime-storage-client")
     public BlobContainerClient getCrimeContainerClient() {
         return mock(BlobContainerClient.class);
@@ -20,5 +20,6 @@ public class DbHelper {
         jdbcTemplate.update("DELETE FROM envelopes", new MapSqlParameterSource());
         jdbcTemplate.update("DELETE FROM envelope_supplier_statements", new MapSqlParameterSource());
         jdbcTemplate.update("DELETE FROM envelope_reconciliation_reports", new MapSqlParameterSource());
+        jdbcTemplate.update("DELETE FROM scan_watermarks", new MapSqlParameterSource());
     }
 }
@@ -1,6 +1,5 @@
 package uk.gov.hmcts.reform.blobrouter.data;
 
-import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -10,18 +9,19 @@ import org.springframework.test.context.ActiveProfiles;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.EnvelopeRepository;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.NewEnvelope;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Status;
-import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEvent;
 import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEventRepository;
 import uk.gov.hmcts.reform.blobrouter.data.events.ErrorCode;
 import uk.gov.hmcts.reform.blobrouter.data.events.EventType;
 import uk.gov.hmcts.reform.blobrouter.data.events.NewEnvelopeEvent;
 
+import java.util.List;
 import java.util.UUID;
 
 import static java.time.Instant.now;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ActiveProfiles({"integration-test", "db-test"})
 @SpringBootTest
@@ -38,30 +38,23 @@ public class EnvelopeEventRepositoryTest {
     }
 
     @Test
-    void should_save_and_read_events() {
+    void should_save_events_in_batch() {
         // given
         var envelopeId = envelopeRepo.insert(new NewEnvelope("c", "f", now(), null, Status.CREATED));
 
         var event1 = new NewEnvelopeEvent(envelopeId, EventType.REJECTED, ErrorCode.ERR_SIG_VERIFY_FAILED, "note 1");
-        var event2 = new NewEnvelopeEvent(envelopeId, EventType.DELETED, null, "note 2");
+        var event2 = new NewEnvelopeEvent(envelopeId, EventType.DELETED, null, null);
 
         // when
-        long eventId1 = eventRepo.insert(event1);
-        long eventId2 = eventRepo.insert(event2);
-
-        var eventsInDb = eventRepo.findForEnvelope(envelopeId);
+        eventRepo.insertAll(asList(event1, event2));
 
         // then
-        assertThat(eventsInDb)
-            .hasSize(2)
-            .usingElementComparatorIgnoringFields("createdAt")
+        assertThat(eventRepo.findForEnvelope(envelopeId))
+            .extracting(e -> e.type, e -> e.errorCode, e -> e.notes)
             .containsExactlyInAnyOrder(
-                envelopeEvent(envelopeId, event1, eventId1),
-                envelopeEvent(envelopeId, event2, eventId2)
+                tuple(EventType.REJECTED, ErrorCode.ERR_SIG_VERIFY_FAILED, "note 1"),
+                tuple(EventType.DELETED, null, null)
             );
-
-        assertThat(eventsInDb.get(0).createdAt).isNotNull();
-        assertThat(eventsInDb.get(1).createdAt).isNotNull();
     }
 
     @Test
@@ -70,7 +63,7 @@ public class EnvelopeEventRepositoryTest {
         var event = new NewEnvelopeEvent(UUID.randomUUID(), EventType.REJECTED, ErrorCode.ERR_AV_FAILED, "note");
 
         // when
-        Throwable exc = catchThrowable(() -> eventRepo.insert(event));
+        Throwable exc = catchThrowable(() -> eventRepo.insertAll(List.of(event)));
 
         // then
         assertThat(exc)
@@ -93,22 +86,20 @@ public class EnvelopeEventRepositoryTest {
         var event2a = new NewEnvelopeEvent(envelopeId2, EventType.FILE_PROCESSING_STARTED, null, "note 3");
         var event2b = new NewEnvelopeEvent(envelopeId2, EventType.DISPATCHED, null, "note 4");
 
-        // when
-        var eventId1a = eventRepo.insert(event1a);
-        var eventId2a = eventRepo.insert(event2a);
-        var eventId2b = eventRepo.insert(event2b);
+        eventRepo.insertAll(asList(event1a, event2a, event2b));
 
+        // when
         var eventsInDb = eventRepo.findForEnvelopes(asList(envelopeId1, envelopeId2));
 
         // then
         assertThat(eventsInDb)
-            .hasSize(3)
-            .usingElementComparatorIgnoringFields("createdAt")
+            .extracting(e -> e.envelopeId, e -> e.type, e -> e.notes)
             .containsExactly(
-                envelopeEvent(envelopeId2, event2b, eventId2b),
-                envelopeEvent(envelopeId2, event2a, eventId2a),
-                envelopeEvent(envelopeId1, event1a, eventId1a)
+                tuple(envelopeId2, EventType.DISPATCHED, "note 4"),
+                tuple(envelopeId2, EventType.FILE_PROCESSING_STARTED, "note 3"),
+                tuple(envelopeId1, EventType.FILE_PROCESSING_STARTED, "note 1")
             );
+        assertThat(eventsInDb).allMatch(e -> e.createdAt != null);
     }
 
     @Test
@@ -123,10 +114,4 @@ public class EnvelopeEventRepositoryTest {
         // then
         assertThat(eventsInDb).isEmpty();
     }
-
-    @NotNull
-    private EnvelopeEvent envelopeEvent(UUID envelopeId, NewEnvelopeEvent event, long eventId) {
-        return new EnvelopeEvent(eventId, envelopeId, event.type, event.errorCode, event.notes, now());
-    }
-
 }
@@ -20,6 +20,7 @@ import static com.google.common.collect.Sets.newHashSet;
 import static java.time.Instant.now;
 import static java.time.temporal.ChronoUnit.MINUTES;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 
 @ActiveProfiles({"integration-test", "db-test"})
 @SpringBootTest
@@ -92,25 +93,29 @@ public class EnvelopeRepositoryTest {
     }
 
     @Test
-    void should_mark_existing_envelope_as_deleted() {
+    void should_mark_envelopes_as_deleted_in_bulk() {
         // given
-        var newEnvelope = new NewEnvelope(
-            "container",
-            "hello.zip",
-            now(),
-            now().plusSeconds(100),
-            Status.DISPATCHED
-        );
+        UUID id1 = repo.insert(new NewEnvelope("container", "a.zip", now(), now(), Status.DISPATCHED));
+        UUID id2 = repo.insert(new NewEnvelope("container", "b.zip", now(), now(), Status.REJECTED));
+        UUID id3 = repo.insert(new NewEnvelope("container", "c.zip", now(), now(), Status.DISPATCHED));
 
-        UUID id = repo.insert(newEnvelope);
+        // when
+        int updateCount = repo.markAsDeleted(List.of(id1, id2));
+
+        // then
+        assertThat(updateCount).isEqualTo(2);
+        assertThat(repo.find(id1)).hasValueSatisfying(env -> assertThat(env.isDeleted).isTrue());
+        assertThat(repo.find(id2)).hasValueSatisfying(env -> assertThat(env.isDeleted).isTrue());
+        assertThat(repo.find(id3)).hasValueSatisfying(env -> assertThat(env.isDeleted).isFalse());
+    }
 
+    @Test
+    void should_not_update_anything_when_no_ids_are_given() {
         // when
-        int updateCount = repo.markAsDeleted(id);
-        Optional<Envelope> envelopeAfterUpdate = repo.find(id);
+        int updateCount = repo.markAsDeleted(List.of());
 
         // then
-        assertThat(updateCount).isEqualTo(1);
-        assertThat(envelopeAfterUpdate).hasValueSatisfying(env -> assertThat(env.isDeleted).isEqualTo(true));
+        assertThat(updateCount).isZero();
     }
 
     @Test
@@ -136,33 +141,49 @@ public class EnvelopeRepositoryTest {
     }
 
     @Test
-    void should_update_envelopes_status() {
+    void should_mark_envelope_as_dispatched() {
         // given
-        var oldStatus = Status.DISPATCHED;
-        var newStatus = Status.REJECTED;
-
-        UUID id = repo.insert(new NewEnvelope("a", "b", now(), null, oldStatus));
+        UUID id = repo.insert(new NewEnvelope("a", "b", now(), null, Status.CREATED));
+        Instant dispatchTime = now();
 
         // when
-        repo.updateStatus(id, newStatus);
+        int updateCount = repo.markAsDispatched(id, dispatchTime);
 
         // then
-        assertThat(repo.find(id))
-            .hasValueSatisfying(env -> assertThat(env.status).isEqualTo(newStatus));
+        assertThat(updateCount).isEqualTo(1);
+        assertThat(repo.find(id)).hasValueSatisfying(env -> {
+            assertThat(env.status).isEqualTo(Status.DISPATCHED);
+            assertThat(env.dispatchedAt).isEqualTo(dispatchTime);
+            assertThat(env.pendingNotification).isFalse();
+        });
     }
 
     @Test
-    void should_update_dispatch_time() {
+    void should_mark_envelope_as_rejected_with_notification_pending() {
         // given
-        UUID id = repo.insert(new NewEnvelope("a", "b", now(), null, Status.DISPATCHED));
-        Instant newDispatchTime = now();
+        UUID id = repo.insert(new NewEnvelope("a", "b", now(), null, Status.CREATED));
 
         // when
-        repo.updateDispatchDateTime(id, newDispatchTime);
+        int updateCount = repo.markAsRejected(id);
 
         // then
-        assertThat(repo.find(id))
-            .hasValueSatisfying(env -> assertThat(env.dispatchedAt).isEqualTo(newDispatchTime));
+        assertThat(updateCount).isEqualTo(1);
+        assertThat(repo.find(id)).hasValueSatisfying(env -> {
+            assertThat(env.status).isEqualTo(Status.REJECTED);
+            assertThat(env.dispatchedAt).isNull();
+            assertThat(env.pendingNotification).isTrue();
+        });
+    }
+
+    @Test
+    void should_return_zero_when_marking_not_existing_envelope() {
+        // when
+        int dispatchedCount = repo.markAsDispatched(UUID.randomUUID(), now());
+        int rejectedCount = repo.markAsRejected(UUID.randomUUID());
+
+        // then
+        assertThat(dispatchedCount).isZero();
+        assertThat(rejectedCount).isZero();
     }
 
     @Test
@@ -170,7 +191,7 @@ public class EnvelopeRepositoryTest {
         // given no envelopes in DB
 
         // when
-        int updateCount = repo.markAsDeleted(UUID.randomUUID());
+        int updateCount = repo.markAsDeleted(List.of(UUID.randomUUID()));
 
         // then
         assertThat(updateCount).isEqualTo(0);
@@ -216,7 +237,7 @@ public class EnvelopeRepositoryTest {
         String containerName = "container1";
         NewEnvelope envelope = newEnvelope(Status.DISPATCHED, containerName);
         UUID id = repo.insert(envelope);
-        repo.markAsDeleted(id);
+        repo.markAsDeleted(List.of(id));
 
         // when
         List<Envelope> deleted = repo.find(Status.DISPATCHED, containerName, true);
@@ -271,6 +292,41 @@ public class EnvelopeRepositoryTest {
         assertThat(result).isEmpty();
     }
 
+    @Test
+    void should_find_last_envelope_for_each_file_name_in_container() {
+        // given
+        final String container = "bar";
+
+        repo.insert(new NewEnvelope(container, "a.zip", now().minusSeconds(99), now(), Status.DISPATCHED));
+        repo.insert(new NewEnvelope(container, "a.zip", now().minusSeconds(10), null, Status.REJECTED));
+        repo.insert(new NewEnvelope(container, "b.zip", now(), null, Status.CREATED));
+        repo.insert(new NewEnvelope("other", "c.zip", now(), null, Status.CREATED));
+        repo.insert(new NewEnvelope(container, "d.zip", now(), null, Status.CREATED));
+
+        // when
+        List<Envelope> result = repo.findLast(List.of("a.zip", "b.zip", "c.zip", "x.zip"), container);
+
+        // then
+        assertThat(result)
+            .extracting(envelope -> tuple(envelope.fileName, envelope.status))
+            .containsExactlyInAnyOrder(
+                tuple("a.zip", Status.REJECTED),
+                tuple("b.zip", Status.CREATED)
+            );
+    }
+
+    @Test
+    void should_return_empty_list_when_looking_up_last_envelopes_for_no_file_names() {
+        // given
+        repo.insert(new NewEnvelope("a", "b", now(), now(), Status.DISPATCHED));
+
+        // when
+        List<Envelope> result = repo.findLast(List.of(), "a");
+
+        // then
+        assertThat(result).isEmpty();
+    }
+
     @Test
     void should_find_envelopes_by_status() {
         //given
@@ -412,7 +468,7 @@ public class EnvelopeRepositoryTest {
     private UUID addEnvelope(String container, String fileName, Status status, boolean isDeleted) {
         UUID id = repo.insert(new NewEnvelope(container, fileName, now(), now(), status));
         if (isDeleted) {
-            repo.markAsDeleted(id);
+            repo.markAsDeleted(List.of(id));
         }
         return id;
     }
@@ -0,0 +1,62 @@
+package uk.gov.hmcts.reform.blobrouter.data;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import uk.gov.hmcts.reform.blobrouter.data.scans.ScanWatermarkRepository;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ActiveProfiles({"integration-test", "db-test"})
+@SpringBootTest
+class ScanWatermarkRepositoryTest {
+
+    @Autowired private ScanWatermarkRepository repo;
+    @Autowired private DbHelper dbHelper;
+
+    @BeforeEach
+    void setUp() {
+        dbHelper.deleteAll();
+    }
+
+    @Test
+    void should_save_and_find_watermark_of_full_scan() {
+        // given
+        var fullScanAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        var watermark = fullScanAt.minusSeconds(600);
+
+        // when
+        repo.saveFullScan("scan", "c1", watermark.minusSeconds(60), fullScanAt.minusSeconds(60));
+        repo.saveFullScan("scan", "c1", watermark, fullScanAt);
+
+        // then
+        assertThat(repo.find("scan", "c1")).hasValueSatisfying(w -> {
+            assertThat(w.watermark).isEqualTo(watermark);
+            assertThat(w.lastFullScanAt).isEqualTo(fullScanAt);
+        });
+        assertThat(repo.find("scan", "c2")).isEmpty();
+        assertThat(repo.find("other-scan", "c1")).isEmpty();
+    }
+
+    @Test
+    void should_update_watermark_keeping_time_of_last_full_scan() {
+        // given
+        var fullScanAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        repo.saveFullScan("scan", "c1", fullScanAt.minusSeconds(600), fullScanAt);
+
+        // when
+        int updated = repo.updateWatermark("scan", "c1", fullScanAt.plusSeconds(60));
+
+        // then
+        assertThat(updated).isEqualTo(1);
+        assertThat(repo.find("scan", "c1")).hasValueSatisfying(w -> {
+            assertThat(w.watermark).isEqualTo(fullScanAt.plusSeconds(60));
+            assertThat(w.lastFullScanAt).isEqualTo(fullScanAt);
+        });
+    }
+}
@@ -13,6 +13,7 @@ import java.util.List;
 
 import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.SoftAssertions.assertSoftly;
+import static org.mockito.Mockito.mock;
 
 class BlobMoverTest extends BlobStorageBaseTest {
 
@@ -20,7 +21,7 @@ class BlobMoverTest extends BlobStorageBaseTest {
 
     @BeforeEach
     void setUp() {
-        mover = new BlobMover(storageClient);
+        mover = new BlobMover(storageClient, mock(BlobBatchDeleter.class), false);
     }
 
     @AfterEach
@@ -42,7 +43,7 @@ class BlobMoverTest extends BlobStorageBaseTest {
             .uploadFromFile("src/integrationTest/resources/storage/test1.zip");
 
         // when
-        mover.moveToRejectedContainer(blobName, "sample-container");
+        mover.moveToRejectedContainer(List.of(blobName), "sample-container");
 
         // then
         assertSoftly(softly -> {
@@ -75,7 +76,7 @@ class BlobMoverTest extends BlobStorageBaseTest {
             .uploadFromFile("src/integrationTest/resources/storage/test1.zip");
 
         // when
-        mover.moveToRejectedContainer(blobName, "hello");
+        mover.moveToRejectedContainer(List.of(blobName), "hello");
 
 
         List<BlobItem> blobsAndSnapshots =
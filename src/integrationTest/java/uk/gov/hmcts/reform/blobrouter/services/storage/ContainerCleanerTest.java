@@ -4,6 +4,7 @@ import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.models.BlobItem;
 import com.google.common.collect.Iterables;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,6 +24,7 @@ import java.util.List;
 
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
 import static uk.gov.hmcts.reform.blobrouter.data.envelopes.Status.DISPATCHED;
 import static uk.gov.hmcts.reform.blobrouter.data.envelopes.Status.REJECTED;
 
@@ -58,7 +60,15 @@ public class ContainerCleanerTest extends BlobStorageBaseTest {
         dbHelper.deleteAll();
         containerClient = createContainer(CONTAINER_NAME);
 
-        containerCleaner = new ContainerCleaner(storageClient, envelopeService, leaseAcquirer);
+        containerCleaner = new ContainerCleaner(
+            storageClient,
+            envelopeService,
+            leaseAcquirer,
+            mock(BlobBatchDeleter.class), // not supported by the storage emulator
+            MoreExecutors.directExecutor(),
+            2,
+            false
+        );
     }
 
     @AfterEach
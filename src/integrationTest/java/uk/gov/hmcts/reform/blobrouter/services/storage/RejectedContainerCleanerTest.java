@@ -20,6 +20,7 @@ class RejectedContainerCleanerTest extends BlobStorageBaseTest {
 
     @Autowired EnvelopeService envelopeService;
     @Autowired LeaseAcquirer leaseAcquirer;
+    @Autowired BlobLister blobLister;
 
     @Mock RejectedBlobChecker blobChecker;
 
@@ -36,7 +37,8 @@ class RejectedContainerCleanerTest extends BlobStorageBaseTest {
         given(blobChecker.shouldBeDeleted(any())).willReturn(true); // always allow deleting blobs
 
         // when
-        new RejectedContainerCleaner(storageClient, blobChecker, envelopeService, leaseAcquirer).cleanUp();
+        new RejectedContainerCleaner(storageClient, blobLister, blobChecker, envelopeService, leaseAcquirer, 2)
+            .cleanUp();
 
         // then
         assertThat(normalContainer.listBlobs())
@@ -3,10 +3,14 @@ package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobContainerClientBuilder;
+import com.azure.storage.blob.BlobServiceClientBuilder;
 import com.azure.storage.blob.models.BlobItem;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
-import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,9 +22,14 @@ import uk.gov.hmcts.reform.blobrouter.data.envelopes.EnvelopeRepository;
 import uk.gov.hmcts.reform.blobrouter.services.BlobContentExtractor;
 import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.BufferPool;
+import uk.gov.hmcts.reform.blobrouter.services.storage.AsyncBlobUploader;
 import uk.gov.hmcts.reform.blobrouter.services.storage.BlobContainerClientBuilderProvider;
 import uk.gov.hmcts.reform.blobrouter.services.storage.BlobContainerClientProxy;
 import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDispatcher;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDownloader;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlockBlobUploader;
+import uk.gov.hmcts.reform.blobrouter.services.storage.Lease;
 import uk.gov.hmcts.reform.blobrouter.services.storage.SasTokenCache;
 import uk.gov.hmcts.reform.blobrouter.util.BlobStorageBaseTest;
 
@@ -47,20 +56,26 @@ class BlobProcessorTest extends BlobStorageBaseTest {
     @Autowired EnvelopeRepository envelopeRepo;
     @Autowired ServiceConfiguration serviceConfiguration;
     @Autowired BlobContentExtractor contentExtractor;
+    @Autowired BlockBlobUploader blobUploader;
+    @Autowired AsyncBlobUploader asyncBlobUploader;
     @Autowired DbHelper dbHelper;
+    @Autowired MeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         containerClientProvider = new BlobContainerClientProxy(
             mock(BlobContainerClient.class),
             blobContainerClientBuilderProvider,
-            mock(SasTokenCache.class)
+            mock(SasTokenCache.class),
+            blobUploader,
+            asyncBlobUploader
         );
         dbHelper.deleteAll();
     }
 
-    @Test
-    void should_copy_file_from_source_to_target_container() throws Exception {
+    @ParameterizedTest
+    @ValueSource(strings = {"blocking", "async"})
+    void should_copy_file_from_source_to_target_container(String uploadEngine) throws Exception {
         // given
         var sourceContainer = "bulkscan";
         var targetContainer = "bulkscan-target";
@@ -73,17 +88,43 @@ class BlobProcessorTest extends BlobStorageBaseTest {
             .willReturn(blobContainerClientBuilder);
         given(blobContainerClientBuilder.sasToken(any())).willReturn(blobContainerClientBuilder);
         given(blobContainerClientBuilder.containerName(any())).willReturn(blobContainerClientBuilder);
-        given(blobContainerClientBuilder.buildClient()).willReturn(targetContainerClient);
+        if ("async".equals(uploadEngine)) {
+            given(blobContainerClientBuilder.buildAsyncClient()).willReturn(
+                new BlobContainerClientBuilder()
+                    .endpoint(targetContainerClient.getBlobContainerUrl())
+                    .pipeline(targetContainerClient.getHttpPipeline())
+                    .buildAsyncClient()
+            );
+        } else {
+            given(blobContainerClientBuilder.buildClient()).willReturn(targetContainerClient);
+        }
 
         var dispatcher = new BlobDispatcher(containerClientProvider);
+        var bufferPool = new BufferPool(256, 4096, 1024, meterRegistry);
 
         var blobProcessor =
             new BlobProcessor(
                 dispatcher,
+                new BlobDownloader(
+                    new BlobServiceClientBuilder()
+                        .endpoint(storageClient.getAccountUrl())
+                        .pipeline(storageClient.getHttpPipeline())
+                        .buildAsyncClient(),
+                    MoreExecutors.directExecutor(),
+                    bufferPool,
+                    1024,
+                    512,
+                    2,
+                    2
+                ),
                 envelopeService,
                 new BlobVerifier("signing/test_public_key.der"),
                 contentExtractor,
-                serviceConfiguration
+                serviceConfiguration,
+                bufferPool,
+                false,
+                uploadEngine,
+                meterRegistry
             );
 
         var blobName = "hello.zip";
@@ -96,7 +137,7 @@ class BlobProcessorTest extends BlobStorageBaseTest {
             .upload(new ByteArrayInputStream(bytes), bytes.length);
 
         // when
-        blobProcessor.process(blobClient);
+        blobProcessor.process(blobClient, mock(Lease.class));
 
         // then
         assertThat(targetContainerClient.listBlobs())
@@ -3,6 +3,8 @@ package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.specialized.BlobClientBase;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -16,6 +18,8 @@ import org.springframework.test.context.ActiveProfiles;
 import uk.gov.hmcts.reform.blobrouter.data.DbHelper;
 import uk.gov.hmcts.reform.blobrouter.services.BlobReadinessChecker;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanWatermarkService;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobLister;
 import uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer;
 import uk.gov.hmcts.reform.blobrouter.util.BlobStorageBaseTest;
 
@@ -37,6 +41,8 @@ class ContainerProcessorTest extends BlobStorageBaseTest {
 
     @Autowired EnvelopeService envelopeService;
     @Autowired LeaseAcquirer leaseAcquirer;
+    @Autowired ScanWatermarkService scanWatermarkService;
+    @Autowired BlobLister blobLister;
     @Autowired DbHelper dbHelper;
 
     @Mock BlobProcessor blobProcessor;
@@ -49,10 +55,15 @@ class ContainerProcessorTest extends BlobStorageBaseTest {
     void setUp() {
         containerProcessor = new ContainerProcessor(
             storageClient,
+            blobLister,
             blobProcessor,
             blobReadinessChecker,
             leaseAcquirer,
-            envelopeService
+            envelopeService,
+            scanWatermarkService,
+            MoreExecutors.directExecutor(),
+            1,
+            new SimpleMeterRegistry()
         );
         containerClient = createContainer(CONTAINER_NAME);
     }
@@ -77,7 +88,7 @@ class ContainerProcessorTest extends BlobStorageBaseTest {
 
         // then
         var blobArgCaptor = ArgumentCaptor.forClass(BlobClient.class);
-        verify(blobProcessor, times(2)).process(blobArgCaptor.capture());
+        verify(blobProcessor, times(2)).process(blobArgCaptor.capture(), any());
 
         assertThat(blobArgCaptor.getAllValues())
             .extracting(BlobClientBase::getBlobName)
@@ -95,7 +106,7 @@ class ContainerProcessorTest extends BlobStorageBaseTest {
         containerProcessor.process(CONTAINER_NAME);
 
         // then
-        verify(blobProcessor, never()).process(any());
+        verify(blobProcessor, never()).process(any(), any());
     }
 
     void upload(BlobContainerClient containerClient, String fileName) {
@@ -0,0 +1,55 @@
+package uk.gov.hmcts.reform.blobrouter.benchmarks;
+
+import com.google.common.io.ByteSource;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier;
+import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier.VerificationResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Preparing content to upload, which is verified and extracted in the same pass.
+ * Comparing the two benchmarks gives the cost of extracting the envelope.
+ * Multiply ops/s by {@code sizeInMb} to get MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ContentExtractionBenchmark {
+
+    private BlobVerifier blobVerifier;
+
+    @Setup
+    public void setUp() {
+        blobVerifier = new BlobVerifier(SignedEnvelopeState.PUBLIC_KEY);
+    }
+
+    @Benchmark
+    public VerificationResult extractEnvelope(SignedEnvelopeState envelope) {
+        var envelopeSink = new ByteArrayOutputStream(envelope.blob.length);
+        return blobVerifier.verifyZip("benchmark.zip", ByteSource.wrap(envelope.blob), envelopeSink);
+    }
+
+    @Benchmark
+    public VerificationResult passThrough(SignedEnvelopeState envelope) {
+        return blobVerifier.verifyZip(
+            "benchmark.zip",
+            ByteSource.wrap(envelope.blob),
+            OutputStream.nullOutputStream()
+        );
+    }
+}
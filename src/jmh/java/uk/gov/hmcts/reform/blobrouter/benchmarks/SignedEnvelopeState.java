@@ -0,0 +1,77 @@
+package uk.gov.hmcts.reform.blobrouter.benchmarks;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import uk.gov.hmcts.reform.blobrouter.util.PublicKeyDecoder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.PublicKey;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static com.google.common.io.Resources.getResource;
+import static com.google.common.io.Resources.toByteArray;
+import static uk.gov.hmcts.reform.blobrouter.testutils.SigningHelper.signWithSha256Rsa;
+import static uk.gov.hmcts.reform.blobrouter.util.zipverification.ZipVerifiers.ENVELOPE;
+import static uk.gov.hmcts.reform.blobrouter.util.zipverification.ZipVerifiers.SIGNATURE;
+
+/**
+ * Signed envelope, generated once per trial, as uploaded by the scanning supplier.
+ * Content of inner files is random, i.e. incompressible just like scanned documents.
+ */
+@State(Scope.Benchmark)
+public class SignedEnvelopeState {
+
+    public static final String PUBLIC_KEY = "signature/test_public_key.der";
+    private static final String PRIVATE_KEY = "signature/test_private_key.der";
+
+    @Param({"1", "10", "100", "500"})
+    public int sizeInMb;
+
+    @Param({"2", "200"})
+    public int fileCount;
+
+    public byte[] blob;
+    public PublicKey publicKey;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        byte[] envelope = zipRandomFiles(sizeInMb * 1024 * 1024, fileCount);
+        byte[] signature = signWithSha256Rsa(envelope, toByteArray(getResource(PRIVATE_KEY)));
+
+        var outputStream = new ByteArrayOutputStream(envelope.length + signature.length + 1024);
+        try (var zos = new ZipOutputStream(outputStream)) {
+            addEntry(zos, ENVELOPE, envelope);
+            addEntry(zos, SIGNATURE, signature);
+        }
+
+        blob = outputStream.toByteArray();
+        publicKey = PublicKeyDecoder.decode(toByteArray(getResource(PUBLIC_KEY)));
+    }
+
+    private static byte[] zipRandomFiles(int totalSize, int fileCount) throws IOException {
+        var random = new Random(totalSize);
+        var outputStream = new ByteArrayOutputStream(totalSize + fileCount * 1024);
+
+        try (var zos = new ZipOutputStream(outputStream)) {
+            for (int i = 0; i < fileCount; i++) {
+                byte[] content = new byte[totalSize / fileCount];
+                random.nextBytes(content);
+                addEntry(zos, String.format("document-%d.pdf", i), content);
+            }
+        }
+
+        return outputStream.toByteArray();
+    }
+
+    private static void addEntry(ZipOutputStream zos, String name, byte[] content) throws IOException {
+        zos.putNextEntry(new ZipEntry(name));
+        zos.write(content);
+        zos.closeEntry();
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.hmcts.reform.blobrouter.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier;
+import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier.VerificationResult;
+import uk.gov.hmcts.reform.blobrouter.util.zipverification.ZipVerifiers;
+
+import java.io.ByteArrayInputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Verification of signed envelopes. Multiply ops/s by {@code sizeInMb} to get MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class ZipVerificationBenchmark {
+
+    private BlobVerifier blobVerifier;
+
+    @Setup
+    public void setUp() {
+        blobVerifier = new BlobVerifier(SignedEnvelopeState.PUBLIC_KEY);
+    }
+
+    @Benchmark
+    public ZipInputStream zipVerifiersVerifyZip(SignedEnvelopeState envelope) {
+        return ZipVerifiers.verifyZip(
+            new ZipInputStream(new ByteArrayInputStream(envelope.blob)),
+            envelope.publicKey
+        );
+    }
+
+    @Benchmark
+    public void zipVerifiersVerifyZipStreaming(SignedEnvelopeState envelope) {
+        ZipVerifiers.verifyZipStreaming(
+            new ZipInputStream(new ByteArrayInputStream(envelope.blob)),
+            envelope.publicKey
+        );
+    }
+
+    @Benchmark
+    public VerificationResult blobVerifierVerifyZip(SignedEnvelopeState envelope) {
+        return blobVerifier.verifyZip("benchmark.zip", envelope.blob);
+    }
+}
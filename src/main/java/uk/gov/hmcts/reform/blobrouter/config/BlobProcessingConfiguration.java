@@ -0,0 +1,102 @@
+package uk.gov.hmcts.reform.blobrouter.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class BlobProcessingConfiguration {
+
+    /**
+     * Executor shared by all source containers. Its size is the global limit of blobs processed at once.
+     */
+    @Bean(name = "blob-processing-executor", destroyMethod = "shutdown")
+    public ExecutorService blobProcessingExecutor(
+        @Value("${blob-processing.concurrency.max-blobs}") int maxBlobs
+    ) {
+        return Executors.newFixedThreadPool(maxBlobs, new CustomizableThreadFactory("BLOB-PROCESSOR-"));
+    }
+
+    /**
+     * Executor staging blocks of large uploads. Sized so that every blob processed at once
+     * can have its maximum number of blocks in flight.
+     */
+    @Bean(name = "block-upload-executor", destroyMethod = "shutdown")
+    public ExecutorService blockUploadExecutor(
+        @Value("${blob-processing.concurrency.max-blobs}") int maxBlobs,
+        @Value("${blob-processing.upload.max-concurrent-blocks}") int maxConcurrentBlocks
+    ) {
+        return Executors.newFixedThreadPool(
+            maxBlobs * maxConcurrentBlocks,
+            new CustomizableThreadFactory("BLOCK-UPLOAD-")
+        );
+    }
+
+    /**
+     * Scheduler renewing leases of blobs while they are being processed.
+     */
+    @Bean(name = "lease-renewal-scheduler", destroyMethod = "shutdown")
+    public ScheduledExecutorService leaseRenewalScheduler() {
+        return Executors.newScheduledThreadPool(2, new CustomizableThreadFactory("LEASE-RENEWAL-"));
+    }
+
+    /**
+     * Executor downloading blocks of large blobs. Sized so that every blob processed at once
+     * can have its maximum number of blocks in flight.
+     */
+    @Bean(name = "block-download-executor", destroyMethod = "shutdown")
+    public ExecutorService blockDownloadExecutor(
+        @Value("${blob-processing.concurrency.max-blobs}") int maxBlobs,
+        @Value("${blob-processing.download.max-concurrent-blocks}") int maxConcurrentBlocks
+    ) {
+        return Executors.newFixedThreadPool(
+            maxBlobs * maxConcurrentBlocks,
+            new CustomizableThreadFactory("BLOCK-DOWNLOAD-")
+        );
+    }
+
+    /**
+     * Executor used to scan source containers concurrently. Scanning is kept off the scheduler pool,
+     * as a long scan would otherwise hold threads needed by other scheduled tasks.
+     */
+    @Bean(name = "container-scan-executor", destroyMethod = "shutdown")
+    public ExecutorService containerScanExecutor(
+        @Value("${scheduling.task.scan.max-parallel-containers}") int maxParallelContainers
+    ) {
+        return Executors.newFixedThreadPool(maxParallelContainers, new CustomizableThreadFactory("CONTAINER-SCAN-"));
+    }
+
+    /**
+     * Executor used to delete dispatched blobs from source containers concurrently.
+     */
+    @Bean(name = "container-cleanup-executor", destroyMethod = "shutdown")
+    public ExecutorService containerCleanupExecutor(
+        @Value("${scheduling.task.delete-dispatched-files.max-parallel-containers}") int maxParallelContainers
+    ) {
+        return Executors.newFixedThreadPool(maxParallelContainers, new CustomizableThreadFactory("CONTAINER-CLEANUP-"));
+    }
+
+    /**
+     * Executor acquiring leases of dispatched blobs before they are deleted in batch. Shared by all containers
+     * cleaned up at once, so it bounds the number of lease requests in flight.
+     */
+    @Bean(name = "blob-lease-executor", destroyMethod = "shutdown")
+    public ExecutorService blobLeaseExecutor(
+        @Value("${scheduling.task.delete-dispatched-files.max-concurrent-leases}") int maxConcurrentLeases
+    ) {
+        return Executors.newFixedThreadPool(maxConcurrentLeases, new CustomizableThreadFactory("BLOB-LEASE-"));
+    }
+
+    /**
+     * Executor prefetching pages of blob listings. There is at most one fetch in flight per listing.
+     */
+    @Bean(name = "blob-listing-executor", destroyMethod = "shutdown")
+    public ExecutorService blobListingExecutor() {
+        return Executors.newCachedThreadPool(new CustomizableThreadFactory("BLOB-LISTING-"));
+    }
+}
@@ -1,5 +1,7 @@
 package uk.gov.hmcts.reform.blobrouter.config;
 
+import com.microsoft.azure.servicebus.ClientFactory;
+import com.microsoft.azure.servicebus.IMessageReceiver;
 import com.microsoft.azure.servicebus.QueueClient;
 import com.microsoft.azure.servicebus.ReceiveMode;
 import com.microsoft.azure.servicebus.primitives.ConnectionStringBuilder;
@@ -30,4 +32,22 @@ public class QueueClientConfig {
         );
     }
 
+    @Bean("blob-events-receiver")
+    @ConditionalOnProperty(name = "blob-discovery.source", havingValue = "service-bus")
+    public IMessageReceiver blobEventsReceiver(
+        @Value("${queue.blob-events.access-key}") String accessKey,
+        @Value("${queue.blob-events.access-key-name}") String accessKeyName,
+        @Value("${queue.blob-events.namespace}") String namespace
+    ) throws InterruptedException, ServiceBusException {
+        return ClientFactory.createMessageReceiverFromConnectionStringBuilder(
+            new ConnectionStringBuilder(
+                namespace,
+                "blob-events",
+                accessKeyName,
+                accessKey
+            ),
+            ReceiveMode.RECEIVEANDDELETE // lost events are picked up by the container scan
+        );
+    }
+
 }
@@ -2,8 +2,11 @@ package uk.gov.hmcts.reform.blobrouter.config;
 
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobContainerClientBuilder;
+import com.azure.storage.blob.BlobServiceAsyncClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.BlobServiceClientBuilder;
+import com.azure.storage.blob.batch.BlobBatchClient;
+import com.azure.storage.blob.batch.BlobBatchClientBuilder;
 import com.azure.storage.blob.specialized.BlobLeaseClientBuilder;
 import com.azure.storage.common.StorageSharedKeyCredential;
 import org.springframework.beans.factory.annotation.Value;
@@ -47,6 +50,20 @@ public class StorageConfiguration {
             .buildClient();
     }
 
+    @Bean
+    public BlobServiceAsyncClient getStorageAsyncClient(BlobServiceClient storageClient) {
+        // shares the pipeline, i.e. credentials, retry policy and HTTP client, of the synchronous client
+        return new BlobServiceClientBuilder()
+            .endpoint(storageClient.getAccountUrl())
+            .pipeline(storageClient.getHttpPipeline())
+            .buildAsyncClient();
+    }
+
+    @Bean
+    public BlobBatchClient getBlobBatchClient(BlobServiceClient storageClient) {
+        return new BlobBatchClientBuilder(storageClient).buildClient();
+    }
+
     @Bean("crime-storage-client")
     public static BlobContainerClient getCrimeStorageClient(
         @Value("${storage.crime.connection-string}") String connectionString,
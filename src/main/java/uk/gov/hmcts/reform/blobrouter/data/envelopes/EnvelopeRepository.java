@@ -9,12 +9,15 @@ import org.springframework.stereotype.Repository;
 import java.sql.Timestamp;
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.UUID;
 
+import static java.util.Collections.emptyList;
+
 @Repository
 public class EnvelopeRepository {
 
@@ -89,6 +92,27 @@ public class EnvelopeRepository {
         }
     }
 
+    /**
+     * Finds the last envelope for each of the given file names in one query.
+     * File names without any envelope are not present in the result.
+     */
+    public List<Envelope> findLast(Collection<String> fileNames, String container) {
+        if (fileNames.isEmpty()) {
+            return emptyList();
+        }
+
+        return jdbcTemplate.query(
+            "SELECT DISTINCT ON (file_name) * FROM envelopes"
+                + " WHERE file_name IN (:fileNames)"
+                + " AND container = :container"
+                + " ORDER BY file_name, created_at DESC",
+            new MapSqlParameterSource()
+                .addValue("fileNames", fileNames)
+                .addValue("container", container),
+            this.mapper
+        );
+    }
+
     public UUID insert(NewEnvelope envelope) {
         UUID id = UUID.randomUUID();
         jdbcTemplate.update(
@@ -108,34 +132,39 @@ public class EnvelopeRepository {
         return id;
     }
 
-    public void updateStatus(UUID id, Status newStatus) {
-        jdbcTemplate.update(
+    public int markAsDispatched(UUID id, Instant dispatchedAt) {
+        return jdbcTemplate.update(
             "UPDATE envelopes "
-                + "SET status = :newStatus "
+                + "SET status = :status, dispatched_at = :dispatchedAt "
                 + "WHERE id = :id",
             new MapSqlParameterSource()
                 .addValue("id", id)
-                .addValue("newStatus", newStatus.name())
+                .addValue("status", Status.DISPATCHED.name())
+                .addValue("dispatchedAt", Timestamp.from(dispatchedAt))
         );
     }
 
-    public void updateDispatchDateTime(UUID id, Instant dispatchedAt) {
-        jdbcTemplate.update(
+    public int markAsRejected(UUID id) {
+        return jdbcTemplate.update(
             "UPDATE envelopes "
-                + "SET dispatched_at = :dispatchedAt "
+                + "SET status = :status, pending_notification = True "
                 + "WHERE id = :id",
             new MapSqlParameterSource()
                 .addValue("id", id)
-                .addValue("dispatchedAt", Timestamp.from(dispatchedAt))
+                .addValue("status", Status.REJECTED.name())
         );
     }
 
-    public int markAsDeleted(UUID id) {
+    public int markAsDeleted(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
         return jdbcTemplate.update(
             "UPDATE envelopes "
                 + "SET is_deleted = True "
-                + "WHERE id = :id",
-            new MapSqlParameterSource("id", id)
+                + "WHERE id IN (:ids)",
+            new MapSqlParameterSource("ids", ids)
         );
     }
 
@@ -2,8 +2,7 @@ package uk.gov.hmcts.reform.blobrouter.data.events;
 
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
-import org.springframework.jdbc.support.GeneratedKeyHolder;
-import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -12,6 +11,10 @@ import java.util.UUID;
 @Repository
 public class EnvelopeEventRepository {
 
+    private static final String INSERT_SQL =
+        "INSERT INTO envelope_events (envelope_id, type, error_code, notes, created_at) "
+            + "VALUES (:envelopeId, :type, :errorCode, :notes, CURRENT_TIMESTAMP)";
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
     private final EnvelopeEventMapper mapper;
 
@@ -36,21 +39,21 @@ public class EnvelopeEventRepository {
         );
     }
 
-    public long insert(NewEnvelopeEvent event) {
-        KeyHolder keyHolder = new GeneratedKeyHolder();
-
-        jdbcTemplate.update(
-            "INSERT INTO envelope_events (envelope_id, type, error_code, notes, created_at) "
-                + "VALUES (:envelopeId, :type, :errorCode, :notes, CURRENT_TIMESTAMP)",
-            new MapSqlParameterSource()
-                .addValue("envelopeId", event.envelopeId)
-                .addValue("type", event.type.name())
-                .addValue("errorCode", event.errorCode != null ? event.errorCode.name() : null)
-                .addValue("notes", event.notes),
-            keyHolder,
-            new String[]{"id"}
+    /**
+     * Inserts all events in a single batch, without reading back their IDs.
+     */
+    public void insertAll(List<NewEnvelopeEvent> events) {
+        jdbcTemplate.batchUpdate(
+            INSERT_SQL,
+            events.stream().map(EnvelopeEventRepository::toParams).toArray(SqlParameterSource[]::new)
         );
+    }
 
-        return (long) keyHolder.getKey();
+    private static MapSqlParameterSource toParams(NewEnvelopeEvent event) {
+        return new MapSqlParameterSource()
+            .addValue("envelopeId", event.envelopeId)
+            .addValue("type", event.type.name())
+            .addValue("errorCode", event.errorCode != null ? event.errorCode.name() : null)
+            .addValue("notes", event.notes);
     }
 }
@@ -0,0 +1,84 @@
+package uk.gov.hmcts.reform.blobrouter.data.events;
+
+import com.google.common.collect.Lists;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Writes envelope events in batches.
+ * Within a transaction, events are held until it is about to commit (or until {@code maxBatchSize} of them
+ * are pending) and then inserted in a single batch, so they are committed or rolled back together with
+ * the status changes they describe. Outside of a transaction events are inserted straight away.
+ */
+@Component
+public class EnvelopeEventWriter {
+
+    private final EnvelopeEventRepository eventRepository;
+    private final int maxBatchSize;
+
+    public EnvelopeEventWriter(
+        EnvelopeEventRepository eventRepository,
+        @Value("${envelope-events.max-batch-size}") int maxBatchSize
+    ) {
+        this.eventRepository = eventRepository;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public void write(NewEnvelopeEvent event) {
+        writeAll(List.of(event));
+    }
+
+    public void writeAll(Collection<NewEnvelopeEvent> events) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(new ArrayList<>(events));
+            return;
+        }
+
+        var pendingEvents = (PendingEvents) TransactionSynchronizationManager.getResource(this);
+        if (pendingEvents == null) {
+            pendingEvents = new PendingEvents();
+            TransactionSynchronizationManager.bindResource(this, pendingEvents);
+            TransactionSynchronizationManager.registerSynchronization(pendingEvents);
+        }
+
+        pendingEvents.events.addAll(events);
+        if (pendingEvents.events.size() >= maxBatchSize) {
+            pendingEvents.flush();
+        }
+    }
+
+    private void insert(List<NewEnvelopeEvent> events) {
+        Lists.partition(events, maxBatchSize).forEach(eventRepository::insertAll);
+    }
+
+    private final class PendingEvents extends TransactionSynchronizationAdapter {
+
+        private final List<NewEnvelopeEvent> events = new ArrayList<>();
+
+        @Override
+        public void flush() {
+            if (!events.isEmpty()) {
+                insert(List.copyOf(events));
+                events.clear();
+            }
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            flush();
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            // events not flushed by now have been rolled back
+            events.clear();
+            TransactionSynchronizationManager.unbindResourceIfPossible(EnvelopeEventWriter.this);
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package uk.gov.hmcts.reform.blobrouter.data.scans;
+
+import java.time.Instant;
+
+public class ScanWatermark {
+
+    public final String scan;
+    public final String container;
+    // blobs last modified before the watermark have been handled already
+    public final Instant watermark;
+    public final Instant lastFullScanAt;
+
+    public ScanWatermark(String scan, String container, Instant watermark, Instant lastFullScanAt) {
+        this.scan = scan;
+        this.container = container;
+        this.watermark = watermark;
+        this.lastFullScanAt = lastFullScanAt;
+    }
+}
@@ -0,0 +1,21 @@
+package uk.gov.hmcts.reform.blobrouter.data.scans;
+
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Component;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+@Component
+public class ScanWatermarkMapper implements RowMapper<ScanWatermark> {
+
+    @Override
+    public ScanWatermark mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new ScanWatermark(
+            rs.getString("scan"),
+            rs.getString("container"),
+            rs.getTimestamp("watermark").toInstant(),
+            rs.getTimestamp("last_full_scan_at").toInstant()
+        );
+    }
+}
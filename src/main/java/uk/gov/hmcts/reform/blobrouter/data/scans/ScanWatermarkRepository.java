@@ -0,0 +1,67 @@
+package uk.gov.hmcts.reform.blobrouter.data.scans;
+
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Optional;
+
+@Repository
+public class ScanWatermarkRepository {
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ScanWatermarkMapper mapper;
+
+    public ScanWatermarkRepository(NamedParameterJdbcTemplate jdbcTemplate, ScanWatermarkMapper mapper) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.mapper = mapper;
+    }
+
+    public Optional<ScanWatermark> find(String scan, String container) {
+        try {
+            ScanWatermark watermark = jdbcTemplate.queryForObject(
+                "SELECT * FROM scan_watermarks WHERE scan = :scan AND container = :container",
+                new MapSqlParameterSource()
+                    .addValue("scan", scan)
+                    .addValue("container", container),
+                this.mapper
+            );
+            return Optional.of(watermark);
+        } catch (EmptyResultDataAccessException ex) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Saves the watermark reached by a full scan.
+     */
+    public void saveFullScan(String scan, String container, Instant watermark, Instant fullScanAt) {
+        jdbcTemplate.update(
+            "INSERT INTO scan_watermarks (scan, container, watermark, last_full_scan_at)"
+                + " VALUES (:scan, :container, :watermark, :fullScanAt)"
+                + " ON CONFLICT (scan, container)"
+                + " DO UPDATE SET watermark = :watermark, last_full_scan_at = :fullScanAt",
+            new MapSqlParameterSource()
+                .addValue("scan", scan)
+                .addValue("container", container)
+                .addValue("watermark", Timestamp.from(watermark))
+                .addValue("fullScanAt", Timestamp.from(fullScanAt))
+        );
+    }
+
+    /**
+     * Saves the watermark reached by an incremental scan, keeping the time of the last full scan.
+     */
+    public int updateWatermark(String scan, String container, Instant watermark) {
+        return jdbcTemplate.update(
+            "UPDATE scan_watermarks SET watermark = :watermark WHERE scan = :scan AND container = :container",
+            new MapSqlParameterSource()
+                .addValue("scan", scan)
+                .addValue("container", container)
+                .addValue("watermark", Timestamp.from(watermark))
+        );
+    }
+}
@@ -0,0 +1,94 @@
+package uk.gov.hmcts.reform.blobrouter.servicebus.blobevents;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IMessageReceiver;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.blobrouter.services.discovery.BlobDiscoverySource;
+import uk.gov.hmcts.reform.blobrouter.services.discovery.DiscoveredBlob;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.Collections.emptyList;
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Reads Event Grid {@code BlobCreated} events delivered to a Service Bus queue.
+ * Messages are removed from the queue on receipt, blobs missed because of a failure
+ * are picked up by the periodic container scan.
+ */
+@Component
+@ConditionalOnProperty(name = "blob-discovery.source", havingValue = "service-bus")
+public class ServiceBusBlobDiscoverySource implements BlobDiscoverySource {
+
+    private static final Logger logger = getLogger(ServiceBusBlobDiscoverySource.class);
+
+    static final String BLOB_CREATED_EVENT = "Microsoft.Storage.BlobCreated";
+
+    private static final Pattern SUBJECT_PATTERN =
+        Pattern.compile("^/blobServices/default/containers/([^/]+)/blobs/(.+)$");
+
+    private static final Duration RECEIVE_TIMEOUT = Duration.ofSeconds(1);
+
+    private final IMessageReceiver messageReceiver;
+    private final ObjectMapper objectMapper;
+
+    public ServiceBusBlobDiscoverySource(
+        @Qualifier("blob-events-receiver") IMessageReceiver messageReceiver,
+        ObjectMapper objectMapper
+    ) {
+        this.messageReceiver = messageReceiver;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public List<DiscoveredBlob> poll(int maxBlobs) {
+        Collection<IMessage> messages;
+        try {
+            messages = messageReceiver.receiveBatch(maxBlobs, RECEIVE_TIMEOUT);
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while receiving blob events", exc);
+            return emptyList();
+        } catch (Exception exc) {
+            logger.error("Error receiving blob events", exc);
+            return emptyList();
+        }
+
+        List<DiscoveredBlob> blobs = new ArrayList<>();
+        if (messages != null) {
+            messages.forEach(message -> parse(message).ifPresent(blobs::add));
+        }
+        return blobs;
+    }
+
+    private Optional<DiscoveredBlob> parse(IMessage message) {
+        try {
+            JsonNode event = objectMapper.readTree(message.getMessageBody().getBinaryData().get(0));
+            String eventType = event.path("eventType").asText();
+            String subject = event.path("subject").asText();
+
+            Matcher matcher = SUBJECT_PATTERN.matcher(subject);
+            if (!BLOB_CREATED_EVENT.equals(eventType) || !matcher.matches()) {
+                logger.info("Ignoring blob event. Type: {}, subject: {}", eventType, subject);
+                return Optional.empty();
+            }
+
+            return Optional.of(new DiscoveredBlob(matcher.group(1), matcher.group(2)));
+        } catch (IOException | RuntimeException exc) {
+            logger.error("Invalid blob event. Message ID: {}", message.getMessageId(), exc);
+            return Optional.empty();
+        }
+    }
+}
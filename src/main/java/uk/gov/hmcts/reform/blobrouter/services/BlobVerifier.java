@@ -1,5 +1,6 @@
 package uk.gov.hmcts.reform.blobrouter.services;
 
+import com.google.common.io.ByteSource;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
@@ -8,12 +9,16 @@ import uk.gov.hmcts.reform.blobrouter.exceptions.DocSignatureFailureException;
 import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidConfigException;
 import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidZipArchiveException;
 import uk.gov.hmcts.reform.blobrouter.util.PublicKeyDecoder;
+import uk.gov.hmcts.reform.blobrouter.util.zipverification.ZipCentralDirectory;
 import uk.gov.hmcts.reform.blobrouter.util.zipverification.ZipVerifiers;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Path;
 import java.security.PublicKey;
-import java.util.zip.ZipInputStream;
+import java.util.zip.ZipFile;
 
 import static com.google.common.io.Resources.getResource;
 import static com.google.common.io.Resources.toByteArray;
@@ -39,9 +44,56 @@ public class BlobVerifier {
     }
 
     public VerificationResult verifyZip(String blobName, byte[] rawBlob) {
-        try (var zis = new ZipInputStream(new ByteArrayInputStream(rawBlob))) {
+        return verifyZip(blobName, new ByteArrayInputStream(rawBlob));
+    }
+
+    /**
+     * Verifies zip read from the given stream. Envelope content is verified as it is inflated,
+     * so memory used does not depend on the size of the blob.
+     */
+    public VerificationResult verifyZip(String blobName, InputStream rawBlob) {
+        return verifyZip(blobName, rawBlob, OutputStream.nullOutputStream());
+    }
 
-            ZipVerifiers.verifyZip(zis, publicKey);
+    /**
+     * Verifies zip read from the given stream, copying inflated content of the envelope entry to the given sink.
+     * Content written to the sink should only be used when verification succeeded.
+     */
+    public VerificationResult verifyZip(String blobName, InputStream rawBlob, OutputStream envelopeSink) {
+        return verify(blobName, () -> ZipVerifiers.verifyZipStreaming(rawBlob, publicKey, envelopeSink));
+    }
+
+    /**
+     * Same as {@link #verifyZip(String, InputStream, OutputStream)}, for zip which can be read more than once.
+     * Its central directory is validated first, so that malformed archives are rejected before anything is inflated.
+     */
+    public VerificationResult verifyZip(String blobName, ByteSource rawBlob, OutputStream envelopeSink) {
+        return verify(blobName, () -> {
+            ZipCentralDirectory
+                .readEntries(rawBlob, ZipVerifiers.EXPECTED_ENTRY_COUNT)
+                .ifPresent(ZipVerifiers::verifyCentralDirectory);
+
+            try (var blobStream = rawBlob.openStream()) {
+                ZipVerifiers.verifyZipStreaming(blobStream, publicKey, envelopeSink);
+            }
+        });
+    }
+
+    /**
+     * Same as {@link #verifyZip(String, InputStream, OutputStream)}, for zip stored in a local file.
+     * Entries are read with random access, starting with the central directory.
+     */
+    public VerificationResult verifyZip(String blobName, Path rawBlob, OutputStream envelopeSink) {
+        return verify(blobName, () -> {
+            try (var zipFile = new ZipFile(rawBlob.toFile())) {
+                ZipVerifiers.verifyZipFile(zipFile, publicKey, envelopeSink);
+            }
+        });
+    }
+
+    private VerificationResult verify(String blobName, ZipVerification verification) {
+        try {
+            verification.run();
             return ok();
         } catch (DocSignatureFailureException ex) {
             logger.info("Invalid signature. Blob name: {}", blobName, ex);
@@ -55,6 +107,11 @@ public class BlobVerifier {
         }
     }
 
+    @FunctionalInterface
+    private interface ZipVerification {
+        void run() throws IOException;
+    }
+
     public static class VerificationResult {
         public final boolean isOk;
         public final ErrorCode error;
@@ -0,0 +1,57 @@
+package uk.gov.hmcts.reform.blobrouter.services;
+
+import org.slf4j.Logger;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Collects envelopes whose blobs have been deleted and records their deletion with the given action,
+ * e.g. {@link EnvelopeService#markEnvelopesAsDeleted}, in one transaction per {@code batchSize} envelopes.
+ * Meant for a single cleanup run, not thread-safe.
+ */
+public class DeletedEnvelopesBatch {
+
+    private static final Logger logger = getLogger(DeletedEnvelopesBatch.class);
+
+    private final Consumer<List<UUID>> recordDeletion;
+    private final int batchSize;
+    private final List<UUID> envelopeIds;
+
+    public DeletedEnvelopesBatch(Consumer<List<UUID>> recordDeletion, int batchSize) {
+        this.recordDeletion = recordDeletion;
+        this.batchSize = batchSize;
+        this.envelopeIds = new ArrayList<>(batchSize);
+    }
+
+    public void add(UUID envelopeId) {
+        envelopeIds.add(envelopeId);
+        if (envelopeIds.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Records deletion of envelopes collected so far.
+     * Failure is only logged, so that cleanup carries on with the next batch. Envelopes not marked as deleted
+     * are picked up by the next cleanup run, which finds their blobs missing and marks them again.
+     */
+    public void flush() {
+        if (envelopeIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            recordDeletion.accept(List.copyOf(envelopeIds));
+            logger.info("Recorded deletion of {} envelopes", envelopeIds.size());
+        } catch (Exception exc) {
+            logger.error("Error recording deletion of envelopes. Envelope IDs: {}", envelopeIds, exc);
+        } finally {
+            envelopeIds.clear();
+        }
+    }
+}
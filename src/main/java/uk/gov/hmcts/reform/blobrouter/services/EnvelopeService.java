@@ -12,6 +12,7 @@ import uk.gov.hmcts.reform.blobrouter.data.envelopes.NewEnvelope;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Status;
 import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEvent;
 import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEventRepository;
+import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEventWriter;
 import uk.gov.hmcts.reform.blobrouter.data.events.ErrorCode;
 import uk.gov.hmcts.reform.blobrouter.data.events.EventType;
 import uk.gov.hmcts.reform.blobrouter.data.events.NewEnvelopeEvent;
@@ -20,6 +21,7 @@ import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidRequestParametersExcepti
 
 import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -29,19 +31,23 @@ import static java.time.Instant.now;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 
 @Service
 public class EnvelopeService {
 
     private final EnvelopeRepository envelopeRepository;
     private final EnvelopeEventRepository eventRepository;
+    private final EnvelopeEventWriter eventWriter;
 
     public EnvelopeService(
         EnvelopeRepository envelopeRepository,
-        EnvelopeEventRepository eventRepository
+        EnvelopeEventRepository eventRepository,
+        EnvelopeEventWriter eventWriter
     ) {
         this.envelopeRepository = envelopeRepository;
         this.eventRepository = eventRepository;
+        this.eventWriter = eventWriter;
     }
 
     @Transactional(readOnly = true)
@@ -49,6 +55,17 @@ public class EnvelopeService {
         return envelopeRepository.findLast(blobName, containerName);
     }
 
+    /**
+     * Finds the last envelope for each of the given blobs, keyed by blob name.
+     */
+    @Transactional(readOnly = true)
+    public Map<String, Envelope> findLastEnvelopes(Collection<String> blobNames, String containerName) {
+        return envelopeRepository
+            .findLast(blobNames, containerName)
+            .stream()
+            .collect(toMap(envelope -> envelope.fileName, envelope -> envelope));
+    }
+
     @Transactional(readOnly = true)
     public Optional<Envelope> findEnvelope(UUID id) {
         return envelopeRepository.find(id);
@@ -61,7 +78,7 @@ public class EnvelopeService {
                 new NewEnvelope(containerName, blobName, blobCreationDate, null, Status.CREATED)
             );
 
-        eventRepository.insert(new NewEnvelopeEvent(id, EventType.FILE_PROCESSING_STARTED, null, null));
+        eventWriter.write(new NewEnvelopeEvent(id, EventType.FILE_PROCESSING_STARTED, null, null));
 
         return id;
     }
@@ -78,56 +95,56 @@ public class EnvelopeService {
 
     @Transactional
     public void markAsDispatched(UUID id) {
-        envelopeRepository
-            .find(id)
-            .ifPresentOrElse(
-                env -> {
-                    envelopeRepository.updateStatus(id, Status.DISPATCHED);
-                    envelopeRepository.updateDispatchDateTime(id, now());
-                    eventRepository.insert(new NewEnvelopeEvent(id, EventType.DISPATCHED, null, null));
-                },
-                () -> {
-                    throw new EnvelopeNotFoundException("Envelope with ID: " + id + " not found");
-                }
-            );
+        if (envelopeRepository.markAsDispatched(id, now()) == 0) {
+            throw new EnvelopeNotFoundException("Envelope with ID: " + id + " not found");
+        }
+        eventWriter.write(new NewEnvelopeEvent(id, EventType.DISPATCHED, null, null));
     }
 
     @Transactional
     public void markAsRejected(UUID id, ErrorCode errorCode, String reason) {
-        envelopeRepository
-            .find(id)
-            .ifPresentOrElse(
-                env -> {
-                    envelopeRepository.updateStatus(id, Status.REJECTED);
-                    envelopeRepository.updatePendingNotification(id, true); // notification pending
-                    eventRepository.insert(new NewEnvelopeEvent(id, EventType.REJECTED, errorCode, reason));
-                },
-                () -> {
-                    throw new EnvelopeNotFoundException("Envelope with ID: " + id + " not found");
-                }
-            );
+        // also sets notification as pending
+        if (envelopeRepository.markAsRejected(id) == 0) {
+            throw new EnvelopeNotFoundException("Envelope with ID: " + id + " not found");
+        }
+        eventWriter.write(new NewEnvelopeEvent(id, EventType.REJECTED, errorCode, reason));
     }
 
     @Transactional
     public void markPendingNotificationAsSent(UUID id) {
         envelopeRepository.updatePendingNotification(id, false);
-        eventRepository.insert(new NewEnvelopeEvent(id, EventType.NOTIFICATION_SENT, null, null));
+        eventWriter.write(new NewEnvelopeEvent(id, EventType.NOTIFICATION_SENT, null, null));
     }
 
+    /**
+     * Marks all the envelopes as deleted with a single update and saves their events in batches.
+     */
     @Transactional
-    public void markEnvelopeAsDeleted(Envelope envelope) {
-        envelopeRepository.markAsDeleted(envelope.id);
-        eventRepository.insert(new NewEnvelopeEvent(envelope.id, EventType.DELETED, null, null));
+    public void markEnvelopesAsDeleted(Collection<UUID> envelopeIds) {
+        envelopeRepository.markAsDeleted(envelopeIds);
+        eventWriter.writeAll(
+            envelopeIds.stream().map(id -> new NewEnvelopeEvent(id, EventType.DELETED, null, null)).collect(toList())
+        );
     }
 
     @Transactional
     public void saveEvent(UUID envelopeId, EventType eventType, String notes) {
-        eventRepository.insert(new NewEnvelopeEvent(envelopeId, eventType, null, notes));
+        eventWriter.write(new NewEnvelopeEvent(envelopeId, eventType, null, notes));
     }
 
     @Transactional
     public void saveEvent(UUID envelopeId, EventType eventType) {
-        eventRepository.insert(new NewEnvelopeEvent(envelopeId, eventType, null, null));
+        eventWriter.write(new NewEnvelopeEvent(envelopeId, eventType, null, null));
+    }
+
+    /**
+     * Saves an event of the given type for each of the envelopes, in batches.
+     */
+    @Transactional
+    public void saveEvents(Collection<UUID> envelopeIds, EventType eventType) {
+        eventWriter.writeAll(
+            envelopeIds.stream().map(id -> new NewEnvelopeEvent(id, eventType, null, null)).collect(toList())
+        );
     }
 
     @Transactional(readOnly = true)
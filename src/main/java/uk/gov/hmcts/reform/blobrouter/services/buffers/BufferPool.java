@@ -0,0 +1,84 @@
+package uk.gov.hmcts.reform.blobrouter.services.buffers;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pool of fixed-size direct buffers (slabs) holding blob content while it is processed.
+ * Total size of slabs is bounded, so memory used does not depend on the number of blobs processed
+ * concurrently nor on their size: content which does not fit, either because it is bigger than
+ * the in-memory threshold or because the pool is exhausted, is spooled to a temporary file.
+ * Slabs are allocated on first use and then reused, they are never freed.
+ */
+@Component
+public class BufferPool {
+
+    static final String USED_GAUGE = "blob.buffer.pool.used";
+    static final String SPILL_COUNTER = "blob.buffer.pool.spills";
+
+    private final int slabSize;
+    private final int maxSlabs;
+    private final int inMemoryThreshold;
+    private final Semaphore slabPermits;
+    private final Queue<ByteBuffer> freeSlabs = new ConcurrentLinkedQueue<>();
+    private final Counter spills;
+
+    public BufferPool(
+        @Value("${blob-processing.buffer-pool.slab-size-in-bytes}") int slabSize,
+        @Value("${blob-processing.buffer-pool.max-size-in-bytes}") long maxSize,
+        @Value("${blob-processing.in-memory-threshold-in-bytes}") int inMemoryThreshold,
+        MeterRegistry meterRegistry
+    ) {
+        this.slabSize = slabSize;
+        this.maxSlabs = (int) (maxSize / slabSize);
+        this.inMemoryThreshold = inMemoryThreshold;
+        this.slabPermits = new Semaphore(maxSlabs);
+
+        Gauge
+            .builder(USED_GAUGE, this, BufferPool::getUsedBytes)
+            .baseUnit("bytes")
+            .register(meterRegistry);
+        this.spills = meterRegistry.counter(SPILL_COUNTER);
+    }
+
+    /**
+     * Creates an output stream holding content in slabs of this pool, spooling it to a temporary file
+     * when it does not fit. Slabs are returned to the pool on {@link SpoolingOutputStream#reset()}.
+     */
+    public SpoolingOutputStream newSpool() {
+        return new SpoolingOutputStream(this, inMemoryThreshold);
+    }
+
+    public long getUsedBytes() {
+        return (long) (maxSlabs - slabPermits.availablePermits()) * slabSize;
+    }
+
+    /**
+     * Returns an empty slab, or null if all slabs are in use. Never waits for a slab to be released.
+     */
+    ByteBuffer tryAcquire() {
+        if (!slabPermits.tryAcquire()) {
+            return null;
+        }
+        ByteBuffer slab = freeSlabs.poll();
+        return slab != null ? slab : ByteBuffer.allocateDirect(slabSize);
+    }
+
+    void release(ByteBuffer slab) {
+        slab.clear();
+        freeSlabs.add(slab);
+        slabPermits.release();
+    }
+
+    void onSpill() {
+        spills.increment();
+    }
+}
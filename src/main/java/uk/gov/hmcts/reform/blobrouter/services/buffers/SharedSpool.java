@@ -0,0 +1,147 @@
+package uk.gov.hmcts.reform.blobrouter.services.buffers;
+
+import com.google.common.io.ByteSource;
+import org.slf4j.Logger;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.function.Function;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * {@link SpoolingOutputStream} used by several threads, e.g. written by the HTTP client while content
+ * is downloaded and read by the verifier and the uploader afterwards.
+ * Content is discarded, and its slabs returned to the pool, only once the owner and all readers have
+ * released it, so that cancelling the owner does not free slabs which are still being read.
+ * Writes are serialised with discarding, reads are expected to start once writing has finished.
+ */
+public class SharedSpool {
+
+    private static final Logger logger = getLogger(SharedSpool.class);
+
+    private final SpoolingOutputStream spool;
+    private int references = 1; // held by the owner until it calls release()
+
+    public SharedSpool(SpoolingOutputStream spool) {
+        this.spool = spool;
+    }
+
+    /**
+     * Appends the remaining content of the buffer, without changing its position.
+     *
+     * @throws IllegalStateException if the content has already been discarded
+     */
+    public synchronized void write(ByteBuffer chunk) {
+        if (references == 0) {
+            throw new IllegalStateException("Content has been discarded");
+        }
+
+        try {
+            if (chunk.hasArray()) {
+                spool.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+            } else {
+                byte[] content = new byte[chunk.remaining()];
+                chunk.duplicate().get(content);
+                spool.write(content);
+            }
+        } catch (IOException exc) {
+            throw new UncheckedIOException("Error spooling content", exc);
+        }
+    }
+
+    /**
+     * Applies the reader to the content, which is not discarded until the reader returns.
+     *
+     * @throws IllegalStateException if the content has already been discarded
+     */
+    public <T> T read(Function<SpoolingOutputStream, T> reader) {
+        if (!retain()) {
+            throw new IllegalStateException("Content has been discarded");
+        }
+
+        try {
+            return reader.apply(spool);
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Content which is not discarded while any of its streams is open.
+     * Opening a stream fails once the content has been discarded.
+     */
+    public ByteSource asByteSource() {
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                if (!retain()) {
+                    throw new IOException("Content has been discarded");
+                }
+
+                try {
+                    return new RetainingInputStream(spool.asByteSource().openStream());
+                } catch (IOException | RuntimeException exc) {
+                    release();
+                    throw exc;
+                }
+            }
+
+            @Override
+            public long size() {
+                return spool.asByteSource().size();
+            }
+        };
+    }
+
+    /**
+     * Releases a reference to the content, discarding it when it was the last one.
+     */
+    public void release() {
+        synchronized (this) {
+            if (references == 0 || --references > 0) {
+                return;
+            }
+        }
+
+        try {
+            spool.reset();
+        } catch (IOException exc) {
+            logger.warn("Failed to discard spooled content", exc);
+        }
+    }
+
+    private synchronized boolean retain() {
+        if (references == 0) {
+            return false;
+        }
+        references++;
+        return true;
+    }
+
+    private class RetainingInputStream extends FilterInputStream {
+
+        private boolean closed = false;
+
+        RetainingInputStream(InputStream content) {
+            super(content);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            try {
+                super.close();
+            } finally {
+                release();
+            }
+        }
+    }
+}
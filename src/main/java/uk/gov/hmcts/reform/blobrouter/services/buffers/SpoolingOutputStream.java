@@ -0,0 +1,295 @@
+package uk.gov.hmcts.reform.blobrouter.services.buffers;
+
+import com.google.common.io.ByteSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Output stream holding written content in slabs of a {@link BufferPool}, until the content exceeds the
+ * in-memory threshold or the pool runs out of slabs. From then on, content is held in a temporary file.
+ * Content is read with {@link #asByteSource()}, which can be done multiple times.
+ * Content spooled to disk is read through a memory-mapped view of the file, so it is not copied
+ * into the process (neither on the heap nor off it) until read by the consumer.
+ * Counterpart of {@link com.google.common.io.FileBackedOutputStream} which does not allocate on the heap.
+ * Not thread-safe.
+ */
+public class SpoolingOutputStream extends OutputStream {
+
+    // size of the file region mapped at a time, keeps address space used by each reader bounded
+    static final int MAP_WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final BufferPool pool;
+    private final int inMemoryThreshold;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private Path file;
+    private FileChannel fileChannel;
+    private long size;
+
+    SpoolingOutputStream(BufferPool pool, int inMemoryThreshold) {
+        this.pool = pool;
+        this.inMemoryThreshold = inMemoryThreshold;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[] {(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] buffer, int offset, int length) throws IOException {
+        if (file == null && size + length > inMemoryThreshold) {
+            spill();
+        }
+
+        while (file == null && length > 0) {
+            ByteBuffer slab = slabWithSpace();
+            if (slab == null) {
+                spill();
+            } else {
+                int count = Math.min(length, slab.remaining());
+                slab.put(buffer, offset, count);
+                offset += count;
+                length -= count;
+                size += count;
+            }
+        }
+
+        if (length > 0) {
+            writeFully(ByteBuffer.wrap(buffer, offset, length));
+            size += length;
+        }
+    }
+
+    public boolean isSpooledToDisk() {
+        return file != null;
+    }
+
+    /**
+     * Returns the temporary file holding the content, if it was spooled to disk.
+     * The file is removed on {@link #reset()}.
+     */
+    public Optional<Path> getFile() {
+        return Optional.ofNullable(file);
+    }
+
+    public ByteSource asByteSource() {
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                return file != null
+                    ? new MappedFileInputStream(file, size)
+                    : new SlabsInputStream(readableSlabs());
+            }
+
+            @Override
+            public long size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Discards the content, returning slabs to the pool and removing the temporary file, if any.
+     */
+    public void reset() throws IOException {
+        slabs.forEach(pool::release);
+        slabs.clear();
+        size = 0;
+
+        if (file != null) {
+            try {
+                fileChannel.close();
+            } finally {
+                Files.deleteIfExists(file);
+                file = null;
+                fileChannel = null;
+            }
+        }
+    }
+
+    private ByteBuffer slabWithSpace() {
+        if (!slabs.isEmpty() && slabs.get(slabs.size() - 1).hasRemaining()) {
+            return slabs.get(slabs.size() - 1);
+        }
+
+        ByteBuffer slab = pool.tryAcquire();
+        if (slab != null) {
+            slabs.add(slab);
+        }
+        return slab;
+    }
+
+    private void spill() throws IOException {
+        file = Files.createTempFile("blob-router-", ".spool");
+        fileChannel = FileChannel.open(file, StandardOpenOption.WRITE);
+        pool.onSpill();
+
+        for (ByteBuffer slab : readableSlabs()) {
+            writeFully(slab);
+        }
+        slabs.forEach(pool::release);
+        slabs.clear();
+    }
+
+    private void writeFully(ByteBuffer content) throws IOException {
+        while (content.hasRemaining()) {
+            fileChannel.write(content);
+        }
+    }
+
+    private List<ByteBuffer> readableSlabs() {
+        return slabs
+            .stream()
+            .map(slab -> slab.duplicate().flip().asReadOnlyBuffer())
+            .collect(Collectors.toList());
+    }
+
+    private static final class SlabsInputStream extends InputStream {
+
+        private final List<ByteBuffer> slabs;
+        private int current;
+
+        private SlabsInputStream(List<ByteBuffer> slabs) {
+            this.slabs = slabs;
+        }
+
+        @Override
+        public int read() {
+            ByteBuffer slab = slabWithRemaining();
+            return slab == null ? -1 : slab.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (length == 0) {
+                return 0;
+            }
+
+            ByteBuffer slab = slabWithRemaining();
+            if (slab == null) {
+                return -1;
+            }
+
+            int count = Math.min(length, slab.remaining());
+            slab.get(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            long skipped = 0;
+            ByteBuffer slab;
+            while (skipped < count && (slab = slabWithRemaining()) != null) {
+                int step = (int) Math.min(count - skipped, slab.remaining());
+                slab.position(slab.position() + step);
+                skipped += step;
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            ByteBuffer slab = slabWithRemaining();
+            return slab == null ? 0 : slab.remaining();
+        }
+
+        private ByteBuffer slabWithRemaining() {
+            while (current < slabs.size() && !slabs.get(current).hasRemaining()) {
+                current++;
+            }
+            return current < slabs.size() ? slabs.get(current) : null;
+        }
+    }
+
+    /**
+     * Reads the file through memory-mapped windows of {@link #MAP_WINDOW_SIZE} bytes.
+     * Skipping only moves the position, so slices of content are read without reading what precedes them.
+     */
+    private static final class MappedFileInputStream extends InputStream {
+
+        private final FileChannel channel;
+        private final long size;
+        private long windowStart;
+        private MappedByteBuffer window;
+
+        private MappedFileInputStream(Path file, long size) throws IOException {
+            this.channel = FileChannel.open(file, StandardOpenOption.READ);
+            this.size = size;
+        }
+
+        @Override
+        public int read() throws IOException {
+            ByteBuffer current = windowWithRemaining();
+            return current == null ? -1 : current.get() & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+
+            ByteBuffer current = windowWithRemaining();
+            if (current == null) {
+                return -1;
+            }
+
+            int count = Math.min(length, current.remaining());
+            current.get(buffer, offset, count);
+            return count;
+        }
+
+        @Override
+        public long skip(long count) {
+            long position = position();
+            long skipped = Math.max(0, Math.min(count, size - position));
+            window = null; // next read maps the window at the new position
+            windowStart = position + skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() {
+            return (int) Math.min(Integer.MAX_VALUE, size - position());
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            channel.close();
+        }
+
+        private long position() {
+            return window == null ? windowStart : windowStart + window.position();
+        }
+
+        private ByteBuffer windowWithRemaining() throws IOException {
+            if (window == null || !window.hasRemaining()) {
+                long position = position();
+                if (position >= size) {
+                    return null;
+                }
+                windowStart = position;
+                window = channel.map(
+                    FileChannel.MapMode.READ_ONLY,
+                    position,
+                    Math.min(MAP_WINDOW_SIZE, size - position)
+                );
+            }
+            return window;
+        }
+    }
+}
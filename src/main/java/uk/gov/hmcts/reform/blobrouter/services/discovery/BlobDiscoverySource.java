@@ -0,0 +1,16 @@
+package uk.gov.hmcts.reform.blobrouter.services.discovery;
+
+import java.util.List;
+
+/**
+ * Source of newly created blobs, used instead of listing containers.
+ * Delivery is best effort: blobs can be reported more than once or not at all,
+ * the latter are picked up by the periodic container scan.
+ */
+public interface BlobDiscoverySource {
+
+    /**
+     * Returns blobs created since the previous call, no more than {@code maxBlobs}.
+     */
+    List<DiscoveredBlob> poll(int maxBlobs);
+}
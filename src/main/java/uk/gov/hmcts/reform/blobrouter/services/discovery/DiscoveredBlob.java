@@ -0,0 +1,12 @@
+package uk.gov.hmcts.reform.blobrouter.services.discovery;
+
+public class DiscoveredBlob {
+
+    public final String container;
+    public final String blobName;
+
+    public DiscoveredBlob(String container, String blobName) {
+        this.container = container;
+        this.blobName = blobName;
+    }
+}
@@ -0,0 +1,33 @@
+package uk.gov.hmcts.reform.blobrouter.services.discovery;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Discovery source fed directly by the application, e.g. from tests.
+ */
+@Component
+@ConditionalOnProperty(name = "blob-discovery.source", havingValue = "in-memory")
+public class InMemoryBlobDiscoverySource implements BlobDiscoverySource {
+
+    private final Queue<DiscoveredBlob> blobs = new ConcurrentLinkedQueue<>();
+
+    public void publish(String container, String blobName) {
+        blobs.add(new DiscoveredBlob(container, blobName));
+    }
+
+    @Override
+    public List<DiscoveredBlob> poll(int maxBlobs) {
+        List<DiscoveredBlob> result = new ArrayList<>();
+        DiscoveredBlob blob;
+        while (result.size() < maxBlobs && (blob = blobs.poll()) != null) {
+            result.add(blob);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,59 @@
+package uk.gov.hmcts.reform.blobrouter.services.scans;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Single pass of a container scan.
+ * An incremental pass only examines blobs modified since the watermark of the previous pass,
+ * a full pass examines all blobs.
+ */
+public class ScanPass {
+
+    public final String scan;
+    public final String container;
+    public final Instant startedAt;
+
+    private final Instant modifiedSince; // null for a full pass
+    private final AtomicReference<Instant> earliestPending = new AtomicReference<>();
+
+    public ScanPass(String scan, String container, Instant modifiedSince, Instant startedAt) {
+        this.scan = scan;
+        this.container = container;
+        this.modifiedSince = modifiedSince;
+        this.startedAt = startedAt;
+    }
+
+    public boolean isFull() {
+        return modifiedSince == null;
+    }
+
+    /**
+     * Checks whether a blob last modified at given time needs to be examined in this pass.
+     */
+    public boolean includes(Instant lastModified) {
+        return modifiedSince == null || !lastModified.isBefore(modifiedSince);
+    }
+
+    /**
+     * Marks a blob as not handled yet, so that it is examined again by the next pass.
+     */
+    public void keep(Instant lastModified) {
+        earliestPending.accumulateAndGet(
+            lastModified,
+            (current, candidate) -> current == null || candidate.isBefore(current) ? candidate : current
+        );
+    }
+
+    /**
+     * Returns the watermark for the next pass.
+     * It is moved back by {@code lookback} from the start of this pass, as blobs committed
+     * while the container was being listed might have been missed.
+     */
+    public Instant getNextWatermark(Duration lookback) {
+        Instant watermark = startedAt.minus(lookback);
+        Instant pending = earliestPending.get();
+        return pending != null && pending.isBefore(watermark) ? pending : watermark;
+    }
+}
@@ -0,0 +1,76 @@
+package uk.gov.hmcts.reform.blobrouter.services.scans;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.blobrouter.data.scans.ScanWatermark;
+import uk.gov.hmcts.reform.blobrouter.data.scans.ScanWatermarkRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Keeps track of the blobs handled by container scans, so that most passes only examine recent blobs.
+ * A full pass runs when the last one is older than {@code fullScanInterval}.
+ */
+@Service
+public class ScanWatermarkService {
+
+    private static final Logger logger = getLogger(ScanWatermarkService.class);
+
+    private final ScanWatermarkRepository repository;
+    private final boolean enabled;
+    private final Duration fullScanInterval;
+    private final Duration lookback;
+
+    public ScanWatermarkService(
+        ScanWatermarkRepository repository,
+        @Value("${blob-processing.incremental-scan.enabled}") boolean enabled,
+        @Value("${blob-processing.incremental-scan.full-scan-interval}") Duration fullScanInterval,
+        @Value("${blob-processing.incremental-scan.lookback}") Duration lookback
+    ) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.fullScanInterval = fullScanInterval;
+        this.lookback = lookback;
+    }
+
+    public ScanPass startPass(String scan, String container) {
+        Instant now = Instant.now();
+        Instant modifiedSince = enabled
+            ? repository
+                .find(scan, container)
+                .filter(watermark -> watermark.lastFullScanAt.isAfter(now.minus(fullScanInterval)))
+                .map(watermark -> watermark.watermark)
+                .orElse(null)
+            : null;
+
+        return new ScanPass(scan, container, modifiedSince, now);
+    }
+
+    /**
+     * Saves the watermark reached by the pass. Should only be called when the whole container has been listed.
+     */
+    public void complete(ScanPass pass) {
+        if (!enabled) {
+            return;
+        }
+
+        Instant watermark = pass.getNextWatermark(lookback);
+        if (pass.isFull()) {
+            repository.saveFullScan(pass.scan, pass.container, watermark, pass.startedAt);
+        } else {
+            repository.updateWatermark(pass.scan, pass.container, watermark);
+        }
+
+        logger.info(
+            "Scan watermark updated. Scan: {}, container: {}, full scan: {}, watermark: {}",
+            pass.scan,
+            pass.container,
+            pass.isFull(),
+            watermark
+        );
+    }
+}
@@ -0,0 +1,233 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.storage.blob.specialized.BlockBlobAsyncClient;
+import com.google.common.io.ByteSource;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import static org.slf4j.LoggerFactory.getLogger;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.BlockBlobUploader.blockId;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.BlockBlobUploader.getUploadTimeout;
+
+/**
+ * Uploads content to a block blob using the reactive storage client, used when
+ * {@code blob-processing.upload.engine} is {@code async}.
+ * Blocks are staged as soon as enough content has arrived, on the event loop threads of the shared HTTP client,
+ * so no thread is held per block being uploaded. Staged blocks only become the content of the blob once
+ * committed, which lets the caller stage them while the content is still being verified.
+ * Block size, concurrency, retries and timeouts are configured the same way as for {@link BlockBlobUploader}.
+ */
+@Component
+public class AsyncBlobUploader {
+
+    private static final Logger logger = getLogger(AsyncBlobUploader.class);
+
+    static final int CHUNK_SIZE = 64 * 1024;
+
+    private final long singleUploadMaxSize;
+    private final int blockSize;
+    private final int maxConcurrentBlocks;
+    private final int maxBlockAttempts;
+    private final long minThroughputInBytesPerSec;
+
+    public AsyncBlobUploader(
+        @Value("${blob-processing.upload.single-upload-max-size-in-bytes}") long singleUploadMaxSize,
+        @Value("${blob-processing.upload.block-size-in-bytes}") int blockSize,
+        @Value("${blob-processing.upload.max-concurrent-blocks}") int maxConcurrentBlocks,
+        @Value("${blob-processing.upload.max-block-attempts}") int maxBlockAttempts,
+        @Value("${blob-processing.upload.min-throughput-in-bytes-per-sec}") long minThroughputInBytesPerSec
+    ) {
+        this.singleUploadMaxSize = singleUploadMaxSize;
+        this.blockSize = blockSize;
+        this.maxConcurrentBlocks = maxConcurrentBlocks;
+        this.maxBlockAttempts = maxBlockAttempts;
+        this.minThroughputInBytesPerSec = minThroughputInBytesPerSec;
+    }
+
+    /**
+     * Tells whether content of the given size is uploaded in blocks rather than in a single request.
+     */
+    public boolean isUploadedInBlocks(long size) {
+        return size > singleUploadMaxSize;
+    }
+
+    /**
+     * Uploads content of the given size, replacing the blob if it exists.
+     * Content has to be replayable, i.e. emit the same chunks each time it is subscribed to,
+     * as a failed request may be retried.
+     */
+    public Mono<Void> upload(BlockBlobAsyncClient blockBlobClient, Flux<ByteBuffer> content, long size) {
+        if (isUploadedInBlocks(size)) {
+            return stage(blockBlobClient, content).flatMap(blockIds -> commit(blockBlobClient, blockIds, size));
+        }
+
+        return Mono
+            .defer(() -> {
+                logger.info("Uploading blob {} asynchronously, size: {} bytes", blockBlobClient.getBlobName(), size);
+                return blockBlobClient.uploadWithResponse(content, size, null, null, null, null, null);
+            })
+            .timeout(getTimeout(size))
+            .onErrorMap(TimeoutException.class, exc -> timeoutFailure("Uploading", blockBlobClient, size, exc))
+            .then();
+    }
+
+    /**
+     * Stages content in blocks as it is emitted. Blocks are at least {@code blockSize} bytes long, except for
+     * the last one, and at most {@code maxConcurrentBlocks} of them are staged (and held in memory) at once.
+     *
+     * @return IDs of staged blocks, in the order of content
+     */
+    public Mono<List<String>> stage(BlockBlobAsyncClient blockBlobClient, Flux<ByteBuffer> content) {
+        return Flux
+            .defer(() -> content.bufferUntil(blockBoundary()))
+            .index()
+            .flatMapSequential(
+                block -> stageBlock(blockBlobClient, blockId(block.getT1().intValue()), block.getT2()),
+                maxConcurrentBlocks,
+                1
+            )
+            .collectList();
+    }
+
+    /**
+     * Makes staged blocks the content of the blob, replacing the blob if it exists.
+     */
+    public Mono<Void> commit(BlockBlobAsyncClient blockBlobClient, List<String> blockIds, long size) {
+        return Mono
+            .defer(() -> {
+                logger.info("Committing {} blocks of blob {}", blockIds.size(), blockBlobClient.getBlobName());
+                return blockBlobClient.commitBlockListWithResponse(blockIds, null, null, null, null);
+            })
+            .timeout(getTimeout(size))
+            .onErrorMap(TimeoutException.class, exc -> timeoutFailure("Committing", blockBlobClient, size, exc))
+            .then();
+    }
+
+    private Mono<String> stageBlock(BlockBlobAsyncClient blockBlobClient, String blockId, List<ByteBuffer> chunks) {
+        long length = chunks.stream().mapToLong(ByteBuffer::remaining).sum();
+
+        return Mono
+            .defer(() -> blockBlobClient.stageBlockWithResponse(
+                blockId,
+                Flux.fromIterable(chunks).map(ByteBuffer::duplicate), // chunks are sent again on retry
+                length,
+                null,
+                null
+            ))
+            .timeout(getTimeout(length))
+            .retryWhen(
+                Retry
+                    .max(maxBlockAttempts - 1L)
+                    .filter(AsyncBlobUploader::isRetryable)
+                    .doBeforeRetry(signal -> logger.warn(
+                        "Staging block failed, retrying. Blob: {}, block ID: {}, attempt: {}",
+                        blockBlobClient.getBlobName(),
+                        blockId,
+                        signal.totalRetries() + 1,
+                        signal.failure()
+                    ))
+            )
+            .onErrorMap(Exceptions::isRetryExhausted, Throwable::getCause)
+            .onErrorMap(TimeoutException.class, exc -> timeoutFailure("Staging block of", blockBlobClient, length, exc))
+            .thenReturn(blockId);
+    }
+
+    private Duration getTimeout(long size) {
+        return getUploadTimeout(size, minThroughputInBytesPerSec);
+    }
+
+    /**
+     * Cuts content after the chunk which brings the current block to at least {@code blockSize} bytes.
+     * Created for each subscription, as it counts bytes of the current block.
+     */
+    private Predicate<ByteBuffer> blockBoundary() {
+        var blockLength = new AtomicLong();
+        return chunk -> {
+            if (blockLength.addAndGet(chunk.remaining()) < blockSize) {
+                return false;
+            }
+            blockLength.set(0);
+            return true;
+        };
+    }
+
+    private static boolean isRetryable(Throwable exc) {
+        return exc instanceof TimeoutException
+            || (exc instanceof RuntimeException && BlockBlobUploader.isRetryable((RuntimeException) exc));
+    }
+
+    private BlobUploadTimeoutException timeoutFailure(
+        String operation,
+        BlockBlobAsyncClient blockBlobClient,
+        long size,
+        TimeoutException exc
+    ) {
+        return new BlobUploadTimeoutException(
+            String.format(
+                "%s blob %s timed out after %s, size: %d bytes",
+                operation,
+                blockBlobClient.getBlobName(),
+                getTimeout(size),
+                size
+            ),
+            exc
+        );
+    }
+
+    /**
+     * Emits content in chunks of {@link #CHUNK_SIZE}, reading the next chunk only when it is requested.
+     * The stream is closed on the thread reading it, also when the subscription is cancelled.
+     */
+    public static Flux<ByteBuffer> toFlux(ByteSource content) {
+        return Flux
+            .<ByteBuffer, InputStream>generate(
+                content::openStream,
+                (stream, sink) -> {
+                    byte[] chunk = readChunk(stream);
+                    if (chunk.length == 0) {
+                        sink.complete();
+                    } else {
+                        sink.next(ByteBuffer.wrap(chunk));
+                    }
+                    return stream;
+                },
+                AsyncBlobUploader::close
+            )
+            .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private static byte[] readChunk(InputStream stream) {
+        try {
+            byte[] chunk = new byte[CHUNK_SIZE];
+            int length = stream.readNBytes(chunk, 0, CHUNK_SIZE);
+            return length == CHUNK_SIZE ? chunk : Arrays.copyOf(chunk, length);
+        } catch (IOException exc) {
+            throw new UncheckedIOException("Error reading content to upload", exc);
+        }
+    }
+
+    private static void close(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException exc) {
+            logger.warn("Error closing content stream", exc);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.rest.Response;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.batch.BlobBatch;
+import com.azure.storage.blob.batch.BlobBatchClient;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.DeleteSnapshotsOptionType;
+import com.google.common.collect.Iterables;
+import org.slf4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.slf4j.LoggerFactory.getLogger;
+import static org.springframework.http.HttpStatus.ACCEPTED;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+
+/**
+ * Deletes leased blobs using the Blob Batch API, up to {@link #MAX_BATCH_SIZE} blobs per request.
+ */
+@Component
+public class BlobBatchDeleter {
+
+    public static final int MAX_BATCH_SIZE = 256;
+
+    private static final Logger logger = getLogger(BlobBatchDeleter.class);
+
+    private final BlobBatchClient blobBatchClient;
+
+    public BlobBatchDeleter(BlobBatchClient blobBatchClient) {
+        this.blobBatchClient = blobBatchClient;
+    }
+
+    /**
+     * Deletes the blobs, together with their snapshots, on condition that they are still held under the given leases.
+     * A failure of one batch does not stop the following ones.
+     * @param leaseIdsByBlobName Lease IDs keyed by names of the blobs to delete
+     * @return names of the blobs that are gone, including the ones found already deleted
+     */
+    public Set<String> delete(BlobContainerClient containerClient, Map<String, String> leaseIdsByBlobName) {
+        Map<String, BlobRequestConditions> conditions = new HashMap<>();
+        leaseIdsByBlobName.forEach((blobName, leaseId) ->
+            conditions.put(blobName, new BlobRequestConditions().setLeaseId(leaseId))
+        );
+        return deleteInBatches(containerClient, conditions, DeleteSnapshotsOptionType.INCLUDE);
+    }
+
+    /**
+     * Same as {@link #delete(BlobContainerClient, Map)}, but for blobs which are not leased and have no snapshots.
+     */
+    public Set<String> deleteAll(BlobContainerClient containerClient, Collection<String> blobNames) {
+        Map<String, BlobRequestConditions> conditions = new HashMap<>();
+        blobNames.forEach(blobName -> conditions.put(blobName, null));
+        return deleteInBatches(containerClient, conditions, null);
+    }
+
+    private Set<String> deleteInBatches(
+        BlobContainerClient containerClient,
+        Map<String, BlobRequestConditions> conditionsByBlobName,
+        DeleteSnapshotsOptionType deleteSnapshots
+    ) {
+        String containerName = containerClient.getBlobContainerName();
+        Set<String> deleted = new HashSet<>();
+        var batches = Iterables.partition(conditionsByBlobName.entrySet(), MAX_BATCH_SIZE);
+
+        for (List<Map.Entry<String, BlobRequestConditions>> entries : batches) {
+            BlobBatch batch = blobBatchClient.getBlobBatch();
+            Map<String, Response<Void>> responses = new HashMap<>();
+            entries.forEach(entry -> responses.put(
+                entry.getKey(),
+                batch.deleteBlob(containerName, entry.getKey(), deleteSnapshots, entry.getValue())
+            ));
+
+            try {
+                blobBatchClient.submitBatchWithResponse(batch, false, null, Context.NONE);
+            } catch (Exception exc) {
+                logger.error("Error deleting batch of {} blobs. Container: {}", entries.size(), containerName, exc);
+                continue;
+            }
+
+            responses.forEach((blobName, response) -> {
+                if (response.getStatusCode() == ACCEPTED.value() || response.getStatusCode() == NOT_FOUND.value()) {
+                    deleted.add(blobName);
+                } else {
+                    logger.error(
+                        "Error deleting blob {} from container {}. Status: {}",
+                        blobName,
+                        containerName,
+                        response.getStatusCode()
+                    );
+                }
+            });
+        }
+
+        return deleted;
+    }
+}
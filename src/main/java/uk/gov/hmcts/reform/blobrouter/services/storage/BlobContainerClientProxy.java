@@ -1,17 +1,41 @@
 package uk.gov.hmcts.reform.blobrouter.services.storage;
 
 import com.azure.core.exception.HttpResponseException;
-import com.azure.core.util.Context;
+import com.azure.core.http.RequestConditions;
+import com.azure.core.util.polling.PollResponse;
+import com.azure.core.util.polling.SyncPoller;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerAsyncClient;
 import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobContainerClientBuilder;
+import com.azure.storage.blob.models.BlobCopyInfo;
+import com.azure.storage.blob.models.CopyStatusType;
+import com.azure.storage.blob.sas.BlobSasPermission;
+import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
+import com.azure.storage.blob.specialized.BlockBlobAsyncClient;
 import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.common.base.Suppliers;
+import com.google.common.io.ByteSource;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount;
 
-import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -20,38 +44,69 @@ public class BlobContainerClientProxy {
 
     private static final Logger logger = getLogger(BlobContainerClientProxy.class);
 
+    // copy between accounts is asynchronous, source has to stay readable until the target service has read it,
+    // so the SAS is valid for at least as long as the copy is waited for
+    static final Duration COPY_SOURCE_SAS_VALIDITY = Duration.ofHours(1);
+    static final Duration COPY_POLL_INTERVAL = Duration.ofSeconds(1);
+
     private final BlobContainerClient crimeClient;
     private final BlobContainerClientBuilderProvider blobContainerClientBuilderProvider;
     private final SasTokenCache sasTokenCache;
+    private final BlockBlobUploader blobUploader;
+    private final AsyncBlobUploader asyncBlobUploader;
+
+    // reuses the pipeline of the crime client, i.e. its credentials, retry policy and HTTP client
+    private final Supplier<BlobContainerAsyncClient> crimeAsyncClient;
 
-    private static final Duration UPLOAD_TIMEOUT = Duration.ofSeconds(40);
+    // clients are built per SAS token, so a rotated token results in a new client and the old one is evicted
+    private final Cache<ClientKey, BlobContainerClient> clientCache = Caffeine.newBuilder()
+        .maximumSize(100)
+        .expireAfterAccess(Duration.ofHours(1))
+        .build();
+
+    private final Cache<ClientKey, BlobContainerAsyncClient> asyncClientCache = Caffeine.newBuilder()
+        .maximumSize(100)
+        .expireAfterAccess(Duration.ofHours(1))
+        .build();
 
     public BlobContainerClientProxy(
         @Qualifier("crime-storage-client") BlobContainerClient crimeClient,
         BlobContainerClientBuilderProvider blobContainerClientBuilderProvider,
-        SasTokenCache sasTokenCache
+        SasTokenCache sasTokenCache,
+        BlockBlobUploader blobUploader,
+        AsyncBlobUploader asyncBlobUploader
     ) {
         this.crimeClient = crimeClient;
         this.blobContainerClientBuilderProvider = blobContainerClientBuilderProvider;
         this.sasTokenCache = sasTokenCache;
+        this.blobUploader = blobUploader;
+        this.asyncBlobUploader = asyncBlobUploader;
+        this.crimeAsyncClient = Suppliers.memoize(
+            () -> new BlobContainerClientBuilder()
+                .endpoint(crimeClient.getBlobContainerUrl())
+                .pipeline(crimeClient.getHttpPipeline())
+                .buildAsyncClient()
+        );
     }
 
     private BlobContainerClient get(TargetStorageAccount targetStorageAccount, String containerName) {
         switch (targetStorageAccount) {
             case CFT:
-                return blobContainerClientBuilderProvider
-                    .getBlobContainerClientBuilder()
-                    .sasToken(sasTokenCache.getSasToken(containerName))
-                    .containerName(containerName)
-                    .buildClient();
+                return getCachedClient(
+                    targetStorageAccount,
+                    containerName,
+                    sasTokenCache.getSasToken(containerName),
+                    blobContainerClientBuilderProvider::getBlobContainerClientBuilder
+                );
             case CRIME:
                 return crimeClient;
             case PCQ:
-                return blobContainerClientBuilderProvider
-                    .getPcqBlobContainerClientBuilder()
-                    .sasToken(sasTokenCache.getPcqSasToken(containerName))
-                    .containerName(containerName)
-                    .buildClient();
+                return getCachedClient(
+                    targetStorageAccount,
+                    containerName,
+                    sasTokenCache.getPcqSasToken(containerName),
+                    blobContainerClientBuilderProvider::getPcqBlobContainerClientBuilder
+                );
             default:
                 throw new UnknownStorageAccountException(
                     String.format("Client requested for an unknown storage account: %s", targetStorageAccount)
@@ -59,9 +114,66 @@ public class BlobContainerClientProxy {
         }
     }
 
+    private BlobContainerClient getCachedClient(
+        TargetStorageAccount targetStorageAccount,
+        String containerName,
+        String sasToken,
+        Supplier<BlobContainerClientBuilder> builderSupplier
+    ) {
+        return clientCache.get(
+            new ClientKey(targetStorageAccount, containerName, sasToken),
+            key -> builderSupplier
+                .get()
+                .sasToken(sasToken)
+                .containerName(containerName)
+                .buildClient()
+        );
+    }
+
+    private BlobContainerAsyncClient getAsync(TargetStorageAccount targetStorageAccount, String containerName) {
+        switch (targetStorageAccount) {
+            case CFT:
+                return getCachedAsyncClient(
+                    targetStorageAccount,
+                    containerName,
+                    sasTokenCache.getSasToken(containerName),
+                    blobContainerClientBuilderProvider::getBlobContainerClientBuilder
+                );
+            case CRIME:
+                return crimeAsyncClient.get();
+            case PCQ:
+                return getCachedAsyncClient(
+                    targetStorageAccount,
+                    containerName,
+                    sasTokenCache.getPcqSasToken(containerName),
+                    blobContainerClientBuilderProvider::getPcqBlobContainerClientBuilder
+                );
+            default:
+                throw new UnknownStorageAccountException(
+                    String.format("Client requested for an unknown storage account: %s", targetStorageAccount)
+                );
+        }
+    }
+
+    private BlobContainerAsyncClient getCachedAsyncClient(
+        TargetStorageAccount targetStorageAccount,
+        String containerName,
+        String sasToken,
+        Supplier<BlobContainerClientBuilder> builderSupplier
+    ) {
+        return asyncClientCache.get(
+            new ClientKey(targetStorageAccount, containerName, sasToken),
+            key -> builderSupplier
+                .get()
+                .sasToken(sasToken)
+                .containerName(containerName)
+                .buildAsyncClient()
+        );
+    }
+
     public void upload(
         String blobName,
-        byte[] blobContents,
+        ByteSource blobContents,
         String destinationContainer,
         TargetStorageAccount targetStorageAccount
     ) {
@@ -74,18 +186,7 @@ public class BlobContainerClientProxy {
 
             logger.info("Uploading content of blob {} to Container: {}", blobName, destinationContainer);
             uploadStartTime = System.currentTimeMillis();
-            blockBlobClient
-                .uploadWithResponse(
-                    new ByteArrayInputStream(blobContents),
-                    blobContents.length,
-                    null,
-                    null,
-                    null,
-                    null,
-                    null,
-                    UPLOAD_TIMEOUT,
-                    Context.NONE
-            );
+            blobUploader.upload(blockBlobClient, blobContents);
 
             logger.info("Finished uploading content of blob {} to Container: {}", blobName, destinationContainer);
         } catch (HttpResponseException ex) {
@@ -96,12 +197,238 @@ public class BlobContainerClientProxy {
                 (System.currentTimeMillis() - uploadStartTime),
                 ex.getResponse() == null ? ex.getMessage() : ex.getResponse().getStatusCode()
             );
-            if ((targetStorageAccount == TargetStorageAccount.CFT
-                || targetStorageAccount == TargetStorageAccount.PCQ)
-                && HttpStatus.valueOf(ex.getResponse().getStatusCode()).is4xxClientError()) {
-                sasTokenCache.removeFromCache(destinationContainer);
+            invalidateClientOnClientError(ex, destinationContainer, targetStorageAccount);
+            throw ex;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Error reading content of blob " + blobName, ex);
+        }
+    }
+
+    /**
+     * Uploads content asynchronously, see {@link AsyncBlobUploader#upload}.
+     */
+    public Mono<Void> upload(
+        String blobName,
+        Flux<ByteBuffer> blobContents,
+        long size,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        return withAsyncClient(
+            blobName,
+            destinationContainer,
+            targetStorageAccount,
+            client -> asyncBlobUploader.upload(client, blobContents, size)
+        );
+    }
+
+    /**
+     * Stages content in blocks without changing the blob, see {@link AsyncBlobUploader#stage}.
+     */
+    public Mono<List<String>> stage(
+        String blobName,
+        Flux<ByteBuffer> blobContents,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        return withAsyncClient(
+            blobName,
+            destinationContainer,
+            targetStorageAccount,
+            client -> asyncBlobUploader.stage(client, blobContents)
+        );
+    }
+
+    public Mono<Void> commit(
+        String blobName,
+        List<String> blockIds,
+        long size,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        return withAsyncClient(
+            blobName,
+            destinationContainer,
+            targetStorageAccount,
+            client -> asyncBlobUploader.commit(client, blockIds, size)
+        );
+    }
+
+    /**
+     * Client is resolved on a worker thread, as it may need a SAS token to be fetched,
+     * which must not block the event loop the operation may be subscribed on.
+     */
+    private <T> Mono<T> withAsyncClient(
+        String blobName,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount,
+        Function<BlockBlobAsyncClient, Mono<T>> operation
+    ) {
+        return Mono
+            .fromCallable(
+                () -> getAsync(targetStorageAccount, destinationContainer)
+                    .getBlobAsyncClient(blobName)
+                    .getBlockBlobAsyncClient()
+            )
+            .subscribeOn(Schedulers.boundedElastic())
+            .flatMap(operation)
+            .doOnError(HttpResponseException.class, ex -> {
+                logger.info(
+                    "Uploading failed for blob {} to Container: {}, error code: {}",
+                    blobName,
+                    destinationContainer,
+                    ex.getResponse() == null ? ex.getMessage() : ex.getResponse().getStatusCode()
+                );
+                invalidateClientOnClientError(ex, destinationContainer, targetStorageAccount);
+            });
+    }
+
+    /**
+     * Copies the source blob to the target container on the server side, so that its content
+     * does not pass through this service. Copy only succeeds if the source still has the given ETag,
+     * i.e. it has not been modified since it was verified.
+     * Copy is given as long as an upload of the same size, and aborted when it takes longer.
+     */
+    public void copy(
+        BlobClient sourceBlob,
+        String sourceETag,
+        long size,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        String blobName = sourceBlob.getBlobName();
+        Duration copyTimeout = blobUploader.getTimeout(size);
+        try {
+            String sasToken = sourceBlob.generateSas(
+                new BlobServiceSasSignatureValues(
+                    OffsetDateTime.now().plus(max(COPY_SOURCE_SAS_VALIDITY, copyTimeout)),
+                    new BlobSasPermission().setReadPermission(true)
+                )
+            );
+
+            logger.info("Copying blob {} to Container: {}", blobName, destinationContainer);
+            BlobClient targetBlob = get(targetStorageAccount, destinationContainer).getBlobClient(blobName);
+            SyncPoller<BlobCopyInfo, Void> copy = targetBlob.beginCopy(
+                sourceBlob.getBlobUrl() + "?" + sasToken,
+                null,
+                null,
+                null,
+                new RequestConditions().setIfMatch(sourceETag),
+                null,
+                COPY_POLL_INTERVAL
+            );
+            PollResponse<BlobCopyInfo> result = waitForCopy(targetBlob, copy, copyTimeout, destinationContainer);
+
+            CopyStatusType copyStatus = result.getValue().getCopyStatus();
+            if (copyStatus != CopyStatusType.SUCCESS) {
+                throw new BlobCopyException(
+                    String.format(
+                        "Copying blob %s to container %s finished with status %s: %s",
+                        blobName,
+                        destinationContainer,
+                        copyStatus,
+                        result.getValue().getError()
+                    )
+                );
             }
+
+            logger.info("Finished copying blob {} to Container: {}", blobName, destinationContainer);
+        } catch (HttpResponseException ex) {
+            logger.info(
+                "Copying failed for blob {} to Container: {}, error code: {}",
+                blobName,
+                destinationContainer,
+                ex.getResponse() == null ? ex.getMessage() : ex.getResponse().getStatusCode()
+            );
+            invalidateClientOnClientError(ex, destinationContainer, targetStorageAccount);
             throw ex;
         }
     }
+
+    /**
+     * Copy which has not completed in time is aborted, so that the target blob is not created
+     * after the copy has been reported as failed.
+     */
+    private static PollResponse<BlobCopyInfo> waitForCopy(
+        BlobClient targetBlob,
+        SyncPoller<BlobCopyInfo, Void> copy,
+        Duration timeout,
+        String destinationContainer
+    ) {
+        try {
+            return copy.waitForCompletion(timeout);
+        } catch (HttpResponseException ex) {
+            throw ex;
+        } catch (RuntimeException ex) {
+            abortCopy(targetBlob, copy);
+            throw new BlobCopyException(
+                String.format(
+                    "Copying blob %s to container %s did not complete within %s",
+                    targetBlob.getBlobName(),
+                    destinationContainer,
+                    timeout
+                ),
+                ex
+            );
+        }
+    }
+
+    private static void abortCopy(BlobClient targetBlob, SyncPoller<BlobCopyInfo, Void> copy) {
+        try {
+            targetBlob.abortCopyFromUrl(copy.poll().getValue().getCopyId());
+        } catch (RuntimeException ex) {
+            // copy may have completed in the meantime
+            logger.warn("Failed to abort copy of blob {}", targetBlob.getBlobName(), ex);
+        }
+    }
+
+    private static Duration max(Duration first, Duration second) {
+        return first.compareTo(second) >= 0 ? first : second;
+    }
+
+    private void invalidateClientOnClientError(
+        HttpResponseException ex,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        if ((targetStorageAccount == TargetStorageAccount.CFT
+            || targetStorageAccount == TargetStorageAccount.PCQ)
+            && ex.getResponse() != null
+            && HttpStatus.valueOf(ex.getResponse().getStatusCode()).is4xxClientError()) {
+            sasTokenCache.removeFromCache(destinationContainer);
+            clientCache.asMap().keySet().removeIf(key -> key.containerName.equals(destinationContainer));
+            asyncClientCache.asMap().keySet().removeIf(key -> key.containerName.equals(destinationContainer));
+        }
+    }
+
+    private static final class ClientKey {
+        private final TargetStorageAccount targetStorageAccount;
+        private final String containerName;
+        private final String sasToken;
+
+        private ClientKey(TargetStorageAccount targetStorageAccount, String containerName, String sasToken) {
+            this.targetStorageAccount = targetStorageAccount;
+            this.containerName = containerName;
+            this.sasToken = sasToken;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o == null || getClass() != o.getClass()) {
+                return false;
+            }
+            ClientKey that = (ClientKey) o;
+            return targetStorageAccount == that.targetStorageAccount
+                && containerName.equals(that.containerName)
+                && sasToken.equals(that.sasToken);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(targetStorageAccount, containerName, sasToken);
+        }
+    }
 }
@@ -0,0 +1,12 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+public class BlobCopyException extends RuntimeException {
+
+    public BlobCopyException(String message) {
+        super(message);
+    }
+
+    public BlobCopyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,9 +1,16 @@
 package uk.gov.hmcts.reform.blobrouter.services.storage;
 
+import com.azure.storage.blob.BlobClient;
+import com.google.common.io.ByteSource;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount;
 
+import java.nio.ByteBuffer;
+import java.util.List;
+
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -19,7 +26,7 @@ public class BlobDispatcher {
 
     public void dispatch(
         String blobName,
-        byte[] blobContents,
+        ByteSource blobContents,
         String destinationContainer,
         TargetStorageAccount targetStorageAccount
     ) {
@@ -39,4 +46,98 @@ public class BlobDispatcher {
             targetStorageAccount
         );
     }
+
+    /**
+     * Dispatches content asynchronously, once the returned Mono is subscribed to.
+     */
+    public Mono<Void> dispatch(
+        String blobName,
+        Flux<ByteBuffer> blobContents,
+        long size,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        return blobContainerClientProxy
+            .upload(blobName, blobContents, size, destinationContainer, targetStorageAccount)
+            .doOnSubscribe(subscription -> logger.info(
+                "Uploading file. Blob name: {}. Container: {}. Storage: {}",
+                blobName,
+                destinationContainer,
+                targetStorageAccount
+            ))
+            .doOnSuccess(result -> logger.info(
+                "Finished uploading file. Blob name: {}. Container: {}. Storage: {}",
+                blobName,
+                destinationContainer,
+                targetStorageAccount
+            ));
+    }
+
+    /**
+     * Stages content of the blob to be dispatched, which does not change the target blob until committed.
+     *
+     * @return IDs of staged blocks
+     */
+    public Mono<List<String>> stage(
+        String blobName,
+        Flux<ByteBuffer> blobContents,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        return blobContainerClientProxy
+            .stage(blobName, blobContents, destinationContainer, targetStorageAccount)
+            .doOnSubscribe(subscription -> logger.info(
+                "Staging file. Blob name: {}. Container: {}. Storage: {}",
+                blobName,
+                destinationContainer,
+                targetStorageAccount
+            ));
+    }
+
+    /**
+     * Dispatches content staged with {@link #stage}.
+     */
+    public Mono<Void> commit(
+        String blobName,
+        List<String> blockIds,
+        long size,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        return blobContainerClientProxy
+            .commit(blobName, blockIds, size, destinationContainer, targetStorageAccount)
+            .doOnSuccess(result -> logger.info(
+                "Finished uploading file. Blob name: {}. Container: {}. Storage: {}",
+                blobName,
+                destinationContainer,
+                targetStorageAccount
+            ));
+    }
+
+    /**
+     * Dispatches the source blob unchanged, by copying it on the server side.
+     */
+    public void copy(
+        BlobClient sourceBlob,
+        String sourceETag,
+        long size,
+        String destinationContainer,
+        TargetStorageAccount targetStorageAccount
+    ) {
+        logger.info(
+            "Copying file. Blob name: {}. Container: {}. Storage: {}",
+            sourceBlob.getBlobName(),
+            destinationContainer,
+            targetStorageAccount
+        );
+
+        blobContainerClientProxy.copy(sourceBlob, sourceETag, size, destinationContainer, targetStorageAccount);
+
+        logger.info(
+            "Finished copying file. Blob name: {}. Container: {}. Storage: {}",
+            sourceBlob.getBlobName(),
+            destinationContainer,
+            targetStorageAccount
+        );
+    }
 }
@@ -0,0 +1,193 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobServiceAsyncClient;
+import com.azure.storage.blob.models.BlobDownloadAsyncResponse;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.DownloadRetryOptions;
+import com.google.common.io.CountingOutputStream;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.BufferPool;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.SpoolingOutputStream;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.slf4j.LoggerFactory.getLogger;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.BlockBlobUploader.isRetryable;
+
+/**
+ * Downloads content of a blob.
+ * Blobs up to {@code parallelDownloadMinSize} are downloaded in one request, bigger ones are split into ranges
+ * which are downloaded in parallel (each retried on its own) and written to the target in order.
+ * Ranges are held in spools of the {@link BufferPool} until written, so they count against its bound
+ * and are spooled to disk once it is exhausted.
+ * All ranges are downloaded on condition that the blob has not changed since the download started.
+ * Blobs can also be downloaded with the reactive client, as a stream of chunks, see {@link #downloadAsync}.
+ */
+@Component
+public class BlobDownloader {
+
+    private static final Logger logger = getLogger(BlobDownloader.class);
+
+    private final BlobServiceAsyncClient storageAsyncClient;
+    private final Executor blockDownloadExecutor;
+    private final BufferPool bufferPool;
+    private final long parallelDownloadMinSize;
+    private final int blockSize;
+    private final int maxConcurrentBlocks;
+    private final int maxBlockAttempts;
+
+    public BlobDownloader(
+        BlobServiceAsyncClient storageAsyncClient,
+        @Qualifier("block-download-executor") Executor blockDownloadExecutor,
+        BufferPool bufferPool,
+        @Value("${blob-processing.download.parallel-download-min-size-in-bytes}") long parallelDownloadMinSize,
+        @Value("${blob-processing.download.block-size-in-bytes}") int blockSize,
+        @Value("${blob-processing.download.max-concurrent-blocks}") int maxConcurrentBlocks,
+        @Value("${blob-processing.download.max-block-attempts}") int maxBlockAttempts
+    ) {
+        this.storageAsyncClient = storageAsyncClient;
+        this.blockDownloadExecutor = blockDownloadExecutor;
+        this.bufferPool = bufferPool;
+        this.parallelDownloadMinSize = parallelDownloadMinSize;
+        this.blockSize = blockSize;
+        this.maxConcurrentBlocks = maxConcurrentBlocks;
+        this.maxBlockAttempts = maxBlockAttempts;
+    }
+
+    /**
+     * Downloads the blob of the given size, as reported by its properties. Ranges of a big blob are only
+     * downloaded if the blob still has the given ETag.
+     */
+    public void download(BlobClient blobClient, long size, String eTag, OutputStream target) throws IOException {
+        if (size < parallelDownloadMinSize) {
+            blobClient.download(target);
+        } else {
+            downloadInBlocks(blobClient, size, new BlobRequestConditions().setIfMatch(eTag), target);
+        }
+    }
+
+    /**
+     * Downloads the blob with the reactive client, in a single request. Content is emitted as it arrives,
+     * and a broken download is resumed from where it stopped, on condition that the blob has not changed.
+     * Size and ETag of the blob are available from the headers of the response.
+     */
+    public Mono<BlobDownloadAsyncResponse> downloadAsync(BlobClient blobClient) {
+        return storageAsyncClient
+            .getBlobContainerAsyncClient(blobClient.getContainerName())
+            .getBlobAsyncClient(blobClient.getBlobName())
+            .downloadWithResponse(
+                null,
+                new DownloadRetryOptions().setMaxRetryRequests(maxBlockAttempts - 1),
+                null,
+                false
+            );
+    }
+
+    private void downloadInBlocks(
+        BlobClient blobClient,
+        long size,
+        BlobRequestConditions conditions,
+        OutputStream target
+    ) throws IOException {
+        int blockCount = (int) ((size + blockSize - 1) / blockSize);
+        logger.info(
+            "Downloading blob {} in {} blocks of up to {} bytes",
+            blobClient.getBlobName(),
+            blockCount,
+            blockSize
+        );
+
+        // blocks are written in order, so at most maxConcurrentBlocks of them are held at once
+        Deque<CompletableFuture<SpoolingOutputStream>> blocksInFlight = new ArrayDeque<>(maxConcurrentBlocks);
+        var abandoned = new AtomicBoolean();
+        int nextBlock = 0;
+        try {
+            for (int i = 0; i < blockCount; i++) {
+                for (; nextBlock < blockCount && blocksInFlight.size() < maxConcurrentBlocks; nextBlock++) {
+                    long offset = (long) nextBlock * blockSize;
+                    var range = new BlobRange(offset, Math.min(blockSize, size - offset));
+                    blocksInFlight.add(
+                        CompletableFuture.supplyAsync(
+                            () -> abandoned.get() ? null : downloadBlock(blobClient, range, conditions),
+                            blockDownloadExecutor
+                        )
+                    );
+                }
+
+                SpoolingOutputStream block = blocksInFlight.poll().join();
+                try {
+                    block.asByteSource().copyTo(target);
+                } finally {
+                    discard(block);
+                }
+            }
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw exc;
+        } finally {
+            // ranges not started yet are skipped when the download fails, e.g. when the target cannot be written,
+            // and ranges still being downloaded are discarded once done
+            abandoned.set(true);
+            blocksInFlight.forEach(block -> block.thenAccept(this::discard));
+        }
+    }
+
+    private SpoolingOutputStream downloadBlock(
+        BlobClient blobClient,
+        BlobRange range,
+        BlobRequestConditions conditions
+    ) {
+        for (int attempt = 1; ; attempt++) {
+            var block = bufferPool.newSpool();
+            try {
+                var received = new CountingOutputStream(block);
+                blobClient.downloadWithResponse(received, range, null, conditions, false, null, Context.NONE);
+                if (received.getCount() != range.getCount()) {
+                    throw new IllegalStateException(
+                        "Received " + received.getCount() + " bytes, requested range was " + range.getCount() + " bytes"
+                    );
+                }
+                return block;
+            } catch (RuntimeException exc) {
+                discard(block);
+                if (attempt >= maxBlockAttempts || !isRetryable(exc)) {
+                    throw exc;
+                }
+                logger.warn(
+                    "Downloading block failed, retrying. Blob: {}, offset: {}, attempt: {}",
+                    blobClient.getBlobName(),
+                    range.getOffset(),
+                    attempt,
+                    exc
+                );
+            }
+        }
+    }
+
+    private void discard(SpoolingOutputStream block) {
+        if (block == null) {
+            return;
+        }
+        try {
+            block.reset(); // returns buffers to the pool and removes the temporary file, if any
+        } catch (IOException exc) {
+            logger.warn("Failed to discard downloaded block", exc);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.rest.PagedResponse;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.BlobItem;
+import com.azure.storage.blob.models.ListBlobsOptions;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Lists blobs of a container page by page.
+ * The next page is fetched in the background while the current one is being processed,
+ * so that processing does not stall on every page boundary.
+ */
+@Component
+public class BlobLister {
+
+    static final String PAGE_FETCH_TIMER = "blob.listing.page.fetch";
+    static final String PAGE_WAIT_TIMER = "blob.listing.page.wait";
+    static final String PAGE_SIZE_SUMMARY = "blob.listing.page.size";
+
+    private final Executor blobListingExecutor;
+    private final int maxResultsPerPage;
+    private final MeterRegistry meterRegistry;
+
+    public BlobLister(
+        @Qualifier("blob-listing-executor") Executor blobListingExecutor,
+        @Value("${blob-listing.max-results-per-page}") int maxResultsPerPage,
+        MeterRegistry meterRegistry
+    ) {
+        this.blobListingExecutor = blobListingExecutor;
+        this.maxResultsPerPage = maxResultsPerPage;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public Iterable<List<BlobItem>> listPages(BlobContainerClient containerClient) {
+        return listPages(containerClient, new ListBlobsOptions());
+    }
+
+    /**
+     * Lists pages of blobs. Fetching the first page starts as soon as iteration begins.
+     *
+     * @param options listing options, page size is always taken from configuration
+     */
+    public Iterable<List<BlobItem>> listPages(BlobContainerClient containerClient, ListBlobsOptions options) {
+        var pageOptions = new ListBlobsOptions()
+            .setPrefix(options.getPrefix())
+            .setDetails(options.getDetails())
+            .setMaxResultsPerPage(maxResultsPerPage);
+        Tags tags = Tags.of("container", containerClient.getBlobContainerName());
+
+        return () -> new PrefetchingIterator(
+            containerClient.listBlobs(pageOptions, null).iterableByPage().iterator(),
+            tags
+        );
+    }
+
+    public Stream<BlobItem> listBlobs(BlobContainerClient containerClient) {
+        return listBlobs(containerClient, new ListBlobsOptions());
+    }
+
+    public Stream<BlobItem> listBlobs(BlobContainerClient containerClient, ListBlobsOptions options) {
+        return StreamSupport
+            .stream(listPages(containerClient, options).spliterator(), false)
+            .flatMap(List::stream);
+    }
+
+    private class PrefetchingIterator implements Iterator<List<BlobItem>> {
+
+        private final Iterator<PagedResponse<BlobItem>> pages;
+        private final Tags tags;
+
+        // pages are fetched one at a time, each fetch starts when the previous page is taken
+        private CompletableFuture<Optional<List<BlobItem>>> nextPage;
+
+        PrefetchingIterator(Iterator<PagedResponse<BlobItem>> pages, Tags tags) {
+            this.pages = pages;
+            this.tags = tags;
+            this.nextPage = fetch();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return await().isPresent();
+        }
+
+        @Override
+        public List<BlobItem> next() {
+            List<BlobItem> page = await().orElseThrow(NoSuchElementException::new);
+            nextPage = fetch();
+            return page;
+        }
+
+        private CompletableFuture<Optional<List<BlobItem>>> fetch() {
+            return CompletableFuture.supplyAsync(
+                () -> meterRegistry.timer(PAGE_FETCH_TIMER, tags).record(() -> {
+                    if (!pages.hasNext()) {
+                        return Optional.<List<BlobItem>>empty();
+                    }
+                    List<BlobItem> page = pages.next().getValue();
+                    DistributionSummary
+                        .builder(PAGE_SIZE_SUMMARY)
+                        .tags(tags)
+                        .register(meterRegistry)
+                        .record(page.size());
+                    return Optional.of(page);
+                }),
+                blobListingExecutor
+            );
+        }
+
+        private Optional<List<BlobItem>> await() {
+            try {
+                if (nextPage.isDone()) {
+                    return nextPage.join();
+                }
+                // only time spent waiting for a page which has not been prefetched in time is recorded
+                return meterRegistry.timer(PAGE_WAIT_TIMER, tags).record(() -> nextPage.join());
+            } catch (CompletionException exc) {
+                if (exc.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) exc.getCause();
+                }
+                throw exc;
+            }
+        }
+    }
+}
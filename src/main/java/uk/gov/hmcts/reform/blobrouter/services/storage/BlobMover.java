@@ -1,18 +1,38 @@
 package uk.gov.hmcts.reform.blobrouter.services.storage;
 
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.util.polling.LongRunningOperationStatus;
+import com.azure.core.util.polling.SyncPoller;
 import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
-import com.azure.storage.blob.sas.BlobContainerSasPermission;
+import com.azure.storage.blob.models.BlobCopyInfo;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.sas.BlobSasPermission;
 import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.time.LocalDateTime;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
-import java.time.ZoneOffset;
-import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
 
+import static com.azure.storage.blob.models.BlobErrorCode.BLOB_NOT_FOUND;
+import static com.azure.storage.blob.models.BlobErrorCode.CANNOT_VERIFY_COPY_SOURCE;
 import static org.slf4j.LoggerFactory.getLogger;
+import static org.springframework.http.HttpStatus.CONFLICT;
+import static org.springframework.http.HttpStatus.NOT_FOUND;
+import static org.springframework.http.HttpStatus.PRECONDITION_FAILED;
 import static uk.gov.hmcts.reform.blobrouter.services.storage.RejectedFilesHandler.REJECTED_CONTAINER_SUFFIX;
 
 @Component
@@ -20,49 +40,200 @@ public class BlobMover {
 
     private static final Logger logger = getLogger(BlobMover.class);
 
+    static final Duration COPY_POLL_INTERVAL = Duration.ofSeconds(1);
+    // time given to all the copies of a move, source blobs can be read for this long
+    static final Duration COPY_TIMEOUT = Duration.ofMinutes(10);
+
     private final BlobServiceClient storageClient;
+    private final BlobBatchDeleter blobBatchDeleter;
+    private final boolean batchDeleteEnabled;
 
-    public BlobMover(BlobServiceClient storageClient) {
+    public BlobMover(
+        BlobServiceClient storageClient,
+        BlobBatchDeleter blobBatchDeleter,
+        @Value("${blob-mover.batch-delete-enabled}") boolean batchDeleteEnabled
+    ) {
         this.storageClient = storageClient;
+        this.blobBatchDeleter = blobBatchDeleter;
+        this.batchDeleteEnabled = batchDeleteEnabled;
     }
 
-    public void moveToRejectedContainer(String blobName, String containerName) {
+    /**
+     * Moves blobs to the container for rejected files.
+     * Copies of all the blobs are started at once and run on the server side, then sources of the completed
+     * copies are deleted. A blob already present in the rejected container is snapshotted before it's overwritten.
+     * Copies which have not completed within {@link #COPY_TIMEOUT} are aborted, their sources are kept.
+     * Failure to move one blob is logged and does not stop the others.
+     * @return names of the blobs that are no longer in the source container, including the ones already missing
+     */
+    public Set<String> moveToRejectedContainer(Collection<String> blobNames, String containerName) {
+        BlobContainerClient sourceContainer = storageClient.getBlobContainerClient(containerName);
+        BlobContainerClient targetContainer =
+            storageClient.getBlobContainerClient(containerName + REJECTED_CONTAINER_SUFFIX);
+
+        Set<String> moved = new HashSet<>();
+        Map<String, SyncPoller<BlobCopyInfo, Void>> copies = new LinkedHashMap<>();
+        Instant deadline = Instant.now().plus(COPY_TIMEOUT);
 
-        BlobClient sourceBlob = getBlobClient(containerName, blobName);
-        BlobClient targetBlob = getBlobClient(containerName + REJECTED_CONTAINER_SUFFIX, blobName);
+        for (String blobName : blobNames) {
+            try {
+                startCopy(sourceContainer.getBlobClient(blobName), targetContainer.getBlobClient(blobName))
+                    .ifPresentOrElse(
+                        copy -> copies.put(blobName, copy),
+                        () -> moved.add(blobName)
+                    );
+            } catch (Exception exc) {
+                logger.error(
+                    "Error copying file to rejected container. File name: {}. Container: {}",
+                    blobName,
+                    containerName,
+                    exc
+                );
+            }
+        }
+
+        List<String> copied = new ArrayList<>();
+        copies.forEach((blobName, copy) -> {
+            if (hasCompleted(copy, targetContainer.getBlobClient(blobName), deadline, containerName)) {
+                copied.add(blobName);
+            }
+        });
 
-        String loggingContext = String.format(
-            "File name: %s. Source Container: %s. Target Container: %s",
+        Set<String> deleted = deleteSources(sourceContainer, copied);
+        deleted.forEach(blobName -> logger.info(
+            "File successfully moved to rejected container. File name: {}. Source Container: {}",
             blobName,
-            sourceBlob.getContainerName(),
-            targetBlob.getContainerName()
+            containerName
+        ));
+        moved.addAll(deleted);
+
+        return moved;
+    }
+
+    /**
+     * Starts copying the blob to the rejected container. The copy is first attempted on condition that the target
+     * does not exist, which spares an existence check in the usual case.
+     * The source can be read for {@link #COPY_TIMEOUT} from now, i.e. at least until the copy is given up.
+     * @return empty if the source blob does not exist
+     */
+    private Optional<SyncPoller<BlobCopyInfo, Void>> startCopy(BlobClient sourceBlob, BlobClient targetBlob) {
+        String sourceUrl = sourceBlob.getBlobUrl() + "?" + sourceBlob.generateSas(
+            new BlobServiceSasSignatureValues(
+                OffsetDateTime.now().plus(COPY_TIMEOUT),
+                new BlobSasPermission().setReadPermission(true)
+            )
         );
 
-        if (!sourceBlob.exists()) {
-            logger.error("File already deleted. " + loggingContext);
-        } else {
-            String sasToken = sourceBlob
-                .generateSas(
-                    new BlobServiceSasSignatureValues(
-                        OffsetDateTime.of(LocalDateTime.now().plus(5, ChronoUnit.MINUTES), ZoneOffset.UTC),
-                        new BlobContainerSasPermission().setReadPermission(true)
-                    )
+        try {
+            return Optional.of(beginCopy(targetBlob, sourceUrl, new BlobRequestConditions().setIfNoneMatch("*")));
+        } catch (BlobStorageException exc) {
+            if (isSourceNotFound(exc)) {
+                logger.error(
+                    "File already deleted. File name: {}. Source Container: {}",
+                    sourceBlob.getBlobName(),
+                    sourceBlob.getContainerName()
                 );
-
-            if (targetBlob.exists()) {
-                targetBlob.createSnapshot();
+                return Optional.empty();
+            } else if (exc.getStatusCode() != CONFLICT.value() && exc.getStatusCode() != PRECONDITION_FAILED.value()) {
+                throw exc;
             }
+        }
+
+        // file has been rejected before, keep its previous version
+        targetBlob.createSnapshot();
+        return Optional.of(beginCopy(targetBlob, sourceUrl, null));
+    }
+
+    /**
+     * Missing source is reported with 404, but so is e.g. a missing target container.
+     */
+    private static boolean isSourceNotFound(BlobStorageException exc) {
+        return exc.getStatusCode() == NOT_FOUND.value()
+            && (exc.getErrorCode() == BLOB_NOT_FOUND || exc.getErrorCode() == CANNOT_VERIFY_COPY_SOURCE);
+    }
 
-            targetBlob
-                .getBlockBlobClient()
-                .copyFromUrl(sourceBlob.getBlockBlobClient().getBlobUrl() + "?" + sasToken);
+    private SyncPoller<BlobCopyInfo, Void> beginCopy(
+        BlobClient targetBlob,
+        String sourceUrl,
+        BlobRequestConditions targetConditions
+    ) {
+        return targetBlob.beginCopy(sourceUrl, null, null, null, null, targetConditions, COPY_POLL_INTERVAL);
+    }
 
-            sourceBlob.delete();
-            logger.info("File successfully moved to rejected container. " + loggingContext);
+    private boolean hasCompleted(
+        SyncPoller<BlobCopyInfo, Void> copy,
+        BlobClient targetBlob,
+        Instant deadline,
+        String containerName
+    ) {
+        String blobName = targetBlob.getBlobName();
+        Duration timeLeft = Duration.between(Instant.now(), deadline);
+        try {
+            // copies still running at the deadline are polled once more
+            var status = copy
+                .waitForCompletion(timeLeft.compareTo(COPY_POLL_INTERVAL) > 0 ? timeLeft : COPY_POLL_INTERVAL)
+                .getStatus();
+            if (status == LongRunningOperationStatus.SUCCESSFULLY_COMPLETED) {
+                return true;
+            }
+            logger.error(
+                "Copying file to rejected container did not succeed. File name: {}. Container: {}. Status: {}",
+                blobName,
+                containerName,
+                status
+            );
+        } catch (HttpResponseException exc) {
+            logger.error(
+                "Error copying file to rejected container. File name: {}. Container: {}",
+                blobName,
+                containerName,
+                exc
+            );
+        } catch (Exception exc) {
+            logger.error(
+                "Copying file to rejected container did not complete in time, aborting. File name: {}. Container: {}",
+                blobName,
+                containerName,
+                exc
+            );
+            abortCopy(copy, targetBlob);
         }
+        return false;
     }
 
-    private BlobClient getBlobClient(String containerName, String blobName) {
-        return storageClient.getBlobContainerClient(containerName).getBlobClient(blobName);
+    private void abortCopy(SyncPoller<BlobCopyInfo, Void> copy, BlobClient targetBlob) {
+        try {
+            targetBlob.abortCopyFromUrl(copy.poll().getValue().getCopyId());
+        } catch (Exception exc) {
+            // copy may have completed in the meantime
+            logger.warn(
+                "Failed to abort copy to rejected container. File name: {}. Container: {}",
+                targetBlob.getBlobName(),
+                targetBlob.getContainerName(),
+                exc
+            );
+        }
+    }
+
+    private Set<String> deleteSources(BlobContainerClient sourceContainer, List<String> blobNames) {
+        if (batchDeleteEnabled) {
+            return blobBatchDeleter.deleteAll(sourceContainer, blobNames);
+        }
+
+        Set<String> deleted = new HashSet<>();
+        for (String blobName : blobNames) {
+            try {
+                sourceContainer.getBlobClient(blobName).delete();
+                deleted.add(blobName);
+            } catch (Exception exc) {
+                logger.error(
+                    "Error deleting file moved to rejected container. File name: {}. Container: {}",
+                    blobName,
+                    sourceContainer.getBlobContainerName(),
+                    exc
+                );
+            }
+        }
+        return deleted;
     }
 }
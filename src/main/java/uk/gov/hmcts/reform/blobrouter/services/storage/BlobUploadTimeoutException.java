@@ -0,0 +1,8 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+public class BlobUploadTimeoutException extends RuntimeException {
+
+    public BlobUploadTimeoutException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
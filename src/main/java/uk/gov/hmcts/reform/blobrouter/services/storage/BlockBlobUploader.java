@@ -0,0 +1,198 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.exception.HttpResponseException;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.google.common.io.ByteSource;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Uploads content to a block blob.
+ * Content up to {@code singleUploadMaxSize} is sent in one request, bigger content is split into blocks
+ * which are staged in parallel (each retried on its own) and then committed.
+ * Timeouts are calculated from the size of the data sent, assuming a minimum throughput.
+ */
+@Component
+public class BlockBlobUploader {
+
+    private static final Logger logger = getLogger(BlockBlobUploader.class);
+
+    static final Duration MIN_UPLOAD_TIMEOUT = Duration.ofSeconds(40);
+
+    private final Executor blockUploadExecutor;
+    private final long singleUploadMaxSize;
+    private final int blockSize;
+    private final int maxConcurrentBlocks;
+    private final int maxBlockAttempts;
+    private final long minThroughputInBytesPerSec;
+
+    public BlockBlobUploader(
+        @Qualifier("block-upload-executor") Executor blockUploadExecutor,
+        @Value("${blob-processing.upload.single-upload-max-size-in-bytes}") long singleUploadMaxSize,
+        @Value("${blob-processing.upload.block-size-in-bytes}") int blockSize,
+        @Value("${blob-processing.upload.max-concurrent-blocks}") int maxConcurrentBlocks,
+        @Value("${blob-processing.upload.max-block-attempts}") int maxBlockAttempts,
+        @Value("${blob-processing.upload.min-throughput-in-bytes-per-sec}") long minThroughputInBytesPerSec
+    ) {
+        this.blockUploadExecutor = blockUploadExecutor;
+        this.singleUploadMaxSize = singleUploadMaxSize;
+        this.blockSize = blockSize;
+        this.maxConcurrentBlocks = maxConcurrentBlocks;
+        this.maxBlockAttempts = maxBlockAttempts;
+        this.minThroughputInBytesPerSec = minThroughputInBytesPerSec;
+    }
+
+    public void upload(BlockBlobClient blockBlobClient, ByteSource content) throws IOException {
+        long size = content.size();
+
+        if (size <= singleUploadMaxSize) {
+            try (InputStream contentStream = content.openStream()) {
+                blockBlobClient.uploadWithResponse(
+                    contentStream,
+                    size,
+                    null,
+                    null,
+                    null,
+                    null,
+                    null,
+                    getTimeout(size),
+                    Context.NONE
+                );
+            }
+        } else {
+            uploadInBlocks(blockBlobClient, content, size);
+        }
+    }
+
+    private void uploadInBlocks(BlockBlobClient blockBlobClient, ByteSource content, long size) {
+        int blockCount = (int) ((size + blockSize - 1) / blockSize);
+        logger.info(
+            "Uploading blob {} in {} blocks of up to {} bytes",
+            blockBlobClient.getBlobName(),
+            blockCount,
+            blockSize
+        );
+
+        List<String> blockIds = new ArrayList<>(blockCount);
+        List<CompletableFuture<Void>> stagedBlocks = new ArrayList<>(blockCount);
+        Semaphore inFlightBlocks = new Semaphore(maxConcurrentBlocks);
+
+        try {
+            for (int i = 0; i < blockCount && stagedBlocks.stream().noneMatch(this::hasFailed); i++) {
+                long offset = (long) i * blockSize;
+                String blockId = blockId(i);
+                ByteSource block = content.slice(offset, blockSize);
+                blockIds.add(blockId);
+
+                inFlightBlocks.acquire();
+                stagedBlocks.add(
+                    CompletableFuture
+                        .runAsync(() -> stageBlock(blockBlobClient, blockId, block), blockUploadExecutor)
+                        .whenComplete((result, exc) -> inFlightBlocks.release())
+                );
+            }
+
+            CompletableFuture.allOf(stagedBlocks.toArray(new CompletableFuture[0])).join();
+        } catch (InterruptedException exc) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while uploading blob " + blockBlobClient.getBlobName(), exc);
+        } catch (CompletionException exc) {
+            if (exc.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) exc.getCause();
+            }
+            throw exc;
+        }
+
+        blockBlobClient.commitBlockListWithResponse(
+            blockIds,
+            null,
+            null,
+            null,
+            null,
+            getTimeout(size),
+            Context.NONE
+        );
+    }
+
+    /**
+     * Content of the block is streamed from where it is spooled, and opened again for each attempt,
+     * so that it is not copied to the heap.
+     */
+    private void stageBlock(BlockBlobClient blockBlobClient, String blockId, ByteSource block) {
+        for (int attempt = 1; ; attempt++) {
+            try (InputStream blockStream = block.openStream()) {
+                long blockLength = block.size();
+                blockBlobClient.stageBlockWithResponse(
+                    blockId,
+                    blockStream,
+                    blockLength,
+                    null,
+                    null,
+                    getTimeout(blockLength),
+                    Context.NONE
+                );
+                return;
+            } catch (IOException exc) {
+                throw new UncheckedIOException("Error reading block content", exc);
+            } catch (RuntimeException exc) {
+                if (attempt >= maxBlockAttempts || !isRetryable(exc)) {
+                    throw exc;
+                }
+                logger.warn(
+                    "Staging block failed, retrying. Blob: {}, block ID: {}, attempt: {}",
+                    blockBlobClient.getBlobName(),
+                    blockId,
+                    attempt,
+                    exc
+                );
+            }
+        }
+    }
+
+    /**
+     * Time given to send data of the given size, assuming the minimum throughput.
+     */
+    Duration getTimeout(long size) {
+        return getUploadTimeout(size, minThroughputInBytesPerSec);
+    }
+
+    static Duration getUploadTimeout(long size, long minThroughputInBytesPerSec) {
+        Duration expected = Duration.ofSeconds(size / minThroughputInBytesPerSec);
+        return expected.compareTo(MIN_UPLOAD_TIMEOUT) > 0 ? expected : MIN_UPLOAD_TIMEOUT;
+    }
+
+    private boolean hasFailed(CompletableFuture<Void> stagedBlock) {
+        return stagedBlock.isCompletedExceptionally();
+    }
+
+    static boolean isRetryable(RuntimeException exc) {
+        // client errors (e.g. expired SAS token, blob modified) will not succeed on retry
+        return !(exc instanceof HttpResponseException)
+            || ((HttpResponseException) exc).getResponse() == null
+            || !HttpStatus.valueOf(((HttpResponseException) exc).getResponse().getStatusCode()).is4xxClientError();
+    }
+
+    static String blockId(int index) {
+        // all block IDs of a blob must have the same length
+        return Base64.getEncoder().encodeToString(String.format("%08d", index).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -7,6 +7,9 @@ import uk.gov.hmcts.reform.blobrouter.data.events.ErrorCode;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
 import uk.gov.hmcts.reform.blobrouter.tasks.processors.DuplicateFinder;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -38,6 +41,8 @@ public class DuplicateFileHandler {
         serviceConfiguration
             .getEnabledSourceContainers()
             .forEach(container -> {
+                List<String> rejected = new ArrayList<>();
+
                 duplicateFinder
                     .findIn(container)
                     .forEach(duplicate -> {
@@ -54,8 +59,7 @@ public class DuplicateFileHandler {
                             );
 
                             envelopeService.markAsRejected(id, ErrorCode.ERR_ZIP_PROCESSING_FAILED, EVENT_MESSAGE);
-                            blobMover.moveToRejectedContainer(duplicate.fileName, container);
-
+                            rejected.add(duplicate.fileName);
                         } catch (Exception exc) {
                             logger.error(
                                 "Error moving duplicate file. Container: {}. File name: {}",
@@ -65,6 +69,23 @@ public class DuplicateFileHandler {
                             );
                         }
                     });
+
+                moveToRejectedContainer(rejected, container);
             });
     }
+
+    /**
+     * Files not moved here stay rejected in the DB and are moved later on by {@link RejectedFilesHandler}.
+     */
+    private void moveToRejectedContainer(List<String> fileNames, String container) {
+        if (fileNames.isEmpty()) {
+            return;
+        }
+
+        try {
+            blobMover.moveToRejectedContainer(fileNames, container);
+        } catch (Exception exc) {
+            logger.error("Error moving duplicate files. Container: {}", container, exc);
+        }
+    }
 }
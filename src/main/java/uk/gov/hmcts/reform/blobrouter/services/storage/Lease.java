@@ -0,0 +1,59 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.storage.blob.BlobClient;
+import uk.gov.hmcts.reform.blobrouter.exceptions.LeaseLostException;
+
+import java.util.concurrent.TimeUnit;
+
+import static uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer.LEASE_DURATION_IN_SECONDS;
+
+/**
+ * Lease on a blob, acquired by {@link LeaseAcquirer}.
+ * The lease can be lost while it is held, e.g. when it could not be renewed in time,
+ * so changes which rely on exclusive access to the blob should be preceded by {@link #ensureHeld()}.
+ */
+public class Lease {
+
+    private final String id;
+    private final BlobClient blobClient;
+    private volatile long validFrom; // when the request which acquired or last renewed the lease was sent
+    private volatile boolean lost = false;
+
+    Lease(String id, BlobClient blobClient, long validFrom) {
+        this.id = id;
+        this.blobClient = blobClient;
+        this.validFrom = validFrom;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * Tells whether the lease is still held, i.e. it has not been found lost and has not expired.
+     */
+    public boolean isHeld() {
+        return !lost
+            && System.currentTimeMillis() - validFrom < TimeUnit.SECONDS.toMillis(LEASE_DURATION_IN_SECONDS);
+    }
+
+    /**
+     * Throws {@link LeaseLostException} if the lease is no longer held.
+     */
+    public void ensureHeld() {
+        if (!isHeld()) {
+            throw new LeaseLostException(
+                "Lease lost for blob. File name: " + blobClient.getBlobName()
+                    + ", Container: " + blobClient.getContainerName()
+            );
+        }
+    }
+
+    void renewed(long requestedAt) {
+        validFrom = requestedAt;
+    }
+
+    void markAsLost() {
+        lost = true;
+    }
+}
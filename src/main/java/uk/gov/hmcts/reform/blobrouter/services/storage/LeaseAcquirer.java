@@ -4,25 +4,45 @@ import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.models.BlobErrorCode;
 import com.azure.storage.blob.models.BlobStorageException;
 import com.azure.storage.blob.specialized.BlobLeaseClient;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.blobrouter.exceptions.LeaseLostException;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
 import static com.azure.storage.blob.models.BlobErrorCode.BLOB_NOT_FOUND;
 import static com.azure.storage.blob.models.BlobErrorCode.LEASE_ALREADY_PRESENT;
+import static com.azure.storage.blob.models.BlobErrorCode.LEASE_ID_MISMATCH_WITH_LEASE_OPERATION;
+import static com.azure.storage.blob.models.BlobErrorCode.LEASE_LOST;
+import static com.azure.storage.blob.models.BlobErrorCode.LEASE_NOT_PRESENT_WITH_LEASE_OPERATION;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
 public class LeaseAcquirer {
 
     public static final int LEASE_DURATION_IN_SECONDS = 60;
+    // renew often enough for a failed renewal to be retried before the lease expires
+    static final int LEASE_RENEWAL_INTERVAL_IN_SECONDS = LEASE_DURATION_IN_SECONDS / 3;
+    static final String LEASE_COUNTER = "blob.lease";
     private static final Logger logger = getLogger(LeaseAcquirer.class);
 
     private final LeaseClientProvider leaseClientProvider;
+    private final ScheduledExecutorService leaseRenewalScheduler;
+    private final MeterRegistry meterRegistry;
 
-    public LeaseAcquirer(LeaseClientProvider leaseClientProvider) {
+    public LeaseAcquirer(
+        LeaseClientProvider leaseClientProvider,
+        @Qualifier("lease-renewal-scheduler") ScheduledExecutorService leaseRenewalScheduler,
+        MeterRegistry meterRegistry
+    ) {
         this.leaseClientProvider = leaseClientProvider;
+        this.leaseRenewalScheduler = leaseRenewalScheduler;
+        this.meterRegistry = meterRegistry;
     }
 
     /**
@@ -37,17 +57,63 @@ public class LeaseAcquirer {
         Consumer<String> onSuccess,
         Consumer<BlobErrorCode> onFailure,
         boolean releaseLease
+    ) {
+        ifAcquiredOrElse(blobClient, lease -> onSuccess.accept(lease.getId()), onFailure, releaseLease, false);
+    }
+
+    /**
+     * Same as {@link #ifAcquiredOrElse(BlobClient, Consumer, Consumer, boolean)}, but can also keep the lease
+     * for as long as {@code onSuccess} runs.
+     * @param onSuccess Consumer which takes in the acquired {@link Lease}, which tells whether it is still held
+     * @param renewLease Flag whether to renew the lease in the background until {@code onSuccess} completes.
+     *                   If the lease is lost in the meantime, {@link LeaseLostException} is thrown
+     *                   once {@code onSuccess} completes and the lease is not released.
+     */
+    public void ifAcquiredOrElse(
+        BlobClient blobClient,
+        Consumer<Lease> onSuccess,
+        Consumer<BlobErrorCode> onFailure,
+        boolean releaseLease,
+        boolean renewLease
     ) {
         try {
             var leaseClient = leaseClientProvider.get(blobClient);
-            var leaseId = leaseClient.acquireLease(LEASE_DURATION_IN_SECONDS);
+            long requestedAt = System.currentTimeMillis();
+            var lease = new Lease(leaseClient.acquireLease(LEASE_DURATION_IN_SECONDS), blobClient, requestedAt);
+            count("acquired");
 
-            onSuccess.accept(leaseId);
+            if (renewLease) {
+                var renewal = new LeaseRenewal(leaseClient, lease, blobClient);
+                ScheduledFuture<?> renewalTask = leaseRenewalScheduler.scheduleWithFixedDelay(
+                    renewal,
+                    LEASE_RENEWAL_INTERVAL_IN_SECONDS,
+                    LEASE_RENEWAL_INTERVAL_IN_SECONDS,
+                    TimeUnit.SECONDS
+                );
+
+                try {
+                    onSuccess.accept(lease);
+                } finally {
+                    renewalTask.cancel(false);
+                }
+
+                if (!lease.isHeld()) {
+                    count("lost");
+                    throw new LeaseLostException(
+                        "Lease lost while processing blob. File name: " + blobClient.getBlobName()
+                            + ", Container: " + blobClient.getContainerName()
+                    );
+                }
+            } else {
+                onSuccess.accept(lease);
+            }
 
             if (releaseLease) {
                 release(leaseClient, blobClient);
             }
         } catch (BlobStorageException exc) {
+            count(exc.getErrorCode() == LEASE_ALREADY_PRESENT ? "contended" : "failed");
+
             if (exc.getErrorCode() != LEASE_ALREADY_PRESENT && exc.getErrorCode() != BLOB_NOT_FOUND) {
                 logger.error(
                     "Error acquiring lease for blob. File name: {}, Container: {}",
@@ -61,6 +127,10 @@ public class LeaseAcquirer {
         }
     }
 
+    private void count(String result) {
+        meterRegistry.counter(LEASE_COUNTER, "result", result).increment();
+    }
+
     private void release(BlobLeaseClient leaseClient, BlobClient blobClient) {
         try {
             leaseClient.releaseLease();
@@ -74,4 +144,58 @@ public class LeaseAcquirer {
             );
         }
     }
+
+    /**
+     * Renews the lease periodically. Once the lease is found to be lost, further renewals are stopped.
+     */
+    private static class LeaseRenewal implements Runnable {
+
+        private final BlobLeaseClient leaseClient;
+        private final Lease lease;
+        private final BlobClient blobClient;
+
+        LeaseRenewal(BlobLeaseClient leaseClient, Lease lease, BlobClient blobClient) {
+            this.leaseClient = leaseClient;
+            this.lease = lease;
+            this.blobClient = blobClient;
+        }
+
+        @Override
+        public void run() {
+            try {
+                long requestedAt = System.currentTimeMillis();
+                leaseClient.renewLease();
+                lease.renewed(requestedAt);
+            } catch (Exception exc) {
+                if (!lease.isHeld() || isLeaseGone(exc)) {
+                    lease.markAsLost();
+                    logger.error(
+                        "Lease lost. Lease ID: {}, File name: {}, Container: {}",
+                        leaseClient.getLeaseId(),
+                        blobClient.getBlobName(),
+                        blobClient.getContainerName(),
+                        exc
+                    );
+                    // stops further executions
+                    throw new LeaseLostException("Lease lost for blob " + blobClient.getBlobName());
+                }
+
+                logger.warn(
+                    "Error renewing lease, will retry. Lease ID: {}, File name: {}, Container: {}",
+                    leaseClient.getLeaseId(),
+                    blobClient.getBlobName(),
+                    blobClient.getContainerName(),
+                    exc
+                );
+            }
+        }
+
+        private static boolean isLeaseGone(Exception exc) {
+            return exc instanceof BlobStorageException
+                && (((BlobStorageException) exc).getErrorCode() == LEASE_ID_MISMATCH_WITH_LEASE_OPERATION
+                || ((BlobStorageException) exc).getErrorCode() == LEASE_LOST
+                || ((BlobStorageException) exc).getErrorCode() == LEASE_NOT_PRESENT_WITH_LEASE_OPERATION
+                || ((BlobStorageException) exc).getErrorCode() == BLOB_NOT_FOUND);
+        }
+    }
 }
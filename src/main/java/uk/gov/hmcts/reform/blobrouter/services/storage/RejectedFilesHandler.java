@@ -1,13 +1,17 @@
 package uk.gov.hmcts.reform.blobrouter.services.storage;
 
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
+import uk.gov.hmcts.reform.blobrouter.services.DeletedEnvelopesBatch;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
 
 import java.util.List;
+import java.util.Set;
 
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toSet;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -19,13 +23,16 @@ public class RejectedFilesHandler {
 
     private final EnvelopeService envelopeService;
     private final BlobMover blobMover;
+    private final int batchSize;
 
     public RejectedFilesHandler(
         EnvelopeService envelopeService,
-        BlobMover blobMover
+        BlobMover blobMover,
+        @Value("${envelope-cleanup.batch-size}") int batchSize
     ) {
         this.envelopeService = envelopeService;
         this.blobMover = blobMover;
+        this.batchSize = batchSize;
     }
 
     /**
@@ -38,6 +45,7 @@ public class RejectedFilesHandler {
         List<Envelope> rejectedEnvelopes = envelopeService.getReadyToDeleteRejections();
 
         logger.info("Found {} rejected envelopes", rejectedEnvelopes.size());
+        var deletedEnvelopes = new DeletedEnvelopesBatch(envelopeService::markEnvelopesAsDeleted, batchSize);
 
         rejectedEnvelopes
             .stream()
@@ -45,21 +53,22 @@ public class RejectedFilesHandler {
             .forEach((container, envelopes) -> {
                 logger.info("Started moving rejected files from container {}", container);
 
-                envelopes.forEach(envelope -> {
-                    try {
-                        blobMover.moveToRejectedContainer(envelope.fileName, container);
-                        envelopeService.markEnvelopeAsDeleted(envelope);
-                    } catch (Exception exc) {
-                        logger.error(
-                            "Error handling rejected file. File name: {}. container: {}",
-                            envelope.fileName,
-                            container,
-                            exc
-                        );
-                    }
-                });
+                try {
+                    Set<String> moved = blobMover.moveToRejectedContainer(
+                        envelopes.stream().map(envelope -> envelope.fileName).collect(toSet()),
+                        container
+                    );
+                    envelopes
+                        .stream()
+                        .filter(envelope -> moved.contains(envelope.fileName))
+                        .forEach(envelope -> deletedEnvelopes.add(envelope.id));
+                } catch (Exception exc) {
+                    logger.error("Error handling rejected files. Container: {}", container, exc);
+                }
 
                 logger.info("Finished moving rejected files from container {}", container);
             });
+
+        deletedEnvelopes.flush();
     }
 }
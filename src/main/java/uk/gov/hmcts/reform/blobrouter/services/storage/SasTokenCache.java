@@ -4,6 +4,8 @@ import com.azure.storage.common.implementation.Constants;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.Expiry;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.checkerframework.checker.index.qual.NonNegative;
 import org.checkerframework.checker.nullness.qual.NonNull;
 import org.slf4j.Logger;
@@ -29,10 +31,13 @@ import static org.slf4j.LoggerFactory.getLogger;
 public class SasTokenCache {
 
     private static final Logger logger = getLogger(SasTokenCache.class);
+    static final String CACHE_NAME = "sas-tokens";
+    static final String INVALIDATION_COUNTER = "sas.token.cache.invalidations";
     private final BulkScanProcessorClient bulkScanSasTokenClient;
     private final long refreshSasBeforeExpiry;
     private final PcqClient pcqClient;
     private final AuthTokenGenerator authTokenGenerator;
+    private final MeterRegistry meterRegistry;
 
     //key= container name, value = sastoken
     private static Cache<String, String> tokenCache;
@@ -41,15 +46,20 @@ public class SasTokenCache {
         BulkScanProcessorClient bulkScanSasTokenClient,
         PcqClient pcqClient,
         AuthTokenGenerator authTokenGenerator,
-        @Value("${sas-token-cache.refresh-before-expire-in-sec}") long refreshSasBeforeExpiry
+        @Value("${sas-token-cache.refresh-before-expire-in-sec}") long refreshSasBeforeExpiry,
+        MeterRegistry meterRegistry
     ) {
         this.bulkScanSasTokenClient = bulkScanSasTokenClient;
         this.pcqClient = pcqClient;
         this.authTokenGenerator = authTokenGenerator;
         this.refreshSasBeforeExpiry = refreshSasBeforeExpiry;
+        this.meterRegistry = meterRegistry;
         tokenCache = Caffeine.newBuilder()
             .expireAfter(new SasTokenCacheExpiry())
+            .recordStats()
             .build();
+        // hits, misses and loads (i.e. token refreshes)
+        CaffeineCacheMetrics.monitor(meterRegistry, tokenCache, CACHE_NAME);
     }
 
     public String getSasToken(String containerName) {
@@ -76,6 +86,7 @@ public class SasTokenCache {
         logger.info("Invalidating cache for Container: {}", containerName);
 
         tokenCache.invalidate(containerName);
+        meterRegistry.counter(INVALIDATION_COUNTER, "container", containerName).increment();
 
         logger.info("Finished invalidating cache for Container: {}", containerName);
     }
@@ -20,10 +20,16 @@ import static uk.gov.hmcts.reform.blobrouter.util.TimeUtils.toLocalTimeZone;
 public class StaleBlobFinder {
 
     private final BlobServiceClient storageClient;
+    private final BlobLister blobLister;
     private final ServiceConfiguration serviceConfiguration;
 
-    public StaleBlobFinder(BlobServiceClient storageClient, ServiceConfiguration serviceConfiguration) {
+    public StaleBlobFinder(
+        BlobServiceClient storageClient,
+        BlobLister blobLister,
+        ServiceConfiguration serviceConfiguration
+    ) {
         this.storageClient = storageClient;
+        this.blobLister = blobLister;
         this.serviceConfiguration = serviceConfiguration;
     }
 
@@ -36,9 +42,8 @@ public class StaleBlobFinder {
     }
 
     private Stream<BlobInfo> findStaleBlobsByContainer(String containerName, int staleTime) {
-        return storageClient.getBlobContainerClient(containerName)
-            .listBlobs()
-            .stream()
+        return blobLister
+            .listBlobs(storageClient.getBlobContainerClient(containerName))
             .filter(b -> isStale(b, staleTime))
             .map(blob -> new BlobInfo(
                     containerName,
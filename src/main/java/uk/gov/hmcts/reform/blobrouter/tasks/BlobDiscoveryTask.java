@@ -0,0 +1,82 @@
+package uk.gov.hmcts.reform.blobrouter.tasks;
+
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.blobrouter.config.ServiceConfiguration;
+import uk.gov.hmcts.reform.blobrouter.services.discovery.BlobDiscoverySource;
+import uk.gov.hmcts.reform.blobrouter.services.discovery.DiscoveredBlob;
+import uk.gov.hmcts.reform.blobrouter.tasks.processors.ContainerProcessor;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Processes blobs reported by the discovery source, so that they don't wait for the next container scan.
+ * Blobs which are not ready yet are kept and checked again on the next run.
+ * Only runs when a discovery source is configured as well.
+ */
+@Component
+@ConditionalOnExpression("${blob-discovery.enabled:false} and !'${blob-discovery.source:}'.isEmpty()")
+@EnableConfigurationProperties(ServiceConfiguration.class)
+public class BlobDiscoveryTask {
+
+    static final String TASK_NAME = "blob-discovery";
+
+    private static final Logger logger = getLogger(BlobDiscoveryTask.class);
+
+    private final BlobDiscoverySource discoverySource;
+    private final ContainerProcessor containerProcessor;
+    private final Set<String> containers;
+    private final int batchSize;
+
+    // blob names by container, only accessed by the scheduler thread
+    private final Map<String, Set<String>> pendingBlobs = new HashMap<>();
+
+    public BlobDiscoveryTask(
+        BlobDiscoverySource discoverySource,
+        ContainerProcessor containerProcessor,
+        ServiceConfiguration serviceConfiguration,
+        @Value("${scheduling.task.blob-discovery.batch-size}") int batchSize
+    ) {
+        this.discoverySource = discoverySource;
+        this.containerProcessor = containerProcessor;
+        this.containers = new HashSet<>(serviceConfiguration.getEnabledSourceContainers());
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${scheduling.task.blob-discovery.delay}")
+    public void run() {
+        List<DiscoveredBlob> discoveredBlobs = discoverySource.poll(batchSize);
+
+        discoveredBlobs
+            .stream()
+            .filter(blob -> containers.contains(blob.container))
+            .forEach(blob ->
+                pendingBlobs.computeIfAbsent(blob.container, container -> new LinkedHashSet<>()).add(blob.blobName)
+            );
+
+        if (pendingBlobs.isEmpty()) {
+            return;
+        }
+
+        logger.info("Started {} job. Blobs discovered: {}", TASK_NAME, discoveredBlobs.size());
+
+        pendingBlobs.forEach((container, blobNames) -> {
+            Set<String> notReadyBlobNames = containerProcessor.process(container, List.copyOf(blobNames));
+            blobNames.retainAll(notReadyBlobNames);
+        });
+        pendingBlobs.values().removeIf(Set::isEmpty);
+
+        logger.info("Finished {} job", TASK_NAME);
+    }
+}
@@ -1,6 +1,8 @@
 package uk.gov.hmcts.reform.blobrouter.tasks;
 
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -10,6 +12,8 @@ import uk.gov.hmcts.reform.blobrouter.tasks.processors.ContainerProcessor;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -24,13 +28,19 @@ public class BlobDispatcherTask {
 
     private final ContainerProcessor containerProcessor;
     private final List<String> containers;
+    private final Executor containerScanExecutor;
+    private final boolean scanContainersInParallel;
 
     public BlobDispatcherTask(
         ContainerProcessor containerProcessor,
-        ServiceConfiguration serviceConfiguration
+        ServiceConfiguration serviceConfiguration,
+        @Qualifier("container-scan-executor") Executor containerScanExecutor,
+        @Value("${scheduling.task.scan.parallel-containers}") boolean scanContainersInParallel
     ) {
         this.containerProcessor = containerProcessor;
         this.containers = serviceConfiguration.getEnabledSourceContainers();
+        this.containerScanExecutor = containerScanExecutor;
+        this.scanContainersInParallel = scanContainersInParallel;
     }
 
     @Scheduled(fixedDelayString = "${scheduling.task.scan.delay}")
@@ -38,7 +48,24 @@ public class BlobDispatcherTask {
         logger.info("Started {} job", TASK_NAME);
 
         Collections.shuffle(containers);
-        containers.forEach(containerProcessor::process);
+
+        if (scanContainersInParallel) {
+            // each container is scanned on its own worker, so a backlog in one does not hold the others.
+            // Number of blobs in flight per container is capped by the container processor.
+            CompletableFuture
+                .allOf(
+                    containers
+                        .stream()
+                        .map(container -> CompletableFuture.runAsync(
+                            () -> containerProcessor.process(container),
+                            containerScanExecutor
+                        ))
+                        .toArray(CompletableFuture[]::new)
+                )
+                .join();
+        } else {
+            containers.forEach(containerProcessor::process);
+        }
 
         logger.info("Finished {} job", TASK_NAME);
     }
@@ -2,6 +2,7 @@ package uk.gov.hmcts.reform.blobrouter.tasks;
 
 import net.javacrumbs.shedlock.spring.annotation.SchedulerLock;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -10,6 +11,8 @@ import uk.gov.hmcts.reform.blobrouter.config.ServiceConfiguration;
 import uk.gov.hmcts.reform.blobrouter.config.StorageConfigItem;
 import uk.gov.hmcts.reform.blobrouter.tasks.processors.ContainerCleaner;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.stream.Stream;
 
 import static org.slf4j.LoggerFactory.getLogger;
@@ -26,13 +29,16 @@ public class DeleteDispatchedFilesTask {
 
     private final ContainerCleaner containerCleaner;
     private final ServiceConfiguration serviceConfiguration;
+    private final Executor containerCleanupExecutor;
 
     public DeleteDispatchedFilesTask(
         ContainerCleaner containerCleaner,
-        ServiceConfiguration serviceConfiguration
+        ServiceConfiguration serviceConfiguration,
+        @Qualifier("container-cleanup-executor") Executor containerCleanupExecutor
     ) {
         this.containerCleaner = containerCleaner;
         this.serviceConfiguration = serviceConfiguration;
+        this.containerCleanupExecutor = containerCleanupExecutor;
     }
 
     @Scheduled(cron = "${scheduling.task.delete-dispatched-files.cron}", zone = EUROPE_LONDON)
@@ -40,7 +46,17 @@ public class DeleteDispatchedFilesTask {
     public void run() {
         logger.info("Started {} job", TASK_NAME);
 
-        getAvailableContainerNames().forEach(containerCleaner::process);
+        // containers are cleaned up concurrently, the job finishes (and releases its lock) once all are done
+        CompletableFuture
+            .allOf(
+                getAvailableContainerNames()
+                    .map(container -> CompletableFuture.runAsync(
+                        () -> containerCleaner.process(container),
+                        containerCleanupExecutor
+                    ))
+                    .toArray(CompletableFuture[]::new)
+            )
+            .join();
 
         logger.info("Finished {} job", TASK_NAME);
     }
@@ -1,10 +1,22 @@
 package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 
 import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobRequestConditions;
 import com.azure.storage.blob.models.BlobStorageException;
+import com.google.common.base.Suppliers;
+import com.google.common.io.ByteSource;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 import uk.gov.hmcts.reform.blobrouter.config.ServiceConfiguration;
 import uk.gov.hmcts.reform.blobrouter.config.StorageConfigItem;
 import uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount;
@@ -14,11 +26,22 @@ import uk.gov.hmcts.reform.blobrouter.exceptions.ZipFileLoadException;
 import uk.gov.hmcts.reform.blobrouter.services.BlobContentExtractor;
 import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.BufferPool;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.SharedSpool;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.SpoolingOutputStream;
+import uk.gov.hmcts.reform.blobrouter.services.storage.AsyncBlobUploader;
 import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDispatcher;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDownloader;
+import uk.gov.hmcts.reform.blobrouter.services.storage.Lease;
 
-import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
 import java.util.function.Supplier;
 
@@ -32,39 +55,72 @@ public class BlobProcessor {
 
     private static final Logger logger = getLogger(BlobProcessor.class);
 
+    static final String PHASE_TIMER = "blob.processing.phase";
+    static final String SIZE_SUMMARY = "blob.processing.size";
+    static final String OUTCOME_COUNTER = "blob.processing.outcome";
+
     private final BlobDispatcher dispatcher;
+    private final BlobDownloader downloader;
     private final EnvelopeService envelopeService;
     private final BlobVerifier blobVerifier;
     private final BlobContentExtractor blobContentExtractor;
     private final Map<String, StorageConfigItem> storageConfig; // container-specific configuration, by container name
+    private final BufferPool bufferPool; // holds downloaded and extracted content
+    private final boolean serverSideCopyEnabled; // blobs dispatched unchanged are copied rather than uploaded
+    private final boolean asyncTransferEnabled; // content is transferred with the reactive clients
+    private final MeterRegistry meterRegistry;
 
     public BlobProcessor(
         BlobDispatcher dispatcher,
+        BlobDownloader downloader,
         EnvelopeService envelopeService,
         BlobVerifier blobVerifier,
         BlobContentExtractor blobContentExtractor,
-        ServiceConfiguration serviceConfiguration
+        ServiceConfiguration serviceConfiguration,
+        BufferPool bufferPool,
+        @Value("${blob-processing.server-side-copy.enabled}") boolean serverSideCopyEnabled,
+        @Value("${blob-processing.upload.engine}") String uploadEngine,
+        MeterRegistry meterRegistry
     ) {
         this.dispatcher = dispatcher;
+        this.downloader = downloader;
         this.envelopeService = envelopeService;
         this.blobVerifier = blobVerifier;
         this.blobContentExtractor = blobContentExtractor;
         this.storageConfig = serviceConfiguration.getStorageConfig();
+        this.bufferPool = bufferPool;
+        this.serverSideCopyEnabled = serverSideCopyEnabled;
+        this.asyncTransferEnabled = "async".equals(uploadEngine);
+        this.meterRegistry = meterRegistry;
     }
 
-    public void process(BlobClient blobClient) {
+    /**
+     * Creates an envelope for the blob and dispatches or rejects it.
+     * Neither is done once the lease on the blob is lost, as another instance may be processing it.
+     *
+     * @return false if processing failed and should be retried
+     */
+    public boolean process(BlobClient blobClient, Lease lease) {
         logger.info("Processing {} from {} container", blobClient.getBlobName(), blobClient.getContainerName());
-        handle(
+        Supplier<BlobProperties> properties = Suppliers.memoize(blobClient::getProperties);
+        return handle(
             blobClient,
+            lease,
+            properties,
             () -> envelopeService.createNewEnvelope(
                 blobClient.getContainerName(),
                 blobClient.getBlobName(),
-                blobClient.getProperties().getLastModified().toInstant()
+                properties.get().getLastModified().toInstant()
             )
         );
     }
 
-    public void continueProcessing(UUID envelopeId, BlobClient blob) {
+    /**
+     * Dispatches or rejects the blob of an existing envelope, as long as the lease on the blob is held.
+     *
+     * @return false if processing failed and should be retried
+     */
+    public boolean continueProcessing(UUID envelopeId, BlobClient blob, Lease lease) {
         logger.info(
             "Continuing processing envelope. Envelope ID: {}, file name: {}. container: {}",
             envelopeId,
@@ -72,44 +128,328 @@ public class BlobProcessor {
             blob.getContainerName()
         );
 
-        handle(
+        return handle(
             blob,
+            lease,
+            Suppliers.memoize(blob::getProperties),
             () -> envelopeId
         );
     }
 
-    private void handle(
+    /**
+     * Downloads the blob once and verifies it in a single pass over its content.
+     * When the target account expects the inner envelope, it is spooled while being verified,
+     * so that the blob does not need to be inflated again before upload.
+     * When the blob is dispatched unchanged and server-side copy is enabled, its content is verified
+     * as it is downloaded, without being spooled, and the target blob is copied from the source.
+     * With the async upload engine, content is transferred by a reactive pipeline, see {@link #transfer}.
+     * Duration of each phase is recorded, envelope extraction being part of the verification phase.
+     * Properties of the blob are read at most once, and give its size and ETag to the download or copy.
+     * Once the envelope exists, failing to read them is handled as any other processing error.
+     */
+    private boolean handle(
         BlobClient blobClient,
+        Lease lease,
+        Supplier<BlobProperties> properties,
         Supplier<UUID> envelopeIdSupplier
     ) {
-        UUID id = envelopeIdSupplier.get();
-        try {
-            byte[] rawBlob = downloadBlob(blobClient);
+        StorageConfigItem containerConfig = storageConfig.get(blobClient.getContainerName());
+        TargetStorageAccount targetStorageAccount = containerConfig.getTargetStorageAccount();
+        Tags tags = Tags.of(
+            "container", blobClient.getContainerName(),
+            "target.account", targetStorageAccount.name()
+        );
 
-            var verificationResult = blobVerifier.verifyZip(blobClient.getBlobName(), rawBlob);
+        UUID id = phaseTimer("db", tags).record(envelopeIdSupplier);
+        try {
+            boolean extractEnvelope = blobContentExtractor.isEnvelopeExtractionRequired(targetStorageAccount);
 
-            if (verificationResult.isOk) {
-                dispatch(blobClient, id, rawBlob);
+            if (serverSideCopyEnabled && !extractEnvelope) {
+                verifyAndCopy(blobClient, properties.get(), lease, id, tags);
+            } else if (asyncTransferEnabled) {
+                verifyAndTransfer(blobClient, lease, id, extractEnvelope, tags);
             } else {
-                reject(blobClient, id, verificationResult.error, verificationResult.errorDescription);
+                verifyAndUpload(blobClient, properties.get(), lease, id, extractEnvelope, tags);
             }
+            return true;
         } catch (Exception exception) {
+            meterRegistry.counter(OUTCOME_COUNTER, tags.and("outcome", "error")).increment();
             handleError(id, blobClient, exception);
+            return false;
         }
     }
 
-    private void dispatch(BlobClient blob, UUID id, byte[] rawBlob) throws IOException {
+    private void verifyAndUpload(
+        BlobClient blobClient,
+        BlobProperties properties,
+        Lease lease,
+        UUID id,
+        boolean extractEnvelope,
+        Tags tags
+    ) throws Exception {
+        var rawBlob = bufferPool.newSpool();
+        var envelope = bufferPool.newSpool();
+        try {
+            phaseTimer("download", tags).record(() -> downloadBlob(blobClient, properties, rawBlob));
+            recordSize(rawBlob.asByteSource().size(), tags);
+
+            var verificationResult = phaseTimer("verify", tags).recordCallable(() -> verify(
+                blobClient.getBlobName(),
+                rawBlob,
+                extractEnvelope ? envelope : OutputStream.nullOutputStream()
+            ));
+
+            if (verificationResult.isOk) {
+                ByteSource content = extractEnvelope ? envelope.asByteSource() : rawBlob.asByteSource();
+                dispatch(blobClient, lease, id, content, tags);
+            } else {
+                reject(blobClient, lease, id, verificationResult.error, verificationResult.errorDescription, tags);
+            }
+        } finally {
+            discard(rawBlob, blobClient);
+            discard(envelope, blobClient);
+        }
+    }
+
+    /**
+     * The processing thread waits for the transfer, as a whole, so that the number of blobs processed at once
+     * stays bounded by the processing executor and the envelope is updated on the thread the lease is held for.
+     * No thread is held per range or block while waiting.
+     */
+    private void verifyAndTransfer(
+        BlobClient blobClient,
+        Lease lease,
+        UUID id,
+        boolean extractEnvelope,
+        Tags tags
+    ) throws Exception {
+        var verificationResult = transfer(blobClient, lease, extractEnvelope, tags).block();
+
+        if (verificationResult.isOk) {
+            markAsDispatched(blobClient, lease, id, tags);
+        } else {
+            reject(blobClient, lease, id, verificationResult.error, verificationResult.errorDescription, tags);
+        }
+    }
+
+    /**
+     * Downloads the blob, verifies it once downloaded and uploads it if valid, without blocking.
+     * Verification does not start before the download completes, as the central directory of the zip,
+     * at its end, is validated before any entry is read.
+     * A blob dispatched unchanged is staged in blocks while it is downloaded, and the blocks
+     * are committed only if it is valid. Uncommitted blocks do not change the target blob and are removed
+     * by the storage service. An extracted envelope only exists once verification has inflated it,
+     * so it is uploaded after verification.
+     * Download, verification and upload, or commit of staged blocks, are timed as separate phases.
+     * Spooled content is discarded once the pipeline and all readers of the content are done with it,
+     * which is also the case when the pipeline fails or is cancelled.
+     */
+    private Mono<BlobVerifier.VerificationResult> transfer(
+        BlobClient blobClient,
+        Lease lease,
+        boolean extractEnvelope,
+        Tags tags
+    ) {
+        StorageConfigItem containerConfig = storageConfig.get(blobClient.getContainerName());
+        String blobName = blobClient.getBlobName();
+        String targetContainer = containerConfig.getTargetContainer();
+        TargetStorageAccount targetStorageAccount = containerConfig.getTargetStorageAccount();
+
+        var rawBlob = new SharedSpool(bufferPool.newSpool());
+        var envelope = new SharedSpool(bufferPool.newSpool());
+
+        Mono<BlobVerifier.VerificationResult> verification = timed("verify", tags, Mono
+            .fromCallable(() -> envelope.read(envelopeSpool -> rawBlob.read(rawBlobSpool -> verify(
+                blobName,
+                rawBlobSpool,
+                extractEnvelope ? envelopeSpool : OutputStream.nullOutputStream()
+            ))))
+            .subscribeOn(Schedulers.boundedElastic()));
+
+        return Mono
+            .defer(() -> {
+                Timer.Sample download = Timer.start(meterRegistry);
+                return downloader
+                    .downloadAsync(blobClient)
+                    .onErrorMap(BlobProcessor::downloadFailure)
+                    .doOnError(exc -> download.stop(phaseTimer("download", tags)))
+                    .flatMap(response -> {
+                        long size = response.getDeserializedHeaders().getContentLength();
+                        recordSize(size, tags);
+
+                        // timed upstream of the sharing below, so that the download is recorded once
+                        Flux<ByteBuffer> content = response
+                            .getValue()
+                            .onErrorMap(BlobProcessor::downloadFailure)
+                            .doOnNext(rawBlob::write)
+                            .doFinally(signal -> download.stop(phaseTimer("download", tags)));
+
+                        if (extractEnvelope) {
+                            return content
+                                .then(verification)
+                                .flatMap(result -> uploadIfValid(result, lease, timed("upload", tags, Mono.defer(
+                                    () -> dispatcher.dispatch(
+                                        blobName,
+                                        AsyncBlobUploader.toFlux(envelope.asByteSource()),
+                                        envelope.asByteSource().size(),
+                                        targetContainer,
+                                        targetStorageAccount
+                                    )
+                                ))));
+                        }
+
+                        Flux<ByteBuffer> sharedContent = content.publish().autoConnect(2);
+                        return Mono
+                            .zip(
+                                dispatcher.stage(blobName, sharedContent, targetContainer, targetStorageAccount),
+                                sharedContent.then(verification)
+                            )
+                            .flatMap(staged -> uploadIfValid(staged.getT2(), lease, timed("commit", tags, Mono.defer(
+                                () -> dispatcher.commit(
+                                    blobName,
+                                    staged.getT1(),
+                                    size,
+                                    targetContainer,
+                                    targetStorageAccount
+                                )
+                            ))));
+                    });
+            })
+            .doFinally(signal -> {
+                rawBlob.release();
+                envelope.release();
+            });
+    }
+
+    private Mono<BlobVerifier.VerificationResult> uploadIfValid(
+        BlobVerifier.VerificationResult verificationResult,
+        Lease lease,
+        Mono<Void> upload
+    ) {
+        if (!verificationResult.isOk) {
+            return Mono.just(verificationResult);
+        }
+
+        return Mono
+            .fromRunnable(lease::ensureHeld)
+            .then(upload)
+            .thenReturn(verificationResult);
+    }
+
+    /**
+     * Times the phase from subscription until it completes, fails or is cancelled.
+     */
+    private <T> Mono<T> timed(String phase, Tags tags, Mono<T> mono) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return mono.doFinally(signal -> sample.stop(phaseTimer(phase, tags)));
+        });
+    }
+
+    /**
+     * Download is part of the verification phase here, as content is verified while it is being downloaded.
+     */
+    private void verifyAndCopy(
+        BlobClient blobClient,
+        BlobProperties properties,
+        Lease lease,
+        UUID id,
+        Tags tags
+    ) throws Exception {
+        recordSize(properties.getBlobSize(), tags);
+
+        var verificationResult = phaseTimer("verify", tags).recordCallable(
+            () -> verifyWhileDownloading(blobClient, properties.getETag())
+        );
+
+        if (verificationResult.isOk) {
+            copy(blobClient, lease, properties, id, tags);
+        } else {
+            reject(blobClient, lease, id, verificationResult.error, verificationResult.errorDescription, tags);
+        }
+    }
+
+    private void recordSize(long size, Tags tags) {
+        DistributionSummary
+            .builder(SIZE_SUMMARY)
+            .baseUnit("bytes")
+            .tags(tags)
+            .register(meterRegistry)
+            .record(size);
+    }
+
+    private Timer phaseTimer(String phase, Tags tags) {
+        return meterRegistry.timer(PHASE_TIMER, tags.and("phase", phase));
+    }
+
+    /**
+     * Blobs spooled to disk are verified with random access to the file, others from pooled buffers.
+     * Either way, central directory of the zip is validated before its entries are inflated.
+     */
+    private BlobVerifier.VerificationResult verify(
+        String blobName,
+        SpoolingOutputStream rawBlob,
+        OutputStream envelopeSink
+    ) {
+        Optional<Path> blobFile = rawBlob.getFile();
+        return blobFile.isPresent()
+            ? blobVerifier.verifyZip(blobName, blobFile.get(), envelopeSink)
+            : blobVerifier.verifyZip(blobName, rawBlob.asByteSource(), envelopeSink);
+    }
+
+    private BlobVerifier.VerificationResult verifyWhileDownloading(
+        BlobClient blobClient,
+        String eTag
+    ) throws IOException {
+        try (var blobStream = new DownloadStream(openBlob(blobClient, eTag))) {
+            return blobVerifier.verifyZip(blobClient.getBlobName(), blobStream);
+        }
+    }
+
+    private void dispatch(BlobClient blob, Lease lease, UUID id, ByteSource content, Tags tags) {
         StorageConfigItem containerConfig = storageConfig.get(blob.getContainerName());
         TargetStorageAccount targetStorageAccount = containerConfig.getTargetStorageAccount();
 
-        dispatcher.dispatch(
-            blob.getBlobName(),
-            blobContentExtractor.getContentToUpload(rawBlob, targetStorageAccount),
-            containerConfig.getTargetContainer(),
-            targetStorageAccount
+        lease.ensureHeld();
+
+        phaseTimer("upload", tags).record(() ->
+            dispatcher.dispatch(
+                blob.getBlobName(),
+                content,
+                containerConfig.getTargetContainer(),
+                targetStorageAccount
+            )
         );
 
-        envelopeService.markAsDispatched(id);
+        markAsDispatched(blob, lease, id, tags);
+    }
+
+    private void copy(BlobClient blob, Lease lease, BlobProperties properties, UUID id, Tags tags) {
+        StorageConfigItem containerConfig = storageConfig.get(blob.getContainerName());
+
+        lease.ensureHeld();
+
+        phaseTimer("copy", tags).record(() ->
+            dispatcher.copy(
+                blob,
+                properties.getETag(),
+                properties.getBlobSize(),
+                containerConfig.getTargetContainer(),
+                containerConfig.getTargetStorageAccount()
+            )
+        );
+
+        markAsDispatched(blob, lease, id, tags);
+    }
+
+    /**
+     * Lease is checked again as dispatch may take long, so that only the instance holding it
+     * marks the envelope as dispatched. Otherwise the envelope is left for the one which took over the blob.
+     */
+    private void markAsDispatched(BlobClient blob, Lease lease, UUID id, Tags tags) {
+        lease.ensureHeld();
+        phaseTimer("db", tags).record(() -> envelopeService.markAsDispatched(id));
+        meterRegistry.counter(OUTCOME_COUNTER, tags.and("outcome", "dispatched")).increment();
 
         logger.info(
             "Finished processing {} from {} container. New envelope ID: {}",
@@ -119,8 +459,10 @@ public class BlobProcessor {
         );
     }
 
-    private void reject(BlobClient blob, UUID id, ErrorCode error, String errorDescription) {
-        envelopeService.markAsRejected(id, error, errorDescription);
+    private void reject(BlobClient blob, Lease lease, UUID id, ErrorCode error, String errorDescription, Tags tags) {
+        lease.ensureHeld();
+        phaseTimer("db", tags).record(() -> envelopeService.markAsRejected(id, error, errorDescription));
+        meterRegistry.counter(OUTCOME_COUNTER, tags.and("outcome", "rejected")).increment();
 
         logger.error(
             "Rejected Blob. File name: {}, Container: {}, New envelope ID: {}, Reason: {}",
@@ -131,19 +473,43 @@ public class BlobProcessor {
         );
     }
 
-    private byte[] downloadBlob(BlobClient blobClient) throws IOException {
-        try (var outputStream = new ByteArrayOutputStream()) {
-            blobClient.download(outputStream);
-
-            return outputStream.toByteArray();
-        } catch (BlobStorageException exc) {
-            String errorMessage = exc.getStatusCode() == BAD_GATEWAY.value()
-                ? ErrorMessages.DOWNLOAD_ERROR_BAD_GATEWAY
-                : ErrorMessages.DOWNLOAD_ERROR_GENERIC;
+    private void downloadBlob(BlobClient blobClient, BlobProperties properties, OutputStream outputStream) {
+        try {
+            downloader.download(blobClient, properties.getBlobSize(), properties.getETag(), outputStream);
+        } catch (Exception exc) {
+            throw downloadFailure(exc);
+        }
+    }
 
-            throw new ZipFileLoadException(errorMessage, exc);
+    private InputStream openBlob(BlobClient blobClient, String eTag) {
+        try {
+            // fails if the blob is modified while being read, so that the verified content is the one copied
+            return blobClient.openInputStream(null, new BlobRequestConditions().setIfMatch(eTag));
         } catch (Exception exc) {
-            throw new ZipFileLoadException(ErrorMessages.DOWNLOAD_ERROR_GENERIC, exc);
+            throw downloadFailure(exc);
+        }
+    }
+
+    private static ZipFileLoadException downloadFailure(Throwable exc) {
+        Throwable cause = exc instanceof IOException && exc.getCause() != null ? exc.getCause() : exc;
+        String errorMessage = cause instanceof BlobStorageException
+            && ((BlobStorageException) cause).getStatusCode() == BAD_GATEWAY.value()
+            ? ErrorMessages.DOWNLOAD_ERROR_BAD_GATEWAY
+            : ErrorMessages.DOWNLOAD_ERROR_GENERIC;
+
+        return new ZipFileLoadException(errorMessage, exc);
+    }
+
+    private void discard(SpoolingOutputStream content, BlobClient blob) {
+        try {
+            content.reset(); // returns buffers to the pool and removes the temporary file, if any
+        } catch (IOException exc) {
+            logger.warn(
+                "Failed to discard spooled content. File name: {}, Container: {}",
+                blob.getBlobName(),
+                blob.getContainerName(),
+                exc
+            );
         }
     }
 
@@ -158,6 +524,44 @@ public class BlobProcessor {
         envelopeService.saveEvent(envelopeId, EventType.ERROR, escapeHtml4(exc.getMessage()));
     }
 
+    /**
+     * Reports read failures as download errors, so that they are not mistaken for an invalid zip archive
+     * by the verifier, which reads the stream.
+     */
+    private static class DownloadStream extends FilterInputStream {
+
+        DownloadStream(InputStream blobStream) {
+            super(blobStream);
+        }
+
+        @Override
+        public int read() {
+            try {
+                return super.read();
+            } catch (IOException exc) {
+                throw downloadFailure(exc);
+            }
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            try {
+                return super.read(buffer, offset, length);
+            } catch (IOException exc) {
+                throw downloadFailure(exc);
+            }
+        }
+
+        @Override
+        public long skip(long count) {
+            try {
+                return super.skip(count);
+            } catch (IOException exc) {
+                throw downloadFailure(exc);
+            }
+        }
+    }
+
     public static class ErrorMessages {
 
         public static final String DOWNLOAD_ERROR_GENERIC =
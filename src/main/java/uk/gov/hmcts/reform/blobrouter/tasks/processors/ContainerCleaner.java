@@ -5,13 +5,28 @@ import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobErrorCode;
 import com.azure.storage.blob.models.DeleteSnapshotsOptionType;
+import com.google.common.collect.Lists;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
+import uk.gov.hmcts.reform.blobrouter.services.DeletedEnvelopesBatch;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobBatchDeleter;
+import uk.gov.hmcts.reform.blobrouter.services.storage.Lease;
 import uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer;
 
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import static java.util.stream.Collectors.toMap;
 import static org.slf4j.LoggerFactory.getLogger;
 
 @Component
@@ -22,58 +37,164 @@ public class ContainerCleaner {
     private final BlobServiceClient storageClient;
     private final EnvelopeService envelopeService;
     private final LeaseAcquirer leaseAcquirer;
+    private final BlobBatchDeleter blobBatchDeleter;
+    private final Executor blobLeaseExecutor; // acquires leases of blobs deleted in batch
+    private final int batchSize;
+    private final boolean batchDeleteEnabled;
 
     public ContainerCleaner(
         BlobServiceClient storageClient,
         EnvelopeService envelopeService,
-        LeaseAcquirer leaseAcquirer
+        LeaseAcquirer leaseAcquirer,
+        BlobBatchDeleter blobBatchDeleter,
+        @Qualifier("blob-lease-executor") Executor blobLeaseExecutor,
+        @Value("${envelope-cleanup.batch-size}") int batchSize,
+        @Value("${scheduling.task.delete-dispatched-files.batch-delete-enabled}") boolean batchDeleteEnabled
     ) {
         this.storageClient = storageClient;
         this.envelopeService = envelopeService;
         this.leaseAcquirer = leaseAcquirer;
+        this.blobBatchDeleter = blobBatchDeleter;
+        this.blobLeaseExecutor = blobLeaseExecutor;
+        this.batchSize = batchSize;
+        this.batchDeleteEnabled = batchDeleteEnabled;
     }
 
     public void process(String containerName) {
         logger.info("Started deleting dispatched blobs from container {}", containerName);
-
+        var deletedEnvelopes = new DeletedEnvelopesBatch(envelopeService::markEnvelopesAsDeleted, batchSize);
 
         try {
             final BlobContainerClient containerClient = storageClient.getBlobContainerClient(containerName);
+            List<Envelope> envelopes = envelopeService.getReadyToDeleteDispatches(containerName);
 
-            envelopeService
-                .getReadyToDeleteDispatches(containerName)
-                .forEach(envelope -> deleteBlob(envelope, containerClient));
+            if (batchDeleteEnabled) {
+                Lists
+                    .partition(envelopes, BlobBatchDeleter.MAX_BATCH_SIZE)
+                    .forEach(batch -> deleteBlobs(batch, containerClient, deletedEnvelopes));
+            } else {
+                envelopes.forEach(envelope -> deleteBlob(envelope, containerClient, deletedEnvelopes));
+            }
         } catch (Exception ex) {
             logger.error("Error deleting blobs in container {}", containerName, ex);
+        } finally {
+            deletedEnvelopes.flush();
         }
 
         logger.info("Finished deleting dispatched blobs from container {}", containerName);
     }
 
-    private void deleteBlob(Envelope envelope, BlobContainerClient containerClient) {
+    private void deleteBlob(
+        Envelope envelope,
+        BlobContainerClient containerClient,
+        DeletedEnvelopesBatch deletedEnvelopes
+    ) {
         BlobClient blobClient = containerClient.getBlobClient(envelope.fileName);
 
         leaseAcquirer.ifAcquiredOrElse(
             blobClient,
-            leaseId -> tryToDeleteBlob(envelope, blobClient, leaseId),
-            errorCode -> {
-                envelopeService.markEnvelopeAsDeleted(envelope);
+            leaseId -> tryToDeleteBlob(envelope, blobClient, leaseId, deletedEnvelopes),
+            errorCode -> onLeaseFailure(envelope, blobClient, errorCode, deletedEnvelopes),
+            false
+        );
+    }
+
+    /**
+     * Leases the blobs concurrently, then deletes the leased ones with a single batch request.
+     * Leases are not renewed, so blobs whose lease has expired by then are left for the next run.
+     * Outcomes of leasing are handled on the calling thread, once all leases have been requested.
+     */
+    private void deleteBlobs(
+        List<Envelope> envelopes,
+        BlobContainerClient containerClient,
+        DeletedEnvelopesBatch deletedEnvelopes
+    ) {
+        Map<String, Lease> leases = new ConcurrentHashMap<>();
+        Map<String, BlobErrorCode> leaseFailures = new ConcurrentHashMap<>();
+
+        CompletableFuture
+            .allOf(
+                envelopes
+                    .stream()
+                    .map(envelope -> CompletableFuture.runAsync(
+                        () -> leaseAcquirer.ifAcquiredOrElse(
+                            containerClient.getBlobClient(envelope.fileName),
+                            lease -> leases.put(envelope.fileName, lease),
+                            errorCode -> leaseFailures.put(envelope.fileName, errorCode),
+                            false,
+                            false
+                        ),
+                        blobLeaseExecutor
+                    ))
+                    .toArray(CompletableFuture[]::new)
+            )
+            .join();
+
+        Map<String, Envelope> envelopesByBlobName = envelopes
+            .stream()
+            .collect(toMap(envelope -> envelope.fileName, envelope -> envelope, (older, newer) -> newer));
+        leaseFailures.forEach((blobName, errorCode) -> onLeaseFailure(
+            envelopesByBlobName.get(blobName),
+            containerClient.getBlobClient(blobName),
+            errorCode,
+            deletedEnvelopes
+        ));
+
+        deleteLeasedBlobs(containerClient, leases, envelopesByBlobName, deletedEnvelopes);
+    }
+
+    private void deleteLeasedBlobs(
+        BlobContainerClient containerClient,
+        Map<String, Lease> leases,
+        Map<String, Envelope> envelopesByBlobName,
+        DeletedEnvelopesBatch deletedEnvelopes
+    ) {
+        Map<String, String> leaseIds = new HashMap<>();
+        leases.forEach((blobName, lease) -> {
+            if (lease.isHeld()) {
+                leaseIds.put(blobName, lease.getId());
+            } else {
+                logger.warn(
+                    "Lease expired before dispatched blob {} could be deleted from container {}",
+                    blobName,
+                    containerClient.getBlobContainerName()
+                );
+            }
+        });
+
+        blobBatchDeleter
+            .delete(containerClient, leaseIds)
+            .forEach(blobName -> {
+                deletedEnvelopes.add(envelopesByBlobName.get(blobName).id);
                 logger.info(
-                    // once cleared up - i'll create amendment as at this stage we should not care about error code
-                    "Marked blob as deleted. File name: {}, container: {}, original error code: {}",
-                    envelope.fileName,
-                    blobClient.getContainerName(),
-                    errorCode
+                    "Deleted dispatched blob {} from container {}",
+                    blobName,
+                    containerClient.getBlobContainerName()
                 );
-            },
-            false
+            });
+    }
+
+    private void onLeaseFailure(
+        Envelope envelope,
+        BlobClient blobClient,
+        BlobErrorCode errorCode,
+        DeletedEnvelopesBatch deletedEnvelopes
+    ) {
+        deletedEnvelopes.add(envelope.id);
+        logger.info(
+            // once cleared up - i'll create amendment as at this stage we should not care about error code
+            "Marked blob as deleted. File name: {}, container: {}, original error code: {}",
+            envelope.fileName,
+            blobClient.getContainerName(),
+            errorCode
         );
     }
 
     private void tryToDeleteBlob(
         Envelope envelope,
         BlobClient blobClient,
-        String leaseId
+        String leaseId,
+        DeletedEnvelopesBatch deletedEnvelopes
     ) {
         try {
             blobClient.deleteWithResponse(
@@ -82,7 +203,7 @@ public class ContainerCleaner {
                 null,
                 Context.NONE
             );
-            envelopeService.markEnvelopeAsDeleted(envelope);
+            deletedEnvelopes.add(envelope.id);
             logger.info(
                 "Deleted dispatched blob {} from container {}",
                 envelope.fileName,
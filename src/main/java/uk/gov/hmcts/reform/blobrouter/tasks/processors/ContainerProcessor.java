@@ -3,18 +3,40 @@ package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobErrorCode;
 import com.azure.storage.blob.models.BlobItem;
+import com.azure.storage.blob.models.BlobStorageException;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Status;
 import uk.gov.hmcts.reform.blobrouter.services.BlobReadinessChecker;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanPass;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanWatermarkService;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobLister;
+import uk.gov.hmcts.reform.blobrouter.services.storage.Lease;
 import uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiPredicate;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 import static org.slf4j.LoggerFactory.getLogger;
 
@@ -23,106 +45,282 @@ public class ContainerProcessor {
 
     private static final Logger logger = getLogger(ContainerProcessor.class);
 
+    static final String BLOB_COUNTER = "container.blobs";
+    static final String SCAN_NAME = "blob-dispatcher";
+
     private final BlobServiceClient storageClient;
+    private final BlobLister blobLister;
     private final BlobProcessor blobProcessor;
     private final BlobReadinessChecker blobReadinessChecker;
     private final LeaseAcquirer leaseAcquirer;
     private final EnvelopeService envelopeService;
+    private final ScanWatermarkService scanWatermarkService;
+    private final Executor blobProcessingExecutor; // bounded by the global limit of blobs processed at once
+    private final int maxBlobsPerContainer;
+    private final MeterRegistry meterRegistry;
 
     public ContainerProcessor(
         BlobServiceClient storageClient,
+        BlobLister blobLister,
         BlobProcessor blobProcessor,
         BlobReadinessChecker blobReadinessChecker,
         LeaseAcquirer leaseAcquirer,
-        EnvelopeService envelopeService
+        EnvelopeService envelopeService,
+        ScanWatermarkService scanWatermarkService,
+        @Qualifier("blob-processing-executor") Executor blobProcessingExecutor,
+        @Value("${blob-processing.concurrency.max-blobs-per-container}") int maxBlobsPerContainer,
+        MeterRegistry meterRegistry
     ) {
         this.storageClient = storageClient;
+        this.blobLister = blobLister;
         this.blobProcessor = blobProcessor;
         this.blobReadinessChecker = blobReadinessChecker;
         this.leaseAcquirer = leaseAcquirer;
         this.envelopeService = envelopeService;
+        this.scanWatermarkService = scanWatermarkService;
+        this.blobProcessingExecutor = blobProcessingExecutor;
+        this.maxBlobsPerContainer = maxBlobsPerContainer;
+        this.meterRegistry = meterRegistry;
     }
 
+    /**
+     * Processes ready blobs from the container in parallel.
+     * Unless a full scan is due, only blobs modified since the previous scan are examined.
+     * Envelopes of blobs are looked up once per listing page, so that blobs already dispatched or rejected
+     * are skipped without leasing them. The status is checked again once the lease is acquired.
+     * No more than {@code maxBlobsPerContainer} blobs from the container are in flight at once,
+     * listing waits for a free slot. Returns once all the blobs submitted have been processed.
+     */
     public void process(String containerName) {
-        logger.info("Processing container {}", containerName);
+        ScanPass scanPass = scanWatermarkService.startPass(SCAN_NAME, containerName);
+        logger.info("Processing container {}. Full scan: {}", containerName, scanPass.isFull());
+
+        long startTime = System.currentTimeMillis();
+        Semaphore inFlightBlobs = new Semaphore(maxBlobsPerContainer);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        boolean listingCompleted = false;
+
+        try {
+            BlobContainerClient containerClient = storageClient.getBlobContainerClient(containerName);
+
+            for (List<BlobItem> page : blobLister.listPages(containerClient)) {
+                Map<String, Instant> readyBlobs = new LinkedHashMap<>();
+                int examined = 0;
+
+                for (BlobItem blobItem : page) {
+                    Instant lastModified = blobItem.getProperties().getLastModified().toInstant();
+                    if (scanPass.includes(lastModified)) {
+                        examined++;
+                        if (isReady(blobItem.getName(), lastModified, containerName)) {
+                            readyBlobs.put(blobItem.getName(), lastModified);
+                        } else {
+                            scanPass.keep(lastModified);
+                        }
+                    }
+                }
+
+                count(containerName, "listed", page.size());
+                count(containerName, "examined", examined);
+
+                submit(
+                    containerClient,
+                    containerName,
+                    List.copyOf(readyBlobs.keySet()),
+                    blobName -> scanPass.keep(readyBlobs.get(blobName)),
+                    inFlightBlobs,
+                    tasks
+                );
+            }
+            listingCompleted = true;
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while processing {} container", containerName, exception);
+        } catch (Exception exception) {
+            logger.error("Error occurred while processing {} container", containerName, exception);
+        }
+
+        // wait for blobs already submitted, even if listing failed
+        awaitCompletion(containerName, tasks, startTime);
+
+        if (listingCompleted) {
+            scanWatermarkService.complete(scanPass);
+        }
+    }
+
+    /**
+     * Processes given blobs from the container, e.g. reported by a discovery source, without listing it.
+     * Blobs which no longer exist are ignored.
+     *
+     * @return names of the blobs which are not ready to be processed yet
+     */
+    public Set<String> process(String containerName, Collection<String> blobNames) {
+        logger.info("Processing {} discovered blobs from container {}", blobNames.size(), containerName);
+
+        long startTime = System.currentTimeMillis();
+        Semaphore inFlightBlobs = new Semaphore(maxBlobsPerContainer);
+        List<CompletableFuture<Void>> tasks = new ArrayList<>();
+        Set<String> notReadyBlobNames = new HashSet<>();
 
         try {
             BlobContainerClient containerClient = storageClient.getBlobContainerClient(containerName);
-            containerClient
-                .listBlobs()
-                .stream()
-                .filter(blobItem -> isReady(blobItem, containerName))
-                .map(blobItem -> containerClient.getBlobClient(blobItem.getName()))
-                .forEach(blob -> processBlob(blob));
-
-            logger.info("Finished processing container {}", containerName);
+            List<String> readyBlobNames = new ArrayList<>();
+
+            for (String blobName : blobNames) {
+                getLastModified(containerClient.getBlobClient(blobName)).ifPresent(lastModified -> {
+                    if (blobReadinessChecker.isReady(lastModified)) {
+                        readyBlobNames.add(blobName);
+                    } else {
+                        notReadyBlobNames.add(blobName);
+                    }
+                });
+            }
+
+            count(containerName, "discovered", blobNames.size());
+
+            // blobs which failed are picked up by the container scan
+            submit(containerClient, containerName, readyBlobNames, blobName -> { }, inFlightBlobs, tasks);
+        } catch (InterruptedException exception) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrupted while processing {} container", containerName, exception);
         } catch (Exception exception) {
             logger.error("Error occurred while processing {} container", containerName, exception);
         }
+
+        awaitCompletion(containerName, tasks, startTime);
+
+        return notReadyBlobNames;
     }
 
-    private boolean isReady(BlobItem blobClient, String containerName) {
-        Instant blobCreationDate = blobClient.getProperties().getLastModified().toInstant();
-        if (blobReadinessChecker.isReady(blobCreationDate)) {
+    private void submit(
+        BlobContainerClient containerClient,
+        String containerName,
+        List<String> readyBlobNames,
+        Consumer<String> notProcessedBlobHandler,
+        Semaphore inFlightBlobs,
+        List<CompletableFuture<Void>> tasks
+    ) throws InterruptedException {
+        count(containerName, "ready", readyBlobNames.size());
+
+        Map<String, Envelope> lastEnvelopes = envelopeService.findLastEnvelopes(readyBlobNames, containerName);
+
+        for (String blobName : readyBlobNames) {
+            Optional<Envelope> lastEnvelope = Optional.ofNullable(lastEnvelopes.get(blobName));
+
+            if (lastEnvelope.isPresent() && lastEnvelope.get().status != Status.CREATED) {
+                logEnvelopeAlreadyProcessed(lastEnvelope.get());
+                count(containerName, "skipped", 1);
+                continue;
+            }
+
+            BlobClient blobClient = containerClient.getBlobClient(blobName);
+
+            inFlightBlobs.acquire();
+            tasks.add(
+                CompletableFuture
+                    .supplyAsync(() -> tryToProcessBlob(blobClient, lastEnvelope), blobProcessingExecutor)
+                    .thenAccept(processed -> {
+                        if (!processed) {
+                            notProcessedBlobHandler.accept(blobName);
+                        }
+                    })
+                    .whenComplete((result, exc) -> inFlightBlobs.release())
+            );
+        }
+    }
+
+    private void awaitCompletion(String containerName, List<CompletableFuture<Void>> tasks, long startTime) {
+        CompletableFuture.allOf(tasks.toArray(new CompletableFuture[0])).join();
+
+        logger.info(
+            "Finished processing container {}. Blobs processed: {}, duration in Ms: {}",
+            containerName,
+            tasks.size(),
+            System.currentTimeMillis() - startTime
+        );
+    }
+
+    private Optional<Instant> getLastModified(BlobClient blobClient) {
+        try {
+            return Optional.of(blobClient.getProperties().getLastModified().toInstant());
+        } catch (BlobStorageException exception) {
+            if (exception.getErrorCode() == BlobErrorCode.BLOB_NOT_FOUND) {
+                logger.info(
+                    "Discovered blob does not exist anymore, skipping. File name: {}. Container: {}",
+                    blobClient.getBlobName(),
+                    blobClient.getContainerName()
+                );
+                return Optional.empty();
+            }
+            throw exception;
+        }
+    }
+
+    private void count(String containerName, String state, int amount) {
+        meterRegistry.counter(BLOB_COUNTER, "container", containerName, "state", state).increment(amount);
+    }
+
+    private boolean isReady(String blobName, Instant lastModified, String containerName) {
+        if (blobReadinessChecker.isReady(lastModified)) {
             return true;
         } else {
             logger.info(
                 "Blob not ready to be processed yet, skipping. File name: {}. Container: {}",
-                blobClient.getName(),
+                blobName,
                 containerName
             );
             return false;
         }
     }
 
-    private void processBlob(BlobClient blobClient) {
-        getLastEnvelope(blobClient)
-            .ifPresentOrElse(
-                envelope -> {
-                    if (envelope.status == Status.CREATED) {
-                        leaseAndThen(blobClient, () ->
-                            continueProcessingEnvelopeIfEligible(
-                                blobClient,
-                                this::logEnvelopeDeleted
-                            )
-                        );
-                    } else {
-                        logEnvelopeAlreadyProcessed(envelope);
-                    }
-                },
-                () -> leaseAndThen(blobClient, () ->
-                    continueProcessingEnvelopeIfEligible(
-                        blobClient,
-                        blobProcessor::process
-                    )
-                )
+    private boolean tryToProcessBlob(BlobClient blobClient, Optional<Envelope> lastEnvelope) {
+        try {
+            return processBlob(blobClient, lastEnvelope);
+        } catch (Exception exception) {
+            logger.error(
+                "Error occurred while processing blob. File name: {}, Container: {}",
+                blobClient.getBlobName(),
+                blobClient.getContainerName(),
+                exception
             );
+            return false;
+        }
     }
 
-    private void continueProcessingEnvelopeIfEligible(
+    private boolean processBlob(BlobClient blobClient, Optional<Envelope> lastEnvelope) {
+        BiPredicate<BlobClient, Lease> nonExistingEnvelopeHandler = lastEnvelope.isPresent()
+            ? (blob, lease) -> logEnvelopeDeleted(blob)
+            : blobProcessor::process;
+
+        return leaseAndThen(blobClient, lease ->
+            continueProcessingEnvelopeIfEligible(blobClient, lease, nonExistingEnvelopeHandler)
+        );
+    }
+
+    private boolean continueProcessingEnvelopeIfEligible(
         BlobClient blobClient,
-        Consumer<BlobClient> nonExistingEnvelopeHandler
+        Lease lease,
+        BiPredicate<BlobClient, Lease> nonExistingEnvelopeHandler
     ) {
-        getLastEnvelope(blobClient)
-            .ifPresentOrElse(
-                envelope -> continueProcessingIfPossible(blobClient, envelope),
-                () -> nonExistingEnvelopeHandler.accept(blobClient)
-            );
+        return getLastEnvelope(blobClient)
+            .map(envelope -> continueProcessingIfPossible(blobClient, lease, envelope))
+            .orElseGet(() -> nonExistingEnvelopeHandler.test(blobClient, lease));
     }
 
-    private void continueProcessingIfPossible(BlobClient blobClient, Envelope envelope) {
+    private boolean continueProcessingIfPossible(BlobClient blobClient, Lease lease, Envelope envelope) {
         if (envelope.status == Status.CREATED) {
-            blobProcessor.continueProcessing(envelope.id, blobClient);
+            return blobProcessor.continueProcessing(envelope.id, blobClient, lease);
         } else {
             logEnvelopeAlreadyProcessed(envelope);
+            return true;
         }
     }
 
-    private void logEnvelopeDeleted(BlobClient blobClient) {
+    private boolean logEnvelopeDeleted(BlobClient blobClient) {
         logger.error(
             "Envelope deleted in system for blob {}, container {}",
             blobClient.getBlobName(), blobClient.getContainerName()
         );
+        return true;
     }
 
     private void logEnvelopeAlreadyProcessed(Envelope envelope) {
@@ -134,17 +332,25 @@ public class ContainerProcessor {
             .findLastEnvelope(blobClient.getBlobName(), blobClient.getContainerName());
     }
 
-    private void leaseAndThen(BlobClient blobClient, Runnable action) {
+    /**
+     * Runs the action once the lease on the blob is acquired.
+     *
+     * @return result of the action, false if the lease could not be acquired
+     */
+    private boolean leaseAndThen(BlobClient blobClient, Predicate<Lease> action) {
+        AtomicBoolean result = new AtomicBoolean(false);
         leaseAcquirer.ifAcquiredOrElse(
             blobClient,
-            leaseId -> action.run(),
+            lease -> result.set(action.test(lease)),
             errorCode -> logger.info(
                 "Cannot acquire a lease for blob - skipping. File name: {}, container: {}, error code: {}",
                 blobClient.getBlobName(),
                 blobClient.getContainerName(),
                 errorCode
             ),
-            true
+            true,
+            true // processing a big blob can take longer than the lease duration
         );
+        return result.get();
     }
 }
@@ -3,6 +3,9 @@ package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 import com.azure.storage.blob.BlobServiceClient;
 import org.springframework.stereotype.Component;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanPass;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanWatermarkService;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobLister;
 
 import java.time.Instant;
 import java.util.List;
@@ -12,25 +15,43 @@ import static java.util.stream.Collectors.toList;
 @Component
 public class DuplicateFinder {
 
+    static final String SCAN_NAME = "duplicates";
+
     private final BlobServiceClient storageClient;
+    private final BlobLister blobLister;
     private final EnvelopeService envelopeService;
+    private final ScanWatermarkService scanWatermarkService;
 
     public DuplicateFinder(
         BlobServiceClient storageClient,
-        EnvelopeService envelopeService
+        BlobLister blobLister,
+        EnvelopeService envelopeService,
+        ScanWatermarkService scanWatermarkService
     ) {
         this.storageClient = storageClient;
+        this.blobLister = blobLister;
         this.envelopeService = envelopeService;
+        this.scanWatermarkService = scanWatermarkService;
     }
 
+    /**
+     * Finds duplicates among blobs modified since the previous search, or among all blobs if a full scan is due.
+     * Duplicates found are examined again by the next search, in case they could not be moved.
+     */
     public List<Duplicate> findIn(String containerName) {
-        return storageClient
-            .getBlobContainerClient(containerName)
-            .listBlobs()
-            .stream()
-            .filter(b -> isDuplicate(b.getName(), containerName))
+        ScanPass scanPass = scanWatermarkService.startPass(SCAN_NAME, containerName);
+
+        List<Duplicate> duplicates = blobLister
+            .listBlobs(storageClient.getBlobContainerClient(containerName))
             .map(b -> new Duplicate(b.getName(), containerName, b.getProperties().getLastModified().toInstant()))
+            .filter(d -> scanPass.includes(d.blobCreatedAt))
+            .filter(d -> isDuplicate(d.fileName, containerName))
             .collect(toList());
+
+        duplicates.forEach(d -> scanPass.keep(d.blobCreatedAt));
+        scanWatermarkService.complete(scanPass);
+
+        return duplicates;
     }
 
     private boolean isDuplicate(String fileName, String container) {
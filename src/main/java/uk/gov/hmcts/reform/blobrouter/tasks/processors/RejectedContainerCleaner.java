@@ -2,19 +2,31 @@ package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 
 import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.models.BlobContainerItem;
+import com.azure.storage.blob.models.BlobItem;
 import com.azure.storage.blob.models.BlobListDetails;
 import com.azure.storage.blob.models.BlobRequestConditions;
 import com.azure.storage.blob.models.DeleteSnapshotsOptionType;
 import com.azure.storage.blob.models.ListBlobsOptions;
 import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.data.events.EventType;
+import uk.gov.hmcts.reform.blobrouter.services.DeletedEnvelopesBatch;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
 import uk.gov.hmcts.reform.blobrouter.services.RejectedBlobChecker;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobLister;
 import uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
 import static org.slf4j.LoggerFactory.getLogger;
 import static uk.gov.hmcts.reform.blobrouter.services.storage.RejectedFilesHandler.REJECTED_CONTAINER_SUFFIX;
 
@@ -27,21 +39,27 @@ public class RejectedContainerCleaner {
         new ListBlobsOptions().setDetails(new BlobListDetails().setRetrieveSnapshots(true));
 
     private final BlobServiceClient storageClient;
+    private final BlobLister blobLister;
     private final RejectedBlobChecker blobChecker;
     private final EnvelopeService envelopeService;
     private final LeaseAcquirer leaseAcquirer;
+    private final int batchSize; // deletion events are saved once this many blobs have been deleted
 
     // region constructor
     public RejectedContainerCleaner(
         BlobServiceClient storageClient,
+        BlobLister blobLister,
         RejectedBlobChecker blobChecker,
         EnvelopeService envelopeService,
-        LeaseAcquirer leaseAcquirer
+        LeaseAcquirer leaseAcquirer,
+        @Value("${envelope-cleanup.batch-size}") int batchSize
     ) {
         this.storageClient = storageClient;
+        this.blobLister = blobLister;
         this.blobChecker = blobChecker;
         this.envelopeService = envelopeService;
         this.leaseAcquirer = leaseAcquirer;
+        this.batchSize = batchSize;
     }
     // endregion
 
@@ -57,30 +75,73 @@ public class RejectedContainerCleaner {
     private void cleanUpContainer(String containerName) {
         logger.info("Looking for rejected files to delete. Container: {}", containerName);
         var containerClient = storageClient.getBlobContainerClient(containerName);
+        var deletedEnvelopes = new DeletedEnvelopesBatch(
+            envelopeIds -> envelopeService.saveEvents(envelopeIds, EventType.DELETED_FROM_REJECTED),
+            batchSize
+        );
+
+        for (List<BlobItem> page : blobLister.listPages(containerClient, listOptions)) {
+            List<BlobItem> blobsToDelete = page
+                .stream()
+                .filter(this.blobChecker::shouldBeDeleted)
+                .collect(toList());
+
+            if (!blobsToDelete.isEmpty()) {
+                deleteBlobs(containerClient, containerName, blobsToDelete, deletedEnvelopes);
+            }
+        }
 
-        containerClient
-            .listBlobs(listOptions, null)
+        deletedEnvelopes.flush();
+        logger.info("Finished removing rejected files. Container: {}", containerName);
+    }
+
+    /**
+     * Envelopes of the blobs are looked up once for the page. If that fails, blobs of the page are left
+     * for the next run, so that none is deleted without its deletion event.
+     */
+    private void deleteBlobs(
+        BlobContainerClient containerClient,
+        String containerName,
+        List<BlobItem> blobItems,
+        DeletedEnvelopesBatch deletedEnvelopes
+    ) {
+        Map<String, Envelope> lastEnvelopes;
+        try {
+            lastEnvelopes = envelopeService.findLastEnvelopes(
+                blobItems.stream().map(BlobItem::getName).collect(toSet()),
+                containerName
+            );
+        } catch (Exception exc) {
+            logger.error("Error finding envelopes of rejected files. Container: {}", containerName, exc);
+            return;
+        }
+
+        blobItems
             .stream()
-            .filter(this.blobChecker::shouldBeDeleted)
             .map(blobItem -> containerClient.getBlobClient(blobItem.getName()))
             .forEach(blobClient -> leaseAcquirer.ifAcquiredOrElse(
                 blobClient,
-                leaseId -> delete(blobClient, leaseId),
+                leaseId -> delete(
+                    blobClient,
+                    leaseId,
+                    Optional.ofNullable(lastEnvelopes.get(blobClient.getBlobName())),
+                    deletedEnvelopes
+                ),
                 errorCode -> {}, // nothing to do if blob not found in rejected container
                 false
             ));
-
-        logger.info("Finished removing rejected files. Container: {}", containerName);
     }
 
-    private void delete(BlobClient blobClient, String leaseId) {
-        String containerName = blobClient.getContainerName();
-        String blobName = blobClient.getBlobName();
-
+    private void delete(
+        BlobClient blobClient,
+        String leaseId,
+        Optional<Envelope> envelope,
+        DeletedEnvelopesBatch deletedEnvelopes
+    ) {
         String blobInfo = String.format(
             "Container: %s. File name: %s. Snapshot ID: %s",
-            containerName,
-            blobName,
+            blobClient.getContainerName(),
+            blobClient.getBlobName(),
             blobClient.getSnapshotId()
         );
 
@@ -95,12 +156,10 @@ public class RejectedContainerCleaner {
                 Context.NONE
             );
 
-            envelopeService
-                .findLastEnvelope(blobName, containerName)
-                .ifPresentOrElse(
-                    e -> envelopeService.saveEvent(e.id, EventType.DELETED_FROM_REJECTED),
-                    () -> logger.warn("Envelope not found. {}", blobInfo)
-                );
+            envelope.ifPresentOrElse(
+                e -> deletedEnvelopes.add(e.id),
+                () -> logger.warn("Envelope not found. {}", blobInfo)
+            );
             logger.info("Deleted rejected file. {}", blobInfo);
         } catch (Exception exc) {
             logger.error("Error deleting rejected file. {}", blobInfo, exc);
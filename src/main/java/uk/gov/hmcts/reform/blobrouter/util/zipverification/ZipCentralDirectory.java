@@ -0,0 +1,131 @@
+package uk.gov.hmcts.reform.blobrouter.util.zipverification;
+
+import com.google.common.io.ByteSource;
+import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidZipArchiveException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.zip.ZipEntry;
+
+/**
+ * Reads entries listed in the central directory of a zip, without reading (nor inflating) their content.
+ * Only what is needed to validate the archive is read: names and declared sizes.
+ * See section 4.3 of the .ZIP File Format Specification (APPNOTE.TXT).
+ */
+public final class ZipCentralDirectory {
+
+    private static final int END_OF_CENTRAL_DIRECTORY_SIGNATURE = 0x06054b50;
+    private static final int END_OF_CENTRAL_DIRECTORY_SIZE = 22;
+    private static final int MAX_COMMENT_SIZE = 0xFFFF;
+
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIGNATURE = 0x02014b50;
+    private static final int CENTRAL_DIRECTORY_ENTRY_SIZE = 46;
+    // fixed part followed by name, extra field and comment, each of them up to 64KB
+    private static final int MAX_CENTRAL_DIRECTORY_ENTRY_SIZE = CENTRAL_DIRECTORY_ENTRY_SIZE + 3 * 0xFFFF;
+
+    // values telling that the actual one is in the zip64 record
+    private static final int ZIP64_MARKER_16 = 0xFFFF;
+    private static final long ZIP64_MARKER_32 = 0xFFFFFFFFL;
+
+    private ZipCentralDirectory() {
+    }
+
+    /**
+     * Reads entries of the central directory of the given zip.
+     * Fails fast if the archive declares more than {@code maxEntries} entries, before reading any of them.
+     *
+     * @return entries, or empty if the archive uses zip64 extensions for its central directory,
+     *     in which case it has to be validated as it is read
+     * @throws InvalidZipArchiveException if the archive is malformed or has too many entries
+     */
+    public static Optional<List<ZipEntry>> readEntries(ByteSource zip, int maxEntries) throws IOException {
+        long zipSize = zip.size();
+        int tailSize = (int) Math.min(zipSize, END_OF_CENTRAL_DIRECTORY_SIZE + MAX_COMMENT_SIZE);
+        ByteBuffer tail = littleEndian(zip.slice(zipSize - tailSize, tailSize).read());
+
+        int endOfCentralDirectory = findEndOfCentralDirectory(tail);
+        int entryCount = Short.toUnsignedInt(tail.getShort(endOfCentralDirectory + 10));
+        long centralDirectorySize = Integer.toUnsignedLong(tail.getInt(endOfCentralDirectory + 12));
+        long centralDirectoryOffset = Integer.toUnsignedLong(tail.getInt(endOfCentralDirectory + 16));
+
+        if (entryCount == ZIP64_MARKER_16
+            || centralDirectorySize == ZIP64_MARKER_32
+            || centralDirectoryOffset == ZIP64_MARKER_32) {
+            return Optional.empty();
+        }
+        if (entryCount > maxEntries) {
+            throw new InvalidZipArchiveException(
+                "Zip contains too many entries. Expected at most " + maxEntries + ", actual = " + entryCount
+            );
+        }
+        if (centralDirectorySize > (long) entryCount * MAX_CENTRAL_DIRECTORY_ENTRY_SIZE
+            || centralDirectoryOffset + centralDirectorySize > zipSize - (tailSize - endOfCentralDirectory)) {
+            throw new InvalidZipArchiveException("Zip central directory is out of bounds");
+        }
+
+        ByteBuffer centralDirectory = littleEndian(
+            zip.slice(centralDirectoryOffset, centralDirectorySize).read()
+        );
+
+        List<ZipEntry> entries = new ArrayList<>(entryCount);
+        for (int i = 0; i < entryCount; i++) {
+            entries.add(readEntry(centralDirectory));
+        }
+        return Optional.of(entries);
+    }
+
+    private static int findEndOfCentralDirectory(ByteBuffer tail) {
+        // comment of variable length follows the record, so it has to be searched for backwards
+        for (int position = tail.limit() - END_OF_CENTRAL_DIRECTORY_SIZE; position >= 0; position--) {
+            if (tail.getInt(position) == END_OF_CENTRAL_DIRECTORY_SIGNATURE
+                && position + END_OF_CENTRAL_DIRECTORY_SIZE + Short.toUnsignedInt(tail.getShort(position + 20))
+                    == tail.limit()) {
+                return position;
+            }
+        }
+        throw new InvalidZipArchiveException("Zip end of central directory record not found");
+    }
+
+    private static ZipEntry readEntry(ByteBuffer centralDirectory) {
+        int start = centralDirectory.position();
+        if (centralDirectory.remaining() < CENTRAL_DIRECTORY_ENTRY_SIZE
+            || centralDirectory.getInt(start) != CENTRAL_DIRECTORY_ENTRY_SIGNATURE) {
+            throw new InvalidZipArchiveException("Zip central directory is malformed");
+        }
+
+        long compressedSize = Integer.toUnsignedLong(centralDirectory.getInt(start + 20));
+        long size = Integer.toUnsignedLong(centralDirectory.getInt(start + 24));
+        int nameLength = Short.toUnsignedInt(centralDirectory.getShort(start + 28));
+        int extraLength = Short.toUnsignedInt(centralDirectory.getShort(start + 30));
+        int commentLength = Short.toUnsignedInt(centralDirectory.getShort(start + 32));
+
+        int end = start + CENTRAL_DIRECTORY_ENTRY_SIZE + nameLength + extraLength + commentLength;
+        if (end > centralDirectory.limit()) {
+            throw new InvalidZipArchiveException("Zip central directory is malformed");
+        }
+
+        byte[] name = new byte[nameLength];
+        centralDirectory.position(start + CENTRAL_DIRECTORY_ENTRY_SIZE);
+        centralDirectory.get(name);
+        centralDirectory.position(end);
+
+        var entry = new ZipEntry(new String(name, StandardCharsets.UTF_8));
+        // sizes in zip64 extra field are left unknown
+        if (compressedSize != ZIP64_MARKER_32) {
+            entry.setCompressedSize(compressedSize);
+        }
+        if (size != ZIP64_MARKER_32) {
+            entry.setSize(size);
+        }
+        return entry;
+    }
+
+    private static ByteBuffer littleEndian(byte[] bytes) {
+        return ByteBuffer.wrap(bytes).order(ByteOrder.LITTLE_ENDIAN);
+    }
+}
@@ -1,22 +1,33 @@
 package uk.gov.hmcts.reform.blobrouter.util.zipverification;
 
+import com.google.common.io.CountingInputStream;
 import uk.gov.hmcts.reform.blobrouter.exceptions.DocSignatureFailureException;
 import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidZipArchiveException;
 import uk.gov.hmcts.reform.blobrouter.exceptions.SignatureValidationException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.security.InvalidKeyException;
+import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.LongSupplier;
+import java.util.stream.Collectors;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
 
+import static com.google.common.io.ByteStreams.limit;
 import static com.google.common.io.ByteStreams.toByteArray;
 import static java.util.Arrays.asList;
 
@@ -24,9 +35,33 @@ public class ZipVerifiers {
 
     public static final String ENVELOPE = "envelope.zip";
     public static final String SIGNATURE = "signature";
+    public static final int EXPECTED_ENTRY_COUNT = 2;
 
     public static final String INVALID_SIGNATURE_MESSAGE = "Zip signature failed verification";
 
+    private static final String SIGNATURE_ALGORITHM = "SHA256withRSA";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    // verifies PKCS#1 v1.5 signature of data given as is, i.e. without hashing it
+    private static final String DIGEST_SIGNATURE_ALGORITHM = "NONEwithRSA";
+
+    // DER encoded DigestInfo of SHA-256 (RFC 8017, section 9.2), to be followed by the digest itself
+    private static final byte[] SHA256_DIGEST_INFO_PREFIX = {
+        0x30, 0x31, 0x30, 0x0d, 0x06, 0x09, 0x60, (byte) 0x86, 0x48, 0x01, 0x65, 0x03, 0x04, 0x02, 0x01, 0x05, 0x00,
+        0x04, 0x20
+    };
+    private static final int SHA256_DIGEST_LENGTH = 32;
+
+    // RSA signatures are a few hundred bytes, anything bigger than this is not a valid signature
+    private static final int MAX_SIGNATURE_SIZE = 16 * 1024;
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    // envelope is a zip itself, so it hardly compresses, while zip bombs inflate thousands of times
+    static final int MAX_COMPRESSION_RATIO = 100;
+    // small entries are not checked for compression ratio, whatever their content
+    static final long COMPRESSION_RATIO_MIN_SIZE = 1024 * 1024;
+
     private ZipVerifiers() {
     }
 
@@ -43,6 +78,107 @@ public class ZipVerifiers {
         return new ZipInputStream(new ByteArrayInputStream(zipEntries.get(ENVELOPE)));
     }
 
+    /**
+     * Verifies the zip without holding its entries in memory.
+     *
+     * <p>Content of the envelope entry is hashed as it is inflated,
+     * only the (small) signature entry is buffered. Unexpected entries, and entries whose declared sizes
+     * are not acceptable, are rejected as soon as they are encountered, before their content is read.
+     * Inflation stops as soon as an entry exceeds the maximum compression ratio declared in its local header.</p>
+     */
+    public static void verifyZipStreaming(ZipInputStream zis, PublicKey publicKey) {
+        verifyZipStreaming(zis, publicKey, OutputStream.nullOutputStream());
+    }
+
+    /**
+     * Same as {@link #verifyZipStreaming(ZipInputStream, PublicKey)}, additionally copying inflated
+     * content of the envelope entry to the given sink, so that it can be used without inflating it again.
+     * Sink is not closed. Failures to write to the sink are rethrown as {@link UncheckedIOException}
+     * so that they are not mistaken for an invalid archive.
+     */
+    public static void verifyZipStreaming(ZipInputStream zis, PublicKey publicKey, OutputStream envelopeSink) {
+        verifyZipStreaming(zis, null, publicKey, envelopeSink);
+    }
+
+    /**
+     * Same as {@link #verifyZipStreaming(ZipInputStream, PublicKey, OutputStream)}, for zip read from the given
+     * stream. Compressed bytes read are counted, so that compression ratio is also enforced for entries
+     * whose sizes are not declared in their local header (i.e. which are followed by a data descriptor).
+     */
+    public static void verifyZipStreaming(InputStream rawZip, PublicKey publicKey, OutputStream envelopeSink) {
+        var countingStream = new CountingInputStream(rawZip);
+        try (var zis = new ZipInputStream(countingStream)) {
+            verifyZipStreaming(zis, countingStream::getCount, publicKey, envelopeSink);
+        } catch (IOException ioe) {
+            throw new InvalidZipArchiveException("Error closing zip", ioe);
+        }
+    }
+
+    private static void verifyZipStreaming(
+        ZipInputStream zis,
+        LongSupplier compressedBytesRead, // null if not known
+        PublicKey publicKey,
+        OutputStream envelopeSink
+    ) {
+        MessageDigest envelopeDigest = newEnvelopeDigest();
+        Set<String> fileNames = new LinkedHashSet<>();
+        byte[] signed = null;
+
+        try {
+            ZipEntry zipEntry;
+            while ((zipEntry = zis.getNextEntry()) != null) {
+                String fileName = zipEntry.getName();
+                if (!fileNames.add(fileName) || !(ENVELOPE.equals(fileName) || SIGNATURE.equals(fileName))) {
+                    throw new InvalidZipArchiveException(
+                        "Zip entries do not match expected file names. Actual names = " + fileNames
+                            + ", unexpected name = " + fileName
+                    );
+                }
+                verifyDeclaredSizes(zipEntry);
+
+                if (ENVELOPE.equals(fileName)) {
+                    updateDigest(envelopeDigest, zis, envelopeSink, getMaxInflatedSize(zipEntry, compressedBytesRead));
+                } else {
+                    signed = toByteArray(limit(zis, MAX_SIGNATURE_SIZE));
+                }
+            }
+        } catch (IOException ioe) {
+            throw new InvalidZipArchiveException("Error extracting zip entries", ioe);
+        }
+
+        verifyFileNames(fileNames);
+        verifyDigestSignature(publicKey, envelopeDigest.digest(), signed);
+    }
+
+    /**
+     * Verifies the zip using random access to its entries.
+     *
+     * <p>Entry names are checked against the central directory before any content is read,
+     * then the (small) signature entry is read and the envelope entry is hashed as it is inflated.
+     * Content of the envelope entry is copied to the given sink, same as in
+     * {@link #verifyZipStreaming(ZipInputStream, PublicKey, OutputStream)}.</p>
+     */
+    public static void verifyZipFile(ZipFile zipFile, PublicKey publicKey, OutputStream envelopeSink) {
+        verifyCentralDirectory(zipFile.stream().collect(Collectors.toList()));
+
+        MessageDigest envelopeDigest = newEnvelopeDigest();
+        byte[] signed;
+        try {
+            try (InputStream signatureEntry = zipFile.getInputStream(zipFile.getEntry(SIGNATURE))) {
+                signed = toByteArray(limit(signatureEntry, MAX_SIGNATURE_SIZE));
+            }
+            ZipEntry envelope = zipFile.getEntry(ENVELOPE);
+            try (InputStream envelopeEntry = zipFile.getInputStream(envelope)) {
+                long maxInflatedSize = getMaxInflatedSize(envelope);
+                updateDigest(envelopeDigest, envelopeEntry, envelopeSink, () -> maxInflatedSize);
+            }
+        } catch (IOException ioe) {
+            throw new InvalidZipArchiveException("Error extracting zip entries", ioe);
+        }
+
+        verifyDigestSignature(publicKey, envelopeDigest.digest(), signed);
+    }
+
     private static Map<String, byte[]> extractZipEntries(ZipInputStream zis) {
         try {
             Map<String, byte[]> zipEntries = new HashMap<>();
@@ -57,6 +193,69 @@ public class ZipVerifiers {
         }
     }
 
+    /**
+     * Verifies entries read from the central directory of the zip, before any of them is inflated:
+     * their count, names and declared sizes.
+     *
+     * @see ZipCentralDirectory
+     */
+    public static void verifyCentralDirectory(List<ZipEntry> entries) {
+        if (entries.size() > EXPECTED_ENTRY_COUNT) {
+            throw new InvalidZipArchiveException(
+                "Zip contains too many entries. Expected " + EXPECTED_ENTRY_COUNT + ", actual = " + entries.size()
+            );
+        }
+
+        Set<String> fileNames = entries
+            .stream()
+            .map(ZipEntry::getName)
+            .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (fileNames.size() != entries.size()) {
+            throw new InvalidZipArchiveException("Zip contains duplicate entries. Names = " + fileNames);
+        }
+        verifyFileNames(fileNames);
+        entries.forEach(ZipVerifiers::verifyDeclaredSizes);
+    }
+
+    private static void verifyDeclaredSizes(ZipEntry entry) {
+        if (SIGNATURE.equals(entry.getName()) && entry.getSize() > MAX_SIGNATURE_SIZE) {
+            throw new InvalidZipArchiveException("Zip signature entry is too big. Declared size = " + entry.getSize());
+        }
+        if (entry.getSize() > getMaxInflatedSize(entry)) {
+            throw new InvalidZipArchiveException(
+                "Zip entry exceeds maximum compression ratio. Name = " + entry.getName()
+                    + ", declared size = " + entry.getSize()
+                    + ", compressed size = " + entry.getCompressedSize()
+            );
+        }
+    }
+
+    /**
+     * Maximum number of bytes the entry may inflate to, unlimited when its compressed size is not known.
+     */
+    private static long getMaxInflatedSize(ZipEntry entry) {
+        return entry.getCompressedSize() < 0
+            ? Long.MAX_VALUE
+            : getMaxInflatedSize(entry.getCompressedSize());
+    }
+
+    /**
+     * When compressed size of the entry is not declared, the limit grows with compressed bytes read so far.
+     */
+    private static LongSupplier getMaxInflatedSize(ZipEntry entry, LongSupplier compressedBytesRead) {
+        if (entry.getCompressedSize() >= 0 || compressedBytesRead == null) {
+            long maxInflatedSize = getMaxInflatedSize(entry);
+            return () -> maxInflatedSize;
+        }
+
+        long entryStart = compressedBytesRead.getAsLong();
+        return () -> getMaxInflatedSize(compressedBytesRead.getAsLong() - entryStart);
+    }
+
+    private static long getMaxInflatedSize(long compressedSize) {
+        return Math.max(COMPRESSION_RATIO_MIN_SIZE, compressedSize * MAX_COMPRESSION_RATIO);
+    }
+
     public static void verifyFileNames(Set<String> fileNames) {
         if (!(fileNames.size() == 2 && fileNames.containsAll(asList(ENVELOPE, SIGNATURE)))) {
             throw new InvalidZipArchiveException(
@@ -66,17 +265,97 @@ public class ZipVerifiers {
     }
 
     public static void verifySignature(PublicKey publicKey, byte[] data, byte[] signed) {
+        Signature signature = initVerify(publicKey);
         try {
-            Signature signature = Signature.getInstance("SHA256withRSA");
-            signature.initVerify(publicKey);
             signature.update(data);
+        } catch (SignatureException e) {
+            throw new DocSignatureFailureException(INVALID_SIGNATURE_MESSAGE, e);
+        }
+        verify(signature, signed);
+    }
+
+    /**
+     * Creates the digest to feed the content of the envelope entry into, as it is read,
+     * for {@link #verifyDigestSignature(PublicKey, byte[], byte[])}.
+     */
+    private static MessageDigest newEnvelopeDigest() {
+        try {
+            return MessageDigest.getInstance(DIGEST_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new SignatureValidationException(e);
+        }
+    }
+
+    /**
+     * Verifies the signature against SHA-256 digest of the envelope entry computed by the caller.
+     * Result is the same as verifying the whole content with {@link #verifySignature(PublicKey, byte[], byte[])},
+     * but the content does not need to be available, nor even be read on the same thread.
+     */
+    public static void verifyDigestSignature(PublicKey publicKey, byte[] envelopeDigest, byte[] signed) {
+        if (envelopeDigest.length != SHA256_DIGEST_LENGTH) {
+            throw new IllegalArgumentException("Expected SHA-256 digest, got " + envelopeDigest.length + " bytes");
+        }
+
+        Signature signature = initVerify(publicKey, DIGEST_SIGNATURE_ALGORITHM);
+        try {
+            signature.update(SHA256_DIGEST_INFO_PREFIX);
+            signature.update(envelopeDigest);
+        } catch (SignatureException e) {
+            throw new DocSignatureFailureException(INVALID_SIGNATURE_MESSAGE, e);
+        }
+        verify(signature, signed);
+    }
+
+    private static Signature initVerify(PublicKey publicKey) {
+        return initVerify(publicKey, SIGNATURE_ALGORITHM);
+    }
+
+    private static Signature initVerify(PublicKey publicKey, String algorithm) {
+        try {
+            Signature signature = Signature.getInstance(algorithm);
+            signature.initVerify(publicKey);
+            return signature;
+        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
+            throw new SignatureValidationException(e);
+        }
+    }
+
+    private static void updateDigest(
+        MessageDigest digest,
+        InputStream envelopeEntry,
+        OutputStream envelopeSink,
+        LongSupplier maxInflatedSize
+    ) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        long inflated = 0;
+        int read;
+        while ((read = envelopeEntry.read(buffer)) != -1) {
+            inflated += read;
+            if (inflated > maxInflatedSize.getAsLong()) {
+                throw new InvalidZipArchiveException(
+                    "Zip envelope entry exceeds maximum compression ratio. Inflated " + inflated + " bytes"
+                );
+            }
+            digest.update(buffer, 0, read);
+            copyToSink(envelopeSink, buffer, read);
+        }
+    }
+
+    private static void copyToSink(OutputStream sink, byte[] buffer, int length) {
+        try {
+            sink.write(buffer, 0, length);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Error copying envelope content", e);
+        }
+    }
+
+    private static void verify(Signature signature, byte[] signed) {
+        try {
             if (!signature.verify(signed)) {
                 throw new DocSignatureFailureException(INVALID_SIGNATURE_MESSAGE);
             }
         } catch (SignatureException e) {
             throw new DocSignatureFailureException(INVALID_SIGNATURE_MESSAGE, e);
-        } catch (NoSuchAlgorithmException | InvalidKeyException e) {
-            throw new SignatureValidationException(e);
         }
     }
 }
@@ -0,0 +1,7 @@
+CREATE TABLE scan_watermarks (
+    scan              VARCHAR(50) NOT NULL,
+    container         VARCHAR(50) NOT NULL,
+    watermark         TIMESTAMP   NOT NULL,
+    last_full_scan_at TIMESTAMP   NOT NULL,
+    PRIMARY KEY (scan, container)
+);
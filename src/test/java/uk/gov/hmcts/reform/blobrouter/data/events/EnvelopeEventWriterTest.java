@@ -0,0 +1,106 @@
+package uk.gov.hmcts.reform.blobrouter.data.events;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class EnvelopeEventWriterTest {
+
+    private static final NewEnvelopeEvent EVENT_1 = event(EventType.DISPATCHED);
+    private static final NewEnvelopeEvent EVENT_2 = event(EventType.DELETED);
+    private static final NewEnvelopeEvent EVENT_3 = event(EventType.ERROR);
+
+    @Mock EnvelopeEventRepository eventRepository;
+
+    EnvelopeEventWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new EnvelopeEventWriter(eventRepository, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_UNKNOWN);
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void should_insert_event_straight_away_outside_of_transaction() {
+        // when
+        writer.write(EVENT_1);
+
+        // then
+        verify(eventRepository).insertAll(List.of(EVENT_1));
+    }
+
+    @Test
+    void should_insert_events_in_batch_before_transaction_commits() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        writer.write(EVENT_1);
+
+        // then
+        verify(eventRepository, never()).insertAll(any());
+
+        // when
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        // then
+        verify(eventRepository).insertAll(List.of(EVENT_1));
+    }
+
+    @Test
+    void should_insert_pending_events_once_batch_is_full() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+
+        // when
+        writer.write(EVENT_1);
+        writer.write(EVENT_2);
+        writer.write(EVENT_3);
+        TransactionSynchronizationUtils.triggerBeforeCommit(false);
+
+        // then
+        verify(eventRepository).insertAll(List.of(EVENT_1, EVENT_2));
+        verify(eventRepository).insertAll(List.of(EVENT_3));
+        verifyNoMoreInteractions(eventRepository);
+    }
+
+    @Test
+    void should_not_insert_events_when_transaction_rolls_back() {
+        // given
+        TransactionSynchronizationManager.initSynchronization();
+        writer.write(EVENT_1);
+
+        // when
+        TransactionSynchronizationUtils.triggerAfterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        TransactionSynchronizationManager.clearSynchronization();
+
+        // then
+        verify(eventRepository, never()).insertAll(any());
+    }
+
+    private static NewEnvelopeEvent event(EventType type) {
+        return new NewEnvelopeEvent(UUID.randomUUID(), type, null, null);
+    }
+}
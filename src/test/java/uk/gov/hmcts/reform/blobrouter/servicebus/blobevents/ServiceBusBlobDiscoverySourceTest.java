@@ -0,0 +1,108 @@
+package uk.gov.hmcts.reform.blobrouter.servicebus.blobevents;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IMessageReceiver;
+import com.microsoft.azure.servicebus.Message;
+import com.microsoft.azure.servicebus.primitives.ServiceBusException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static uk.gov.hmcts.reform.blobrouter.servicebus.blobevents.ServiceBusBlobDiscoverySource.BLOB_CREATED_EVENT;
+
+@ExtendWith(MockitoExtension.class)
+class ServiceBusBlobDiscoverySourceTest {
+
+    @Mock private IMessageReceiver messageReceiver;
+
+    private ServiceBusBlobDiscoverySource source;
+
+    @BeforeEach
+    void setUp() {
+        source = new ServiceBusBlobDiscoverySource(messageReceiver, new ObjectMapper());
+    }
+
+    @Test
+    void should_return_blobs_from_blob_created_events() throws Exception {
+        // given
+        given(messageReceiver.receiveBatch(eq(10), any(Duration.class))).willReturn(List.of(
+            event(BLOB_CREATED_EVENT, "/blobServices/default/containers/bulkscan/blobs/1.zip"),
+            event(BLOB_CREATED_EVENT, "/blobServices/default/containers/crime/blobs/dir/2.zip")
+        ));
+
+        // when
+        var blobs = source.poll(10);
+
+        // then
+        assertThat(blobs)
+            .extracting(blob -> tuple(blob.container, blob.blobName))
+            .containsExactly(
+                tuple("bulkscan", "1.zip"),
+                tuple("crime", "dir/2.zip")
+            );
+    }
+
+    @Test
+    void should_skip_other_events_and_invalid_messages() throws Exception {
+        // given
+        given(messageReceiver.receiveBatch(anyInt(), any(Duration.class))).willReturn(List.of(
+            event("Microsoft.Storage.BlobDeleted", "/blobServices/default/containers/bulkscan/blobs/1.zip"),
+            event(BLOB_CREATED_EVENT, "/blobServices/default/containers/bulkscan"),
+            new Message("not json"),
+            event(BLOB_CREATED_EVENT, "/blobServices/default/containers/bulkscan/blobs/2.zip")
+        ));
+
+        // when
+        var blobs = source.poll(10);
+
+        // then
+        assertThat(blobs)
+            .extracting(blob -> tuple(blob.container, blob.blobName))
+            .containsExactly(tuple("bulkscan", "2.zip"));
+    }
+
+    @Test
+    void should_return_no_blobs_when_queue_is_empty() throws Exception {
+        // given
+        given(messageReceiver.receiveBatch(anyInt(), any(Duration.class))).willReturn(null);
+
+        // when
+        var blobs = source.poll(10);
+
+        // then
+        assertThat(blobs).isEmpty();
+    }
+
+    @Test
+    void should_return_no_blobs_when_receiving_fails() throws Exception {
+        // given
+        given(messageReceiver.receiveBatch(anyInt(), any(Duration.class)))
+            .willThrow(new ServiceBusException(true, "test"));
+
+        // when
+        var blobs = source.poll(10);
+
+        // then
+        assertThat(blobs).isEmpty();
+    }
+
+    private IMessage event(String eventType, String subject) {
+        return new Message(String.format(
+            "{\"eventType\": \"%s\", \"subject\": \"%s\", \"data\": {\"api\": \"PutBlob\"}}",
+            eventType,
+            subject
+        ));
+    }
+}
@@ -0,0 +1,69 @@
+package uk.gov.hmcts.reform.blobrouter.services;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.mockito.BDDMockito.willThrow;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class DeletedEnvelopesBatchTest {
+
+    private static final UUID ID_1 = UUID.randomUUID();
+    private static final UUID ID_2 = UUID.randomUUID();
+    private static final UUID ID_3 = UUID.randomUUID();
+
+    @Mock EnvelopeService envelopeService;
+
+    @Test
+    void should_mark_envelopes_as_deleted_once_batch_is_full_and_on_flush() {
+        // given
+        var batch = new DeletedEnvelopesBatch(envelopeService::markEnvelopesAsDeleted, 2);
+
+        // when
+        batch.add(ID_1);
+        batch.add(ID_2);
+        batch.add(ID_3);
+        batch.flush();
+
+        // then
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(ID_1, ID_2));
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(ID_3));
+        verifyNoMoreInteractions(envelopeService);
+    }
+
+    @Test
+    void should_not_mark_anything_when_batch_is_empty() {
+        // when
+        new DeletedEnvelopesBatch(envelopeService::markEnvelopesAsDeleted, 2).flush();
+
+        // then
+        verifyNoInteractions(envelopeService);
+    }
+
+    @Test
+    void should_carry_on_with_next_batch_when_marking_fails() {
+        // given
+        var batch = new DeletedEnvelopesBatch(envelopeService::markEnvelopesAsDeleted, 1);
+        willThrow(new RuntimeException("connection lost"))
+            .given(envelopeService)
+            .markEnvelopesAsDeleted(List.of(ID_1));
+
+        // when
+        assertThatCode(() -> {
+            batch.add(ID_1);
+            batch.add(ID_2);
+        }).doesNotThrowAnyException();
+
+        // then
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(ID_2));
+    }
+}
@@ -13,6 +13,7 @@ import uk.gov.hmcts.reform.blobrouter.data.envelopes.NewEnvelope;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Status;
 import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEvent;
 import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEventRepository;
+import uk.gov.hmcts.reform.blobrouter.data.events.EnvelopeEventWriter;
 import uk.gov.hmcts.reform.blobrouter.data.events.ErrorCode;
 import uk.gov.hmcts.reform.blobrouter.data.events.EventType;
 import uk.gov.hmcts.reform.blobrouter.data.events.NewEnvelopeEvent;
@@ -22,7 +23,6 @@ import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidRequestParametersExcepti
 import java.time.Instant;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.Optional;
 import java.util.UUID;
 import java.util.stream.Stream;
 
@@ -32,12 +32,15 @@ import static java.util.Collections.emptyList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.assertj.core.api.Assertions.catchThrowable;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class EnvelopeServiceTest {
@@ -53,13 +56,17 @@ class EnvelopeServiceTest {
     @Mock
     private EnvelopeEventRepository eventRepository;
 
+    @Mock
+    private EnvelopeEventWriter eventWriter;
+
     private EnvelopeService envelopeService;
 
     @BeforeEach
     void setUp() {
         envelopeService = new EnvelopeService(
             envelopeRepository,
-            eventRepository
+            eventRepository,
+            eventWriter
         );
     }
 
@@ -70,7 +77,32 @@ class EnvelopeServiceTest {
 
         // then
         verify(envelopeRepository).findLast(BLOB_NAME, CONTAINER_NAME);
-        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(eventRepository, eventWriter);
+    }
+
+    @Test
+    void should_key_last_envelopes_by_blob_name() {
+        // given
+        var envelope = new Envelope(
+            UUID.randomUUID(),
+            CONTAINER_NAME,
+            BLOB_NAME,
+            now(),
+            BLOB_CREATED,
+            now(),
+            Status.DISPATCHED,
+            false,
+            false
+        );
+        var blobNames = List.of(BLOB_NAME, "other.zip");
+        given(envelopeRepository.findLast(blobNames, CONTAINER_NAME)).willReturn(List.of(envelope));
+
+        // when
+        var result = envelopeService.findLastEnvelopes(blobNames, CONTAINER_NAME);
+
+        // then
+        assertThat(result).containsOnly(entry(BLOB_NAME, envelope));
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 
     @Test
@@ -89,7 +121,7 @@ class EnvelopeServiceTest {
         var newEventCaptor = ArgumentCaptor.forClass(NewEnvelopeEvent.class);
 
         verify(envelopeRepository).insert(newEnvelopeCaptor.capture());
-        verify(eventRepository).insert(newEventCaptor.capture());
+        verify(eventWriter).write(newEventCaptor.capture());
 
         var envelope = newEnvelopeCaptor.getValue();
         var event = newEventCaptor.getValue();
@@ -113,34 +145,29 @@ class EnvelopeServiceTest {
         // then
         verify(envelopeRepository).find(Status.DISPATCHED, CONTAINER_NAME, false);
         verify(envelopeRepository).find(Status.REJECTED, false);
-        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 
     @Test
-    void should_mark_envelope_as_deleted_and_record_event() {
+    @SuppressWarnings("unchecked")
+    void should_mark_all_envelopes_as_deleted_at_once() {
         // given
-        var envelope = new Envelope(
-            UUID.randomUUID(),
-            CONTAINER_NAME,
-            BLOB_NAME,
-            now(),
-            BLOB_CREATED,
-            now(),
-            Status.DISPATCHED,
-            false,
-            false
-        );
+        var envelopeIds = List.of(UUID.randomUUID(), UUID.randomUUID());
 
         // when
-        envelopeService.markEnvelopeAsDeleted(envelope);
+        envelopeService.markEnvelopesAsDeleted(envelopeIds);
 
         // then
-        verify(envelopeRepository).markAsDeleted(envelope.id);
-
-        // and (will be enabled once events recorded)
-        var newEventCaptor = ArgumentCaptor.forClass(NewEnvelopeEvent.class);
-        verify(eventRepository).insert(newEventCaptor.capture());
-        assertThat(newEventCaptor.getValue().type).isEqualTo(EventType.DELETED);
+        verify(envelopeRepository).markAsDeleted(envelopeIds);
+
+        ArgumentCaptor<List<NewEnvelopeEvent>> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(eventWriter).writeAll(eventsCaptor.capture());
+        assertThat(eventsCaptor.getValue())
+            .extracting(event -> event.envelopeId, event -> event.type)
+            .containsExactly(
+                tuple(envelopeIds.get(0), EventType.DELETED),
+                tuple(envelopeIds.get(1), EventType.DELETED)
+            );
     }
 
     @Test
@@ -155,16 +182,38 @@ class EnvelopeServiceTest {
 
             // then
             var eventCaptor = ArgumentCaptor.forClass(NewEnvelopeEvent.class);
-            verify(eventRepository).insert(eventCaptor.capture());
+            verify(eventWriter).write(eventCaptor.capture());
 
             assertThat(eventCaptor.getValue().envelopeId).isEqualTo(envelopeId);
             assertThat(eventCaptor.getValue().type).isEqualTo(eventType);
             assertThat(eventCaptor.getValue().notes).isEqualTo(notes);
 
-            reset(eventRepository);
+            reset(eventWriter);
         });
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void should_record_events_for_all_envelopes_at_once() {
+        // given
+        var envelopeIds = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+        // when
+        envelopeService.saveEvents(envelopeIds, EventType.DELETED_FROM_REJECTED);
+
+        // then
+        ArgumentCaptor<List<NewEnvelopeEvent>> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(eventWriter).writeAll(eventsCaptor.capture());
+
+        assertThat(eventsCaptor.getValue())
+            .extracting(event -> event.envelopeId, event -> event.type, event -> event.notes)
+            .containsExactly(
+                tuple(envelopeIds.get(0), EventType.DELETED_FROM_REJECTED, null),
+                tuple(envelopeIds.get(1), EventType.DELETED_FROM_REJECTED, null)
+            );
+        verifyNoInteractions(eventRepository);
+    }
+
     @Test
     void should_record_event_with_null_notes_when_no_argument_is_passed() {
         // given
@@ -176,7 +225,7 @@ class EnvelopeServiceTest {
 
         // then
         var eventCaptor = ArgumentCaptor.forClass(NewEnvelopeEvent.class);
-        verify(eventRepository).insert(eventCaptor.capture());
+        verify(eventWriter).write(eventCaptor.capture());
 
         assertThat(eventCaptor.getValue().envelopeId).isEqualTo(envelopeId);
         assertThat(eventCaptor.getValue().type).isEqualTo(eventType);
@@ -189,18 +238,17 @@ class EnvelopeServiceTest {
         var existingEnvelope = new Envelope(
             UUID.randomUUID(), "c", "f", null, null, null, Status.CREATED, false, false
         );
-        given(envelopeRepository.find(existingEnvelope.id))
-            .willReturn(Optional.of(existingEnvelope));
+        given(envelopeRepository.markAsDispatched(eq(existingEnvelope.id), any())).willReturn(1);
 
         // when
         envelopeService.markAsDispatched(existingEnvelope.id);
 
         // then
-        verify(envelopeRepository).updateStatus(existingEnvelope.id, Status.DISPATCHED);
-        verify(envelopeRepository).updateDispatchDateTime(eq(existingEnvelope.id), any());
+        verify(envelopeRepository).markAsDispatched(eq(existingEnvelope.id), any());
+        verifyNoMoreInteractions(envelopeRepository);
 
         var eventCaptor = ArgumentCaptor.forClass(NewEnvelopeEvent.class);
-        verify(eventRepository).insert(eventCaptor.capture());
+        verify(eventWriter).write(eventCaptor.capture());
 
         assertThat(eventCaptor.getValue().envelopeId).isEqualTo(existingEnvelope.id);
         assertThat(eventCaptor.getValue().type).isEqualTo(EventType.DISPATCHED);
@@ -210,8 +258,7 @@ class EnvelopeServiceTest {
     void should_throw_exceptiopn_when_trying_to_mark_not_existing_envelope_as_dispatched() {
         // given
         var notExistingId = UUID.randomUUID();
-        given(envelopeRepository.find(any()))
-            .willReturn(Optional.empty());
+        given(envelopeRepository.markAsDispatched(any(), any())).willReturn(0);
 
         // when
         var exc = catchThrowable(() -> envelopeService.markAsDispatched(notExistingId));
@@ -220,6 +267,7 @@ class EnvelopeServiceTest {
         assertThat(exc)
             .isInstanceOf(EnvelopeNotFoundException.class)
             .hasMessageContaining(notExistingId.toString());
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 
     @Test
@@ -228,18 +276,17 @@ class EnvelopeServiceTest {
         var existingEnvelope = new Envelope(
             UUID.randomUUID(), "c", "f", null, null, null, Status.CREATED, false, false
         );
-        given(envelopeRepository.find(existingEnvelope.id))
-            .willReturn(Optional.of(existingEnvelope));
+        given(envelopeRepository.markAsRejected(existingEnvelope.id)).willReturn(1);
 
         // when
         envelopeService.markAsRejected(existingEnvelope.id, ErrorCode.ERR_METAFILE_INVALID, "some reason");
 
         // then
-        verify(envelopeRepository).updateStatus(existingEnvelope.id, Status.REJECTED);
-        verify(envelopeRepository).updatePendingNotification(existingEnvelope.id, true);
+        verify(envelopeRepository).markAsRejected(existingEnvelope.id);
+        verifyNoMoreInteractions(envelopeRepository);
 
         var eventCaptor = ArgumentCaptor.forClass(NewEnvelopeEvent.class);
-        verify(eventRepository).insert(eventCaptor.capture());
+        verify(eventWriter).write(eventCaptor.capture());
 
         assertThat(eventCaptor.getValue().envelopeId).isEqualTo(existingEnvelope.id);
         assertThat(eventCaptor.getValue().type).isEqualTo(EventType.REJECTED);
@@ -251,8 +298,7 @@ class EnvelopeServiceTest {
     void should_throw_exception_when_trying_to_mark_not_existing_envelope_as_dispatched() {
         // given
         var notExistingId = UUID.randomUUID();
-        given(envelopeRepository.find(any()))
-            .willReturn(Optional.empty());
+        given(envelopeRepository.markAsRejected(any())).willReturn(0);
 
         // when
         var exc = catchThrowable(() -> envelopeService.markAsRejected(notExistingId, null, "error"));
@@ -261,6 +307,7 @@ class EnvelopeServiceTest {
         assertThat(exc)
             .isInstanceOf(EnvelopeNotFoundException.class)
             .hasMessageContaining(notExistingId.toString());
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 
     @Test
@@ -277,7 +324,7 @@ class EnvelopeServiceTest {
         verify(envelopeRepository).updatePendingNotification(existingEnvelope.id, false);
 
         var eventCaptor = ArgumentCaptor.forClass(NewEnvelopeEvent.class);
-        verify(eventRepository).insert(eventCaptor.capture());
+        verify(eventWriter).write(eventCaptor.capture());
 
         assertThat(eventCaptor.getValue().envelopeId).isEqualTo(existingEnvelope.id);
         assertThat(eventCaptor.getValue().type).isEqualTo(EventType.NOTIFICATION_SENT);
@@ -338,7 +385,7 @@ class EnvelopeServiceTest {
         // then
         verify(envelopeRepository).findEnvelopes("f1.zip", null, null);
         assertThat(envelopes).isEmpty();
-        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 
     @Test
@@ -352,7 +399,7 @@ class EnvelopeServiceTest {
         // then
         verify(envelopeRepository).findEnvelopes("f1.zip", null, null);
         assertThat(envelopes).isEmpty();
-        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 
     @Test
@@ -387,7 +434,7 @@ class EnvelopeServiceTest {
         // then
         verify(envelopeRepository).findEnvelopes(null, null, date);
         assertThat(envelopes).isEmpty();
-        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 
     @Test
@@ -412,6 +459,6 @@ class EnvelopeServiceTest {
         assertThat(envelopes)
             .containsAll(list)
             .isNotSameAs(list);
-        verifyNoInteractions(eventRepository);
+        verifyNoInteractions(eventRepository, eventWriter);
     }
 }
@@ -0,0 +1,135 @@
+package uk.gov.hmcts.reform.blobrouter.services.buffers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BufferPoolTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    // 4 slabs of 16 bytes, content up to 40 bytes kept in memory
+    BufferPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new BufferPool(16, 64, 40, meterRegistry);
+    }
+
+    @Test
+    void should_hold_small_content_in_slabs() throws Exception {
+        // given
+        byte[] content = randomBytes(40);
+        var spool = pool.newSpool();
+
+        // when
+        spool.write(content, 0, 20);
+        spool.write(content, 20, 20);
+
+        // then
+        assertThat(spool.isSpooledToDisk()).isFalse();
+        assertThat(spool.asByteSource().size()).isEqualTo(40);
+        assertThat(spool.asByteSource().read()).isEqualTo(content);
+        assertThat(pool.getUsedBytes()).isEqualTo(48);
+        assertThat(meterRegistry.get(BufferPool.USED_GAUGE).gauge().value()).isEqualTo(48);
+    }
+
+    @Test
+    void should_return_slabs_to_pool_on_reset() throws Exception {
+        // given
+        var spool = pool.newSpool();
+        spool.write(randomBytes(40));
+
+        // when
+        spool.reset();
+
+        // then
+        assertThat(pool.getUsedBytes()).isZero();
+        assertThat(spool.asByteSource().isEmpty()).isTrue();
+    }
+
+    @Test
+    void should_spool_content_to_disk_when_it_exceeds_in_memory_threshold() throws Exception {
+        // given
+        byte[] content = randomBytes(50);
+        var spool = pool.newSpool();
+        spool.write(content, 0, 30);
+
+        // when
+        spool.write(content, 30, 20);
+
+        // then
+        assertThat(spool.isSpooledToDisk()).isTrue();
+        assertThat(spool.asByteSource().read()).isEqualTo(content);
+        assertThat(pool.getUsedBytes()).isZero();
+        assertThat(meterRegistry.get(BufferPool.SPILL_COUNTER).counter().count()).isEqualTo(1);
+
+        spool.reset();
+    }
+
+    @Test
+    void should_spool_content_to_disk_when_pool_is_exhausted() throws Exception {
+        // given
+        var first = pool.newSpool();
+        first.write(randomBytes(40)); // takes 3 of 4 slabs
+
+        byte[] content = randomBytes(30);
+        var second = pool.newSpool();
+
+        // when
+        second.write(content);
+
+        // then
+        assertThat(first.isSpooledToDisk()).isFalse();
+        assertThat(second.isSpooledToDisk()).isTrue();
+        assertThat(second.asByteSource().read()).isEqualTo(content);
+        assertThat(pool.getUsedBytes()).isEqualTo(48);
+
+        first.reset();
+        second.reset();
+        assertThat(pool.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void should_read_slices_of_content_held_in_slabs() throws Exception {
+        // given
+        byte[] content = randomBytes(40);
+        var spool = pool.newSpool();
+        spool.write(content);
+
+        // when
+        byte[] slice = spool.asByteSource().slice(10, 20).read();
+
+        // then
+        assertThat(slice).containsExactly(Arrays.copyOfRange(content, 10, 30));
+    }
+
+    @Test
+    void should_read_slices_of_content_spooled_to_disk() throws Exception {
+        // given
+        byte[] content = randomBytes(100);
+        var spool = pool.newSpool();
+        spool.write(content);
+
+        // when
+        byte[] slice = spool.asByteSource().slice(30, 50).read();
+
+        // then
+        assertThat(spool.getFile()).isPresent();
+        assertThat(slice).containsExactly(Arrays.copyOfRange(content, 30, 80));
+
+        spool.reset();
+        assertThat(spool.getFile()).isEmpty();
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random().nextBytes(bytes);
+        return bytes;
+    }
+}
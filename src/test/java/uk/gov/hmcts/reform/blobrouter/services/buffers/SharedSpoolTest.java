@@ -0,0 +1,92 @@
+package uk.gov.hmcts.reform.blobrouter.services.buffers;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SharedSpoolTest {
+
+    // 4 slabs of 16 bytes, content up to 40 bytes kept in memory
+    BufferPool pool;
+
+    @BeforeEach
+    void setUp() {
+        pool = new BufferPool(16, 64, 40, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void should_append_remaining_content_of_buffers() throws Exception {
+        // given
+        var spool = new SharedSpool(pool.newSpool());
+        var chunk = ByteBuffer.wrap("xxabc".getBytes()).position(2);
+
+        // when
+        spool.write(chunk);
+        spool.write(ByteBuffer.allocateDirect(2).put("de".getBytes()).flip());
+
+        // then
+        assertThat(spool.asByteSource().read()).isEqualTo("abcde".getBytes());
+        assertThat(chunk.position()).isEqualTo(2);
+    }
+
+    @Test
+    void should_discard_content_when_owner_releases_it() {
+        // given
+        var spool = new SharedSpool(pool.newSpool());
+        spool.write(ByteBuffer.wrap(new byte[20]));
+
+        // when
+        spool.release();
+
+        // then
+        assertThat(pool.getUsedBytes()).isZero();
+        assertThatThrownBy(() -> spool.write(ByteBuffer.wrap(new byte[1])))
+            .isInstanceOf(IllegalStateException.class);
+        assertThatThrownBy(() -> spool.asByteSource().openStream())
+            .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void should_not_discard_content_while_it_is_read() throws Exception {
+        // given
+        var spool = new SharedSpool(pool.newSpool());
+        spool.write(ByteBuffer.wrap("abcde".getBytes()));
+
+        // when
+        byte[] content;
+        try (InputStream stream = spool.asByteSource().openStream()) {
+            spool.release();
+            assertThat(pool.getUsedBytes()).isEqualTo(16);
+            content = stream.readAllBytes();
+        }
+
+        // then
+        assertThat(content).isEqualTo("abcde".getBytes());
+        assertThat(pool.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void should_discard_content_when_last_reader_finishes_after_owner_released_it() {
+        // given
+        var spool = new SharedSpool(pool.newSpool());
+        spool.write(ByteBuffer.wrap("abcde".getBytes()));
+
+        // when
+        long size = spool.read(content -> {
+            spool.release();
+            return content.asByteSource().size();
+        });
+
+        // then
+        assertThat(size).isEqualTo(5);
+        assertThat(pool.getUsedBytes()).isZero();
+        assertThatThrownBy(() -> spool.read(content -> null)).isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,123 @@
+package uk.gov.hmcts.reform.blobrouter.services.scans;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.hmcts.reform.blobrouter.data.scans.ScanWatermark;
+import uk.gov.hmcts.reform.blobrouter.data.scans.ScanWatermarkRepository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class ScanWatermarkServiceTest {
+
+    private static final Duration FULL_SCAN_INTERVAL = Duration.ofHours(1);
+    private static final Duration LOOKBACK = Duration.ofMinutes(10);
+
+    @Mock private ScanWatermarkRepository repository;
+
+    private ScanWatermarkService service;
+
+    @BeforeEach
+    void setUp() {
+        service = new ScanWatermarkService(repository, true, FULL_SCAN_INTERVAL, LOOKBACK);
+    }
+
+    @Test
+    void should_start_incremental_pass_from_saved_watermark() {
+        // given
+        var watermark = Instant.now().minusSeconds(600);
+        given(repository.find("scan", "c1"))
+            .willReturn(Optional.of(new ScanWatermark("scan", "c1", watermark, Instant.now().minusSeconds(60))));
+
+        // when
+        var pass = service.startPass("scan", "c1");
+
+        // then
+        assertThat(pass.isFull()).isFalse();
+        assertThat(pass.includes(watermark)).isTrue();
+        assertThat(pass.includes(watermark.minusMillis(1))).isFalse();
+    }
+
+    @Test
+    void should_start_full_pass_when_last_full_scan_is_too_old() {
+        // given
+        given(repository.find("scan", "c1")).willReturn(Optional.of(new ScanWatermark(
+            "scan",
+            "c1",
+            Instant.now().minusSeconds(600),
+            Instant.now().minus(FULL_SCAN_INTERVAL).minusSeconds(1)
+        )));
+
+        // when
+        var pass = service.startPass("scan", "c1");
+
+        // then
+        assertThat(pass.isFull()).isTrue();
+    }
+
+    @Test
+    void should_start_full_pass_when_container_has_not_been_scanned_yet() {
+        // given
+        given(repository.find("scan", "c1")).willReturn(Optional.empty());
+
+        // when
+        var pass = service.startPass("scan", "c1");
+
+        // then
+        assertThat(pass.isFull()).isTrue();
+    }
+
+    @Test
+    void should_save_watermark_of_full_pass_together_with_its_start_time() {
+        // given
+        var pass = new ScanPass("scan", "c1", null, Instant.now());
+
+        // when
+        service.complete(pass);
+
+        // then
+        verify(repository).saveFullScan("scan", "c1", pass.startedAt.minus(LOOKBACK), pass.startedAt);
+    }
+
+    @Test
+    void should_keep_watermark_before_blobs_which_were_not_handled() {
+        // given
+        var pass = new ScanPass("scan", "c1", Instant.now().minusSeconds(3600), Instant.now());
+        var pending = pass.startedAt.minusSeconds(1800);
+        pass.keep(pending.plusSeconds(60));
+        pass.keep(pending);
+
+        // when
+        service.complete(pass);
+
+        // then
+        verify(repository).updateWatermark("scan", "c1", pending);
+        verify(repository, never()).saveFullScan(any(), any(), any(), any());
+    }
+
+    @Test
+    void should_always_run_full_passes_when_disabled() {
+        // given
+        service = new ScanWatermarkService(repository, false, FULL_SCAN_INTERVAL, LOOKBACK);
+
+        // when
+        var pass = service.startPass("scan", "c1");
+        service.complete(pass);
+
+        // then
+        assertThat(pass.isFull()).isTrue();
+        verifyNoInteractions(repository);
+    }
+}
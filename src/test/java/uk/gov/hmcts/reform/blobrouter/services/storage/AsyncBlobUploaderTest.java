@@ -0,0 +1,296 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.HttpResponse;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.specialized.BlockBlobAsyncClient;
+import com.google.common.io.ByteSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.reactivestreams.Subscription;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.entry;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.AsyncBlobUploader.CHUNK_SIZE;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.BlockBlobUploader.MIN_UPLOAD_TIMEOUT;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.BlockBlobUploader.blockId;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncBlobUploaderTest {
+
+    @Mock BlockBlobAsyncClient blockBlobClient;
+
+    AsyncBlobUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        // content bigger than 5 bytes is uploaded in blocks of at least 4 bytes, each staged at most twice
+        uploader = new AsyncBlobUploader(5, 4, 2, 2, 1024);
+    }
+
+    @Test
+    void should_upload_small_content_in_single_request() {
+        // given
+        given(blockBlobClient.uploadWithResponse(any(), anyLong(), any(), any(), any(), any(), any()))
+            .willReturn(Mono.empty());
+        var content = chunks("abc", "de");
+
+        // when
+        uploader.upload(blockBlobClient, content, 5).block();
+
+        // then
+        verify(blockBlobClient)
+            .uploadWithResponse(eq(content), eq(5L), isNull(), isNull(), isNull(), isNull(), isNull());
+        verify(blockBlobClient, never()).stageBlockWithResponse(any(), any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void should_stage_blocks_as_content_arrives_and_commit_them_in_order_when_content_is_big() {
+        // given
+        Map<String, String> stagedContent = new ConcurrentHashMap<>();
+        given(blockBlobClient.stageBlockWithResponse(any(), any(), anyLong(), any(), any()))
+            .willAnswer(invocation -> {
+                stagedContent.put(invocation.getArgument(0), read(invocation.getArgument(1)));
+                return Mono.empty();
+            });
+        given(blockBlobClient.commitBlockListWithResponse(any(), any(), any(), any(), any()))
+            .willReturn(Mono.empty());
+
+        // when
+        uploader.upload(blockBlobClient, chunks("abc", "de", "fgh", "ij", "k"), 11).block();
+
+        // then
+        var blockIds = List.of(blockId(0), blockId(1), blockId(2));
+        assertThat(stagedContent).containsOnly(
+            entry(blockIds.get(0), "abcde"),
+            entry(blockIds.get(1), "fghij"),
+            entry(blockIds.get(2), "k")
+        );
+        verify(blockBlobClient).stageBlockWithResponse(eq(blockIds.get(0)), any(), eq(5L), isNull(), isNull());
+        verify(blockBlobClient).commitBlockListWithResponse(blockIds, null, null, null, null);
+        verify(blockBlobClient, never()).uploadWithResponse(any(), anyLong(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void should_retry_staging_block_when_it_fails_with_server_error() {
+        // given
+        HttpResponse response = mock(HttpResponse.class);
+        given(response.getStatusCode()).willReturn(500);
+        given(blockBlobClient.stageBlockWithResponse(any(), any(), anyLong(), any(), any()))
+            .willReturn(Mono.error(new BlobStorageException("Server error", response, null)), Mono.empty());
+
+        // when
+        var blockIds = uploader.stage(blockBlobClient, chunks("abcd")).block();
+
+        // then
+        assertThat(blockIds).containsExactly(blockId(0));
+        verify(blockBlobClient, times(2)).stageBlockWithResponse(any(), any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void should_fail_with_last_error_when_staging_block_fails_on_every_attempt() {
+        // given
+        HttpResponse response = mock(HttpResponse.class);
+        given(response.getStatusCode()).willReturn(503);
+        given(blockBlobClient.stageBlockWithResponse(any(), any(), anyLong(), any(), any()))
+            .willReturn(Mono.error(new BlobStorageException("Server busy", response, null)));
+
+        // when
+        // then
+        assertThatThrownBy(() -> uploader.upload(blockBlobClient, chunks("abcdef"), 6).block())
+            .isInstanceOf(BlobStorageException.class)
+            .hasMessageContaining("Server busy");
+        verify(blockBlobClient, times(2)).stageBlockWithResponse(any(), any(), anyLong(), any(), any());
+        verify(blockBlobClient, never()).commitBlockListWithResponse(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void should_not_retry_staging_block_when_it_fails_with_client_error() {
+        // given
+        HttpResponse response = mock(HttpResponse.class);
+        given(response.getStatusCode()).willReturn(403);
+        given(blockBlobClient.stageBlockWithResponse(any(), any(), anyLong(), any(), any()))
+            .willReturn(Mono.error(new BlobStorageException("Sas expired", response, null)));
+
+        // when
+        // then
+        assertThatThrownBy(() -> uploader.stage(blockBlobClient, chunks("abcd")).block())
+            .isInstanceOf(BlobStorageException.class);
+        verify(blockBlobClient, times(1)).stageBlockWithResponse(any(), any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void should_fail_with_timeout_exception_when_single_upload_does_not_complete_in_time() {
+        // given
+        given(blockBlobClient.getBlobName()).willReturn("hello.zip");
+        given(blockBlobClient.uploadWithResponse(any(), anyLong(), any(), any(), any(), any(), any()))
+            .willReturn(Mono.never());
+
+        // when
+        // then
+        StepVerifier
+            .withVirtualTime(() -> uploader.upload(blockBlobClient, chunks("abc"), 3))
+            .thenAwait(MIN_UPLOAD_TIMEOUT)
+            .expectErrorSatisfies(exc -> assertThat(exc)
+                .isInstanceOf(BlobUploadTimeoutException.class)
+                .hasMessageContaining("hello.zip")
+                .hasCauseInstanceOf(TimeoutException.class)
+            )
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void should_retry_staging_block_which_timed_out_and_fail_with_timeout_exception() {
+        // given
+        given(blockBlobClient.stageBlockWithResponse(any(), any(), anyLong(), any(), any()))
+            .willReturn(Mono.never());
+
+        // when
+        // then
+        StepVerifier
+            .withVirtualTime(() -> uploader.upload(blockBlobClient, chunks("abcdef"), 6))
+            .thenAwait(MIN_UPLOAD_TIMEOUT.multipliedBy(2))
+            .expectError(BlobUploadTimeoutException.class)
+            .verify(Duration.ofSeconds(5));
+        verify(blockBlobClient, times(2)).stageBlockWithResponse(any(), any(), anyLong(), any(), any());
+        verify(blockBlobClient, never()).commitBlockListWithResponse(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void should_fail_with_timeout_exception_when_commit_does_not_complete_in_time() {
+        // given
+        given(blockBlobClient.commitBlockListWithResponse(any(), any(), any(), any(), any()))
+            .willReturn(Mono.never());
+
+        // when
+        // then
+        StepVerifier
+            .withVirtualTime(() -> uploader.commit(blockBlobClient, List.of("block-1"), 6))
+            .thenAwait(MIN_UPLOAD_TIMEOUT)
+            .expectError(BlobUploadTimeoutException.class)
+            .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void should_emit_whole_content_in_chunks() {
+        // given
+        byte[] content = new byte[CHUNK_SIZE * 2 + 10];
+        new Random().nextBytes(content);
+
+        // when
+        List<ByteBuffer> chunks = AsyncBlobUploader.toFlux(ByteSource.wrap(content)).collectList().block();
+
+        // then
+        assertThat(chunks).extracting(ByteBuffer::remaining).containsExactly(CHUNK_SIZE, CHUNK_SIZE, 10);
+
+        var emitted = ByteBuffer.allocate(content.length);
+        chunks.forEach(emitted::put);
+        assertThat(emitted.array()).isEqualTo(content);
+    }
+
+    @Test
+    void should_complete_without_chunks_when_content_is_empty() {
+        assertThat(AsyncBlobUploader.toFlux(ByteSource.empty()).collectList().block()).isEmpty();
+    }
+
+    @Test
+    void should_read_content_only_when_chunks_are_requested() throws Exception {
+        // given
+        var bytesRead = new AtomicInteger();
+        var content = countingSource(new byte[CHUNK_SIZE * 4], bytesRead);
+        var firstChunkReceived = new CountDownLatch(1);
+
+        // when
+        AsyncBlobUploader.toFlux(content).subscribe(new BaseSubscriber<ByteBuffer>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                request(1);
+            }
+
+            @Override
+            protected void hookOnNext(ByteBuffer value) {
+                firstChunkReceived.countDown();
+            }
+        });
+
+        // then
+        assertThat(firstChunkReceived.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(bytesRead.get()).isEqualTo(CHUNK_SIZE);
+    }
+
+    @Test
+    void should_fail_when_content_cannot_be_read() {
+        var content = new ByteSource() {
+            @Override
+            public InputStream openStream() throws IOException {
+                throw new IOException("test exception");
+            }
+        };
+
+        assertThatThrownBy(() -> AsyncBlobUploader.toFlux(content).blockLast())
+            .hasRootCauseInstanceOf(IOException.class)
+            .hasRootCauseMessage("test exception");
+    }
+
+    private static Flux<ByteBuffer> chunks(String... chunks) {
+        return Flux.fromArray(chunks).map(chunk -> ByteBuffer.wrap(chunk.getBytes()));
+    }
+
+    private static String read(Flux<ByteBuffer> content) {
+        return content
+            .map(chunk -> {
+                byte[] bytes = new byte[chunk.remaining()];
+                chunk.get(bytes);
+                return new String(bytes);
+            })
+            .collect(Collectors.joining())
+            .block();
+    }
+
+    private static ByteSource countingSource(byte[] content, AtomicInteger bytesRead) {
+        return new ByteSource() {
+            @Override
+            public InputStream openStream() {
+                return new ByteArrayInputStream(content) {
+                    @Override
+                    public synchronized int read(byte[] b, int off, int len) {
+                        int read = super.read(b, off, len);
+                        bytesRead.addAndGet(Math.max(read, 0));
+                        return read;
+                    }
+                };
+            }
+        };
+    }
+}
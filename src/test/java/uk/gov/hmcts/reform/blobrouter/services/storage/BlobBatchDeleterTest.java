@@ -0,0 +1,130 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.rest.Response;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.batch.BlobBatch;
+import com.azure.storage.blob.batch.BlobBatchClient;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.DeleteSnapshotsOptionType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.BlobBatchDeleter.MAX_BATCH_SIZE;
+
+@ExtendWith(MockitoExtension.class)
+class BlobBatchDeleterTest {
+
+    private static final String CONTAINER = "bulkscan";
+
+    @Mock BlobBatchClient blobBatchClient;
+    @Mock BlobBatch blobBatch;
+    @Mock BlobContainerClient containerClient;
+
+    BlobBatchDeleter deleter;
+
+    @BeforeEach
+    void setUp() {
+        deleter = new BlobBatchDeleter(blobBatchClient);
+        given(containerClient.getBlobContainerName()).willReturn(CONTAINER);
+    }
+
+    @Test
+    void should_delete_blobs_under_their_leases_and_return_the_ones_gone() {
+        // given
+        given(blobBatchClient.getBlobBatch()).willReturn(blobBatch);
+        Response<Void> accepted = response(202);
+        Response<Void> notFound = response(404);
+        Response<Void> leaseMismatch = response(412);
+        given(blobBatch.deleteBlob(eq(CONTAINER), anyString(), any(), any()))
+            .willReturn(accepted, notFound, leaseMismatch);
+
+        var leaseIds = new HashMap<String, String>();
+        leaseIds.put("a.zip", "lease-a");
+        leaseIds.put("b.zip", "lease-b");
+        leaseIds.put("c.zip", "lease-c");
+
+        // when
+        var deleted = deleter.delete(containerClient, leaseIds);
+
+        // then
+        var blobNames = ArgumentCaptor.forClass(String.class);
+        var conditions = ArgumentCaptor.forClass(BlobRequestConditions.class);
+        verify(blobBatch, times(3)).deleteBlob(
+            eq(CONTAINER),
+            blobNames.capture(),
+            eq(DeleteSnapshotsOptionType.INCLUDE),
+            conditions.capture()
+        );
+        for (int i = 0; i < 3; i++) {
+            assertThat(conditions.getAllValues().get(i).getLeaseId())
+                .isEqualTo(leaseIds.get(blobNames.getAllValues().get(i)));
+        }
+        verify(blobBatchClient).submitBatchWithResponse(blobBatch, false, null, Context.NONE);
+
+        assertThat(deleted).containsExactlyInAnyOrder(blobNames.getAllValues().get(0), blobNames.getAllValues().get(1));
+    }
+
+    @Test
+    void should_delete_blobs_unconditionally() {
+        // given
+        given(blobBatchClient.getBlobBatch()).willReturn(blobBatch);
+        Response<Void> accepted = response(202);
+        Response<Void> failed = response(500);
+        given(blobBatch.deleteBlob(CONTAINER, "a.zip", null, null)).willReturn(accepted);
+        given(blobBatch.deleteBlob(CONTAINER, "b.zip", null, null)).willReturn(failed);
+
+        // when
+        var deleted = deleter.deleteAll(containerClient, List.of("a.zip", "b.zip"));
+
+        // then
+        verify(blobBatchClient).submitBatchWithResponse(blobBatch, false, null, Context.NONE);
+        assertThat(deleted).containsExactly("a.zip");
+    }
+
+    @Test
+    void should_split_blobs_into_batches_and_carry_on_when_one_fails() {
+        // given
+        BlobBatch failedBatch = mock(BlobBatch.class);
+        given(blobBatchClient.getBlobBatch()).willReturn(failedBatch, blobBatch);
+        Response<Void> accepted = response(202);
+        given(blobBatch.deleteBlob(eq(CONTAINER), anyString(), any(), any())).willReturn(accepted);
+        given(blobBatchClient.submitBatchWithResponse(failedBatch, false, null, Context.NONE))
+            .willThrow(new RuntimeException("connection reset"));
+
+        Map<String, String> leaseIds = new HashMap<>();
+        IntStream.range(0, MAX_BATCH_SIZE + 1).forEach(i -> leaseIds.put(i + ".zip", "lease-" + i));
+
+        // when
+        var deleted = deleter.delete(containerClient, leaseIds);
+
+        // then
+        verify(failedBatch, times(MAX_BATCH_SIZE)).deleteBlob(eq(CONTAINER), anyString(), any(), any());
+        verify(blobBatch, times(1)).deleteBlob(eq(CONTAINER), anyString(), any(), any());
+        assertThat(deleted).hasSize(1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Response<Void> response(int statusCode) {
+        Response<Void> response = mock(Response.class);
+        given(response.getStatusCode()).willReturn(statusCode);
+        return response;
+    }
+}
@@ -1,12 +1,23 @@
 package uk.gov.hmcts.reform.blobrouter.services.storage;
 
 import com.azure.core.http.HttpResponse;
+import com.azure.core.http.RequestConditions;
 import com.azure.core.util.Context;
+import com.azure.core.util.polling.PollResponse;
+import com.azure.core.util.polling.SyncPoller;
+import com.azure.storage.blob.BlobAsyncClient;
 import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerAsyncClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobContainerClientBuilder;
+import com.azure.storage.blob.models.BlobCopyInfo;
 import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.models.CopyStatusType;
+import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
+import com.azure.storage.blob.specialized.BlockBlobAsyncClient;
 import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -15,19 +26,26 @@ import org.junit.jupiter.params.provider.EnumSource;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount;
 
 import java.io.ByteArrayInputStream;
+import java.nio.ByteBuffer;
 import java.time.Duration;
+import java.time.OffsetDateTime;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
@@ -43,6 +61,9 @@ public class BlobContainerClientProxyTest {
     @Mock BlobContainerClient blobContainerClient;
     @Mock BlobClient blobClient;
     @Mock BlockBlobClient blockBlobClient;
+    @Mock BlobContainerAsyncClient blobContainerAsyncClient;
+    @Mock BlobAsyncClient blobAsyncClient;
+    @Mock BlockBlobAsyncClient blockBlobAsyncClient;
 
     final String containerName = "container123";
     final String blobName = "hello.zip";
@@ -55,7 +76,9 @@ public class BlobContainerClientProxyTest {
         this.blobContainerClientProxy = new BlobContainerClientProxy(
             crimeClient,
             blobContainerClientBuilderProvider,
-            sasTokenCache
+            sasTokenCache,
+            new BlockBlobUploader(MoreExecutors.directExecutor(), 1024 * 1024, 1024, 1, 1, 1024 * 1024),
+            new AsyncBlobUploader(1024 * 1024, 1024, 1, 1, 1024 * 1024)
         );
     }
 
@@ -66,7 +89,7 @@ public class BlobContainerClientProxyTest {
 
         blobContainerClientProxy.upload(
             blobName,
-            blobContent,
+            ByteSource.wrap(blobContent),
             containerName,
             TargetStorageAccount.CRIME
         );
@@ -109,7 +132,7 @@ public class BlobContainerClientProxyTest {
 
         blobContainerClientProxy.upload(
             blobName,
-            blobContent,
+            ByteSource.wrap(blobContent),
             containerName,
             TargetStorageAccount.CFT
         );
@@ -138,6 +161,108 @@ public class BlobContainerClientProxyTest {
 
     }
 
+    @Test
+    void should_reuse_container_client_while_sas_token_does_not_change() {
+        // given
+        given(sasTokenCache.getSasToken(any())).willReturn("token1");
+
+        given(blobContainerClientBuilderProvider.getBlobContainerClientBuilder())
+            .willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.containerName(containerName)).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.sasToken("token1")).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.buildClient()).willReturn(blobContainerClient);
+
+        given(blobContainerClient.getBlobClient(blobName)).willReturn(blobClient);
+        given(blobClient.getBlockBlobClient()).willReturn(blockBlobClient);
+
+        // when
+        uploadToCft();
+        uploadToCft();
+
+        // then
+        verify(blobContainerClientBuilder, times(1)).buildClient();
+        verify(blockBlobClient, times(2))
+            .uploadWithResponse(any(), anyLong(), any(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void should_reuse_async_container_client_while_sas_token_does_not_change() {
+        // given
+        given(sasTokenCache.getSasToken(any())).willReturn("token1");
+
+        given(blobContainerClientBuilderProvider.getBlobContainerClientBuilder())
+            .willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.containerName(containerName)).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.sasToken("token1")).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.buildAsyncClient()).willReturn(blobContainerAsyncClient);
+
+        given(blobContainerAsyncClient.getBlobAsyncClient(blobName)).willReturn(blobAsyncClient);
+        given(blobAsyncClient.getBlockBlobAsyncClient()).willReturn(blockBlobAsyncClient);
+        given(blockBlobAsyncClient.uploadWithResponse(any(), anyLong(), any(), any(), any(), any(), any()))
+            .willReturn(Mono.empty());
+
+        // when
+        uploadToCftAsync();
+        uploadToCftAsync();
+
+        // then
+        verify(blobContainerClientBuilder, times(1)).buildAsyncClient();
+        verify(blobContainerClientBuilder, never()).buildClient();
+        verify(blockBlobAsyncClient, times(2))
+            .uploadWithResponse(any(), eq((long) blobContent.length), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void should_invalidate_async_client_cache_when_async_upload_returns_error_response_40x() {
+        // given
+        HttpResponse mockHttpResponse = mock(HttpResponse.class);
+        given(mockHttpResponse.getStatusCode()).willReturn(401);
+
+        given(sasTokenCache.getSasToken(any())).willReturn("token1");
+        given(blobContainerClientBuilderProvider.getBlobContainerClientBuilder())
+            .willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.containerName(containerName)).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.sasToken("token1")).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.buildAsyncClient()).willReturn(blobContainerAsyncClient);
+
+        given(blobContainerAsyncClient.getBlobAsyncClient(blobName)).willReturn(blobAsyncClient);
+        given(blobAsyncClient.getBlockBlobAsyncClient()).willReturn(blockBlobAsyncClient);
+        given(blockBlobAsyncClient.uploadWithResponse(any(), anyLong(), any(), any(), any(), any(), any()))
+            .willReturn(Mono.error(new BlobStorageException("Sas invalid 401", mockHttpResponse, null)));
+
+        // when
+        assertThatThrownBy(this::uploadToCftAsync).isInstanceOf(BlobStorageException.class);
+        assertThatThrownBy(this::uploadToCftAsync).isInstanceOf(BlobStorageException.class);
+
+        // then
+        verify(sasTokenCache, times(2)).removeFromCache(containerName);
+        verify(blobContainerClientBuilder, times(2)).buildAsyncClient();
+    }
+
+    @Test
+    void should_build_new_container_client_when_sas_token_changes() {
+        // given
+        given(sasTokenCache.getSasToken(any())).willReturn("token1", "token2");
+
+        given(blobContainerClientBuilderProvider.getBlobContainerClientBuilder())
+            .willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.containerName(containerName)).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.sasToken(any())).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.buildClient()).willReturn(blobContainerClient);
+
+        given(blobContainerClient.getBlobClient(blobName)).willReturn(blobClient);
+        given(blobClient.getBlockBlobClient()).willReturn(blockBlobClient);
+
+        // when
+        uploadToCft();
+        uploadToCft();
+
+        // then
+        verify(blobContainerClientBuilder).sasToken("token1");
+        verify(blobContainerClientBuilder).sasToken("token2");
+        verify(blobContainerClientBuilder, times(2)).buildClient();
+    }
+
     @ParameterizedTest
     @EnumSource(
         value = TargetStorageAccount.class,
@@ -163,7 +288,7 @@ public class BlobContainerClientProxyTest {
         assertThatThrownBy(
             () -> blobContainerClientProxy.upload(
                 blobName,
-                blobContent,
+                ByteSource.wrap(blobContent),
                 containerName,
                 storageAccount
             )
@@ -183,7 +308,7 @@ public class BlobContainerClientProxyTest {
         assertThatThrownBy(
             () -> blobContainerClientProxy.upload(
                 blobName,
-                blobContent,
+                ByteSource.wrap(blobContent),
                 containerName,
                 TargetStorageAccount.CRIME
             )
@@ -210,7 +335,7 @@ public class BlobContainerClientProxyTest {
         // when
         blobContainerClientProxy.upload(
             blobName,
-            blobContent,
+            ByteSource.wrap(blobContent),
             containerName,
             TargetStorageAccount.PCQ
         );
@@ -237,4 +362,148 @@ public class BlobContainerClientProxyTest {
         verify(sasTokenCache, never()).removeFromCache(containerName);
     }
 
+    private void uploadToCft() {
+        blobContainerClientProxy.upload(
+            blobName,
+            ByteSource.wrap(blobContent),
+            containerName,
+            TargetStorageAccount.CFT
+        );
+    }
+
+    private void uploadToCftAsync() {
+        blobContainerClientProxy
+            .upload(
+                blobName,
+                Flux.just(ByteBuffer.wrap(blobContent)),
+                blobContent.length,
+                containerName,
+                TargetStorageAccount.CFT
+            )
+            .block();
+    }
+
+    @Test
+    void should_copy_source_blob_to_bulk_scan_storage_using_sas_and_etag_of_source() {
+        // given
+        BlobClient sourceBlob = sourceBlobWithSas("sas1");
+        bulkScanContainerClientExists();
+        given(blobContainerClient.getBlobClient(blobName)).willReturn(blobClient);
+        copyFinishes(CopyStatusType.SUCCESS);
+
+        // when
+        blobContainerClientProxy.copy(sourceBlob, "etag1", 100, containerName, TargetStorageAccount.CFT);
+
+        // then
+        verify(blobClient).beginCopy(
+            eq("https://source/container/hello.zip?sas1"),
+            isNull(),
+            isNull(),
+            isNull(),
+            argThat(conditions -> "etag1".equals(conditions.getIfMatch())),
+            isNull(),
+            eq(BlobContainerClientProxy.COPY_POLL_INTERVAL)
+        );
+        verify(blobClient, never()).abortCopyFromUrl(any());
+    }
+
+    @Test
+    void should_throw_exception_when_copy_does_not_succeed() {
+        // given
+        BlobClient sourceBlob = sourceBlobWithSas("sas1");
+        bulkScanContainerClientExists();
+        given(blobContainerClient.getBlobClient(blobName)).willReturn(blobClient);
+        copyFinishes(CopyStatusType.FAILED);
+
+        // when
+        assertThatThrownBy(
+            () -> blobContainerClientProxy.copy(sourceBlob, "etag1", 100, containerName, TargetStorageAccount.CFT)
+        )
+            .isInstanceOf(BlobCopyException.class)
+            .hasMessageContaining("FAILED");
+    }
+
+    @Test
+    void should_abort_copy_and_throw_exception_when_copy_does_not_complete_in_time() {
+        // given
+        BlobClient sourceBlob = sourceBlobWithSas("sas1");
+        bulkScanContainerClientExists();
+        given(blobContainerClient.getBlobClient(blobName)).willReturn(blobClient);
+        given(blobClient.getBlobName()).willReturn(blobName);
+        SyncPoller<BlobCopyInfo, Void> poller = copyInProgress("copy-id-1");
+        given(poller.waitForCompletion(any(Duration.class)))
+            .willThrow(new IllegalStateException("Timeout on blocking read"));
+
+        // when
+        assertThatThrownBy(
+            () -> blobContainerClientProxy.copy(sourceBlob, "etag1", 100, containerName, TargetStorageAccount.CFT)
+        )
+            .isInstanceOf(BlobCopyException.class)
+            .hasMessageContaining("did not complete within " + UPLOAD_TIMEOUT);
+
+        // then
+        verify(poller).waitForCompletion(UPLOAD_TIMEOUT);
+        verify(blobClient).abortCopyFromUrl("copy-id-1");
+    }
+
+    @Test
+    void should_issue_source_sas_valid_for_at_least_as_long_as_copy_is_waited_for() {
+        // given
+        BlobClient sourceBlob = sourceBlobWithSas("sas1");
+        bulkScanContainerClientExists();
+        given(blobContainerClient.getBlobClient(blobName)).willReturn(blobClient);
+        copyFinishes(CopyStatusType.SUCCESS);
+        long size = 4L * 1024 * 1024 * 1024; // 4096 seconds at the minimum throughput
+        var start = OffsetDateTime.now();
+
+        // when
+        blobContainerClientProxy.copy(sourceBlob, "etag1", size, containerName, TargetStorageAccount.CFT);
+
+        // then
+        var sasValues = ArgumentCaptor.forClass(BlobServiceSasSignatureValues.class);
+        verify(sourceBlob).generateSas(sasValues.capture());
+        assertThat(sasValues.getValue().getExpiryTime()).isAfterOrEqualTo(start.plusSeconds(4096));
+    }
+
+    private BlobClient sourceBlobWithSas(String sasToken) {
+        BlobClient sourceBlob = mock(BlobClient.class);
+        given(sourceBlob.getBlobName()).willReturn(blobName);
+        given(sourceBlob.getBlobUrl()).willReturn("https://source/container/" + blobName);
+        given(sourceBlob.generateSas(any())).willReturn(sasToken);
+        return sourceBlob;
+    }
+
+    private void bulkScanContainerClientExists() {
+        given(sasTokenCache.getSasToken(any())).willReturn("token1");
+        given(blobContainerClientBuilderProvider.getBlobContainerClientBuilder())
+            .willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.containerName(containerName)).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.sasToken("token1")).willReturn(blobContainerClientBuilder);
+        given(blobContainerClientBuilder.buildClient()).willReturn(blobContainerClient);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void copyFinishes(CopyStatusType status) {
+        BlobCopyInfo copyInfo = mock(BlobCopyInfo.class);
+        given(copyInfo.getCopyStatus()).willReturn(status);
+        PollResponse<BlobCopyInfo> pollResponse = mock(PollResponse.class);
+        given(pollResponse.getValue()).willReturn(copyInfo);
+        SyncPoller<BlobCopyInfo, Void> poller = mock(SyncPoller.class);
+        given(poller.waitForCompletion(any(Duration.class))).willReturn(pollResponse);
+        given(blobClient.beginCopy(any(), any(), any(), any(), any(RequestConditions.class), any(), any()))
+            .willReturn(poller);
+    }
+
+    @SuppressWarnings("unchecked")
+    private SyncPoller<BlobCopyInfo, Void> copyInProgress(String copyId) {
+        BlobCopyInfo copyInfo = mock(BlobCopyInfo.class);
+        given(copyInfo.getCopyId()).willReturn(copyId);
+        PollResponse<BlobCopyInfo> pollResponse = mock(PollResponse.class);
+        given(pollResponse.getValue()).willReturn(copyInfo);
+        SyncPoller<BlobCopyInfo, Void> poller = mock(SyncPoller.class);
+        given(poller.poll()).willReturn(pollResponse);
+        given(blobClient.beginCopy(any(), any(), any(), any(), any(RequestConditions.class), any(), any()))
+            .willReturn(poller);
+        return poller;
+    }
 }
@@ -4,6 +4,7 @@ import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.models.BlobStorageException;
 import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.google.common.io.ByteSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -37,7 +38,7 @@ class BlobDispatcherTest {
     void should_use_blob_client_to_dispatch_file() {
         // given
         final String blobName = "hello.zip";
-        final byte[] blobContent = "some data".getBytes();
+        final ByteSource blobContent = ByteSource.wrap("some data".getBytes());
         final String container = "container";
 
         doNothing().when(blobContainerClientProxy).upload(blobName, blobContent, container, CFT);
@@ -60,7 +61,7 @@ class BlobDispatcherTest {
 
         // when
         Throwable exc = catchThrowable(
-            () -> dispatcher.dispatch("foo.zip", "data".getBytes(), "some_container", CFT)
+            () -> dispatcher.dispatch("foo.zip", ByteSource.wrap("data".getBytes()), "some_container", CFT)
         );
 
         // then
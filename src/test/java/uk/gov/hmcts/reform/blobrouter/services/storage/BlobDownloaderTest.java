@@ -0,0 +1,193 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.HttpResponse;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.models.BlobRange;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.BufferPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BlobDownloaderTest {
+
+    private static final String CONTENT = "abcdefghij";
+    private static final String ETAG = "0x8D8A5E2F4B3C1D0";
+
+    @Mock BlobClient blobClient;
+
+    BufferPool bufferPool;
+    BlobDownloader downloader;
+
+    @BeforeEach
+    void setUp() {
+        bufferPool = new BufferPool(2, 64, 64, new SimpleMeterRegistry());
+        // blobs of 5 bytes and more are downloaded in blocks of 4 bytes
+        downloader = new BlobDownloader(null, MoreExecutors.directExecutor(), bufferPool, 5, 4, 2, 2);
+    }
+
+    @Test
+    void should_download_small_blob_in_single_request() throws Exception {
+        // given
+        var target = new ByteArrayOutputStream();
+
+        // when
+        downloader.download(blobClient, 4L, ETAG, target);
+
+        // then
+        verify(blobClient).download(target);
+        verify(blobClient, never()).downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void should_download_ranges_of_big_blob_and_write_them_in_order() throws Exception {
+        // given
+        List<Long> requestedOffsets = new ArrayList<>();
+        willAnswer(invocation -> {
+            requestedOffsets.add(invocation.getArgument(1, BlobRange.class).getOffset());
+            return writeRange(invocation.getArgument(0), invocation.getArgument(1));
+        }).given(blobClient).downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any());
+        var target = new ByteArrayOutputStream();
+
+        // when
+        downloader.download(blobClient, CONTENT.length(), ETAG, target);
+
+        // then
+        assertThat(target.toString()).isEqualTo(CONTENT);
+        assertThat(requestedOffsets).containsExactly(0L, 4L, 8L);
+
+        var conditions = ArgumentCaptor.forClass(BlobRequestConditions.class);
+        verify(blobClient, times(3))
+            .downloadWithResponse(any(), any(), any(), conditions.capture(), anyBoolean(), any(), any());
+        assertThat(conditions.getAllValues()).allMatch(c -> ETAG.equals(c.getIfMatch()));
+        verify(blobClient, never()).download(any());
+        assertThat(bufferPool.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void should_retry_only_the_failed_range_on_server_error() throws Exception {
+        // given
+        var badGateway = new BlobStorageException("bad gateway", response(502), null);
+        List<Long> requestedOffsets = new ArrayList<>();
+        willAnswer(invocation -> {
+            BlobRange range = invocation.getArgument(1);
+            requestedOffsets.add(range.getOffset());
+            if (range.getOffset() == 4L && requestedOffsets.indexOf(4L) == requestedOffsets.size() - 1) {
+                throw badGateway;
+            }
+            return writeRange(invocation.getArgument(0), range);
+        }).given(blobClient).downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any());
+        var target = new ByteArrayOutputStream();
+
+        // when
+        downloader.download(blobClient, CONTENT.length(), ETAG, target);
+
+        // then
+        assertThat(target.toString()).isEqualTo(CONTENT);
+        assertThat(requestedOffsets).containsExactly(0L, 4L, 4L, 8L);
+        assertThat(bufferPool.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void should_fail_when_range_is_shorter_than_requested() {
+        // given
+        willAnswer(invocation -> {
+            invocation.getArgument(0, OutputStream.class).write('a');
+            return null;
+        }).given(blobClient).downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any());
+
+        // when
+        assertThatThrownBy(() -> downloader.download(blobClient, CONTENT.length(), ETAG, new ByteArrayOutputStream()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("Received 1 bytes, requested range was 4 bytes");
+
+        // then
+        assertThat(bufferPool.getUsedBytes()).isZero();
+    }
+
+    @Test
+    void should_not_retry_range_when_blob_has_been_modified() {
+        // given
+        var conditionNotMet = new BlobStorageException("condition not met", response(412), null);
+        given(blobClient.downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any()))
+            .willThrow(conditionNotMet);
+
+        // when
+        assertThatThrownBy(() -> downloader.download(blobClient, CONTENT.length(), ETAG, new ByteArrayOutputStream()))
+            .isInstanceOf(BlobStorageException.class);
+
+        // then
+        verify(blobClient, times(1)).downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any());
+    }
+
+    @Test
+    void should_skip_ranges_not_started_yet_when_target_cannot_be_written() {
+        // given
+        var firstRangeStarted = new AtomicBoolean();
+        List<Runnable> rangesNotStarted = new ArrayList<>();
+        Executor executor = task -> {
+            if (firstRangeStarted.compareAndSet(false, true)) {
+                task.run();
+            } else {
+                rangesNotStarted.add(task);
+            }
+        };
+        downloader = new BlobDownloader(null, executor, bufferPool, 5, 4, 2, 2);
+        willAnswer(invocation -> writeRange(invocation.getArgument(0), invocation.getArgument(1)))
+            .given(blobClient).downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any());
+
+        OutputStream target = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("disk full");
+            }
+        };
+
+        // when
+        assertThatThrownBy(() -> downloader.download(blobClient, CONTENT.length(), ETAG, target))
+            .isInstanceOf(IOException.class);
+        rangesNotStarted.forEach(Runnable::run);
+
+        // then
+        verify(blobClient, times(1)).downloadWithResponse(any(), any(), any(), any(), anyBoolean(), any(), any());
+        assertThat(bufferPool.getUsedBytes()).isZero();
+    }
+
+    private static Object writeRange(OutputStream outputStream, BlobRange range) throws Exception {
+        int offset = (int) range.getOffset();
+        outputStream.write(CONTENT.substring(offset, offset + range.getCount().intValue()).getBytes());
+        return null;
+    }
+
+    private static HttpResponse response(int statusCode) {
+        HttpResponse response = mock(HttpResponse.class);
+        given(response.getStatusCode()).willReturn(statusCode);
+        return response;
+    }
+}
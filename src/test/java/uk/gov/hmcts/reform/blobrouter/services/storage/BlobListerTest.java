@@ -0,0 +1,147 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.rest.PagedIterable;
+import com.azure.core.http.rest.PagedResponse;
+import com.azure.core.util.IterableStream;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.models.BlobItem;
+import com.azure.storage.blob.models.BlobListDetails;
+import com.azure.storage.blob.models.ListBlobsOptions;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BlobListerTest {
+
+    @Mock BlobContainerClient containerClient;
+    @Mock PagedIterable<BlobItem> listBlobsResult;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    BlobLister blobLister;
+
+    @BeforeEach
+    void setUp() {
+        blobLister = new BlobLister(MoreExecutors.directExecutor(), 2, meterRegistry);
+        given(containerClient.getBlobContainerName()).willReturn("container");
+        given(containerClient.listBlobs(any(), isNull())).willReturn(listBlobsResult);
+    }
+
+    @Test
+    void should_list_blobs_page_by_page_with_configured_page_size() {
+        // given
+        var blobs = List.of(blob("a.zip"), blob("b.zip"), blob("c.zip"));
+        storageListsPages(blobs.subList(0, 2), blobs.subList(2, 3));
+        var details = new BlobListDetails().setRetrieveSnapshots(true);
+
+        // when
+        var pages = new ArrayList<List<BlobItem>>();
+        blobLister.listPages(containerClient, new ListBlobsOptions().setDetails(details)).forEach(pages::add);
+
+        // then
+        assertThat(pages).containsExactly(blobs.subList(0, 2), blobs.subList(2, 3));
+
+        var options = ArgumentCaptor.forClass(ListBlobsOptions.class);
+        verify(containerClient).listBlobs(options.capture(), isNull());
+        assertThat(options.getValue().getMaxResultsPerPage()).isEqualTo(2);
+        assertThat(options.getValue().getDetails()).isSameAs(details);
+
+        assertThat(meterRegistry.get(BlobLister.PAGE_FETCH_TIMER).timer().count()).isEqualTo(3);
+        assertThat(meterRegistry.get(BlobLister.PAGE_SIZE_SUMMARY).summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    void should_stream_blobs_of_all_pages() {
+        // given
+        var blobs = List.of(blob("a.zip"), blob("b.zip"), blob("c.zip"));
+        storageListsPages(blobs.subList(0, 2), blobs.subList(2, 3));
+
+        // when
+        var result = blobLister.listBlobs(containerClient).collect(toList());
+
+        // then
+        assertThat(result).isEqualTo(blobs);
+    }
+
+    @Test
+    void should_fetch_next_page_while_current_one_is_processed() throws Exception {
+        // given
+        var executor = Executors.newSingleThreadExecutor();
+        blobLister = new BlobLister(executor, 2, meterRegistry);
+
+        var secondPageRequested = new CountDownLatch(1);
+        @SuppressWarnings("unchecked")
+        Iterator<PagedResponse<BlobItem>> responses = mock(Iterator.class);
+        given(responses.hasNext()).willReturn(true, true, false);
+        given(responses.next())
+            .willReturn(page(List.of(blob("a.zip"))))
+            .willAnswer(invocation -> {
+                secondPageRequested.countDown();
+                return page(List.of(blob("b.zip")));
+            });
+        given(listBlobsResult.iterableByPage()).willReturn(new IterableStream<>(() -> responses));
+
+        // when
+        var iterator = blobLister.listPages(containerClient).iterator();
+        iterator.next();
+
+        // then
+        assertThat(secondPageRequested.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(iterator.next()).extracting(BlobItem::getName).containsExactly("b.zip");
+        assertThat(iterator.hasNext()).isFalse();
+
+        executor.shutdown();
+    }
+
+    @Test
+    void should_rethrow_listing_error() {
+        // given
+        given(listBlobsResult.iterableByPage()).willThrow(new IllegalStateException("test"));
+
+        // when
+        // then
+        assertThatThrownBy(() -> blobLister.listBlobs(containerClient).collect(toList()))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessage("test");
+    }
+
+    @SafeVarargs
+    private void storageListsPages(List<BlobItem>... pages) {
+        var responses = Stream.of(pages).map(this::page).collect(toList());
+        given(listBlobsResult.iterableByPage()).willReturn(new IterableStream<>(responses));
+    }
+
+    private PagedResponse<BlobItem> page(List<BlobItem> blobs) {
+        @SuppressWarnings("unchecked")
+        PagedResponse<BlobItem> response = mock(PagedResponse.class);
+        given(response.getValue()).willReturn(blobs);
+        return response;
+    }
+
+    private BlobItem blob(String name) {
+        return new BlobItem().setName(name);
+    }
+}
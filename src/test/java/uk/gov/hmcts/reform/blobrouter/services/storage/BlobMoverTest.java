@@ -0,0 +1,214 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.HttpHeaders;
+import com.azure.core.http.HttpResponse;
+import com.azure.core.util.polling.LongRunningOperationStatus;
+import com.azure.core.util.polling.PollResponse;
+import com.azure.core.util.polling.SyncPoller;
+import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobContainerClient;
+import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobCopyInfo;
+import com.azure.storage.blob.models.BlobErrorCode;
+import com.azure.storage.blob.models.BlobRequestConditions;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.sas.BlobServiceSasSignatureValues;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class BlobMoverTest {
+
+    private static final String CONTAINER = "bulkscan";
+    private static final String BLOB_NAME = "hello.zip";
+
+    @Mock BlobServiceClient storageClient;
+    @Mock BlobBatchDeleter blobBatchDeleter;
+    @Mock BlobContainerClient sourceContainer;
+    @Mock BlobContainerClient targetContainer;
+    @Mock BlobClient sourceBlob;
+    @Mock BlobClient targetBlob;
+    @Mock SyncPoller<BlobCopyInfo, Void> copy;
+
+    BlobMover mover;
+
+    @BeforeEach
+    void setUp() {
+        mover = new BlobMover(storageClient, blobBatchDeleter, false);
+
+        given(storageClient.getBlobContainerClient(CONTAINER)).willReturn(sourceContainer);
+        given(storageClient.getBlobContainerClient(CONTAINER + "-rejected")).willReturn(targetContainer);
+        given(sourceContainer.getBlobClient(BLOB_NAME)).willReturn(sourceBlob);
+        given(targetContainer.getBlobClient(BLOB_NAME)).willReturn(targetBlob);
+        given(sourceBlob.getBlobUrl()).willReturn("https://source/bulkscan/" + BLOB_NAME);
+        given(sourceBlob.generateSas(any())).willReturn("sas");
+    }
+
+    @Test
+    void should_move_blob_and_delete_source_when_copy_succeeds() {
+        // given
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(), any())).willReturn(copy);
+        copyCompletes(LongRunningOperationStatus.SUCCESSFULLY_COMPLETED);
+
+        // when
+        var moved = mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        assertThat(moved).containsExactly(BLOB_NAME);
+        verify(sourceBlob).delete();
+        verify(targetBlob, never()).createSnapshot();
+    }
+
+    @Test
+    void should_issue_source_sas_valid_for_at_least_the_copy_timeout() {
+        // given
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(), any())).willReturn(copy);
+        copyCompletes(LongRunningOperationStatus.SUCCESSFULLY_COMPLETED);
+        OffsetDateTime startedAt = OffsetDateTime.now();
+
+        // when
+        mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        var sasValues = ArgumentCaptor.forClass(BlobServiceSasSignatureValues.class);
+        verify(sourceBlob).generateSas(sasValues.capture());
+        assertThat(sasValues.getValue().getExpiryTime()).isAfterOrEqualTo(startedAt.plus(BlobMover.COPY_TIMEOUT));
+    }
+
+    @Test
+    void should_report_blob_as_moved_when_source_blob_is_not_found() {
+        // given
+        var notFound = storageException(404, BlobErrorCode.BLOB_NOT_FOUND);
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(), any())).willThrow(notFound);
+
+        // when
+        var moved = mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        assertThat(moved).containsExactly(BLOB_NAME);
+        verify(sourceBlob, never()).delete();
+    }
+
+    @Test
+    void should_not_report_blob_as_moved_when_rejected_container_is_not_found() {
+        // given
+        var notFound = storageException(404, BlobErrorCode.CONTAINER_NOT_FOUND);
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(), any())).willThrow(notFound);
+
+        // when
+        var moved = mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        assertThat(moved).isEmpty();
+        verify(targetBlob, never()).createSnapshot();
+        verify(sourceBlob, never()).delete();
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {409, 412})
+    void should_snapshot_existing_rejected_blob_before_overwriting_it(int statusCode) {
+        // given
+        var targetExists = storageException(statusCode, BlobErrorCode.BLOB_ALREADY_EXISTS);
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(BlobRequestConditions.class), any()))
+            .willThrow(targetExists);
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), isNull(), any())).willReturn(copy);
+        copyCompletes(LongRunningOperationStatus.SUCCESSFULLY_COMPLETED);
+
+        // when
+        var moved = mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        assertThat(moved).containsExactly(BLOB_NAME);
+        verify(targetBlob).createSnapshot();
+        verify(sourceBlob).delete();
+    }
+
+    @Test
+    void should_keep_source_blob_when_copy_fails() {
+        // given
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(), any())).willReturn(copy);
+        copyCompletes(LongRunningOperationStatus.FAILED);
+
+        // when
+        var moved = mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        assertThat(moved).isEmpty();
+        verify(sourceBlob, never()).delete();
+        verify(targetBlob, never()).abortCopyFromUrl(any());
+    }
+
+    @Test
+    void should_keep_source_blob_when_polling_copy_fails() {
+        // given
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(), any())).willReturn(copy);
+        var serverError = storageException(500, BlobErrorCode.INTERNAL_ERROR);
+        given(copy.waitForCompletion(any(Duration.class))).willThrow(serverError);
+
+        // when
+        var moved = mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        assertThat(moved).isEmpty();
+        verify(sourceBlob, never()).delete();
+        verify(targetBlob, never()).abortCopyFromUrl(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void should_abort_copy_and_keep_source_blob_when_copy_does_not_complete_in_time() {
+        // given
+        given(targetBlob.beginCopy(any(), any(), any(), any(), any(), any(), any())).willReturn(copy);
+        given(copy.waitForCompletion(any(Duration.class)))
+            .willThrow(new IllegalStateException("Timeout on blocking read"));
+
+        BlobCopyInfo copyInfo = mock(BlobCopyInfo.class);
+        given(copyInfo.getCopyId()).willReturn("copy-id-1");
+        PollResponse<BlobCopyInfo> pollResponse = mock(PollResponse.class);
+        given(pollResponse.getValue()).willReturn(copyInfo);
+        given(copy.poll()).willReturn(pollResponse);
+
+        // when
+        var moved = mover.moveToRejectedContainer(List.of(BLOB_NAME), CONTAINER);
+
+        // then
+        assertThat(moved).isEmpty();
+        verify(targetBlob).abortCopyFromUrl("copy-id-1");
+        verify(sourceBlob, never()).delete();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void copyCompletes(LongRunningOperationStatus status) {
+        PollResponse<BlobCopyInfo> pollResponse = mock(PollResponse.class);
+        given(pollResponse.getStatus()).willReturn(status);
+        given(copy.waitForCompletion(any(Duration.class))).willReturn(pollResponse);
+    }
+
+    private static BlobStorageException storageException(int statusCode, BlobErrorCode errorCode) {
+        // not every branch reads both the status and the error code
+        HttpResponse response = mock(HttpResponse.class);
+        lenient().when(response.getStatusCode()).thenReturn(statusCode);
+        var headers = new HttpHeaders().put("x-ms-error-code", errorCode.toString());
+        lenient().when(response.getHeaders()).thenReturn(headers);
+        return new BlobStorageException(errorCode.toString(), response, null);
+    }
+}
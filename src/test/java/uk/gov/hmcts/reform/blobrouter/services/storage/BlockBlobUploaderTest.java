@@ -0,0 +1,161 @@
+package uk.gov.hmcts.reform.blobrouter.services.storage;
+
+import com.azure.core.http.HttpResponse;
+import com.azure.core.util.Context;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.specialized.BlockBlobClient;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.MoreExecutors;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.BlockBlobUploader.MIN_UPLOAD_TIMEOUT;
+
+@ExtendWith(MockitoExtension.class)
+class BlockBlobUploaderTest {
+
+    @Mock BlockBlobClient blockBlobClient;
+
+    BlockBlobUploader uploader;
+
+    @BeforeEach
+    void setUp() {
+        // content bigger than 5 bytes is uploaded in blocks of 4 bytes
+        uploader = new BlockBlobUploader(MoreExecutors.directExecutor(), 5, 4, 2, 2, 1024);
+    }
+
+    @Test
+    void should_upload_small_content_in_single_request() throws Exception {
+        // given
+        var content = ByteSource.wrap("abcde".getBytes());
+
+        // when
+        uploader.upload(blockBlobClient, content);
+
+        // then
+        var data = ArgumentCaptor.forClass(InputStream.class);
+        verify(blockBlobClient).uploadWithResponse(
+            data.capture(),
+            eq(5L),
+            isNull(),
+            isNull(),
+            isNull(),
+            isNull(),
+            isNull(),
+            eq(MIN_UPLOAD_TIMEOUT),
+            eq(Context.NONE)
+        );
+        assertThat(data.getValue()).hasContent("abcde");
+        verify(blockBlobClient, never()).stageBlockWithResponse(any(), any(), anyLong(), any(), any(), any(), any());
+    }
+
+    @Test
+    void should_stage_blocks_and_commit_them_in_order_when_content_is_big() throws Exception {
+        // given
+        List<String> stagedContent = new ArrayList<>();
+        willAnswer(invocation -> {
+            stagedContent.add(new String(invocation.getArgument(1, InputStream.class).readAllBytes()));
+            return null;
+        }).given(blockBlobClient).stageBlockWithResponse(any(), any(), anyLong(), any(), any(), any(), any());
+
+        // when
+        uploader.upload(blockBlobClient, ByteSource.wrap("abcdefghij".getBytes()));
+
+        // then
+        assertThat(stagedContent).containsExactly("abcd", "efgh", "ij");
+
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<String>> blockIds = ArgumentCaptor.forClass(List.class);
+        verify(blockBlobClient).commitBlockListWithResponse(
+            blockIds.capture(),
+            isNull(),
+            isNull(),
+            isNull(),
+            isNull(),
+            eq(MIN_UPLOAD_TIMEOUT),
+            eq(Context.NONE)
+        );
+        assertThat(blockIds.getValue())
+            .hasSize(3)
+            .doesNotHaveDuplicates()
+            .allMatch(id -> id.length() == blockIds.getValue().get(0).length());
+        verify(blockBlobClient, never()).uploadWithResponse(
+            any(), anyLong(), any(), any(), any(), any(), any(), any(), any()
+        );
+    }
+
+    @Test
+    void should_retry_failed_block() throws Exception {
+        // given
+        given(blockBlobClient.stageBlockWithResponse(anyString(), any(), anyLong(), any(), any(), any(), any()))
+            .willThrow(new RuntimeException("connection reset"))
+            .willReturn(null);
+
+        // when
+        uploader.upload(blockBlobClient, ByteSource.wrap("abcdefghij".getBytes()));
+
+        // then
+        verify(blockBlobClient, times(4)).stageBlockWithResponse(any(), any(), anyLong(), any(), any(), any(), any());
+        verify(blockBlobClient).commitBlockListWithResponse(anyList(), any(), any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void should_send_whole_block_again_when_retrying_partially_sent_block() throws Exception {
+        // given
+        List<String> stagedContent = new ArrayList<>();
+        willAnswer(invocation -> {
+            invocation.getArgument(1, InputStream.class).read(); // connection lost after sending a byte
+            throw new RuntimeException("connection reset");
+        }).willAnswer(invocation -> {
+            stagedContent.add(new String(invocation.getArgument(1, InputStream.class).readAllBytes()));
+            return null;
+        }).given(blockBlobClient).stageBlockWithResponse(any(), any(), anyLong(), any(), any(), any(), any());
+
+        // when
+        uploader.upload(blockBlobClient, ByteSource.wrap("abcdefghij".getBytes()));
+
+        // then
+        assertThat(stagedContent).containsExactly("abcd", "efgh", "ij");
+    }
+
+    @Test
+    void should_not_retry_block_on_client_error_nor_commit_blocks() {
+        // given
+        HttpResponse response = mock(HttpResponse.class);
+        given(response.getStatusCode()).willReturn(403);
+        given(blockBlobClient.stageBlockWithResponse(anyString(), any(), anyLong(), any(), any(), any(), any()))
+            .willThrow(new BlobStorageException("Sas expired", response, null));
+
+        // when
+        assertThatThrownBy(() -> uploader.upload(blockBlobClient, ByteSource.wrap("abcdefghij".getBytes())))
+            .isInstanceOf(BlobStorageException.class);
+
+        // then
+        verify(blockBlobClient, times(1)).stageBlockWithResponse(any(), any(), anyLong(), any(), any(), any(), any());
+        verify(blockBlobClient, never()).commitBlockListWithResponse(
+            anyList(), any(), any(), any(), any(), any(), any()
+        );
+    }
+}
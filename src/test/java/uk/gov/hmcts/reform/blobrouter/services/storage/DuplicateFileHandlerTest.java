@@ -11,6 +11,7 @@ import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
 import uk.gov.hmcts.reform.blobrouter.tasks.processors.DuplicateFinder;
 import uk.gov.hmcts.reform.blobrouter.tasks.processors.DuplicateFinder.Duplicate;
 
+import java.util.List;
 import java.util.UUID;
 
 import static java.time.Instant.now;
@@ -20,6 +21,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 
 @ExtendWith(MockitoExtension.class)
 class DuplicateFileHandlerTest {
@@ -48,6 +50,7 @@ class DuplicateFileHandlerTest {
         // then
         containers
             .forEach(c -> verify(duplicateFinder).findIn(c));
+        verifyNoInteractions(blobMover); // no duplicates found
     }
 
     @Test
@@ -69,12 +72,13 @@ class DuplicateFileHandlerTest {
         verify(envelopeService).createNewEnvelope(duplicate1.container, duplicate1.fileName, duplicate1.blobCreatedAt);
         verify(envelopeService)
             .markAsRejected(id1, ErrorCode.ERR_ZIP_PROCESSING_FAILED, DuplicateFileHandler.EVENT_MESSAGE);
-        verify(blobMover).moveToRejectedContainer(duplicate1.fileName, duplicate1.container);
 
         verify(envelopeService).createNewEnvelope(duplicate2.container, duplicate2.fileName, duplicate2.blobCreatedAt);
         verify(envelopeService)
             .markAsRejected(id2, ErrorCode.ERR_ZIP_PROCESSING_FAILED, DuplicateFileHandler.EVENT_MESSAGE);
-        verify(blobMover).moveToRejectedContainer(duplicate2.fileName, duplicate2.container);
+
+        // and
+        verify(blobMover).moveToRejectedContainer(List.of(duplicate1.fileName, duplicate2.fileName), "C");
     }
 
     @Test
@@ -89,14 +93,31 @@ class DuplicateFileHandlerTest {
                 duplicate2
             ));
 
+        given(envelopeService.createNewEnvelope(any(), any(), any()))
+            .willThrow(RuntimeException.class) // fail on first file
+            .willReturn(UUID.randomUUID());
+
+        // when
+        handler.handle();
+
+        // then
+        verify(blobMover).moveToRejectedContainer(List.of(duplicate2.fileName), "C");
+    }
+
+    @Test
+    void should_not_propagate_failure_to_move_files() {
+        // given
+        given(serviceConfiguration.getEnabledSourceContainers()).willReturn(asList("C1", "C2"));
+        given(duplicateFinder.findIn("C1")).willReturn(singletonList(new Duplicate("b1", "C1", now())));
+        given(duplicateFinder.findIn("C2")).willReturn(singletonList(new Duplicate("b2", "C2", now())));
         doThrow(RuntimeException.class)
             .when(blobMover)
-            .moveToRejectedContainer(duplicate1.fileName, "C"); // fail on first file
+            .moveToRejectedContainer(List.of("b1"), "C1");
 
         // when
         handler.handle();
 
         // then
-        verify(blobMover).moveToRejectedContainer(duplicate2.fileName, "C");
+        verify(blobMover).moveToRejectedContainer(List.of("b2"), "C2");
     }
 }
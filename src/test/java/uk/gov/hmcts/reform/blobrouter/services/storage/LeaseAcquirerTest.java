@@ -4,21 +4,38 @@ import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.models.BlobErrorCode;
 import com.azure.storage.blob.models.BlobStorageException;
 import com.azure.storage.blob.specialized.BlobLeaseClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.hmcts.reform.blobrouter.exceptions.LeaseLostException;
 
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Consumer;
 
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer.LEASE_RENEWAL_INTERVAL_IN_SECONDS;
 
 @ExtendWith(MockitoExtension.class)
 @SuppressWarnings("unchecked")
@@ -27,12 +44,15 @@ class LeaseAcquirerTest {
     @Mock BlobClient blobClient;
     @Mock BlobLeaseClient leaseClient;
     @Mock BlobStorageException blobStorageException;
+    @Mock ScheduledExecutorService leaseRenewalScheduler;
+    @Mock ScheduledFuture<Object> renewalTask;
 
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
     private LeaseAcquirer leaseAcquirer;
 
     @BeforeEach
     void setUp() {
-        leaseAcquirer = new LeaseAcquirer(blobClient -> leaseClient);
+        leaseAcquirer = new LeaseAcquirer(blobClient -> leaseClient, leaseRenewalScheduler, meterRegistry);
     }
 
     @Test
@@ -47,6 +67,23 @@ class LeaseAcquirerTest {
         // then
         verify(onSuccess).accept(null);
         verify(onFailure, never()).accept(any(BlobErrorCode.class));
+        assertThat(leaseCount("acquired")).isEqualTo(1);
+    }
+
+    @Test
+    void should_pass_held_lease_to_provided_action() {
+        // given
+        given(leaseClient.acquireLease(anyInt())).willReturn("lease-id");
+        var onSuccess = mock(Consumer.class);
+
+        // when
+        leaseAcquirer.ifAcquiredOrElse(blobClient, onSuccess, mock(Consumer.class), false, false);
+
+        // then
+        var lease = ArgumentCaptor.forClass(Lease.class);
+        verify(onSuccess).accept(lease.capture());
+        assertThat(lease.getValue().getId()).isEqualTo("lease-id");
+        assertThat(lease.getValue().isHeld()).isTrue();
     }
 
     @Test
@@ -63,6 +100,21 @@ class LeaseAcquirerTest {
         // then
         verify(onSuccess, never()).accept(anyString());
         verify(onFailure).accept(null);
+        assertThat(leaseCount("failed")).isEqualTo(1);
+    }
+
+    @Test
+    void should_count_lease_already_present_as_contended() {
+        // given
+        given(blobStorageException.getErrorCode()).willReturn(BlobErrorCode.LEASE_ALREADY_PRESENT);
+        doThrow(blobStorageException).when(leaseClient).acquireLease(anyInt());
+
+        // when
+        leaseAcquirer.ifAcquiredOrElse(blobClient, mock(Consumer.class), mock(Consumer.class), false);
+
+        // then
+        assertThat(leaseCount("contended")).isEqualTo(1);
+        assertThat(meterRegistry.find(LeaseAcquirer.LEASE_COUNTER).tag("result", "acquired").counter()).isNull();
     }
 
     @Test
@@ -85,4 +137,105 @@ class LeaseAcquirerTest {
         // then
         verify(leaseClient).releaseLease();
     }
+
+    @Test
+    void should_not_renew_lease_by_default() {
+        // when
+        leaseAcquirer.ifAcquiredOrElse(blobClient, mock(Consumer.class), mock(Consumer.class), true);
+
+        // then
+        verifyNoInteractions(leaseRenewalScheduler);
+    }
+
+    @Test
+    void should_renew_lease_while_action_runs_and_stop_renewing_once_it_completes() {
+        // given
+        var renewal = renewalIsScheduled();
+
+        // when
+        leaseAcquirer.ifAcquiredOrElse(
+            blobClient,
+            lease -> {
+                renewal.getValue().run();
+                verify(renewalTask, never()).cancel(anyBoolean());
+                assertThat(lease.isHeld()).isTrue();
+            },
+            mock(Consumer.class),
+            true,
+            true
+        );
+
+        // then
+        verify(leaseRenewalScheduler).scheduleWithFixedDelay(
+            any(),
+            eq((long) LEASE_RENEWAL_INTERVAL_IN_SECONDS),
+            eq((long) LEASE_RENEWAL_INTERVAL_IN_SECONDS),
+            eq(TimeUnit.SECONDS)
+        );
+        verify(leaseClient).renewLease();
+        verify(renewalTask).cancel(false);
+        verify(leaseClient).releaseLease();
+    }
+
+    @Test
+    void should_keep_renewing_lease_after_transient_renewal_error() {
+        // given
+        var renewal = renewalIsScheduled();
+        given(leaseClient.renewLease()).willThrow(new RuntimeException("timeout")).willReturn("lease-id");
+
+        // when
+        leaseAcquirer.ifAcquiredOrElse(
+            blobClient,
+            lease -> {
+                renewal.getValue().run();
+                renewal.getValue().run();
+            },
+            mock(Consumer.class),
+            true,
+            true
+        );
+
+        // then
+        verify(leaseClient, times(2)).renewLease();
+        verify(leaseClient).releaseLease();
+    }
+
+    @Test
+    void should_throw_exception_and_not_release_lease_when_lease_was_lost() {
+        // given
+        var renewal = renewalIsScheduled();
+        given(blobStorageException.getErrorCode()).willReturn(BlobErrorCode.LEASE_ID_MISMATCH_WITH_LEASE_OPERATION);
+        given(leaseClient.renewLease()).willThrow(blobStorageException);
+
+        // when
+        var exc = catchThrowable(() -> leaseAcquirer.ifAcquiredOrElse(
+            blobClient,
+            lease -> {
+                assertThatThrownBy(() -> renewal.getValue().run()).isInstanceOf(LeaseLostException.class);
+                assertThat(lease.isHeld()).isFalse();
+                assertThatThrownBy(lease::ensureHeld).isInstanceOf(LeaseLostException.class);
+            },
+            mock(Consumer.class),
+            true,
+            true
+        ));
+
+        // then
+        assertThat(exc).isInstanceOf(LeaseLostException.class);
+        verify(renewalTask).cancel(false);
+        verify(leaseClient, never()).releaseLease();
+        assertThat(leaseCount("lost")).isEqualTo(1);
+    }
+
+    private double leaseCount(String result) {
+        return meterRegistry.get(LeaseAcquirer.LEASE_COUNTER).tag("result", result).counter().count();
+    }
+
+    private ArgumentCaptor<Runnable> renewalIsScheduled() {
+        var renewal = ArgumentCaptor.forClass(Runnable.class);
+        willReturn(renewalTask)
+            .given(leaseRenewalScheduler)
+            .scheduleWithFixedDelay(renewal.capture(), anyLong(), anyLong(), any());
+        return renewal;
+    }
 }
@@ -3,15 +3,20 @@ package uk.gov.hmcts.reform.blobrouter.services.storage;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
 
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import static java.time.Instant.now;
 import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
@@ -31,24 +36,28 @@ class RejectedFilesHandlerTest {
 
     @BeforeEach
     void setUp() {
-        mover = new RejectedFilesHandler(envelopeService, blobMover);
+        mover = new RejectedFilesHandler(envelopeService, blobMover, 10);
     }
 
     @Test
+    @SuppressWarnings("unchecked")
     void should_handle_rejected_files() {
         // given
         given(envelopeService.getReadyToDeleteRejections())
             .willReturn(asList(envelope1, envelope2));
+        filesAreMoved();
 
         // when
         mover.handle();
 
         // then
-        verify(blobMover).moveToRejectedContainer(envelope1.fileName, envelope1.container);
-        verify(blobMover).moveToRejectedContainer(envelope2.fileName, envelope2.container);
+        verify(blobMover).moveToRejectedContainer(Set.of(envelope1.fileName), envelope1.container);
+        verify(blobMover).moveToRejectedContainer(Set.of(envelope2.fileName), envelope2.container);
 
-        verify(envelopeService).markEnvelopeAsDeleted(envelope1);
-        verify(envelopeService).markEnvelopeAsDeleted(envelope2);
+        // envelopes are grouped by container, in no particular order
+        ArgumentCaptor<Collection<UUID>> deletedIds = ArgumentCaptor.forClass(Collection.class);
+        verify(envelopeService).markEnvelopesAsDeleted(deletedIds.capture());
+        assertThat(deletedIds.getValue()).containsExactlyInAnyOrder(envelope1.id, envelope2.id);
     }
 
     @Test
@@ -59,15 +68,56 @@ class RejectedFilesHandlerTest {
 
         doThrow(RuntimeException.class)
             .when(blobMover)
-            .moveToRejectedContainer(envelope1.fileName, envelope1.container);
+            .moveToRejectedContainer(Set.of(envelope1.fileName), envelope1.container);
+        given(blobMover.moveToRejectedContainer(Set.of(envelope2.fileName), envelope2.container))
+            .willReturn(Set.of(envelope2.fileName));
 
         // when
         mover.handle();
 
         // then second files should get processed anyway...
-        verify(blobMover).moveToRejectedContainer(envelope2.fileName, envelope2.container);
-        verify(envelopeService).markEnvelopeAsDeleted(envelope2);
+        verify(blobMover).moveToRejectedContainer(Set.of(envelope2.fileName), envelope2.container);
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(envelope2.id));
+    }
+
+    @Test
+    void should_only_mark_envelopes_of_moved_files_as_deleted() {
+        // given
+        var envelope3 = new Envelope(UUID.randomUUID(), "c1", "f3", now(), now(), null, REJECTED, false, false);
+        given(envelopeService.getReadyToDeleteRejections())
+            .willReturn(asList(envelope1, envelope3));
+        given(blobMover.moveToRejectedContainer(Set.of(envelope1.fileName, envelope3.fileName), "c1"))
+            .willReturn(Set.of(envelope3.fileName));
+
+        // when
+        mover.handle();
+
+        // then
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(envelope3.id));
+        verify(envelopeService, never()).markEnvelopesAsDeleted(List.of(envelope1.id));
+    }
+
+    @Test
+    void should_mark_envelopes_as_deleted_in_batches() {
+        // given
+        mover = new RejectedFilesHandler(envelopeService, blobMover, 1);
+        given(envelopeService.getReadyToDeleteRejections())
+            .willReturn(asList(envelope1, envelope2));
+        filesAreMoved();
+
+        // when
+        mover.handle();
+
+        // then
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(envelope1.id));
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(envelope2.id));
+        verify(envelopeService, never()).markEnvelopesAsDeleted(List.of());
+    }
 
-        verify(envelopeService, never()).markEnvelopeAsDeleted(envelope1);
+    private void filesAreMoved() {
+        given(blobMover.moveToRejectedContainer(Set.of(envelope1.fileName), envelope1.container))
+            .willReturn(Set.of(envelope1.fileName));
+        given(blobMover.moveToRejectedContainer(Set.of(envelope2.fileName), envelope2.container))
+            .willReturn(Set.of(envelope2.fileName));
     }
 }
@@ -2,6 +2,7 @@ package uk.gov.hmcts.reform.blobrouter.services.storage;
 
 import com.azure.storage.common.Utility;
 import com.azure.storage.common.implementation.Constants;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -36,6 +37,8 @@ class SasTokenCacheTest {
 
     private SasTokenCache sasTokenCache;
 
+    private SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
     private long refreshSasBeforeExpiry = 30;
 
     @BeforeEach
@@ -44,7 +47,8 @@ class SasTokenCacheTest {
             bulkScanProcessorClient,
             pcqClient,
             authTokenGenerator,
-            refreshSasBeforeExpiry
+            refreshSasBeforeExpiry,
+            meterRegistry
         );
     }
 
@@ -96,6 +100,8 @@ class SasTokenCacheTest {
             sasTokenCache.getSasToken(containerName);
 
         assertThat(sasToken).isSameAs(sasToken2);
+        assertThat(cacheGets("miss")).isEqualTo(1);
+        assertThat(cacheGets("hit")).isEqualTo(1);
         verify(bulkScanProcessorClient, times(1)).getSasToken(containerName);
     }
 
@@ -153,6 +159,7 @@ class SasTokenCacheTest {
 
         assertThat(sasToken1).isEqualTo(token1);
         assertThat(sasToken2).isEqualTo(token2);
+        assertThat(meterRegistry.get(SasTokenCache.INVALIDATION_COUNTER).counter().count()).isEqualTo(1);
         assertThat(sasToken1).isNotEqualTo(sasToken2);
 
         verify(bulkScanProcessorClient, times(2)).getSasToken(containerName);
@@ -233,4 +240,12 @@ class SasTokenCacheTest {
         verify(pcqClient, times(2)).getSasToken(authToken);
     }
 
+    private double cacheGets(String result) {
+        return meterRegistry
+            .get("cache.gets")
+            .tag("cache", SasTokenCache.CACHE_NAME)
+            .tag("result", result)
+            .functionCounter()
+            .count();
+    }
 }
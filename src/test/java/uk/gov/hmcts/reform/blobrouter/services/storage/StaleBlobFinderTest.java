@@ -1,6 +1,5 @@
 package uk.gov.hmcts.reform.blobrouter.services.storage;
 
-import com.azure.core.http.rest.PagedIterable;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.models.BlobItem;
@@ -31,6 +30,9 @@ class StaleBlobFinderTest {
     @Mock
     private BlobServiceClient storageClient;
 
+    @Mock
+    private BlobLister blobLister;
+
     @Mock
     private ServiceConfiguration serviceConfiguration;
 
@@ -77,12 +79,8 @@ class StaleBlobFinderTest {
         assertThat(blobInfos.get(0).createdAt).isEqualTo(toLocalTimeZone(expectedCreationTime.toInstant()));
     }
 
-    @SuppressWarnings("unchecked")
     private void mockStorageList(BlobContainerClient blobClient, Stream<BlobItem> streamOfBlobItem) {
-        PagedIterable<BlobItem> listBlobsResult = mock(PagedIterable.class);
-        given(blobClient.listBlobs()).willReturn(listBlobsResult);
-        given(listBlobsResult.stream()).willReturn(streamOfBlobItem);
-
+        given(blobLister.listBlobs(blobClient)).willReturn(streamOfBlobItem);
     }
 
     private BlobItem blob(String name, boolean staleFile) {
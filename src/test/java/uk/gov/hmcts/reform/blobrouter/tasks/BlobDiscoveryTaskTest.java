@@ -0,0 +1,110 @@
+package uk.gov.hmcts.reform.blobrouter.tasks;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import uk.gov.hmcts.reform.blobrouter.config.ServiceConfiguration;
+import uk.gov.hmcts.reform.blobrouter.services.discovery.InMemoryBlobDiscoverySource;
+import uk.gov.hmcts.reform.blobrouter.tasks.processors.ContainerProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class BlobDiscoveryTaskTest {
+
+    @Mock private ContainerProcessor containerProcessor;
+    @Mock private ServiceConfiguration conf;
+
+    private InMemoryBlobDiscoverySource discoverySource;
+    private BlobDiscoveryTask task;
+
+    @BeforeEach
+    void setUp() {
+        given(conf.getEnabledSourceContainers()).willReturn(asList("a", "b"));
+
+        discoverySource = new InMemoryBlobDiscoverySource();
+        task = new BlobDiscoveryTask(discoverySource, containerProcessor, conf, 10);
+    }
+
+    @Test
+    void should_process_discovered_blobs_by_container() {
+        // given
+        List<List<String>> processedA = recordProcessedBlobs("a", Set.of());
+        List<List<String>> processedB = recordProcessedBlobs("b", Set.of());
+        discoverySource.publish("a", "1.zip");
+        discoverySource.publish("b", "2.zip");
+        discoverySource.publish("a", "3.zip");
+
+        // when
+        task.run();
+
+        // then
+        assertThat(processedA).containsExactly(List.of("1.zip", "3.zip"));
+        assertThat(processedB).containsExactly(List.of("2.zip"));
+    }
+
+    @Test
+    void should_ignore_blobs_from_disabled_containers() {
+        // given
+        discoverySource.publish("disabled", "1.zip");
+
+        // when
+        task.run();
+
+        // then
+        verifyNoInteractions(containerProcessor);
+    }
+
+    @Test
+    void should_retry_blobs_which_are_not_ready_yet() {
+        // given
+        List<List<String>> processed = recordProcessedBlobs("a", Set.of("2.zip"));
+        discoverySource.publish("a", "1.zip");
+        discoverySource.publish("a", "2.zip");
+
+        // when
+        task.run();
+        task.run();
+
+        // then
+        assertThat(processed).containsExactly(List.of("1.zip", "2.zip"), List.of("2.zip"));
+    }
+
+    @Test
+    void should_not_take_more_blobs_than_batch_size() {
+        // given
+        task = new BlobDiscoveryTask(discoverySource, containerProcessor, conf, 1);
+        discoverySource.publish("a", "1.zip");
+        discoverySource.publish("a", "2.zip");
+
+        // when
+        task.run();
+
+        // then
+        verify(containerProcessor).process("a", List.of("1.zip"));
+        verifyNoMoreInteractions(containerProcessor);
+    }
+
+    private List<List<String>> recordProcessedBlobs(String container, Set<String> notReady) {
+        List<List<String>> processed = new ArrayList<>();
+        doAnswer(invocation -> {
+            processed.add(invocation.getArgument(1));
+            return notReady;
+        }).when(containerProcessor).process(eq(container), any());
+        return processed;
+    }
+}
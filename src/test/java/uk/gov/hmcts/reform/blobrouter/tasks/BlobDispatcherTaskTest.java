@@ -1,5 +1,6 @@
 package uk.gov.hmcts.reform.blobrouter.tasks;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
@@ -7,8 +8,14 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.hmcts.reform.blobrouter.config.ServiceConfiguration;
 import uk.gov.hmcts.reform.blobrouter.tasks.processors.ContainerProcessor;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+
 import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 
@@ -25,7 +32,30 @@ class BlobDispatcherTaskTest {
             .willReturn(asList("a", "b", "c"));
 
         // when
-        new BlobDispatcherTask(containerProcessor, conf).run();
+        new BlobDispatcherTask(containerProcessor, conf, MoreExecutors.directExecutor(), false).run();
+
+        // then
+        verify(containerProcessor).process("a");
+        verify(containerProcessor).process("b");
+        verify(containerProcessor).process("c");
+
+        verifyNoMoreInteractions(containerProcessor);
+    }
+
+    @Test
+    void should_process_all_available_enabled_containers_concurrently_when_enabled() {
+        // given
+        given(conf.getEnabledSourceContainers())
+            .willReturn(asList("a", "b", "c"));
+
+        var executor = Executors.newFixedThreadPool(3);
+        var threads = new ConcurrentHashMap<String, String>();
+        doAnswer(invocation -> threads.put(invocation.getArgument(0), Thread.currentThread().getName()))
+            .when(containerProcessor).process(any());
+
+        // when
+        new BlobDispatcherTask(containerProcessor, conf, executor, true).run();
+        executor.shutdown();
 
         // then
         verify(containerProcessor).process("a");
@@ -33,5 +63,8 @@ class BlobDispatcherTaskTest {
         verify(containerProcessor).process("c");
 
         verifyNoMoreInteractions(containerProcessor);
+
+        assertThat(threads).containsOnlyKeys("a", "b", "c");
+        assertThat(threads.values()).doesNotContain(Thread.currentThread().getName());
     }
 }
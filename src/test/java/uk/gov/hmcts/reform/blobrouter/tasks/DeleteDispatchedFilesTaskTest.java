@@ -1,5 +1,6 @@
 package uk.gov.hmcts.reform.blobrouter.tasks;
 
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -22,7 +23,7 @@ class DeleteDispatchedFilesTaskTest {
     private DeleteDispatchedFilesTask task;
 
     void setUp(ServiceConfiguration serviceConfiguration) {
-        task = new DeleteDispatchedFilesTask(containerCleaner, serviceConfiguration);
+        task = new DeleteDispatchedFilesTask(containerCleaner, serviceConfiguration, MoreExecutors.directExecutor());
     }
 
     @DisplayName("Get all configured containers and process only 1 available container")
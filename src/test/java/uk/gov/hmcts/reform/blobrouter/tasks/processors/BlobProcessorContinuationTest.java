@@ -1,6 +1,10 @@
 package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 
 import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.models.BlobProperties;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -12,18 +16,26 @@ import uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Status;
 import uk.gov.hmcts.reform.blobrouter.data.events.ErrorCode;
+import uk.gov.hmcts.reform.blobrouter.data.events.EventType;
 import uk.gov.hmcts.reform.blobrouter.services.BlobContentExtractor;
 import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.BufferPool;
 import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDispatcher;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDownloader;
+import uk.gov.hmcts.reform.blobrouter.services.storage.Lease;
 
 import java.io.OutputStream;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.will;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -43,6 +55,7 @@ public class BlobProcessorContinuationTest {
     @Mock BlobContentExtractor contentExtractor;
     @Mock ServiceConfiguration serviceConfiguration;
     @Mock(lenient = true) BlobClient blobClient;
+    @Mock Lease lease;
 
     BlobProcessor blobProcessor;
 
@@ -53,12 +66,18 @@ public class BlobProcessorContinuationTest {
                 "s1", cfg("s1", "t1", CFT),
                 "s2", cfg("s2", "t2", CRIME)
             ));
+        var bufferPool = new BufferPool(256, 4096, 1024, new SimpleMeterRegistry());
         blobProcessor = new BlobProcessor(
             blobDispatcher,
+            new BlobDownloader(null, MoreExecutors.directExecutor(), bufferPool, Long.MAX_VALUE, 256, 2, 2),
             envelopeService,
             verifier,
             contentExtractor,
-            serviceConfiguration
+            serviceConfiguration,
+            bufferPool,
+            false,
+            "blocking",
+            new SimpleMeterRegistry()
         );
     }
 
@@ -68,19 +87,26 @@ public class BlobProcessorContinuationTest {
         var id = UUID.randomUUID();
         var fileName = "hello.zip";
         var containerName = "s1";
-        var content = "same content".getBytes();
+        var dispatchedContent = new AtomicReference<byte[]>();
 
         blobExists(fileName, containerName);
-        given(verifier.verifyZip(any(), any())).willReturn(ok());
-        given(contentExtractor.getContentToUpload(any(), any())).willReturn(content);
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
+        will(invocation -> {
+            dispatchedContent.set(((ByteSource) invocation.getArgument(1)).read());
+            return null;
+        })
+            .given(blobDispatcher)
+            .dispatch(any(), any(), any(), any());
 
         // when
-        blobProcessor.continueProcessing(id, blobClient);
+        boolean processed = blobProcessor.continueProcessing(id, blobClient, lease);
 
         // then
+        assertThat(processed).isTrue();
         verify(envelopeService, never()).createNewEnvelope(any(), any(), any());
         verify(envelopeService).markAsDispatched(id);
-        verify(blobDispatcher).dispatch(fileName, content, "t1", CFT);
+        verify(blobDispatcher).dispatch(eq(fileName), any(), eq("t1"), eq(CFT));
+        assertThat(dispatchedContent.get()).isEqualTo("some content".getBytes());
     }
 
     @Test
@@ -90,18 +116,37 @@ public class BlobProcessorContinuationTest {
         var validationError = "error message";
 
         blobExists("hello.zip", "s1");
-        given(verifier.verifyZip(any(), any())).willReturn(error(ErrorCode.ERR_METAFILE_INVALID, validationError));
+        given(verifier.verifyZip(any(), any(ByteSource.class), any()))
+            .willReturn(error(ErrorCode.ERR_METAFILE_INVALID, validationError));
 
         // when
-        blobProcessor.continueProcessing(id, blobClient);
+        boolean processed = blobProcessor.continueProcessing(id, blobClient, lease);
 
         // then
+        assertThat(processed).isTrue();
         verify(envelopeService).markAsRejected(id, ErrorCode.ERR_METAFILE_INVALID, validationError);
         verifyNoMoreInteractions(envelopeService);
 
         verifyNoInteractions(blobDispatcher);
     }
 
+    @Test
+    void should_report_error_when_blob_properties_cannot_be_read() {
+        // given
+        var id = UUID.randomUUID();
+        given(blobClient.getBlobName()).willReturn("hello.zip");
+        given(blobClient.getContainerName()).willReturn("s1");
+        given(blobClient.getProperties()).willThrow(new RuntimeException("service unavailable"));
+
+        // when
+        boolean processed = blobProcessor.continueProcessing(id, blobClient, lease);
+
+        // then
+        assertThat(processed).isFalse();
+        verify(envelopeService).saveEvent(id, EventType.ERROR, "service unavailable");
+        verifyNoInteractions(blobDispatcher);
+    }
+
     private StorageConfigItem cfg(String source, String target, TargetStorageAccount targetAccount) {
         var cfg = new StorageConfigItem();
         cfg.setSourceContainer(source);
@@ -114,6 +159,7 @@ public class BlobProcessorContinuationTest {
     private void blobExists(String blobName, String containerName) {
         given(blobClient.getBlobName()).willReturn(blobName);
         given(blobClient.getContainerName()).willReturn(containerName);
+        given(blobClient.getProperties()).willReturn(mock(BlobProperties.class));
 
         will(invocation -> {
             var outputStream = (OutputStream) invocation.getArguments()[0];
@@ -2,32 +2,61 @@ package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 
 import com.azure.core.http.HttpResponse;
 import com.azure.storage.blob.BlobClient;
+import com.azure.storage.blob.BlobServiceAsyncClient;
+import com.azure.storage.blob.models.BlobDownloadAsyncResponse;
+import com.azure.storage.blob.models.BlobDownloadHeaders;
 import com.azure.storage.blob.models.BlobProperties;
 import com.azure.storage.blob.models.BlobStorageException;
+import com.azure.storage.blob.specialized.BlobInputStream;
+import com.google.common.io.ByteSource;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Answers;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import uk.gov.hmcts.reform.blobrouter.config.ServiceConfiguration;
 import uk.gov.hmcts.reform.blobrouter.config.StorageConfigItem;
 import uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount;
 import uk.gov.hmcts.reform.blobrouter.data.events.ErrorCode;
 import uk.gov.hmcts.reform.blobrouter.data.events.EventType;
+import uk.gov.hmcts.reform.blobrouter.exceptions.LeaseLostException;
 import uk.gov.hmcts.reform.blobrouter.services.BlobContentExtractor;
 import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.buffers.BufferPool;
 import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDispatcher;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobDownloader;
+import uk.gov.hmcts.reform.blobrouter.services.storage.Lease;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
-import static org.mockito.AdditionalMatchers.aryEq;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.BDDMockito.will;
+import static org.mockito.BDDMockito.willDoNothing;
 import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
@@ -36,6 +65,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.springframework.http.HttpStatus.BAD_GATEWAY;
 import static uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount.CFT;
+import static uk.gov.hmcts.reform.blobrouter.config.TargetStorageAccount.CRIME;
 import static uk.gov.hmcts.reform.blobrouter.services.BlobVerifier.VerificationResult.error;
 import static uk.gov.hmcts.reform.blobrouter.services.BlobVerifier.VerificationResult.ok;
 
@@ -47,12 +77,16 @@ class BlobProcessorTest {
     private static final TargetStorageAccount TARGET_STORAGE_ACCOUNT = CFT;
 
     @Mock(lenient = true) BlobClient blobClient;
+    @Mock Lease lease;
     @Mock(lenient = true) BlobProperties blobProperties;
     @Mock BlobDispatcher blobDispatcher;
     @Mock EnvelopeService envelopeService;
     @Mock BlobVerifier verifier;
     @Mock ServiceConfiguration serviceConfiguration;
     @Mock BlobContentExtractor blobContentExtractor;
+    @Mock(answer = Answers.RETURNS_DEEP_STUBS) BlobServiceAsyncClient storageAsyncClient;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     @Test
     void should_not_update_envelope_status_when_upload_failed() {
@@ -61,14 +95,14 @@ class BlobProcessorTest {
         given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
         blobExists("envelope1.zip", SOURCE_CONTAINER);
         setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
-        given(verifier.verifyZip(any(), any())).willReturn(ok());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
 
         willThrow(new RuntimeException("Exception message"))
             .given(blobDispatcher)
             .dispatch(any(), any(), any(), any());
 
         // when
-        newBlobProcessor().process(blobClient);
+        newBlobProcessor().process(blobClient, lease);
 
         // then
         verifyNewEnvelopeHasBeenCreated();
@@ -90,7 +124,7 @@ class BlobProcessorTest {
         given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
         blobExists("envelope1.zip", SOURCE_CONTAINER);
         setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
-        given(verifier.verifyZip(any(), any())).willReturn(ok());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
 
         willThrow(new RuntimeException(
             "<html><head><title>Oh no!</title></head><body><h2>You failed</h2></body</html>"
@@ -99,7 +133,7 @@ class BlobProcessorTest {
             .dispatch(any(), any(), any(), any());
 
         // when
-        newBlobProcessor().process(blobClient);
+        newBlobProcessor().process(blobClient, lease);
 
         // then
         verifyNewEnvelopeHasBeenCreated();
@@ -135,7 +169,7 @@ class BlobProcessorTest {
             .download(any());
 
         // when
-        newBlobProcessor().process(blobClient);
+        newBlobProcessor().process(blobClient, lease);
 
         // then
         verifyNewEnvelopeHasBeenCreated();
@@ -160,7 +194,7 @@ class BlobProcessorTest {
         willThrow(new RuntimeException("test")).given(blobClient).download(any());
 
         // when
-        newBlobProcessor().process(blobClient);
+        newBlobProcessor().process(blobClient, lease);
 
         // then
         verifyNewEnvelopeHasBeenCreated();
@@ -174,6 +208,63 @@ class BlobProcessorTest {
         verify(envelopeService).saveEvent(id, EventType.ERROR, BlobProcessor.ErrorMessages.DOWNLOAD_ERROR_GENERIC);
     }
 
+    @Test
+    void should_read_blob_properties_once() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
+
+        // when
+        newBlobProcessor().process(blobClient, lease);
+
+        // then
+        verify(envelopeService).markAsDispatched(id);
+        verify(blobClient, times(1)).getProperties(); // size and ETag for download come from the same properties
+    }
+
+    @Test
+    void should_not_dispatch_blob_when_lease_was_lost_before_upload() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
+        willThrow(new LeaseLostException("lease lost")).given(lease).ensureHeld();
+
+        // when
+        boolean processed = newBlobProcessor().process(blobClient, lease);
+
+        // then
+        assertThat(processed).isFalse();
+        verify(blobDispatcher, never()).dispatch(any(), any(), any(), any());
+        verify(envelopeService, never()).markAsDispatched(any());
+        verify(envelopeService).saveEvent(id, EventType.ERROR, "lease lost");
+    }
+
+    @Test
+    void should_not_mark_envelope_as_dispatched_when_lease_was_lost_during_upload() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
+        willDoNothing().willThrow(new LeaseLostException("lease lost")).given(lease).ensureHeld();
+
+        // when
+        boolean processed = newBlobProcessor().process(blobClient, lease);
+
+        // then
+        assertThat(processed).isFalse();
+        verify(blobDispatcher).dispatch(eq("envelope1.zip"), any(), eq(TARGET_CONTAINER), eq(TARGET_STORAGE_ACCOUNT));
+        verify(envelopeService, never()).markAsDispatched(any());
+        verify(envelopeService).saveEvent(id, EventType.ERROR, "lease lost");
+    }
+
     @Test
     void should_dispatch_valid_file() {
         // given
@@ -185,15 +276,28 @@ class BlobProcessorTest {
         String fileName = "envelope1.zip";
         blobExists(fileName, SOURCE_CONTAINER, blobCreationTime);
 
-        given(verifier.verifyZip(any(), any())).willReturn(ok());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
 
         // when
-        newBlobProcessor().process(blobClient);
+        newBlobProcessor().process(blobClient, lease);
 
         // then
         verify(blobDispatcher, times(1)).dispatch(any(), any(), any(), any());
         verifyNewEnvelopeHasBeenCreated();
         verify(envelopeService).markAsDispatched(id);
+
+        // and
+        var tags = Tags.of("container", SOURCE_CONTAINER, "target.account", CFT.name());
+        assertThat(meterRegistry.get(BlobProcessor.PHASE_TIMER).tags(tags).timers())
+            .extracting(timer -> timer.getId().getTag("phase"), Timer::count)
+            .containsExactlyInAnyOrder(
+                tuple("db", 2L),
+                tuple("download", 1L),
+                tuple("verify", 1L),
+                tuple("upload", 1L)
+            );
+        assertThat(meterRegistry.get(BlobProcessor.OUTCOME_COUNTER).tag("outcome", "dispatched").counter().count())
+            .isEqualTo(1);
     }
 
     @Test
@@ -208,15 +312,18 @@ class BlobProcessorTest {
         String fileName = "envelope1.zip";
         blobExists(fileName, SOURCE_CONTAINER, blobCreationTime);
 
-        given(verifier.verifyZip(any(), any())).willReturn(error(ErrorCode.ERR_SIG_VERIFY_FAILED, "some error"));
+        given(verifier.verifyZip(any(), any(ByteSource.class), any()))
+            .willReturn(error(ErrorCode.ERR_SIG_VERIFY_FAILED, "some error"));
 
         // when
-        newBlobProcessor().process(blobClient);
+        newBlobProcessor().process(blobClient, lease);
 
         // then
         verifyNoInteractions(blobDispatcher);
         verifyNewEnvelopeHasBeenCreated();
         verify(envelopeService).markAsRejected(id, ErrorCode.ERR_SIG_VERIFY_FAILED, "some error");
+        assertThat(meterRegistry.get(BlobProcessor.OUTCOME_COUNTER).tag("outcome", "rejected").counter().count())
+            .isEqualTo(1);
     }
 
     @Test
@@ -229,22 +336,324 @@ class BlobProcessorTest {
 
         setupContainerConfig(sourceContainerName, targetContainerName, CFT);
         blobExists(fileName, sourceContainerName);
-        given(blobContentExtractor.getContentToUpload(any(), any())).willReturn(content);
+        setupDownloadedBlobContent(content);
+        var dispatchedContent = captureDispatchedContent();
 
         var id = UUID.randomUUID();
         given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
 
         // valid file
-        given(verifier.verifyZip(any(), any())).willReturn(ok());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
 
         // when
-        newBlobProcessor().process(blobClient);
+        newBlobProcessor().process(blobClient, lease);
 
         // then
         verifyNewEnvelopeHasBeenCreated();
         verify(blobDispatcher, times(1))
-            .dispatch(eq(fileName), aryEq(content), eq(targetContainerName), eq(CFT));
+            .dispatch(eq(fileName), any(), eq(targetContainerName), eq(CFT));
+        assertThat(dispatchedContent.get()).isEqualTo(content);
+        verify(envelopeService).markAsDispatched(id);
+    }
+
+    @Test
+    void should_upload_the_inner_envelope_extracted_during_verification_when_target_account_is_crime() {
+        // given
+        var fileName = "envelope1.zip";
+        var sourceContainerName = "sourceContainer1";
+        var targetContainerName = "targetContainer1";
+        var envelopeContent = "inner envelope content".getBytes();
+
+        setupContainerConfig(sourceContainerName, targetContainerName, CRIME);
+        blobExists(fileName, sourceContainerName);
+        given(blobContentExtractor.isEnvelopeExtractionRequired(CRIME)).willReturn(true);
+        var dispatchedContent = captureDispatchedContent();
+
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+
+        // valid file, verifier writes inflated envelope to the sink
+        will(invocation -> {
+            OutputStream envelopeSink = invocation.getArgument(2);
+            envelopeSink.write(envelopeContent);
+            return ok();
+        })
+            .given(verifier)
+            .verifyZip(any(), any(ByteSource.class), any());
+
+        // when
+        newBlobProcessor().process(blobClient, lease);
+
+        // then
+        verify(blobDispatcher, times(1))
+            .dispatch(eq(fileName), any(), eq(targetContainerName), eq(CRIME));
+        assertThat(dispatchedContent.get()).isEqualTo(envelopeContent);
+        verify(envelopeService).markAsDispatched(id);
+    }
+
+    @Test
+    void should_verify_blob_spooled_to_disk_with_random_access_to_the_file() {
+        // given
+        var fileName = "envelope1.zip";
+        var content = new byte[2048]; // above in-memory threshold
+
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        blobExists(fileName, SOURCE_CONTAINER);
+        setupDownloadedBlobContent(content);
+        var dispatchedContent = captureDispatchedContent();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(UUID.randomUUID());
+
+        var verifiedFileContent = new AtomicReference<byte[]>();
+        will(invocation -> {
+            verifiedFileContent.set(Files.readAllBytes(invocation.getArgument(1, Path.class)));
+            return ok();
+        })
+            .given(verifier)
+            .verifyZip(any(), any(Path.class), any());
+
+        // when
+        newBlobProcessor().process(blobClient, lease);
+
+        // then
+        assertThat(verifiedFileContent.get()).isEqualTo(content);
+        assertThat(dispatchedContent.get()).isEqualTo(content);
+        verify(verifier, never()).verifyZip(any(), any(ByteSource.class), any());
+    }
+
+    @Test
+    void should_copy_valid_file_on_server_side_when_enabled_and_target_account_is_bulk_scan() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        blobCanBeStreamed("etag1");
+        given(blobProperties.getBlobSize()).willReturn(100L);
+
+        given(verifier.verifyZip(any(), any(InputStream.class))).willReturn(ok());
+
+        // when
+        newBlobProcessor(true).process(blobClient, lease);
+
+        // then
+        verify(blobDispatcher).copy(blobClient, "etag1", 100L, TARGET_CONTAINER, CFT);
+        verify(blobDispatcher, never()).dispatch(any(), any(), any(), any());
+        verify(blobClient, never()).download(any());
         verify(envelopeService).markAsDispatched(id);
+
+        var tags = Tags.of("container", SOURCE_CONTAINER, "target.account", CFT.name());
+        assertThat(meterRegistry.get(BlobProcessor.PHASE_TIMER).tags(tags).timers())
+            .extracting(timer -> timer.getId().getTag("phase"), Timer::count)
+            .containsExactlyInAnyOrder(
+                tuple("db", 2L),
+                tuple("verify", 1L),
+                tuple("copy", 1L)
+            );
+    }
+
+    @Test
+    void should_reject_invalid_file_without_copying_it_when_server_side_copy_is_enabled() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        blobCanBeStreamed("etag1");
+
+        given(verifier.verifyZip(any(), any(InputStream.class)))
+            .willReturn(error(ErrorCode.ERR_SIG_VERIFY_FAILED, "some error"));
+
+        // when
+        newBlobProcessor(true).process(blobClient, lease);
+
+        // then
+        verifyNoInteractions(blobDispatcher);
+        verify(envelopeService).markAsRejected(id, ErrorCode.ERR_SIG_VERIFY_FAILED, "some error");
+    }
+
+    @Test
+    void should_not_reject_file_when_reading_it_fails_during_verification() throws Exception {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        BlobInputStream blobStream = blobCanBeStreamed("etag1");
+        given(blobStream.read(any(), anyInt(), anyInt())).willThrow(new IOException("connection reset"));
+
+        will(invocation -> {
+            invocation.getArgument(1, InputStream.class).read(new byte[10], 0, 10);
+            return ok();
+        })
+            .given(verifier)
+            .verifyZip(any(), any(InputStream.class));
+
+        // when
+        boolean processed = newBlobProcessor(true).process(blobClient, lease);
+
+        // then
+        assertThat(processed).isFalse();
+        verifyNoInteractions(blobDispatcher);
+        verify(envelopeService, never()).markAsRejected(any(), any(), any());
+        verify(envelopeService).saveEvent(id, EventType.ERROR, BlobProcessor.ErrorMessages.DOWNLOAD_ERROR_GENERIC);
+    }
+
+    @Test
+    void should_upload_extracted_envelope_when_server_side_copy_is_enabled_but_target_account_is_crime() {
+        // given
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(UUID.randomUUID());
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CRIME);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        given(blobContentExtractor.isEnvelopeExtractionRequired(CRIME)).willReturn(true);
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
+
+        // when
+        newBlobProcessor(true).process(blobClient, lease);
+
+        // then
+        verify(blobDispatcher).dispatch(eq("envelope1.zip"), any(), eq(TARGET_CONTAINER), eq(CRIME));
+        verify(blobDispatcher, never()).copy(any(), any(), anyLong(), any(), any());
+    }
+
+    @Test
+    void should_commit_blocks_staged_during_verification_when_async_engine_is_used() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        blobCanBeDownloadedAsync("some content".getBytes());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
+        given(blobDispatcher.stage(any(), any(), any(), any())).willAnswer(stagedBlocks(List.of("block-1")));
+        given(blobDispatcher.commit(any(), any(), anyLong(), any(), any())).willReturn(Mono.empty());
+
+        // when
+        boolean result = newBlobProcessor(false, "async").process(blobClient, lease);
+
+        // then
+        assertThat(result).isTrue();
+        verify(blobDispatcher).stage(eq("envelope1.zip"), any(), eq(TARGET_CONTAINER), eq(CFT));
+        verify(blobDispatcher).commit("envelope1.zip", List.of("block-1"), 12L, TARGET_CONTAINER, CFT);
+        verify(envelopeService).markAsDispatched(id);
+
+        // and
+        var tags = Tags.of("container", SOURCE_CONTAINER, "target.account", CFT.name());
+        assertThat(meterRegistry.get(BlobProcessor.PHASE_TIMER).tags(tags).timers())
+            .extracting(timer -> timer.getId().getTag("phase"), Timer::count)
+            .containsExactlyInAnyOrder(
+                tuple("db", 2L),
+                tuple("download", 1L),
+                tuple("verify", 1L),
+                tuple("commit", 1L)
+            );
+    }
+
+    @Test
+    void should_not_commit_staged_blocks_when_verification_fails_and_async_engine_is_used() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        blobCanBeDownloadedAsync("some content".getBytes());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any()))
+            .willReturn(error(ErrorCode.ERR_SIG_VERIFY_FAILED, "some error"));
+        given(blobDispatcher.stage(any(), any(), any(), any())).willAnswer(stagedBlocks(List.of("block-1")));
+
+        // when
+        newBlobProcessor(false, "async").process(blobClient, lease);
+
+        // then
+        verify(blobDispatcher, never()).commit(any(), any(), anyLong(), any(), any());
+        verify(envelopeService).markAsRejected(id, ErrorCode.ERR_SIG_VERIFY_FAILED, "some error");
+        verify(envelopeService, never()).markAsDispatched(any());
+    }
+
+    @Test
+    void should_upload_extracted_envelope_after_verification_when_async_engine_is_used() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CRIME);
+        given(blobContentExtractor.isEnvelopeExtractionRequired(CRIME)).willReturn(true);
+        blobCanBeDownloadedAsync("some content".getBytes());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willAnswer(invocation -> {
+            invocation.getArgument(2, OutputStream.class).write("envelope".getBytes());
+            return ok();
+        });
+        given(blobDispatcher.dispatch(any(), any(), anyLong(), any(), any())).willReturn(Mono.empty());
+
+        // when
+        newBlobProcessor(false, "async").process(blobClient, lease);
+
+        // then
+        verify(blobDispatcher).dispatch(eq("envelope1.zip"), any(), eq(8L), eq(TARGET_CONTAINER), eq(CRIME));
+        verify(blobDispatcher, never()).stage(any(), any(), any(), any());
+        verify(envelopeService).markAsDispatched(id);
+    }
+
+    @Test
+    void should_not_update_envelope_status_when_commit_fails_and_async_engine_is_used() {
+        // given
+        var id = UUID.randomUUID();
+        given(envelopeService.createNewEnvelope(any(), any(), any())).willReturn(id);
+        blobExists("envelope1.zip", SOURCE_CONTAINER);
+        setupContainerConfig(SOURCE_CONTAINER, TARGET_CONTAINER, CFT);
+        blobCanBeDownloadedAsync("some content".getBytes());
+        given(verifier.verifyZip(any(), any(ByteSource.class), any())).willReturn(ok());
+        given(blobDispatcher.stage(any(), any(), any(), any())).willAnswer(stagedBlocks(List.of("block-1")));
+        given(blobDispatcher.commit(any(), any(), anyLong(), any(), any()))
+            .willReturn(Mono.error(new RuntimeException("Exception message")));
+
+        // when
+        boolean result = newBlobProcessor(false, "async").process(blobClient, lease);
+
+        // then
+        assertThat(result).isFalse();
+        verify(envelopeService, never()).markAsDispatched(any());
+        verify(envelopeService).saveEvent(id, EventType.ERROR, "Exception message");
+    }
+
+    private void blobCanBeDownloadedAsync(byte[] content) {
+        var response = mock(BlobDownloadAsyncResponse.class);
+        given(response.getDeserializedHeaders())
+            .willReturn(new BlobDownloadHeaders().setContentLength((long) content.length));
+        given(response.getValue()).willReturn(Flux.just(ByteBuffer.wrap(content)));
+        given(
+            storageAsyncClient
+                .getBlobContainerAsyncClient(SOURCE_CONTAINER)
+                .getBlobAsyncClient("envelope1.zip")
+                .downloadWithResponse(any(), any(), any(), anyBoolean())
+        ).willReturn(Mono.just(response));
+    }
+
+    private static Answer<Mono<List<String>>> stagedBlocks(List<String> blockIds) {
+        // staging consumes the downloaded content, which is shared with verification
+        return invocation -> {
+            Flux<ByteBuffer> content = invocation.getArgument(1);
+            return content.then(Mono.just(blockIds));
+        };
+    }
+
+    private BlobInputStream blobCanBeStreamed(String eTag) {
+        BlobInputStream blobStream = mock(BlobInputStream.class);
+        given(blobProperties.getETag()).willReturn(eTag);
+        given(blobClient.openInputStream(any(), any())).willReturn(blobStream);
+        return blobStream;
+    }
+
+    private AtomicReference<byte[]> captureDispatchedContent() {
+        // content is discarded once processing finishes, so it has to be read when dispatched
+        var dispatchedContent = new AtomicReference<byte[]>();
+        will(invocation -> {
+            dispatchedContent.set(((ByteSource) invocation.getArgument(1)).read());
+            return null;
+        })
+            .given(blobDispatcher)
+            .dispatch(any(), any(), any(), any());
+
+        return dispatchedContent;
     }
 
     private void blobExists(String blobName, String containerName) {
@@ -294,12 +703,34 @@ class BlobProcessorTest {
     }
 
     private BlobProcessor newBlobProcessor() {
+        return newBlobProcessor(false);
+    }
+
+    private BlobProcessor newBlobProcessor(boolean serverSideCopyEnabled) {
+        return newBlobProcessor(serverSideCopyEnabled, "blocking");
+    }
+
+    private BlobProcessor newBlobProcessor(boolean serverSideCopyEnabled, String uploadEngine) {
+        var bufferPool = new BufferPool(256, 4096, 1024, this.meterRegistry);
         return new BlobProcessor(
             this.blobDispatcher,
+            new BlobDownloader(
+                this.storageAsyncClient,
+                MoreExecutors.directExecutor(),
+                bufferPool,
+                Long.MAX_VALUE,
+                256,
+                2,
+                2
+            ),
             this.envelopeService,
             this.verifier,
             this.blobContentExtractor,
-            this.serviceConfiguration
+            this.serviceConfiguration,
+            bufferPool,
+            serverSideCopyEnabled,
+            uploadEngine,
+            this.meterRegistry
         );
     }
 }
@@ -5,10 +5,13 @@ import com.azure.core.util.Context;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
+import com.azure.storage.blob.models.BlobErrorCode;
 import com.azure.storage.blob.models.BlobRequestConditions;
 import com.azure.storage.blob.models.BlobStorageException;
 import com.azure.storage.blob.models.DeleteSnapshotsOptionType;
 import com.azure.storage.blob.specialized.BlobLeaseClient;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -18,10 +21,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Status;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobBatchDeleter;
 import uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
@@ -32,6 +42,8 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -51,17 +63,15 @@ class ContainerCleanerTest {
     @Mock BlobClient blobClient1;
     @Mock BlobClient blobClient2;
     @Mock BlobLeaseClient leaseClient;
+    @Mock BlobBatchDeleter blobBatchDeleter;
+    @Mock ScheduledExecutorService leaseRenewalScheduler;
 
     private static final Envelope ENVELOPE_1 = createEnvelope(UUID.randomUUID(), DISPATCHED, "file1.zip");
     private static final Envelope ENVELOPE_2 = createEnvelope(UUID.randomUUID(), DISPATCHED, "file2.zip");
 
     @BeforeEach
     void setUp() {
-        containerCleaner = new ContainerCleaner(
-            storageClient,
-            envelopeService,
-            new LeaseAcquirer(blobClient -> leaseClient)
-        );
+        containerCleaner = newContainerCleaner(false);
 
         given(storageClient.getBlobContainerClient(CONTAINER_NAME)).willReturn(containerClient);
     }
@@ -136,8 +146,7 @@ class ContainerCleanerTest {
             .containsExactly(leaseId1, leaseId2);
 
         // and
-        verify(envelopeService).markEnvelopeAsDeleted(ENVELOPE_1);
-        verify(envelopeService).markEnvelopeAsDeleted(ENVELOPE_2);
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(ENVELOPE_1.id, ENVELOPE_2.id));
         verifyNoMoreInteractions(envelopeService);
     }
 
@@ -165,6 +174,96 @@ class ContainerCleanerTest {
         verifyNoMoreInteractions(envelopeService);
     }
 
+    @Test
+    void should_delete_leased_blobs_in_batch_when_batch_delete_is_enabled() {
+        // given
+        containerCleaner = newContainerCleaner(true);
+        given(envelopeService.getReadyToDeleteDispatches(CONTAINER_NAME))
+            .willReturn(asList(
+                ENVELOPE_1,
+                ENVELOPE_2
+            ));
+        given(containerClient.getBlobClient(ENVELOPE_1.fileName)).willReturn(blobClient1);
+        given(containerClient.getBlobClient(ENVELOPE_2.fileName)).willReturn(blobClient2);
+        String leaseId1 = UUID.randomUUID().toString();
+        String leaseId2 = UUID.randomUUID().toString();
+        given(leaseClient.acquireLease(LeaseAcquirer.LEASE_DURATION_IN_SECONDS)).willReturn(leaseId1, leaseId2);
+        // second blob failed to be deleted
+        given(blobBatchDeleter.delete(any(), any())).willReturn(Set.of(ENVELOPE_1.fileName));
+
+        // when
+        containerCleaner.process(CONTAINER_NAME);
+
+        // then
+        verify(blobBatchDeleter).delete(
+            containerClient,
+            Map.of(ENVELOPE_1.fileName, leaseId1, ENVELOPE_2.fileName, leaseId2)
+        );
+        verify(blobClient1, never()).deleteWithResponse(any(), any(), any(), any());
+        verify(blobClient2, never()).deleteWithResponse(any(), any(), any(), any());
+
+        // and
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(ENVELOPE_1.id));
+    }
+
+    @Test
+    void should_acquire_leases_of_batch_on_lease_executor_before_deleting_it() {
+        // given
+        List<Runnable> leaseTasks = new ArrayList<>();
+        containerCleaner = newContainerCleaner(true, task -> {
+            leaseTasks.add(task);
+            task.run();
+        });
+        given(envelopeService.getReadyToDeleteDispatches(CONTAINER_NAME)).willReturn(asList(ENVELOPE_1, ENVELOPE_2));
+        given(containerClient.getBlobClient(ENVELOPE_1.fileName)).willReturn(blobClient1);
+        given(containerClient.getBlobClient(ENVELOPE_2.fileName)).willReturn(blobClient2);
+        given(leaseClient.acquireLease(LeaseAcquirer.LEASE_DURATION_IN_SECONDS)).willReturn("lease-1", "lease-2");
+        given(blobBatchDeleter.delete(any(), any())).willReturn(Set.of(ENVELOPE_1.fileName));
+
+        // when
+        containerCleaner.process(CONTAINER_NAME);
+
+        // then
+        assertThat(leaseTasks).hasSize(2);
+        verify(blobBatchDeleter).delete(eq(containerClient), any());
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(ENVELOPE_1.id));
+    }
+
+    @Test
+    void should_mark_envelope_as_deleted_without_deleting_blob_in_batch_when_blob_is_not_found() {
+        // given
+        containerCleaner = newContainerCleaner(true);
+        given(envelopeService.getReadyToDeleteDispatches(CONTAINER_NAME)).willReturn(singletonList(ENVELOPE_1));
+        given(containerClient.getBlobClient(ENVELOPE_1.fileName)).willReturn(blobClient1);
+        var notFound = mock(BlobStorageException.class);
+        given(notFound.getErrorCode()).willReturn(BlobErrorCode.BLOB_NOT_FOUND);
+        given(leaseClient.acquireLease(LeaseAcquirer.LEASE_DURATION_IN_SECONDS)).willThrow(notFound);
+        given(blobBatchDeleter.delete(any(), any())).willReturn(Set.of());
+
+        // when
+        containerCleaner.process(CONTAINER_NAME);
+
+        // then
+        verify(blobBatchDeleter).delete(containerClient, Map.of());
+        verify(envelopeService).markEnvelopesAsDeleted(List.of(ENVELOPE_1.id));
+    }
+
+    private ContainerCleaner newContainerCleaner(boolean batchDeleteEnabled) {
+        return newContainerCleaner(batchDeleteEnabled, MoreExecutors.directExecutor());
+    }
+
+    private ContainerCleaner newContainerCleaner(boolean batchDeleteEnabled, Executor blobLeaseExecutor) {
+        return new ContainerCleaner(
+            storageClient,
+            envelopeService,
+            new LeaseAcquirer(blobClient -> leaseClient, leaseRenewalScheduler, new SimpleMeterRegistry()),
+            blobBatchDeleter,
+            blobLeaseExecutor,
+            10,
+            batchDeleteEnabled
+        );
+    }
+
     private static Envelope createEnvelope(UUID uuid, Status status, String fileName) {
         return new Envelope(
             uuid,
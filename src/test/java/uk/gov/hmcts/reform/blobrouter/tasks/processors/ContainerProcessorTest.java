@@ -1,12 +1,15 @@
 package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 
-import com.azure.core.http.rest.PagedIterable;
 import com.azure.storage.blob.BlobClient;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.models.BlobErrorCode;
 import com.azure.storage.blob.models.BlobItem;
 import com.azure.storage.blob.models.BlobItemProperties;
+import com.azure.storage.blob.models.BlobProperties;
+import com.azure.storage.blob.models.BlobStorageException;
+import com.google.common.util.concurrent.MoreExecutors;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -16,20 +19,39 @@ import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Status;
 import uk.gov.hmcts.reform.blobrouter.services.BlobReadinessChecker;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanPass;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanWatermarkService;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobLister;
+import uk.gov.hmcts.reform.blobrouter.services.storage.Lease;
 import uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
 import static java.time.Instant.now;
+import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
@@ -38,25 +60,34 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 class ContainerProcessorTest {
 
     @Mock BlobServiceClient storageClient;
+    @Mock BlobLister blobLister;
     @Mock BlobProcessor blobProcessor;
     @Mock BlobReadinessChecker blobReadinessChecker;
     @Mock LeaseAcquirer leaseAcquirer;
     @Mock EnvelopeService envelopeService;
+    @Mock(lenient = true) ScanWatermarkService scanWatermarkService;
 
-    @Mock BlobContainerClient containerClient;
-    @Mock BlobClient blobClient;
-    @Mock PagedIterable<BlobItem> listBlobsResult;
+    @Mock(lenient = true) BlobContainerClient containerClient;
+    @Mock(lenient = true) BlobClient blobClient;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
     ContainerProcessor containerProcessor;
 
     @BeforeEach
     void setUp() {
+        scanIsFull();
         containerProcessor = new ContainerProcessor(
             storageClient,
+            blobLister,
             blobProcessor,
             blobReadinessChecker,
             leaseAcquirer,
-            envelopeService
+            envelopeService,
+            scanWatermarkService,
+            MoreExecutors.directExecutor(),
+            1,
+            meterRegistry
         );
     }
 
@@ -72,7 +103,7 @@ class ContainerProcessorTest {
         containerProcessor.process(envelope.container);
 
         // then
-        verify(blobProcessor).continueProcessing(envelope.id, blobClient);
+        verify(blobProcessor).continueProcessing(eq(envelope.id), eq(blobClient), any());
         verifyNoMoreInteractions(blobProcessor);
     }
 
@@ -81,7 +112,7 @@ class ContainerProcessorTest {
         // given
         var envelope = envelope(Status.DISPATCHED);
         storageHasBlob(envelope.fileName, envelope.container);
-        dbHas(envelope);
+        dbHasForListing(envelope);
 
         // when
         containerProcessor.process(envelope.container);
@@ -89,6 +120,7 @@ class ContainerProcessorTest {
         // then
         verifyNoInteractions(leaseAcquirer);
         verifyNoInteractions(blobProcessor);
+        verify(envelopeService, never()).findLastEnvelope(any(), any());
     }
 
     @Test
@@ -103,7 +135,7 @@ class ContainerProcessorTest {
         containerProcessor.process(envelope.container);
 
         // then
-        verify(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean());
+        verify(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean(), anyBoolean());
         verifyNoInteractions(blobProcessor);
     }
 
@@ -119,7 +151,7 @@ class ContainerProcessorTest {
         containerProcessor.process(envelope.container);
 
         // then
-        verify(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean());
+        verify(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean(), anyBoolean());
         verifyNoInteractions(blobProcessor);
     }
 
@@ -148,45 +180,281 @@ class ContainerProcessorTest {
         containerProcessor.process("container");
 
         // then
-        verify(blobProcessor).process(blobClient);
+        verify(blobProcessor).process(eq(blobClient), any());
         verifyNoMoreInteractions(blobProcessor);
     }
 
+    @Test
+    void should_continue_with_other_blobs_when_processing_of_a_blob_fails() {
+        // given
+        storageHasBlobs("container", 3);
+        leaseCanBeAcquired();
+        given(envelopeService.findLastEnvelope(any(), any())).willReturn(Optional.empty());
+        willThrow(new RuntimeException("test")).given(blobProcessor).process(any(), any());
+
+        // when
+        containerProcessor.process("container");
+
+        // then
+        verify(blobProcessor, times(3)).process(any(), any());
+    }
+
+    @Test
+    void should_not_process_more_blobs_from_container_at_once_than_configured() throws Exception {
+        // given
+        var executor = Executors.newFixedThreadPool(4);
+        containerProcessor = new ContainerProcessor(
+            storageClient,
+            blobLister,
+            blobProcessor,
+            blobReadinessChecker,
+            leaseAcquirer,
+            envelopeService,
+            scanWatermarkService,
+            executor,
+            2,
+            meterRegistry
+        );
+
+        storageHasBlobs("container", 6);
+        leaseCanBeAcquired();
+        given(envelopeService.findLastEnvelope(any(), any())).willReturn(Optional.empty());
+
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(50);
+            inFlight.decrementAndGet();
+            return true;
+        }).when(blobProcessor).process(any(), any());
+
+        // when
+        containerProcessor.process("container");
+        executor.shutdown();
+
+        // then
+        verify(blobProcessor, times(6)).process(any(), any());
+        assertThat(maxInFlight.get()).isBetween(1, 2);
+    }
+
+    @Test
+    void should_look_up_envelopes_once_per_listing_page() {
+        // given
+        given(storageClient.getBlobContainerClient("container")).willReturn(containerClient);
+        given(blobReadinessChecker.isReady(any())).willReturn(true);
+        storageListsPages(
+            List.of(blob("file0.zip"), blob("file1.zip")),
+            List.of(blob("file2.zip"))
+        );
+        Stream.of("file1.zip", "file2.zip").forEach(name -> {
+            var client = mock(BlobClient.class);
+            given(client.getBlobName()).willReturn(name);
+            given(client.getContainerName()).willReturn("container");
+            given(containerClient.getBlobClient(name)).willReturn(client);
+        });
+        leaseCanBeAcquired();
+
+        var processed = envelope(Status.DISPATCHED);
+        given(envelopeService.findLastEnvelopes(List.of("file0.zip", "file1.zip"), "container"))
+            .willReturn(Map.of("file0.zip", processed));
+        given(envelopeService.findLastEnvelopes(List.of("file2.zip"), "container"))
+            .willReturn(emptyMap());
+
+        // when
+        containerProcessor.process("container");
+
+        // then
+        verify(envelopeService, times(2)).findLastEnvelopes(any(), any());
+        verify(envelopeService).findLastEnvelope("file1.zip", "container");
+        verify(envelopeService).findLastEnvelope("file2.zip", "container");
+        verify(envelopeService, never()).findLastEnvelope(eq("file0.zip"), any());
+        verify(blobProcessor, times(2)).process(any(), any());
+
+        // and
+        assertThat(blobCount("listed")).isEqualTo(3);
+        assertThat(blobCount("ready")).isEqualTo(3);
+        assertThat(blobCount("skipped")).isEqualTo(1);
+    }
+
+    @Test
+    void should_only_examine_blobs_modified_since_previous_scan() {
+        // given
+        var now = OffsetDateTime.now();
+        var modifiedSince = now.minusHours(1).toInstant();
+        var scanPass = new ScanPass(ContainerProcessor.SCAN_NAME, "container", modifiedSince, now.toInstant());
+        given(scanWatermarkService.startPass(ContainerProcessor.SCAN_NAME, "container")).willReturn(scanPass);
+
+        given(storageClient.getBlobContainerClient("container")).willReturn(containerClient);
+        storageListsPages(List.of(
+            blob("old.zip", now.minusHours(2)),
+            blob("failing.zip", now.minusMinutes(40)),
+            blob("not-ready.zip", now.minusMinutes(20))
+        ));
+        var failing = mock(BlobClient.class);
+        given(failing.getBlobName()).willReturn("failing.zip");
+        given(failing.getContainerName()).willReturn("container");
+        given(containerClient.getBlobClient("failing.zip")).willReturn(failing);
+
+        given(blobReadinessChecker.isReady(any()))
+            .willAnswer(invocation -> invocation.<Instant>getArgument(0).isBefore(now.minusMinutes(30).toInstant()));
+        given(envelopeService.findLastEnvelopes(List.of("failing.zip"), "container")).willReturn(emptyMap());
+        given(envelopeService.findLastEnvelope("failing.zip", "container")).willReturn(Optional.empty());
+        given(blobProcessor.process(eq(failing), any())).willReturn(false);
+        leaseCanBeAcquired();
+
+        // when
+        containerProcessor.process("container");
+
+        // then
+        verify(blobReadinessChecker, times(2)).isReady(any());
+        verify(scanWatermarkService).complete(scanPass);
+        assertThat(scanPass.getNextWatermark(Duration.ZERO)).isEqualTo(now.minusMinutes(40).toInstant());
+        assertThat(blobCount("listed")).isEqualTo(3);
+        assertThat(blobCount("examined")).isEqualTo(2);
+    }
+
+    @Test
+    void should_not_move_watermark_when_listing_fails() {
+        // given
+        given(storageClient.getBlobContainerClient("container")).willReturn(containerClient);
+        given(blobLister.listPages(containerClient)).willThrow(new RuntimeException("test"));
+
+        // when
+        containerProcessor.process("container");
+
+        // then
+        verify(scanWatermarkService, never()).complete(any());
+    }
+
+    @Test
+    void should_process_discovered_blobs_without_listing_container() {
+        // given
+        given(storageClient.getBlobContainerClient("container")).willReturn(containerClient);
+        var ready = blobClient("ready.zip", OffsetDateTime.now().minusHours(1));
+        var notReady = blobClient("not-ready.zip", OffsetDateTime.now());
+        var deleted = mock(BlobClient.class);
+        given(containerClient.getBlobClient("deleted.zip")).willReturn(deleted);
+        given(deleted.getProperties()).willThrow(blobNotFound());
+
+        given(blobReadinessChecker.isReady(any()))
+            .willAnswer(invocation -> invocation.<Instant>getArgument(0).isBefore(now().minusSeconds(60)));
+        given(envelopeService.findLastEnvelopes(List.of("ready.zip"), "container")).willReturn(emptyMap());
+        given(envelopeService.findLastEnvelope("ready.zip", "container")).willReturn(Optional.empty());
+        leaseCanBeAcquired();
+
+        // when
+        var notReadyBlobNames = containerProcessor.process(
+            "container",
+            List.of("ready.zip", "not-ready.zip", "deleted.zip")
+        );
+
+        // then
+        assertThat(notReadyBlobNames).containsExactly("not-ready.zip");
+        verify(blobProcessor).process(eq(ready), any());
+        verify(blobProcessor, never()).process(eq(notReady), any());
+        verifyNoInteractions(blobLister);
+        assertThat(blobCount("discovered")).isEqualTo(3);
+        assertThat(blobCount("ready")).isEqualTo(1);
+    }
+
+    private double blobCount(String state) {
+        return meterRegistry
+            .get(ContainerProcessor.BLOB_COUNTER)
+            .tag("container", "container")
+            .tag("state", state)
+            .counter()
+            .count();
+    }
+
+    private void scanIsFull() {
+        given(scanWatermarkService.startPass(any(), any()))
+            .willAnswer(invocation -> new ScanPass(invocation.getArgument(0), invocation.getArgument(1), null, now()));
+    }
+
+    private BlobClient blobClient(String name, OffsetDateTime lastModified) {
+        var client = mock(BlobClient.class);
+        var properties = mock(BlobProperties.class);
+        // names are only used once the blob is processed
+        lenient().when(client.getBlobName()).thenReturn(name);
+        lenient().when(client.getContainerName()).thenReturn("container");
+        given(client.getProperties()).willReturn(properties);
+        given(properties.getLastModified()).willReturn(lastModified);
+        given(containerClient.getBlobClient(name)).willReturn(client);
+        return client;
+    }
+
+    private BlobStorageException blobNotFound() {
+        var exception = mock(BlobStorageException.class);
+        given(exception.getErrorCode()).willReturn(BlobErrorCode.BLOB_NOT_FOUND);
+        return exception;
+    }
+
+    private void storageHasBlobs(String containerName, int count) {
+        given(storageClient.getBlobContainerClient(containerName)).willReturn(containerClient);
+        given(blobReadinessChecker.isReady(any())).willReturn(true);
+
+        var blobs = IntStream
+            .range(0, count)
+            .mapToObj(i -> blob("file" + i + ".zip"))
+            .collect(toList());
+        storageListsPages(blobs);
+
+        blobs.forEach(blob -> {
+            var client = mock(BlobClient.class);
+            given(client.getBlobName()).willReturn(blob.getName());
+            given(client.getContainerName()).willReturn(containerName);
+            given(containerClient.getBlobClient(blob.getName())).willReturn(client);
+        });
+    }
+
     private void storageHasBlob(String fileName, String containerName) {
         given(storageClient.getBlobContainerClient(containerName)).willReturn(containerClient);
-        given(containerClient.listBlobs()).willReturn(listBlobsResult);
 
         var blob = blob(fileName);
-        given(listBlobsResult.stream()).willReturn(Stream.of(blob));
+        storageListsPages(List.of(blob));
         given(containerClient.getBlobClient(blob.getName())).willReturn(blobClient);
         given(blobClient.getBlobName()).willReturn(fileName);
         given(blobClient.getContainerName()).willReturn(containerName);
         given(blobReadinessChecker.isReady(any())).willReturn(true);
     }
 
+    @SafeVarargs
+    private void storageListsPages(List<BlobItem>... pages) {
+        given(blobLister.listPages(containerClient)).willReturn(List.of(pages));
+    }
+
     private void dbHas(Envelope envelope) {
+        dbHasForListing(envelope);
         given(envelopeService.findLastEnvelope(envelope.fileName, envelope.container))
             .willReturn(Optional.of(envelope));
     }
 
+    private void dbHasForListing(Envelope envelope) {
+        given(envelopeService.findLastEnvelopes(List.of(envelope.fileName), envelope.container))
+            .willReturn(Map.of(envelope.fileName, envelope));
+    }
+
     private void envelopeStatusChangedInDb(Envelope envelope, Status status) {
         Envelope envelopeInNewStatus = envelope(envelope.id, status);
+        dbHasForListing(envelope);
         given(envelopeService.findLastEnvelope(envelope.fileName, envelope.container))
-            .willReturn(Optional.of(envelope)).willReturn(Optional.of(envelopeInNewStatus));
+            .willReturn(Optional.of(envelopeInNewStatus));
     }
 
     private void envelopeDeletedFromDb(Envelope envelope) {
+        dbHasForListing(envelope);
         given(envelopeService.findLastEnvelope(envelope.fileName, envelope.container))
-            .willReturn(Optional.of(envelope)).willReturn(Optional.empty());
+            .willReturn(Optional.empty());
     }
 
     @SuppressWarnings("unchecked")
     private void leaseCanBeAcquired() {
         doAnswer(invocation -> {
             var okAction = (Consumer) invocation.getArgument(1);
-            okAction.accept(UUID.randomUUID().toString());
+            okAction.accept(mock(Lease.class));
             return null;
-        }).when(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean());
+        }).when(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean(), anyBoolean());
     }
 
     @SuppressWarnings("unchecked")
@@ -195,7 +463,7 @@ class ContainerProcessorTest {
             var failureAction = (Consumer) invocation.getArgument(2);
             failureAction.accept(BlobErrorCode.INVALID_INPUT);
             return null;
-        }).when(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean());
+        }).when(leaseAcquirer).ifAcquiredOrElse(any(), any(), any(), anyBoolean(), anyBoolean());
     }
 
     private Envelope envelope(Status status) {
@@ -217,12 +485,16 @@ class ContainerProcessorTest {
     }
 
     private BlobItem blob(String name) {
+        return blob(name, OffsetDateTime.now());
+    }
+
+    private BlobItem blob(String name, OffsetDateTime lastModified) {
         var blobItem = mock(BlobItem.class);
         var properties = mock(BlobItemProperties.class);
 
         given(blobItem.getProperties()).willReturn(properties);
-        given(properties.getLastModified()).willReturn(OffsetDateTime.now());
-        given(blobItem.getName()).willReturn(name);
+        given(properties.getLastModified()).willReturn(lastModified);
+        lenient().when(blobItem.getName()).thenReturn(name); // not needed for blobs skipped by incremental scans
 
         return blobItem;
     }
@@ -1,6 +1,5 @@
 package uk.gov.hmcts.reform.blobrouter.tasks.processors;
 
-import com.azure.core.http.rest.PagedIterable;
 import com.azure.storage.blob.BlobContainerClient;
 import com.azure.storage.blob.BlobServiceClient;
 import com.azure.storage.blob.models.BlobItem;
@@ -8,12 +7,18 @@ import com.azure.storage.blob.models.BlobItemProperties;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanPass;
+import uk.gov.hmcts.reform.blobrouter.services.scans.ScanWatermarkService;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobLister;
 import uk.gov.hmcts.reform.blobrouter.tasks.processors.DuplicateFinder.Duplicate;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.time.OffsetDateTime;
 import java.util.List;
 import java.util.Optional;
@@ -22,23 +27,26 @@ import java.util.stream.Stream;
 import static java.util.UUID.randomUUID;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class DuplicateFinderTest {
 
     @Mock BlobServiceClient storageClient;
     @Mock EnvelopeService envelopeService;
+    @Mock ScanWatermarkService scanWatermarkService;
 
     @Mock BlobContainerClient blobContainerClient;
-    @Mock PagedIterable<BlobItem> listBlobsResult;
+    @Mock BlobLister blobLister;
 
     @BeforeEach
     void setUp() {
         given(storageClient.getBlobContainerClient(any())).willReturn(blobContainerClient);
-        given(blobContainerClient.listBlobs()).willReturn(listBlobsResult);
     }
 
     @Test
@@ -52,28 +60,66 @@ class DuplicateFinderTest {
             blob("b.zip"),
             blob("c.zip")
         );
-        given(listBlobsResult.stream()).willReturn(blobs);
+        given(blobLister.listBlobs(blobContainerClient)).willReturn(blobs);
 
         given(envelopeService.findLastEnvelope("a.zip", "container")).willReturn(Optional.empty());
         given(envelopeService.findLastEnvelope("b.zip", "container")).willReturn(Optional.of(deletedEnvelope));
         given(envelopeService.findLastEnvelope("c.zip", "container")).willReturn(Optional.of(notYetDeletedEnvelope));
 
         // when
-        List<Duplicate> result = new DuplicateFinder(storageClient, envelopeService).findIn("container");
+        List<Duplicate> result = duplicateFinder(null).findIn("container");
 
         // then
         assertThat(result)
             .extracting(d -> d.fileName)
             .containsExactly("b.zip");
+        verify(scanWatermarkService).complete(any());
+    }
+
+    @Test
+    void should_only_check_blobs_modified_since_previous_search() {
+        // given
+        Envelope deletedEnvelope = new Envelope(randomUUID(), null, null, null, null, null, null, true, false);
+
+        var now = OffsetDateTime.now();
+        given(blobLister.listBlobs(blobContainerClient)).willReturn(Stream.of(
+            blob("old.zip", now.minusHours(2)),
+            blob("new.zip", now)
+        ));
+        given(envelopeService.findLastEnvelope("new.zip", "container")).willReturn(Optional.of(deletedEnvelope));
+
+        // when
+        List<Duplicate> result = duplicateFinder(now.minusHours(1).toInstant()).findIn("container");
+
+        // then
+        assertThat(result)
+            .extracting(d -> d.fileName)
+            .containsExactly("new.zip");
+        verify(envelopeService, never()).findLastEnvelope(eq("old.zip"), any());
+
+        // and duplicate is checked again next time, in case it could not be moved
+        var scanPass = ArgumentCaptor.forClass(ScanPass.class);
+        verify(scanWatermarkService).complete(scanPass.capture());
+        assertThat(scanPass.getValue().getNextWatermark(Duration.ZERO)).isEqualTo(now.toInstant());
+    }
+
+    private DuplicateFinder duplicateFinder(Instant modifiedSince) {
+        given(scanWatermarkService.startPass(DuplicateFinder.SCAN_NAME, "container"))
+            .willReturn(new ScanPass(DuplicateFinder.SCAN_NAME, "container", modifiedSince, Instant.now()));
+        return new DuplicateFinder(storageClient, blobLister, envelopeService, scanWatermarkService);
     }
 
     private BlobItem blob(String name) {
+        return blob(name, OffsetDateTime.now());
+    }
+
+    private BlobItem blob(String name, OffsetDateTime lastModified) {
         var blobItem = mock(BlobItem.class);
         given(blobItem.getName()).willReturn(name);
         var properties = mock(BlobItemProperties.class);
 
         lenient().when(blobItem.getProperties()).thenReturn(properties);
-        lenient().when(properties.getLastModified()).thenReturn(OffsetDateTime.now());
+        lenient().when(properties.getLastModified()).thenReturn(lastModified);
 
         return blobItem;
     }
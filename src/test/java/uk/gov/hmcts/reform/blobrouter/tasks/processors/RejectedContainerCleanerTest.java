@@ -9,6 +9,7 @@ import com.azure.storage.blob.models.BlobItem;
 import com.azure.storage.blob.models.BlobRequestConditions;
 import com.azure.storage.blob.models.DeleteSnapshotsOptionType;
 import com.azure.storage.blob.specialized.BlobLeaseClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -19,16 +20,24 @@ import uk.gov.hmcts.reform.blobrouter.data.envelopes.Envelope;
 import uk.gov.hmcts.reform.blobrouter.data.events.EventType;
 import uk.gov.hmcts.reform.blobrouter.services.EnvelopeService;
 import uk.gov.hmcts.reform.blobrouter.services.RejectedBlobChecker;
+import uk.gov.hmcts.reform.blobrouter.services.storage.BlobLister;
 import uk.gov.hmcts.reform.blobrouter.services.storage.LeaseAcquirer;
 
-import java.util.Optional;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -40,9 +49,11 @@ class RejectedContainerCleanerTest {
     private static final String REJECTED_BLOB = "file2.zip";
 
     @Mock BlobServiceClient storageClient;
+    @Mock BlobLister blobLister;
     @Mock RejectedBlobChecker blobChecker;
     @Mock EnvelopeService envelopeService;
     @Mock BlobLeaseClient leaseClient;
+    @Mock ScheduledExecutorService leaseRenewalScheduler;
 
     @Mock PagedIterable<BlobContainerItem> containers;
     @Mock BlobContainerItem container1Item;
@@ -52,7 +63,6 @@ class RejectedContainerCleanerTest {
     @Mock PagedIterable<BlobItem> container1BlobItems;
 
     @Mock(lenient = true) BlobContainerClient container2Client;
-    @Mock PagedIterable<BlobItem> container2BlobItems;
 
     @Mock(lenient = true) BlobItem blobItem1;
     @Mock(lenient = true) BlobItem blobItem2;
@@ -66,9 +76,11 @@ class RejectedContainerCleanerTest {
     void setUp() {
         this.cleaner = new RejectedContainerCleaner(
             storageClient,
+            blobLister,
             blobChecker,
             envelopeService,
-            new LeaseAcquirer(blobClient -> leaseClient)
+            new LeaseAcquirer(blobClient -> leaseClient, leaseRenewalScheduler, new SimpleMeterRegistry()),
+            2
         );
     }
 
@@ -82,7 +94,7 @@ class RejectedContainerCleanerTest {
         given(container2Item.getName()).willReturn(REJECTED_CONTAINER);
 
         given(storageClient.getBlobContainerClient(REJECTED_CONTAINER)).willReturn(container2Client);
-        given(container2Client.listBlobs(any(), any())).willReturn(container2BlobItems);
+        given(blobLister.listPages(eq(container2Client), any())).willReturn(List.of());
 
         // when
         cleaner.cleanUp();
@@ -90,6 +102,7 @@ class RejectedContainerCleanerTest {
         // then
         verify(storageClient, times(0)).getBlobContainerClient("abc");
         verify(storageClient, times(1)).getBlobContainerClient(REJECTED_CONTAINER);
+        verify(envelopeService, never()).saveEvents(any(), any());
     }
 
     @Test
@@ -105,9 +118,7 @@ class RejectedContainerCleanerTest {
         given(container2Item.getName()).willReturn(REJECTED_CONTAINER);
 
         given(storageClient.getBlobContainerClient(REJECTED_CONTAINER)).willReturn(container2Client);
-        given(container2Client.listBlobs(any(), any())).willReturn(container2BlobItems);
-
-        given(container2BlobItems.stream()).willReturn(Stream.of(blobItem1, blobItem2));
+        given(blobLister.listPages(eq(container2Client), any())).willReturn(List.of(List.of(blobItem1, blobItem2)));
 
         given(blobItem1.getName()).willReturn("file1.zip");
         given(blobItem2.getName()).willReturn(REJECTED_BLOB);
@@ -122,8 +133,10 @@ class RejectedContainerCleanerTest {
         given(leaseClient.acquireLease(LeaseAcquirer.LEASE_DURATION_IN_SECONDS)).willReturn(leaseId);
 
         var envelopeId = UUID.randomUUID();
-        given(envelopeService.findLastEnvelope(REJECTED_BLOB, REJECTED_CONTAINER))
-            .willReturn(Optional.of(new Envelope(envelopeId, null, null, null, null, null, null, true, false)));
+        given(envelopeService.findLastEnvelopes(Set.of(REJECTED_BLOB), REJECTED_CONTAINER)).willReturn(Map.of(
+            REJECTED_BLOB,
+            new Envelope(envelopeId, null, null, null, null, null, null, true, false)
+        ));
 
         // when
         cleaner.cleanUp();
@@ -140,6 +153,70 @@ class RejectedContainerCleanerTest {
         assertThat(conditionCapturer.getValue().getLeaseId()).isEqualTo(leaseId);
 
         // and
-        verify(envelopeService).saveEvent(envelopeId, EventType.DELETED_FROM_REJECTED);
+        verify(envelopeService).saveEvents(List.of(envelopeId), EventType.DELETED_FROM_REJECTED);
+    }
+
+    @Test
+    void should_save_deletion_events_every_batch_size_deletions() {
+        // given
+        given(storageClient.listBlobContainers()).willReturn(containers);
+        given(containers.stream()).willReturn(Stream.of(container2Item));
+        given(container2Item.getName()).willReturn(REJECTED_CONTAINER);
+        given(storageClient.getBlobContainerClient(REJECTED_CONTAINER)).willReturn(container2Client);
+
+        var blobNames = List.of("file1.zip", "file2.zip", "file3.zip");
+        var envelopeIds = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        var blobItems = new ArrayList<BlobItem>();
+        var envelopes = new HashMap<String, Envelope>();
+        for (int i = 0; i < blobNames.size(); i++) {
+            BlobItem blobItem = mock(BlobItem.class);
+            given(blobItem.getName()).willReturn(blobNames.get(i));
+            given(blobChecker.shouldBeDeleted(blobItem)).willReturn(true);
+            blobItems.add(blobItem);
+
+            BlobClient blobClient = mock(BlobClient.class);
+            given(blobClient.getContainerName()).willReturn(REJECTED_CONTAINER);
+            given(blobClient.getBlobName()).willReturn(blobNames.get(i));
+            given(container2Client.getBlobClient(blobNames.get(i))).willReturn(blobClient);
+
+            var envelope = new Envelope(envelopeIds.get(i), null, null, null, null, null, null, true, false);
+            envelopes.put(blobNames.get(i), envelope);
+        }
+        given(blobLister.listPages(eq(container2Client), any())).willReturn(List.of(blobItems));
+        given(envelopeService.findLastEnvelopes(Set.copyOf(blobNames), REJECTED_CONTAINER)).willReturn(envelopes);
+        given(leaseClient.acquireLease(LeaseAcquirer.LEASE_DURATION_IN_SECONDS)).willReturn("lease-id");
+
+        // when
+        cleaner.cleanUp();
+
+        // then
+        var inOrder = inOrder(envelopeService);
+        inOrder.verify(envelopeService)
+            .saveEvents(envelopeIds.subList(0, 2), EventType.DELETED_FROM_REJECTED);
+        inOrder.verify(envelopeService)
+            .saveEvents(envelopeIds.subList(2, 3), EventType.DELETED_FROM_REJECTED);
+        verify(envelopeService, times(2)).saveEvents(any(), any());
+        verify(envelopeService, times(1)).findLastEnvelopes(any(), any());
+    }
+
+    @Test
+    void should_leave_blobs_of_page_when_their_envelopes_cannot_be_found() {
+        // given
+        given(storageClient.listBlobContainers()).willReturn(containers);
+        given(containers.stream()).willReturn(Stream.of(container2Item));
+        given(container2Item.getName()).willReturn(REJECTED_CONTAINER);
+        given(storageClient.getBlobContainerClient(REJECTED_CONTAINER)).willReturn(container2Client);
+
+        given(blobChecker.shouldBeDeleted(blobItem2)).willReturn(true);
+        given(blobItem2.getName()).willReturn(REJECTED_BLOB);
+        given(blobLister.listPages(eq(container2Client), any())).willReturn(List.of(List.of(blobItem2)));
+        given(envelopeService.findLastEnvelopes(any(), any())).willThrow(new RuntimeException("connection lost"));
+
+        // when
+        cleaner.cleanUp();
+
+        // then
+        verify(container2Client, never()).getBlobClient(any());
+        verify(envelopeService, never()).saveEvents(any(), any());
     }
 }
@@ -1,13 +1,19 @@
 package uk.gov.hmcts.reform.blobrouter.util;
 
+import com.google.common.io.ByteSource;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.hmcts.reform.blobrouter.data.events.ErrorCode;
 import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidConfigException;
 import uk.gov.hmcts.reform.blobrouter.services.BlobVerifier;
 
+import java.io.ByteArrayInputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.spec.InvalidKeySpecException;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -34,6 +40,58 @@ class BlobVerifierTest {
         assertThat(verifier.verifyZip("test.zip", zipBytes).isOk).isTrue();
     }
 
+    @Test
+    void should_return_ok_when_signature_verification_of_streamed_zip_is_success() throws Exception {
+        // given
+        byte[] zipBytes = zipAndSignDir("signature/sample_valid_content", "signature/test_private_key.der");
+
+        // then
+        assertThat(verifier.verifyZip("test.zip", new ByteArrayInputStream(zipBytes)).isOk).isTrue();
+    }
+
+    @Test
+    void should_return_ok_when_signature_verification_of_zip_file_is_success(@TempDir Path tempDir) throws Exception {
+        // given
+        byte[] zipBytes = zipAndSignDir("signature/sample_valid_content", "signature/test_private_key.der");
+        Path zipFile = Files.write(tempDir.resolve("test.zip"), zipBytes);
+
+        // then
+        assertThat(verifier.verifyZip("test.zip", zipFile, OutputStream.nullOutputStream()).isOk).isTrue();
+    }
+
+    @Test
+    void should_return_error_when_zip_file_is_not_a_zip(@TempDir Path tempDir) throws Exception {
+        // given
+        Path zipFile = Files.write(tempDir.resolve("test.zip"), "not a zip".getBytes());
+
+        // then
+        var result = verifier.verifyZip("test.zip", zipFile, OutputStream.nullOutputStream());
+        assertThat(result.isOk).isFalse();
+        assertThat(result.error).isEqualTo(ErrorCode.ERR_ZIP_PROCESSING_FAILED);
+    }
+
+    @Test
+    void should_return_ok_when_signature_verification_of_byte_source_is_success() throws Exception {
+        // given
+        byte[] zipBytes = zipAndSignDir("signature/sample_valid_content", "signature/test_private_key.der");
+
+        // then
+        var result = verifier.verifyZip("test.zip", ByteSource.wrap(zipBytes), OutputStream.nullOutputStream());
+        assertThat(result.isOk).isTrue();
+    }
+
+    @Test
+    void should_return_error_when_central_directory_has_unexpected_entries() throws Exception {
+        // given
+        byte[] zipBytes = zipDir("signature/sample_valid_content"); // no signature
+
+        // then
+        var result = verifier.verifyZip("test.zip", ByteSource.wrap(zipBytes), OutputStream.nullOutputStream());
+        assertThat(result.isOk).isFalse();
+        assertThat(result.error).isEqualTo(ErrorCode.ERR_ZIP_PROCESSING_FAILED);
+        assertThat(result.errorDescription).isEqualTo("Invalid zip archive");
+    }
+
     @Test
     void should_return_error_when_signature_verification_fails() throws Exception {
         // given
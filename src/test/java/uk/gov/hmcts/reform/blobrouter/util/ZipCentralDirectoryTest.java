@@ -0,0 +1,96 @@
+package uk.gov.hmcts.reform.blobrouter.util;
+
+import com.google.common.io.ByteSource;
+import org.junit.jupiter.api.Test;
+import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidZipArchiveException;
+import uk.gov.hmcts.reform.blobrouter.util.zipverification.ZipCentralDirectory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ZipCentralDirectoryTest {
+
+    @Test
+    void should_read_names_and_declared_sizes_of_entries() throws Exception {
+        // given
+        byte[] zip = zip(null, "envelope.zip", new byte[5000], "signature", "abc".getBytes());
+
+        // when
+        var entries = ZipCentralDirectory.readEntries(ByteSource.wrap(zip), 2);
+
+        // then
+        assertThat(entries).hasValueSatisfying(list -> assertThat(list)
+            .extracting(ZipEntry::getName, ZipEntry::getSize)
+            .containsExactly(tuple("envelope.zip", 5000L), tuple("signature", 3L))
+        );
+        assertThat(entries.get().get(0).getCompressedSize()).isLessThan(5000L);
+    }
+
+    @Test
+    void should_read_entries_of_zip_with_comment() throws Exception {
+        // given
+        byte[] zip = zip("some comment", "envelope.zip", new byte[10]);
+
+        // when
+        var entries = ZipCentralDirectory.readEntries(ByteSource.wrap(zip), 2);
+
+        // then
+        assertThat(entries).hasValueSatisfying(list -> assertThat(list)
+            .extracting(ZipEntry::getName)
+            .containsExactly("envelope.zip")
+        );
+    }
+
+    @Test
+    void should_reject_zip_with_too_many_entries_before_reading_them() throws Exception {
+        // given
+        byte[] zip = zip(null, "a", new byte[1], "b", new byte[1], "c", new byte[1]);
+
+        // then
+        assertThatThrownBy(() -> ZipCentralDirectory.readEntries(ByteSource.wrap(zip), 2))
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining("too many entries");
+    }
+
+    @Test
+    void should_reject_content_which_is_not_a_zip() {
+        assertThatThrownBy(() -> ZipCentralDirectory.readEntries(ByteSource.wrap("not a zip".getBytes()), 2))
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining("end of central directory record not found");
+    }
+
+    @Test
+    void should_reject_zip_with_truncated_central_directory() throws Exception {
+        // given
+        byte[] zip = zip(null, "envelope.zip", new byte[10]);
+        // central directory offset pointing past its own end
+        int offsetPosition = zip.length - 22 + 16;
+        zip[offsetPosition + 1] = (byte) 0x7F;
+
+        // then
+        assertThatThrownBy(() -> ZipCentralDirectory.readEntries(ByteSource.wrap(zip), 2))
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining("out of bounds");
+    }
+
+    private static byte[] zip(String comment, Object... namesAndContents) throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+        try (var zos = new ZipOutputStream(outputStream)) {
+            if (comment != null) {
+                zos.setComment(comment);
+            }
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zos.putNextEntry(new ZipEntry((String) namesAndContents[i]));
+                zos.write((byte[]) namesAndContents[i + 1]);
+                zos.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+}
@@ -4,16 +4,27 @@ import org.apache.commons.lang3.RandomUtils;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.junit.jupiter.MockitoExtension;
 import uk.gov.hmcts.reform.blobrouter.exceptions.DocSignatureFailureException;
 import uk.gov.hmcts.reform.blobrouter.exceptions.InvalidZipArchiveException;
 import uk.gov.hmcts.reform.blobrouter.util.zipverification.ZipVerifiers;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
 import java.security.PublicKey;
 import java.security.SignatureException;
+import java.util.List;
 import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
 
 import static com.google.common.io.Resources.getResource;
 import static com.google.common.io.Resources.toByteArray;
@@ -61,6 +72,40 @@ class ZipVerifiersTest {
             .hasMessage("Zip signature failed verification");
     }
 
+    @Test
+    void should_verify_signature_against_digest_of_signed_file() throws Exception {
+        byte[] test1PdfDigest = MessageDigest.getInstance("SHA-256").digest(toByteArray(getResource("test.pdf")));
+        byte[] test1SigPdfBytes = toByteArray(getResource("signature/test.pdf.sig"));
+
+        assertThatCode(() ->
+            ZipVerifiers.verifyDigestSignature(publicKey, test1PdfDigest, test1SigPdfBytes)
+        ).doesNotThrowAnyException();
+    }
+
+    @Test
+    void should_not_verify_signature_against_digest_of_other_file() throws Exception {
+        var digest = MessageDigest.getInstance("SHA-256");
+        digest.update(toByteArray(getResource("test1.pdf")));
+        byte[] test1SigPdfBytes = toByteArray(getResource("signature/test.pdf.sig"));
+
+        assertThatThrownBy(() ->
+            ZipVerifiers.verifyDigestSignature(publicKey, digest.digest(), test1SigPdfBytes)
+        )
+            .isInstanceOf(DocSignatureFailureException.class)
+            .hasMessage(INVALID_SIGNATURE_MESSAGE);
+    }
+
+    @Test
+    void should_not_accept_digest_other_than_sha256() throws Exception {
+        byte[] sha1Digest = MessageDigest.getInstance("SHA-1").digest(toByteArray(getResource("test.pdf")));
+        byte[] test1SigPdfBytes = toByteArray(getResource("signature/test.pdf.sig"));
+
+        assertThatThrownBy(() ->
+            ZipVerifiers.verifyDigestSignature(publicKey, sha1Digest, test1SigPdfBytes)
+        )
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     void should_verify_2_valid_filenames_successfully() {
         Set<String> files = Set.of(
@@ -112,6 +157,154 @@ class ZipVerifiersTest {
         );
     }
 
+    @Test
+    void should_verify_valid_zip_successfully_when_streaming() throws Exception {
+        byte[] zipBytes = zipAndSignDir("signature/sample_valid_content", "signature/test_private_key.der");
+
+        assertThatCode(() ->
+            ZipVerifiers.verifyZipStreaming(new ZipInputStream(new ByteArrayInputStream(zipBytes)), publicKey)
+        ).doesNotThrowAnyException();
+    }
+
+    @Test
+    void should_verify_zip_with_signature_entry_first_when_streaming() throws Exception {
+        byte[] innerZip = zipDir("signature/sample_valid_content");
+        byte[] signature = signWithSha256Rsa(innerZip, toByteArray(getResource("signature/test_private_key.der")));
+
+        byte[] zipBytes = zip(ZipVerifiers.SIGNATURE, signature, ZipVerifiers.ENVELOPE, innerZip);
+
+        assertThatCode(() ->
+            ZipVerifiers.verifyZipStreaming(new ZipInputStream(new ByteArrayInputStream(zipBytes)), publicKey)
+        ).doesNotThrowAnyException();
+    }
+
+    @Test
+    void should_not_verify_invalid_zip_successfully_when_streaming() throws Exception {
+        byte[] zipBytes = zipAndSignDir("signature/sample_valid_content", "signature/some_other_private_key.der");
+
+        assertThatThrownBy(() ->
+            ZipVerifiers.verifyZipStreaming(new ZipInputStream(new ByteArrayInputStream(zipBytes)), publicKey)
+        )
+            .isInstanceOf(DocSignatureFailureException.class)
+            .hasMessage(INVALID_SIGNATURE_MESSAGE);
+    }
+
+    @Test
+    void should_reject_unexpected_entry_when_streaming() throws Exception {
+        byte[] zipBytes = zipDir("signature/sample_valid_content");
+
+        assertThatThrownBy(() ->
+            ZipVerifiers.verifyZipStreaming(new ZipInputStream(new ByteArrayInputStream(zipBytes)), publicKey)
+        )
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining(INVALID_ZIP_ENTRIES_MESSAGE);
+    }
+
+    @Test
+    void should_reject_zip_without_signature_entry_when_streaming() throws Exception {
+        byte[] zipBytes = zip(ZipVerifiers.ENVELOPE, zipDir("signature/sample_valid_content"));
+
+        assertThatThrownBy(() ->
+            ZipVerifiers.verifyZipStreaming(new ZipInputStream(new ByteArrayInputStream(zipBytes)), publicKey)
+        )
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining(INVALID_ZIP_ENTRIES_MESSAGE);
+    }
+
+    @Test
+    void should_verify_valid_zip_file_and_copy_envelope_to_sink(@TempDir Path tempDir) throws Exception {
+        byte[] innerZip = zipDir("signature/sample_valid_content");
+        byte[] signature = signWithSha256Rsa(innerZip, toByteArray(getResource("signature/test_private_key.der")));
+        Path zipFile = Files.write(
+            tempDir.resolve("test.zip"),
+            zip(ZipVerifiers.SIGNATURE, signature, ZipVerifiers.ENVELOPE, innerZip)
+        );
+        var envelopeSink = new ByteArrayOutputStream();
+
+        try (var zip = new ZipFile(zipFile.toFile())) {
+            ZipVerifiers.verifyZipFile(zip, publicKey, envelopeSink);
+        }
+
+        assertThat(envelopeSink.toByteArray()).isEqualTo(innerZip);
+    }
+
+    @Test
+    void should_not_verify_invalid_zip_file_successfully(@TempDir Path tempDir) throws Exception {
+        byte[] zipBytes = zipAndSignDir("signature/sample_valid_content", "signature/some_other_private_key.der");
+        Path zipFile = Files.write(tempDir.resolve("test.zip"), zipBytes);
+
+        try (var zip = new ZipFile(zipFile.toFile())) {
+            assertThatThrownBy(() -> ZipVerifiers.verifyZipFile(zip, publicKey, OutputStream.nullOutputStream()))
+                .isInstanceOf(DocSignatureFailureException.class)
+                .hasMessage(INVALID_SIGNATURE_MESSAGE);
+        }
+    }
+
+    @Test
+    void should_reject_zip_file_with_unexpected_entries(@TempDir Path tempDir) throws Exception {
+        Path zipFile = Files.write(tempDir.resolve("test.zip"), zipDir("signature/sample_valid_content"));
+
+        try (var zip = new ZipFile(zipFile.toFile())) {
+            assertThatThrownBy(() -> ZipVerifiers.verifyZipFile(zip, publicKey, OutputStream.nullOutputStream()))
+                .isInstanceOf(InvalidZipArchiveException.class)
+                .hasMessageContaining(INVALID_ZIP_ENTRIES_MESSAGE);
+        }
+    }
+
+    @Test
+    void should_stop_inflating_envelope_exceeding_maximum_compression_ratio_when_streaming() throws Exception {
+        // highly compressible content, sizes are not declared in local headers written by ZipOutputStream
+        byte[] zipBytes = zip(ZipVerifiers.ENVELOPE, new byte[10 * 1024 * 1024], ZipVerifiers.SIGNATURE, new byte[1]);
+
+        assertThatThrownBy(() ->
+            ZipVerifiers.verifyZipStreaming(
+                new ByteArrayInputStream(zipBytes),
+                publicKey,
+                OutputStream.nullOutputStream()
+            )
+        )
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining("compression ratio");
+    }
+
+    @Test
+    void should_reject_central_directory_with_entry_exceeding_maximum_compression_ratio() throws Exception {
+        var envelope = new ZipEntry(ZipVerifiers.ENVELOPE);
+        envelope.setCompressedSize(20_000);
+        envelope.setSize(20_000L * 1000);
+        var signature = new ZipEntry(ZipVerifiers.SIGNATURE);
+        signature.setCompressedSize(256);
+        signature.setSize(256);
+
+        assertThatThrownBy(() -> ZipVerifiers.verifyCentralDirectory(List.of(envelope, signature)))
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining("compression ratio");
+    }
+
+    @Test
+    void should_reject_central_directory_with_too_big_signature_entry() {
+        var envelope = new ZipEntry(ZipVerifiers.ENVELOPE);
+        var signature = new ZipEntry(ZipVerifiers.SIGNATURE);
+        signature.setSize(1024 * 1024);
+
+        assertThatThrownBy(() -> ZipVerifiers.verifyCentralDirectory(List.of(envelope, signature)))
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining("signature entry is too big");
+    }
+
+    @Test
+    void should_reject_central_directory_with_more_than_expected_entries() {
+        var entries = List.of(
+            new ZipEntry(ZipVerifiers.ENVELOPE),
+            new ZipEntry(ZipVerifiers.SIGNATURE),
+            new ZipEntry("other")
+        );
+
+        assertThatThrownBy(() -> ZipVerifiers.verifyCentralDirectory(entries))
+            .isInstanceOf(InvalidZipArchiveException.class)
+            .hasMessageContaining("too many entries");
+    }
+
     @Test
     void should_verify_valid_test_zip_successfully() throws Exception {
         byte[] zipBytes = zipDir("signature/sample_valid_content");
@@ -198,6 +391,18 @@ class ZipVerifiersTest {
             .hasCauseInstanceOf(SignatureException.class);
     }
 
+    private static byte[] zip(Object... namesAndContents) throws IOException {
+        var outputStream = new ByteArrayOutputStream();
+        try (var zos = new ZipOutputStream(outputStream)) {
+            for (int i = 0; i < namesAndContents.length; i += 2) {
+                zos.putNextEntry(new ZipEntry((String) namesAndContents[i]));
+                zos.write((byte[]) namesAndContents[i + 1]);
+                zos.closeEntry();
+            }
+        }
+        return outputStream.toByteArray();
+    }
+
     private static PublicKey loadPublicKey(String fileName) throws Exception {
         return PublicKeyDecoder.decode(toByteArray(getResource(fileName)));
     }